@@ -0,0 +1,28 @@
+package autocompletion;
+
+import java.io.IOException;
+import org.openjdk.jmh.runner.RunnerException;
+
+/**
+ * Class: Benchmarks.java
+ * Description: Settings shared by the JMH benchmarks, and a main used to
+ *  run them all from an IDE.
+ * Author: Paulo Jorge.
+ */
+public class Benchmarks {
+    // Seed used for every synthetic corpus so runs are repeatable
+    public static final long SEED = 42;
+    // Number of lookups or queries timed per benchmark invocation
+    public static final int BATCH = 1024;
+
+    /**
+     * Benchmark main, accepting the same arguments as the JMH jar.
+     * @param args Optional JMH arguments.
+     * @throws IOException If the JMH options cannot be read.
+     * @throws RunnerException If a benchmark fails.
+     */
+    public static void main(String[] args) throws IOException,
+            RunnerException {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
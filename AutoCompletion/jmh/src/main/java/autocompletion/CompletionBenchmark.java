@@ -0,0 +1,340 @@
+package autocompletion;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Class: CompletionBenchmark.java
+ * Description: JMH benchmarks of completing prefixes through each kind
+ *  of trie, through the batch, cached, typing and typo tolerant
+ *  completers, and end to end through wordAutoCompletion and a result
+ *  writer, over Zipf distributed corpora and prefixes of increasing
+ *  length. Prefixes are drawn from the corpus, so common prefixes are
+ *  queried most. Running with -jvmArgs -Dautocompletion.metrics=true
+ *  measures the overhead of recording metrics.
+ * Author: Paulo Jorge.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompletionBenchmark {
+    // Number of tokens in corpus, with a vocabulary of a tenth as many
+    @Param({"100000", "1000000"})
+    public int tokens;
+
+    // Maximum number of characters per prefix
+    @Param({"1", "2", "4"})
+    public int prefixLength;
+
+    // Trie built from corpus and its compact copies
+    private AutoCompletionTrie trie;
+    private CompactTrie compact;
+    private CompactTrie direct;
+    private CompactTrie mapped;
+    // Radix trie and minimal automaton of the same dictionary
+    private RadixTrie radix;
+    private DawgTrie dawg;
+    // Snapshot the mapped trie is read from
+    private File snapshot;
+    // Completers sharing the trie
+    private BatchCompleter batch;
+    private CompletionCache cache;
+    private CompletionSession session;
+    private FuzzyCompleter fuzzy;
+    // Prefixes completed per invocation, and the same with a typo
+    private ArrayList<String> prefixes;
+    private final String[] typos = new String[Benchmarks.BATCH];
+    // Results reused between completions
+    private final CompletionResult result = new CompletionResult(5);
+    private final CompletionResult topK = new CompletionResult(50);
+    // Writer discarding the results written
+    private final ResultWriter writer = new ResultWriter(
+            new WritableByteChannel() {
+        @Override
+        public int write(ByteBuffer buffer) {
+            int bytes = buffer.remaining();
+            buffer.position(buffer.limit());
+            return bytes;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }, 1 << 16);
+
+    /**
+     * Method used to build the tries and completers, and draw the
+     *  prefixes to complete.
+     * @throws IOException If the snapshot cannot be written or read.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ZipfCorpus corpus = new ZipfCorpus(this.tokens / 10,
+                ZipfCorpus.DEFAULT_EXPONENT, Benchmarks.SEED);
+        MakeDictionary dictionary = new MakeDictionary();
+        dictionary.formDictionary(corpus.nextTokens(this.tokens));
+        this.trie = AutoCompletion.buildTrie(dictionary);
+        this.compact = new CompactTrie(this.trie);
+        this.direct = CompactTrie.allocateDirect(this.trie);
+        this.snapshot = File.createTempFile("benchmark", ".trie");
+        this.compact.save(this.snapshot.getPath());
+        this.mapped = CompactTrie.open(this.snapshot.getPath());
+        this.radix = AutoCompletion.buildRadixTrie(dictionary);
+        this.dawg = AutoCompletion.buildDawg(dictionary);
+
+        this.batch = new BatchCompleter(this.trie,
+                ForkJoinPool.commonPool(), 5);
+        this.cache = new CompletionCache(4096);
+        this.session = this.trie.startSession();
+        this.fuzzy = new FuzzyCompleter(this.trie, 2, 1000000);
+
+        this.prefixes = corpus.nextPrefixes(Benchmarks.BATCH,
+                this.prefixLength);
+        Random random = new Random(Benchmarks.SEED);
+        for (int i = 0; i < this.typos.length; i++)
+            this.typos[i] = addTypo(this.prefixes.get(i), random);
+    }
+
+    /**
+     * Method used to delete the snapshot.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.snapshot.delete();
+    }
+
+    /**
+     * Method used to add one random insertion, deletion, substitution or
+     *  swap of neighbouring characters to a prefix.
+     * @param prefix String containing prefix.
+     * @param random Random generator to use.
+     * @return String containing prefix with typo.
+     */
+    private static String addTypo(String prefix, Random random) {
+        StringBuilder typo = new StringBuilder(prefix);
+        int position = random.nextInt(prefix.length());
+        char character = (char)('a' + random.nextInt(26));
+        switch (random.nextInt(4)) {
+            case 0:
+                typo.insert(position, character);
+                break;
+            case 1:
+                if (prefix.length() > 1)
+                    typo.deleteCharAt(position);
+                break;
+            case 2:
+                typo.setCharAt(position, character);
+                break;
+            default:
+                if (position + 1 < prefix.length()) {
+                    typo.setCharAt(position, prefix.charAt(position + 1));
+                    typo.setCharAt(position + 1, prefix.charAt(position));
+                }
+        }
+        return typo.toString();
+    }
+
+    /**
+     * Benchmark of completing prefixes with the pointer trie.
+     * @param blackhole Blackhole consuming results.
+     */
+    @Benchmark
+    @OperationsPerInvocation(Benchmarks.BATCH)
+    public void getCompletions(Blackhole blackhole) {
+        for (String prefix : this.prefixes)
+            blackhole.consume(this.trie.getCompletions(prefix,
+                    this.result));
+    }
+
+    /**
+     * Benchmark of completing prefixes with the compact trie.
+     * @param blackhole Blackhole consuming results.
+     */
+    @Benchmark
+    @OperationsPerInvocation(Benchmarks.BATCH)
+    public void getCompletionsCompact(Blackhole blackhole) {
+        for (String prefix : this.prefixes)
+            blackhole.consume(this.compact.getCompletions(prefix,
+                    this.result));
+    }
+
+    /**
+     * Benchmark of completing and formatting prefixes end to end.
+     * @return Array list of type string containing formatted matches.
+     */
+    @Benchmark
+    @OperationsPerInvocation(Benchmarks.BATCH)
+    public ArrayList<String> wordAutoCompletion() {
+        return AutoCompletion.wordAutoCompletion(this.trie,
+                this.prefixes);
+    }
+
+    /**
+     * Benchmark of completing prefixes with the compact trie held in
+     *  direct memory.
+     * @param blackhole Blackhole consuming results.
+     */
+    @Benchmark
+    @OperationsPerInvocation(Benchmarks.BATCH)
+    public void getCompletionsDirect(Blackhole blackhole) {
+        for (String prefix : this.prefixes)
+            blackhole.consume(this.direct.getCompletions(prefix,
+                    this.result));
+    }
+
+    /**
+     * Benchmark of completing prefixes with the compact trie mapped from
+     *  a snapshot.
+     * @param blackhole Blackhole consuming results.
+     */
+    @Benchmark
+    @OperationsPerInvocation(Benchmarks.BATCH)
+    public void getCompletionsMapped(Blackhole blackhole) {
+        for (String prefix : this.prefixes)
+            blackhole.consume(this.mapped.getCompletions(prefix,
+                    this.result));
+    }
+
+    /**
+     * Benchmark of completing prefixes with the radix trie.
+     * @param blackhole Blackhole consuming results.
+     */
+    @Benchmark
+    @OperationsPerInvocation(Benchmarks.BATCH)
+    public void getCompletionsRadix(Blackhole blackhole) {
+        for (String prefix : this.prefixes)
+            blackhole.consume(this.radix.getCompletions(prefix,
+                    this.result));
+    }
+
+    /**
+     * Benchmark of completing prefixes with the minimal automaton.
+     * @param blackhole Blackhole consuming results.
+     */
+    @Benchmark
+    @OperationsPerInvocation(Benchmarks.BATCH)
+    public void getCompletionsDawg(Blackhole blackhole) {
+        for (String prefix : this.prefixes)
+            blackhole.consume(this.dawg.getCompletions(prefix,
+                    this.result));
+    }
+
+    /**
+     * Benchmark of ranking more completions than the pointer trie
+     *  stores, searching its sub tries best first.
+     * @param blackhole Blackhole consuming results.
+     */
+    @Benchmark
+    @OperationsPerInvocation(Benchmarks.BATCH)
+    public void getCompletionsTopK(Blackhole blackhole) {
+        for (String prefix : this.prefixes)
+            blackhole.consume(this.trie.getCompletions(prefix, this.topK));
+    }
+
+    /**
+     * Benchmark of ranking more completions than the compact trie
+     *  stores, searching its node ranges best first.
+     * @param blackhole Blackhole consuming results.
+     */
+    @Benchmark
+    @OperationsPerInvocation(Benchmarks.BATCH)
+    public void getCompletionsTopKCompact(Blackhole blackhole) {
+        for (String prefix : this.prefixes)
+            blackhole.consume(this.compact.getCompletions(prefix,
+                    this.topK));
+    }
+
+    /**
+     * Benchmark of completing the prefixes as a batch in parallel.
+     * @return Array of CompletionResult objects completed.
+     */
+    @Benchmark
+    @OperationsPerInvocation(Benchmarks.BATCH)
+    public CompletionResult[] complete() {
+        return this.batch.complete(this.prefixes);
+    }
+
+    /**
+     * Benchmark of completing and formatting prefixes end to end through
+     *  a completion cache.
+     * @return Array list of type string containing formatted matches.
+     */
+    @Benchmark
+    @OperationsPerInvocation(Benchmarks.BATCH)
+    public ArrayList<String> wordAutoCompletionCached() {
+        return AutoCompletion.wordAutoCompletion(this.trie,
+                this.prefixes, this.cache);
+    }
+
+    /**
+     * Benchmark of completing and writing prefixes end to end without a
+     *  string per result.
+     * @throws IOException If a result cannot be written.
+     */
+    @Benchmark
+    @OperationsPerInvocation(Benchmarks.BATCH)
+    public void writeAutoCompletion() throws IOException {
+        for (String prefix : this.prefixes)
+            this.writer.write(this.trie.getCompletions(prefix,
+                    this.result));
+    }
+
+    /**
+     * Benchmark of typing each prefix into a session, completing after
+     *  every character, then deleting it.
+     * @param blackhole Blackhole consuming results.
+     */
+    @Benchmark
+    @OperationsPerInvocation(Benchmarks.BATCH)
+    public void type(Blackhole blackhole) {
+        for (String prefix : this.prefixes) {
+            for (int i = 0; i < prefix.length(); i++)
+                blackhole.consume(this.session.type(prefix.charAt(i),
+                        this.result));
+            for (int i = 0; i < prefix.length(); i++)
+                blackhole.consume(this.session.backspace(this.result));
+        }
+    }
+
+    /**
+     * Benchmark of completing prefixes holding a typing mistake within
+     *  the edits allowed.
+     * @param blackhole Blackhole consuming results.
+     */
+    @Benchmark
+    @OperationsPerInvocation(Benchmarks.BATCH)
+    public void getCompletionsFuzzy(Blackhole blackhole) {
+        for (String typo : this.typos)
+            blackhole.consume(this.fuzzy.getCompletions(typo,
+                    this.result));
+    }
+}
@@ -0,0 +1,187 @@
+package autocompletion;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Class: DictionaryBenchmark.java
+ * Description: JMH benchmarks of reading a words file and forming a
+ *  dictionary from it, on one thread and in parallel, and of counting
+ *  and querying the n-grams read with it, over Zipf distributed corpora
+ *  of increasing size.
+ * Author: Paulo Jorge.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DictionaryBenchmark {
+    // Number of tokens in corpus, with a vocabulary of a tenth as many
+    @Param({"100000", "1000000"})
+    public int tokens;
+
+    // Corpus file and the tokens read from it
+    private File file;
+    private ArrayList<String> words;
+    // Pool and builder counting the corpus in parallel, and its counts
+    private ForkJoinPool pool;
+    private ParallelTrieBuilder builder;
+    private WordCounter counter;
+    // Model of the n-grams of the corpus and phrases to suggest for
+    private NGramModel model;
+    private final String[] phrases = new String[Benchmarks.BATCH];
+    // Result reused between suggestions
+    private final CompletionResult result = new CompletionResult(5);
+
+    /**
+     * Method used to write the corpus file, read its tokens and n-grams,
+     *  and draw the phrases to suggest next words for.
+     * @throws IOException If the corpus cannot be written or read.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.file = File.createTempFile("benchmark", ".csv");
+        new ZipfCorpus(this.tokens / 10, ZipfCorpus.DEFAULT_EXPONENT,
+                Benchmarks.SEED).write(this.tokens, this.file);
+        this.words = MakeDictionary.readWordsFromCSV(this.file.getPath());
+
+        this.pool = new ForkJoinPool();
+        this.builder = new ParallelTrieBuilder(this.pool, 5, Alphabet.ANY);
+        this.counter = this.builder.countWords(this.file.getPath());
+        this.model = NGramModel.read(this.file.getPath(),
+                new WordCounter());
+
+        // Take two corpus words and a prefix of the third from a line
+        Random random = new Random(Benchmarks.SEED);
+        for (int i = 0; i < this.phrases.length; i++) {
+            int position = random.nextInt(this.words.size() / 16) * 16
+                    + random.nextInt(14);
+            String next = this.words.get(position + 2);
+            this.phrases[i] = this.words.get(position) + " "
+                    + this.words.get(position + 1) + " " + next.substring(
+                    0, Math.min(random.nextInt(3), next.length()));
+        }
+    }
+
+    /**
+     * Method used to stop the pool and delete the corpus file.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.pool.shutdown();
+        this.file.delete();
+    }
+
+    /**
+     * Benchmark of reading every token of the corpus file into a list.
+     * @return Array list of type string containing tokens.
+     * @throws FileNotFoundException If the corpus file is missing.
+     */
+    @Benchmark
+    public ArrayList<String> readWordsFromCSV()
+            throws FileNotFoundException {
+        return MakeDictionary.readWordsFromCSV(this.file.getPath());
+    }
+
+    /**
+     * Benchmark of forming a dictionary from tokens already read.
+     * @return MakeDictionary object containing formed dictionary.
+     */
+    @Benchmark
+    public MakeDictionary formDictionary() {
+        MakeDictionary mD = new MakeDictionary();
+        mD.formDictionary(this.words);
+        return mD;
+    }
+
+    /**
+     * Benchmark of forming a dictionary by streaming the corpus file.
+     * @return MakeDictionary object containing formed dictionary.
+     * @throws IOException If the corpus file cannot be read.
+     */
+    @Benchmark
+    public MakeDictionary formDictionaryFromFile() throws IOException {
+        MakeDictionary mD = new MakeDictionary();
+        mD.formDictionaryFromFile(this.file.getPath());
+        return mD;
+    }
+
+    /**
+     * Benchmark of counting the words of the corpus file on one thread
+     *  without forming dictionary words.
+     * @return WordCounter object holding counts.
+     * @throws IOException If the corpus file cannot be read.
+     */
+    @Benchmark
+    public WordCounter countWords() throws IOException {
+        WordCounter words = new WordCounter();
+        new WordReader().read(this.file.getPath(), words);
+        return words;
+    }
+
+    /**
+     * Benchmark of counting the words of ranges of the corpus file in
+     *  parallel and merging the counts.
+     * @return WordCounter object holding counts.
+     * @throws IOException If the corpus file cannot be read.
+     */
+    @Benchmark
+    public WordCounter countWordsParallel() throws IOException {
+        return this.builder.countWords(this.file.getPath());
+    }
+
+    /**
+     * Benchmark of building a trie from counted words in parallel.
+     * @return AutoCompletionTrie object built.
+     */
+    @Benchmark
+    public AutoCompletionTrie buildTrieParallel() {
+        return this.builder.buildTrie(this.counter);
+    }
+
+    /**
+     * Benchmark of counting the words and n-grams of the corpus file in
+     *  one pass and indexing the n-grams.
+     * @return NGramModel object built.
+     * @throws IOException If the corpus file cannot be read.
+     */
+    @Benchmark
+    public NGramModel countNGrams() throws IOException {
+        return NGramModel.read(this.file.getPath(), new WordCounter());
+    }
+
+    /**
+     * Benchmark of suggesting next words for phrases.
+     * @param blackhole Blackhole consuming results.
+     */
+    @Benchmark
+    @OperationsPerInvocation(Benchmarks.BATCH)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void getNextWords(Blackhole blackhole) {
+        for (String phrase : this.phrases)
+            blackhole.consume(this.model.getNextWords(phrase,
+                    this.result));
+    }
+}
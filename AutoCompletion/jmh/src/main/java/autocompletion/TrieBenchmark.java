@@ -0,0 +1,288 @@
+package autocompletion;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Class: TrieBenchmark.java
+ * Description: JMH benchmarks of building each kind of trie from a
+ *  dictionary, looking words up in it and enumerating its words, over
+ *  Zipf distributed corpora of increasing size. Lookups are drawn from
+ *  the corpus, so common words are looked up as often as they occur,
+ *  with one in four words missing.
+ * Author: Paulo Jorge.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrieBenchmark {
+    // Number of tokens in corpus, with a vocabulary of a tenth as many
+    @Param({"100000", "1000000"})
+    public int tokens;
+
+    // Dictionary formed from corpus and trie built from it
+    private MakeDictionary dictionary;
+    private AutoCompletionTrie trie;
+    // Words looked up per invocation
+    private final String[] lookups = new String[Benchmarks.BATCH];
+    // Snapshot of the trie saved and opened
+    private File snapshot;
+    // Trie counted into and read at once, and trie updated in versions
+    private final ConcurrentTrie concurrent = new ConcurrentTrie();
+    private final VersionedTrie versioned = new VersionedTrie(5,
+            Alphabet.ANY);
+    // Visitor counting the characters of every word visited
+    private final CharacterCounter visitor = new CharacterCounter();
+
+    /**
+     * Method used to form the dictionary, build the trie, save its
+     *  snapshot and draw the words to look up.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ZipfCorpus corpus = new ZipfCorpus(this.tokens / 10,
+                ZipfCorpus.DEFAULT_EXPONENT, Benchmarks.SEED);
+        this.dictionary = new MakeDictionary();
+        this.dictionary.formDictionary(corpus.nextTokens(this.tokens));
+        this.trie = AutoCompletion.buildTrie(this.dictionary);
+
+        // Miss every fourth lookup by appending a character
+        Random random = new Random(Benchmarks.SEED);
+        for (int i = 0; i < this.lookups.length; i++)
+            this.lookups[i] = random.nextInt(4) == 0
+                    ? corpus.nextWord() + "#" : corpus.nextWord();
+
+        this.snapshot = File.createTempFile("benchmark", ".trie");
+        new CompactTrie(this.trie).save(this.snapshot.getPath());
+    }
+
+    /**
+     * Method used to delete the snapshot.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.snapshot.delete();
+    }
+
+    /**
+     * Benchmark of adding every dictionary word to a new trie.
+     * @return AutoCompletionTrie object built.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public AutoCompletionTrie add() {
+        return AutoCompletion.buildTrie(this.dictionary);
+    }
+
+    /**
+     * Benchmark of checking if words are whole words of the trie.
+     * @param blackhole Blackhole consuming results.
+     */
+    @Benchmark
+    @OperationsPerInvocation(Benchmarks.BATCH)
+    public void contains(Blackhole blackhole) {
+        for (String word : this.lookups)
+            blackhole.consume(this.trie.contains(word));
+    }
+
+    /**
+     * Benchmark of getting the frequency count of words.
+     * @param blackhole Blackhole consuming results.
+     */
+    @Benchmark
+    @OperationsPerInvocation(Benchmarks.BATCH)
+    public void getFrequency(Blackhole blackhole) {
+        for (String word : this.lookups)
+            blackhole.consume(this.trie.getFrequency(word));
+    }
+
+    /**
+     * Benchmark of listing every word of the trie.
+     * @return List of words.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List getAllWords() {
+        return this.trie.getAllWords();
+    }
+
+    /**
+     * Benchmark of flattening the trie into a compact trie.
+     * @return CompactTrie object built.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public CompactTrie buildCompactTrie() {
+        return new CompactTrie(this.trie);
+    }
+
+    /**
+     * Benchmark of building a radix trie from the dictionary.
+     * @return RadixTrie object built.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public RadixTrie buildRadixTrie() {
+        return AutoCompletion.buildRadixTrie(this.dictionary);
+    }
+
+    /**
+     * Benchmark of building a minimal automaton from the dictionary.
+     * @return DawgTrie object built.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public DawgTrie buildDawg() {
+        return AutoCompletion.buildDawg(this.dictionary);
+    }
+
+    /**
+     * Benchmark of absorbing the dictionary counts into a new version of
+     *  a versioned trie.
+     * @return VersionedTrie.Version object published.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public VersionedTrie.Version update() {
+        return this.versioned.update(this.dictionary.getWords());
+    }
+
+    /**
+     * Benchmark of saving a snapshot of the trie.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void save() throws IOException {
+        new CompactTrie(this.trie).save(this.snapshot.getPath());
+    }
+
+    /**
+     * Benchmark of mapping a saved snapshot, the startup cost replacing
+     *  a build.
+     * @return CompactTrie object mapped.
+     * @throws IOException If the snapshot cannot be read.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public CompactTrie open() throws IOException {
+        return CompactTrie.open(this.snapshot.getPath());
+    }
+
+    /**
+     * Benchmark of visiting every word of the trie in order.
+     * @return Long number of characters visited.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long visitWords() {
+        this.visitor.characters = 0;
+        this.trie.visitWords(this.visitor);
+        return this.visitor.characters;
+    }
+
+    /**
+     * Benchmark of visiting every word of the trie, most frequent first.
+     * @return Long number of characters visited.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long visitWordsByFrequency() {
+        this.visitor.characters = 0;
+        this.trie.visitWordsByFrequency(this.visitor);
+        return this.visitor.characters;
+    }
+
+    /**
+     * Benchmark of streaming every word node of the trie.
+     * @return Long number of words streamed.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long streamWords() {
+        return this.trie.streamWords().count();
+    }
+
+    /**
+     * Benchmark of streaming every word node of the trie in parallel.
+     * @return Long number of words streamed.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long streamWordsParallel() {
+        return this.trie.streamWords().parallel().count();
+    }
+
+    /**
+     * Benchmark of counting words into a concurrent trie while the
+     *  readers of the same group look them up.
+     */
+    @Benchmark
+    @Group("concurrent")
+    @GroupThreads(2)
+    @OperationsPerInvocation(Benchmarks.BATCH)
+    public void increment() {
+        for (String word : this.lookups)
+            this.concurrent.increment(word, 1);
+    }
+
+    /**
+     * Benchmark of looking up words in a concurrent trie while the
+     *  writers of the same group count them.
+     * @param blackhole Blackhole consuming results.
+     */
+    @Benchmark
+    @Group("concurrent")
+    @GroupThreads(2)
+    @OperationsPerInvocation(Benchmarks.BATCH)
+    public void getFrequencyConcurrent(Blackhole blackhole) {
+        for (String word : this.lookups)
+            blackhole.consume(this.concurrent.getFrequency(word));
+    }
+
+    /**
+     * Class used to count the characters of every word visited, so
+     *  visiting is timed without building strings.
+     */
+    private static class CharacterCounter implements WordVisitor {
+        // Number of characters visited
+        private long characters;
+
+        /**
+         * Method used to count the characters of a word visited.
+         * @param word Character array holding the word.
+         * @param length Integer number of characters in word.
+         * @param frequency Integer frequency count of word.
+         * @return Boolean true to continue visiting words.
+         */
+        @Override
+        public boolean visit(char[] word, int length, int frequency) {
+            this.characters += length;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package autocompletion;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Class: ZipfCorpus.java
+ * Description: Class used to generate a synthetic corpus whose word
+ *  frequencies follow Zipf's law, as natural language text does, so
+ *  benchmarks can be reproduced offline from a seed. The word of rank k
+ *  is drawn with probability proportional to 1 / k^exponent.
+ * Author: Paulo Jorge.
+ */
+public class ZipfCorpus {
+    // Exponent close to that measured for English text
+    public static final double DEFAULT_EXPONENT = 1.0;
+
+    // Vocabulary ordered by rank, most frequent word first
+    private final String[] vocabulary;
+    // Cumulative probability of drawing each rank or a lower one
+    private final double[] cumulative;
+    // Random generator words are drawn with
+    private final Random random;
+
+    /**
+     * Constructor used to initialise a new corpus generator over a
+     *  random vocabulary of lower case words.
+     * @param vocabularySize Integer number of unique words.
+     * @param exponent Double Zipf exponent, higher values concentrate
+     *  draws on fewer words.
+     * @param seed Long seed of random generator.
+     */
+    public ZipfCorpus(int vocabularySize, double exponent, long seed) {
+        this.random = new Random(seed);
+        this.vocabulary = generateVocabulary(vocabularySize, this.random);
+
+        // Sum weights of each rank, then scale to a distribution
+        this.cumulative = new double[vocabularySize];
+        double sum = 0;
+        for (int rank = 0; rank < vocabularySize; rank++) {
+            sum += 1 / Math.pow(rank + 1, exponent);
+            this.cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < vocabularySize; rank++)
+            this.cumulative[rank] /= sum;
+    }
+
+    /**
+     * Method used to generate a vocabulary of random lower case words.
+     * @param size Integer number of unique words to generate.
+     * @param random Random generator to use.
+     * @return Array of type string containing vocabulary.
+     */
+    private static String[] generateVocabulary(int size, Random random) {
+        String[] vocabulary = new String[size];
+        char[] chars = new char[12];
+
+        // Generate words of 2 to 12 characters, repeats are harmless
+        for (int i = 0; i < size; i++) {
+            int length = 2 + random.nextInt(11);
+            for (int c = 0; c < length; c++)
+                chars[c] = (char)('a' + random.nextInt(26));
+            vocabulary[i] = new String(chars, 0, length);
+        }
+
+        return vocabulary;
+    }
+
+    /**
+     * Accessor method used to get and return the vocabulary, ordered by
+     *  rank.
+     * @return Array of type string containing vocabulary.
+     */
+    public String[] getVocabulary() {
+        return this.vocabulary;
+    }
+
+    /**
+     * Method used to draw the next word of the corpus.
+     * @return String containing drawn word, shared with the vocabulary.
+     */
+    public String nextWord() {
+        // Binary search for first rank whose cumulative probability
+        // covers the drawn value
+        int rank = Arrays.binarySearch(this.cumulative,
+                this.random.nextDouble());
+        if (rank < 0)
+            rank = -rank - 1;
+        return this.vocabulary[Math.min(rank,
+                this.vocabulary.length - 1)];
+    }
+
+    /**
+     * Method used to draw a list of corpus tokens. Each token is a new
+     *  string, matching the tokens returned by
+     *  MakeDictionary.readWordsFromCSV.
+     * @param tokens Integer number of tokens to draw.
+     * @return Array list of type string containing corpus tokens.
+     */
+    public ArrayList<String> nextTokens(int tokens) {
+        ArrayList<String> corpus = new ArrayList(tokens);
+        for (int i = 0; i < tokens; i++)
+            corpus.add(new String(nextWord().toCharArray()));
+        return corpus;
+    }
+
+    /**
+     * Method used to draw a list of prefixes of corpus words, so common
+     *  prefixes are queried as often as the words they start.
+     * @param count Integer number of prefixes to draw.
+     * @param length Integer maximum number of characters per prefix.
+     * @return Array list of type string containing prefixes.
+     */
+    public ArrayList<String> nextPrefixes(int count, int length) {
+        ArrayList<String> prefixes = new ArrayList(count);
+        for (int i = 0; i < count; i++) {
+            String word = nextWord();
+            prefixes.add(word.substring(0, Math.min(length,
+                    word.length())));
+        }
+        return prefixes;
+    }
+
+    /**
+     * Method used to write drawn tokens to a comma separated file, in
+     *  the format of lotr.csv.
+     * @param tokens Integer number of tokens to write.
+     * @param file File object to write to.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(int tokens, File file) throws IOException {
+        try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+            for (int i = 0; i < tokens; i++) {
+                writer.write(nextWord());
+                writer.write(i % 16 == 15 ? '\n' : ',');
+            }
+        }
+    }
+}
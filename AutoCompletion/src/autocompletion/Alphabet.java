@@ -0,0 +1,182 @@
+package autocompletion;
+
+import java.text.Normalizer;
+
+/**
+ * Class: Alphabet.java
+ * Description: Class used to define which characters words may contain
+ *  and how words are normalised before being added to or looked up in a
+ *  trie. Normalising works on whole code points, so characters outside
+ *  the basic multilingual plane are kept or dropped as one character.
+ * Author: Paulo Jorge.
+ */
+public class Alphabet {
+    // Alphabet accepting every character, only trimming whitespace
+    public static final Alphabet ANY = new Alphabet(false, null, null);
+    // Alphabet accepting every character, converted to lower case
+    public static final Alphabet LOWER_CASE = new Alphabet(true, null,
+            null);
+    // Alphabet of lower case letters and digits in composed form, plus
+    // apostrophes and hyphens used within words
+    public static final Alphabet WORDS = new Alphabet(true,
+            Normalizer.Form.NFC, "'-");
+
+    // Flag used to represent if words are converted to lower case
+    private final boolean lowerCase;
+    // Unicode normal form words are converted to, or null for none
+    private final Normalizer.Form form;
+    // Characters accepted besides letters and digits, or null if every
+    // character is accepted
+    private final String punctuation;
+
+    /**
+     * Constructor method used to initialise a new alphabet.
+     * @param lowerCase Boolean true to convert words to lower case.
+     * @param form Normalizer.Form to convert words to, or null for none.
+     * @param punctuation String containing characters accepted besides
+     *  letters and digits, or null to accept every character.
+     */
+    public Alphabet(boolean lowerCase, Normalizer.Form form,
+            String punctuation) {
+        this.lowerCase = lowerCase;
+        this.form = form;
+        this.punctuation = punctuation;
+    }
+
+    /**
+     * Method used to normalise a word by trimming whitespace, converting
+     *  it to this alphabets normal form and case, and dropping characters
+     *  outside this alphabet.
+     * @param word String containing word to normalise.
+     * @return String containing normalised word, which is the passed in
+     *  string when it is already normalised.
+     */
+    public String normalize(String word) {
+        word = word.trim();
+        if (isNormalized(word))
+            return word;
+
+        if (this.form != null)
+            word = Normalizer.normalize(word, this.form);
+
+        // Convert and filter each code point
+        StringBuilder normalized = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); ) {
+            int codePoint = word.codePointAt(i);
+            i += Character.charCount(codePoint);
+
+            codePoint = convert(codePoint);
+            if (codePoint >= 0)
+                normalized.appendCodePoint(codePoint);
+        }
+
+        return normalized.toString();
+    }
+
+    /**
+     * Method used to convert a single code point to this alphabets case,
+     *  without converting it to this alphabets normal form.
+     * @param codePoint Integer code point to convert.
+     * @return Integer converted code point, or -1 if the code point is
+     *  outside this alphabet.
+     */
+    public int convert(int codePoint) {
+        if (this.lowerCase)
+            codePoint = Character.toLowerCase(codePoint);
+        return accepts(codePoint) ? codePoint : -1;
+    }
+
+    /**
+     * Accessor method used to get and return if words are converted to
+     *  lower case.
+     * @return Boolean true if words are converted to lower case.
+     */
+    public boolean isLowerCase() {
+        return this.lowerCase;
+    }
+
+    /**
+     * Accessor method used to get and return the unicode normal form
+     *  words are converted to.
+     * @return Normalizer.Form of words, or null for none.
+     */
+    public Normalizer.Form getForm() {
+        return this.form;
+    }
+
+    /**
+     * Accessor method used to get and return the characters accepted
+     *  besides letters and digits.
+     * @return String containing accepted characters, or null if every
+     *  character is accepted.
+     */
+    public String getPunctuation() {
+        return this.punctuation;
+    }
+
+    /**
+     * Method used to check if another alphabet normalises words the same
+     *  way as this alphabet.
+     * @param object Object to compare against.
+     * @return Boolean true if object is an equal alphabet, false
+     *  otherwise.
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof Alphabet))
+            return false;
+        Alphabet alphabet = (Alphabet)object;
+        return this.lowerCase == alphabet.lowerCase
+                && this.form == alphabet.form
+                && (this.punctuation == null ? alphabet.punctuation == null
+                : this.punctuation.equals(alphabet.punctuation));
+    }
+
+    /**
+     * Method used to get a hash code consistent with equals.
+     * @return Integer hash code.
+     */
+    @Override
+    public int hashCode() {
+        return (this.lowerCase ? 1 : 0)
+                + 31 * (this.form == null ? 0 : this.form.hashCode())
+                + 961 * (this.punctuation == null ? 0
+                : this.punctuation.hashCode());
+    }
+
+    /**
+     * Method used to check if a code point belongs to this alphabet.
+     * @param codePoint Integer code point to check.
+     * @return Boolean true if the code point is accepted, false
+     *  otherwise.
+     */
+    public boolean accepts(int codePoint) {
+        return this.punctuation == null
+                || Character.isLetterOrDigit(codePoint)
+                || this.punctuation.indexOf(codePoint) >= 0;
+    }
+
+    /**
+     * Method used to quickly check if a trimmed word is already
+     *  normalised, without allocating. Words of other than ASCII
+     *  characters are only treated as normalised when this alphabet
+     *  leaves every character unchanged.
+     * @param word String containing trimmed word to check.
+     * @return Boolean true if the word is normalised, false if it may not
+     *  be.
+     */
+    private boolean isNormalized(String word) {
+        if (!this.lowerCase && this.form == null
+                && this.punctuation == null)
+            return true;
+
+        for (int i = 0; i < word.length(); i++) {
+            char character = word.charAt(i);
+            if (character >= 0x80 || !accepts(character)
+                    || (this.lowerCase && character >= 'A'
+                    && character <= 'Z'))
+                return false;
+        }
+        return true;
+    }
+}
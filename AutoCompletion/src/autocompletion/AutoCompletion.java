@@ -1,8 +1,12 @@
 package autocompletion;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Class: AutoCompletion.java
@@ -12,6 +16,20 @@ import java.util.List;
  * Author: Paulo Jorge.
  */
 public class AutoCompletion {
+    // Maximum number of matches returned for each query
+    private static final int MAX_MATCHES = 5;
+    // System property choosing the trie queries are completed with,
+    // "radix" for a radix trie, "dawg" for a minimal automaton, "direct"
+    // for a compact trie held in direct memory, "pointer" for a trie of
+    // node objects or "compact" for the snapshot default
+    private static final String TRIE_PROPERTY = "autocompletion.trie";
+    // System properties choosing how often and in which format metrics
+    // are printed while they are on
+    private static final String METRICS_PERIOD
+            = "autocompletion.metrics.period";
+    private static final String METRICS_FORMAT
+            = "autocompletion.metrics.format";
+
     /**
      * Method used to take a list of words. Query them
      *  with a set of queries, process them and return a list of 
@@ -25,196 +43,356 @@ public class AutoCompletion {
      */
     public static ArrayList<String> wordAutoCompletion (
             ArrayList<String> words, ArrayList<String> queries) {
+        return wordAutoCompletion(buildTrie(words), queries);
+    }
+
+    /**
+     * Method used to form a dictionary from a list of words and build
+     *  a new auto completion trie from it.
+     * @param words Array list of type string containing words.
+     * @return AutoCompletionTrie object storing the top completions of
+     *  every prefix.
+     */
+    public static AutoCompletionTrie buildTrie(ArrayList<String> words) {
         // Form new dictionary using all words from input file
         MakeDictionary mD = new MakeDictionary();
         mD.formDictionary(words);
+        return buildTrie(mD);
+    }
+
+    /**
+     * Method used to build a new auto completion trie from a formed
+     *  dictionary, sharing the words of the dictionary as its word
+     *  table. Words the alphabet leaves unchanged are added by id, and
+     *  others as their normalised string, so words differing only in
+     *  surrounding whitespace are stored once, the first seen keeping
+     *  its frequency. Words the dictionary lacks may still be added, the
+     *  trie then copying the table so the dictionary is left unchanged.
+     * @param mD MakeDictionary object containing formed dictionary.
+     * @return AutoCompletionTrie object storing the top completions of
+     *  every prefix.
+     */
+    public static AutoCompletionTrie buildTrie(MakeDictionary mD) {
+        // Form new auto completion trie based on formed dictionary,
+        // storing the top completions of every prefix
+        long time = Metrics.startPhase();
+        WordCounter words = mD.getWords();
+        AutoCompletionTrie trie = new AutoCompletionTrie(MAX_MATCHES,
+                Alphabet.ANY, words);
+        for (int id = 0; id < words.size(); id++) {
+            String word = words.getWord(id);
+            if (Alphabet.ANY.normalize(word) == word)
+                trie.add(id, words.getCount(id));
+            else
+                trie.add(word, words.getCount(id));
+        }
+        Metrics.INSERT.recordSince(time);
+        return trie;
+    }
+
+    /**
+     * Method used to build a new radix trie from a formed dictionary.
+     * @param mD MakeDictionary object containing formed dictionary.
+     * @return RadixTrie object storing the top completions of every
+     *  prefix.
+     */
+    public static RadixTrie buildRadixTrie(MakeDictionary mD) {
+        long time = Metrics.startPhase();
+        RadixTrie trie = new RadixTrie(MAX_MATCHES, Alphabet.ANY);
+        WordCounter words = mD.getWords();
+        for (int id = 0; id < words.size(); id++)
+            trie.add(words.getWord(id), words.getCount(id));
+        Metrics.INSERT.recordSince(time);
+        return trie;
+    }
 
-        // Form new auto completion trie based on formed dictionary
-        AutoCompletionTrie trie = new AutoCompletionTrie();
-        for (MakeDictionary.DictionaryWord word : mD.getDictionary())
-            trie.add(word.getWord(), word.getFrequency());            
-       
+    /**
+     * Method used to build a new minimal automaton from a formed
+     *  dictionary, sorting the dictionary as saving it does.
+     * @param mD MakeDictionary object containing formed dictionary.
+     * @return DawgTrie object containing every word of the dictionary.
+     */
+    public static DawgTrie buildDawg(MakeDictionary mD) {
+        long time = Metrics.startPhase();
+        ArrayList<MakeDictionary.DictionaryWord> dictionary
+                = mD.getDictionary();
+        Collections.sort(dictionary);
+        DawgBuilder builder = new DawgBuilder(Alphabet.ANY);
+        for (MakeDictionary.DictionaryWord word : dictionary)
+            builder.add(word.getWord(), word.getFrequency());
+        DawgTrie dawg = builder.build();
+        Metrics.INSERT.recordSince(time);
+        return dawg;
+    }
+
+    /**
+     * Method used to query an existing trie with a set of queries and
+     *  return a list of matches alongside the probability of each word
+     *  matching.
+     * @param trie CompletionTrie object to query.
+     * @param queries Array list of type string containing queries to
+     *  query words with.
+     * @return Returns array list of type string containing all
+     *  matches alongside their respective probability of matching.
+     */
+    public static ArrayList<String> wordAutoCompletion (
+            CompletionTrie trie, ArrayList<String> queries) {
         // Initialize list used to store the query results
         ArrayList<String> queryResults = new ArrayList();
+        CompletionResult completions = new CompletionResult(MAX_MATCHES);
 
         // Loop all prefix queries
         for (String prefix : queries) {
-            int total = 0;
-            List<QueryWord> matches = new ArrayList();
-
-            // If prefix is a word increase total count and add
-            boolean isLeaf = false;
-            if ((total = trie.getFrequency(prefix)) > 0) {
-                matches.add(new QueryWord(prefix, total));
-                isLeaf = true;
-            }
+            // Get highest ranked completions of prefix, including the
+            // prefix itself if it is a word
+            trie.getCompletions(prefix, completions);
 
-            // Create sub trie rooted at each query prefix and 
-            // get all words
-            AutoCompletionTrie subTrie = trie.getSubTrie(prefix);
-
-            // If sub trie is not null get all words
-            if (subTrie != null) {
-                // Loop all words in sub trie
-                for (Object suffix : subTrie.getAllWords()) {
-                    // Get and increase total count
-                    int wordFrequency = subTrie.getFrequency(
-                            (String)suffix);
-                    total += wordFrequency;
-
-                    // Create and add new object containing word info 
-                    // to list
-                    matches.add(new QueryWord((prefix + suffix), 
-                            wordFrequency));
-                }
-            }
+            // Add to return list
+            queryResults.add(formatResult(completions));
+        }
 
-            // Loop all words and calculate probability
-            for (QueryWord word : matches)
-                word.calculateProbability(total);
+        return queryResults;
+    }
 
-            // Sort words list by probability
-            Collections.sort(matches);
+    /**
+     * Method used to complete a batch of queries at once, sharing the
+     *  descent of queries with a common prefix and completing groups of
+     *  queries in parallel, and return a list of matches in query
+     *  order.
+     * @param completer BatchCompleter object to complete queries with.
+     * @param queries Array list of type string containing queries to
+     *  query words with.
+     * @return Returns array list of type string containing all
+     *  matches alongside their respective probability of matching.
+     */
+    public static ArrayList<String> wordAutoCompletion (
+            BatchCompleter completer, ArrayList<String> queries) {
+        ArrayList<String> queryResults = new ArrayList<>(queries.size());
+        for (CompletionResult completions : completer.complete(queries))
+            queryResults.add(formatResult(completions));
+        return queryResults;
+    }
 
-            String result = new String();
-            // If prefix is not a word add result string
-            if (!isLeaf)
-                result = prefix + ",";
+    /**
+     * Method used to query a trie with a set of queries through a cache
+     *  of formatted results, so popular prefixes are only completed and
+     *  formatted once per trie version.
+     * @param trie CompletionTrie object to query, whose current version
+     *  is used for every query when it is a VersionedTrie. Any other trie
+     *  changed while queries run is checked again on every query.
+     * @param queries Array list of type string containing queries to
+     *  query words with.
+     * @param cache CompletionCache object to look up and store results.
+     * @return Returns array list of type string containing all
+     *  matches alongside their respective probability of matching.
+     */
+    public static ArrayList<String> wordAutoCompletion (
+            CompletionTrie trie, ArrayList<String> queries,
+            CompletionCache cache) {
+        // Answer every query from a single version of a versioned trie
+        if (trie instanceof VersionedTrie)
+            trie = ((VersionedTrie)trie).getVersion();
 
-            // Loop upto 5 results
-            for (int i = 0; i < (matches.size() < 5 
-                    ? matches.size() : 5); i++)
-                // Concatenate word to result string
-                result += matches.get(i).toString() + ",";
+        ArrayList<String> queryResults = new ArrayList<>(queries.size());
+        CompletionResult completions = new CompletionResult(MAX_MATCHES);
+        for (String prefix : queries) {
+            // Read version before completing, so an entry is never
+            // cached under a newer version than it was found in
+            long version = trie.getVersionNumber();
+            String key = trie.getAlphabet().normalize(prefix);
+            CompletionCache.Entry entry = cache.get(key, version);
 
-            // Add to return list
-            queryResults.add(result);
+            // Complete and format prefix on a miss
+            if (entry == null) {
+                trie.getCompletions(prefix, completions);
+                entry = new CompletionCache.Entry(completions.isWord(),
+                        formatMatches(completions));
+                cache.put(key, version, entry);
+            }
+
+            // If prefix is not a word add result string
+            queryResults.add(entry.isWord() ? entry.getMatches()
+                    : prefix + "," + entry.getMatches());
         }
 
         return queryResults;
     }
-    
-    private static class QueryWord implements Comparable<QueryWord>  {
-        private final String word;
-        // Frequency count of this word within trie
-        private int frequency = 0;
-        // Probability of occurences
-        private float probability = 0;
-
-        /**
-         * Constructor method used to initialise a new word to query.
-         * @param word String of word to store.
-         */
-        public QueryWord(String word) {
-            this.word = word;
-        }
 
-            /**
-         * Constructor method used to initialise a new word to query.
-         * @param word String of word to store
-         * @param frequency Integer frequency count of word.
-         */
-        public QueryWord(String word, int frequency) {
-            this.word = word;
-            this.frequency = frequency;
+    /**
+     * Method used to query a trie with a set of queries and write the
+     *  matches of each query straight to a file, one line per query, in
+     *  the same format as saving the list returned by
+     *  wordAutoCompletion, without creating strings per query.
+     * @param trie CompletionTrie object to query.
+     * @param queries List of type string containing queries to query
+     *  words with.
+     * @param file String location of file to write to.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void writeAutoCompletion(CompletionTrie trie,
+            List<String> queries, String file) throws IOException {
+        CompletionResult completions = new CompletionResult(MAX_MATCHES);
+        try (ResultWriter writer = new ResultWriter(file)) {
+            for (String prefix : queries)
+                writer.write(trie.getCompletions(prefix, completions));
         }
+    }
 
-        /**
-         * Method used to get and return this word.
-         * @return String containing word.
-         */
-        public String getWord() {
-            return this.word;
-        }
+    /**
+     * Method used to format the completions of a query as the prefix,
+     *  if it is not a word itself, followed by each completion and its
+     *  probability.
+     * @param completions CompletionResult object to format.
+     * @return String containing formatted result.
+     */
+    private static String formatResult(CompletionResult completions) {
+        // If prefix is not a word add result string
+        if (!completions.isWord())
+            return completions.getPrefix() + ","
+                    + formatMatches(completions);
+        return formatMatches(completions);
+    }
 
-        /**
-         * Method to get and return the frequency count of this word.
-         * @return Integer count of word.
-         */
-        public int getFrequency() {
-            return this.frequency;
-        }
+    /**
+     * Method used to format each completion of a query and its
+     *  probability.
+     * @param completions CompletionResult object to format.
+     * @return String containing formatted completions.
+     */
+    private static String formatMatches(CompletionResult completions) {
+        long time = Metrics.resume(completions);
+        StringBuilder result = new StringBuilder();
 
-        /**
-         * Method used to get and return the probability that this word
-         *  occurred.
-         * @return Float value of probability.
-         */
-        public float getProbability() {
-            return this.probability;
+        // Loop upto 5 results, appending words held as ids straight
+        // from their table
+        for (int i = 0; i < completions.size(); i++) {
+            int id = completions.getWordId(i);
+            if (id >= 0)
+                completions.getWordTable().appendWord(id, result);
+            else
+                result.append(completions.getWord(i));
+            result.append(',').append(completions.getProbability(i))
+                    .append(',');
         }
 
-        /**
-         * Mutator method used to set this nodes frequency count to
-         *  the passed in frequency value.
-         * @param frequency Integer frequency count to set as.
-         */
-        public void setFrequency(int frequency) {
-            this.frequency = frequency;
-        }
+        Metrics.FORMATTING.recordSince(time);
+        return result.toString();
+    }
 
-        /**
-         * Method used to calculate the probability that this word 
-         *  occurred in a query by dividing the frequency by passed 
-         *  in total.
-         * @param total Integer total to calculate.
-         */
-        public void calculateProbability(int total) {
-            this.probability = (float)getFrequency() / total;
+    /**
+     * Method used to open the snapshot of the trie formed from a words
+     *  file, first building and saving the snapshot if it is missing,
+     *  older than the words file, or cannot be opened.
+     * @param wordsFile String location of words file.
+     * @param snapshotFile String location of snapshot file.
+     * @return CompactTrie object backed by the mapped snapshot.
+     * @throws IOException If either file cannot be read or written.
+     */
+    public static CompactTrie openSnapshot(String wordsFile,
+            String snapshotFile) throws IOException {
+        File snapshot = new File(snapshotFile);
+        if (snapshot.lastModified() >= new File(wordsFile).lastModified()) {
+            try {
+                return CompactTrie.open(snapshotFile, Alphabet.ANY);
+            } catch (IOException exception) {
+                // Rebuild snapshots that are corrupt, or of an unsupported
+                // version or another alphabet
+            }
         }
 
-        /**
-         * Comparator method used to compare this object to a passed in 
-         *  object by the probability of the stored word.
-         * @param b QueryWord object to compare against.
-         * @return Integer value of compare result:
-         *  1  = b has greater frequency.
-         *  0  = b has equal frequency.
-         *  -1 = b has lower frequency.
-         */
-        @Override
-        public int compareTo(QueryWord b) {
-            return getProbability() < b.getProbability() ? 1 
-                    : (getProbability() > b.getProbability() ? -1 : 0);
-        }
+        // Count and build words file in parallel on all cores
+        AutoCompletionTrie trie = new ParallelTrieBuilder(
+                ForkJoinPool.commonPool(), MAX_MATCHES, Alphabet.ANY)
+                .buildTrie(wordsFile);
+        new CompactTrie(trie).save(snapshotFile);
+        return CompactTrie.open(snapshotFile, Alphabet.ANY);
+    }
 
-        /**
-         * Method to return details of this query word in a formatted 
-         *  string.
-         * @return Formatted string of dictionary word. 
-         */
-        @Override
-        public String toString() {
-            // New string builder
-            StringBuilder str = new StringBuilder();
-
-            // Append information
-            str.append(getWord()).append(",");
-            str.append(getProbability());
-
-            // Return formatted string
-            return str.toString();
+    /**
+     * Method used to get the trie of a words file chosen by the
+     *  autocompletion.trie system property: a radix trie built from the
+     *  words file if set to radix, a minimal automaton built from the
+     *  words file if set to dawg, a compact trie built from the words
+     *  file into direct memory if set to direct, a trie of node objects
+     *  built from the words file if set to pointer, else the snapshot of
+     *  the words file if unset or set to compact.
+     * @param wordsFile String location of words file.
+     * @param snapshotFile String location of snapshot file.
+     * @return CompletionTrie object of the words file.
+     * @throws IOException If either file cannot be read or written.
+     * @throws IllegalArgumentException If the property names no trie.
+     */
+    public static CompletionTrie openTrie(String wordsFile,
+            String snapshotFile) throws IOException {
+        String kind = System.getProperty(TRIE_PROPERTY, "compact");
+        if ("compact".equals(kind))
+            return openSnapshot(wordsFile, snapshotFile);
+        if ("radix".equals(kind)) {
+            MakeDictionary mD = new MakeDictionary();
+            mD.formDictionaryFromFile(wordsFile);
+            return buildRadixTrie(mD);
+        }
+        if ("dawg".equals(kind)) {
+            MakeDictionary mD = new MakeDictionary();
+            mD.formDictionaryFromFile(wordsFile);
+            return buildDawg(mD);
+        }
+        if ("pointer".equals(kind)) {
+            MakeDictionary mD = new MakeDictionary();
+            mD.formDictionaryFromFile(wordsFile);
+            return buildTrie(mD);
         }
+
+        // Pointer trie is only held on the heap while it is copied
+        if ("direct".equals(kind))
+            return CompactTrie.allocateDirect(new ParallelTrieBuilder(
+                    ForkJoinPool.commonPool(), MAX_MATCHES, Alphabet.ANY)
+                    .buildTrie(wordsFile));
+
+        throw new IllegalArgumentException("Unknown " + TRIE_PROPERTY
+                + " " + kind
+                + ", expected compact, dawg, direct, pointer or radix");
     }
-    
+
     /**
-     * Project main containing tests.
+     * Project main containing tests. When metrics are on they are
+     *  printed every autocompletion.metrics.period milliseconds if set,
+     *  and once all queries are written, as JSON if
+     *  autocompletion.metrics.format is json or else as text. Exits
+     *  with status 2 if autocompletion.trie names no trie.
      * @param args 
      */
     public static void main(String[] args) {
+        boolean json = "json".equals(System.getProperty(METRICS_FORMAT));
+        long period = Long.getLong(METRICS_PERIOD, 0);
+        ScheduledExecutorService reporter = null;
+        int status = 0;
+        if (Metrics.ENABLED && period > 0)
+            reporter = Metrics.startReporter(System.out, period, json);
+
         try {
-            // Get and store words/queries
-            ArrayList<String> words = MakeDictionary
-                    .readWordsFromCSV("lotr.csv");
+            // Get trie and queries
+            CompletionTrie trie = openTrie("lotr.csv", "lotr.trie");
             ArrayList<String> queries = MakeDictionary
                     .readWordsFromCSV("lotrQueries.csv");
-            
-            // Get and save query results to file
-            MakeDictionary.saveCollectionToFile(
-                    wordAutoCompletion(words, queries), 
-                    "lotrMatches.csv");
+
+            // Write query results to file
+            writeAutoCompletion(trie, queries, "lotrMatches.csv");
+        } catch (IllegalArgumentException exception) {
+            System.err.println(exception.getMessage());
+            status = 2;
         } catch (Exception exception) {
-            System.out.println(exception);
+            exception.printStackTrace();
+        } finally {
+            if (reporter != null)
+                reporter.shutdown();
+            if (Metrics.ENABLED)
+                System.out.println(json ? Metrics.toJson()
+                        : Metrics.toText());
         }
+
+        // Exit once metrics are printed, so the caller sees the failure
+        if (status != 0)
+            System.exit(status);
     }
 }
\ No newline at end of file
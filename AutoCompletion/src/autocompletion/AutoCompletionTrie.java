@@ -1,40 +1,243 @@
 package autocompletion;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 import java.util.Queue;
 import java.util.Stack;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Class: AutoCompletionTrie.java
  * Description: Class used to define a new trie data structure
  *  that can be further manipulated and read from using built in 
- *  methods.
+ *  methods. Words are interned into a word table, and leaves hold word
+ *  ids that are only decoded to strings when a result is read. A trie
+ *  built from a dictionary shares the dictionary's table until a word
+ *  the table lacks is added, when the trie copies the table and interns
+ *  new words into its copy, so the dictionary is never changed through
+ *  the trie.
  * Author: Paulo Jorge.
  */
-public class AutoCompletionTrie {
+public class AutoCompletionTrie implements CompletionTrie {
     // Trie root node object
     private final TrieNode root;
+    // Number of highest ranked completions stored at every node, or 0
+    // if completions are found by searching the sub trie
+    private final int completionLimit;
+    // Alphabet used to normalise words added and looked up
+    private final Alphabet alphabet;
+    // Table holding the word of every leaf by id
+    private WordCounter words;
+    // Whether the table belongs to someone else and is copied before
+    // new words are interned into it
+    private boolean sharedWords;
+    // Whether this is a view rooted within another trie's nodes
+    private final boolean subTrie;
+    // Number of words added or attached
+    private long versionNumber = 0;
 
     /**
      * Default constructor used to initialise a new trie object.
      */
     public AutoCompletionTrie() {
-        // Initialise new root node
-        this.root = new TrieNode();
+        this(0);
+    }
+
+    /**
+     * Constructor used to initialise a new trie object that stores the
+     *  highest ranked completions at every node as words are added, so
+     *  completing a prefix does not need to search its sub trie.
+     * @param completionLimit Integer number of completions to store at
+     *  every node, or 0 to store none.
+     */
+    public AutoCompletionTrie(int completionLimit) {
+        this(completionLimit, Alphabet.ANY);
+    }
+
+    /**
+     * Constructor used to initialise a new trie object that normalises
+     *  words with an alphabet before adding or looking them up.
+     * @param completionLimit Integer number of completions to store at
+     *  every node, or 0 to store none.
+     * @param alphabet Alphabet object used to normalise words.
+     */
+    public AutoCompletionTrie(int completionLimit, Alphabet alphabet) {
+        this(new TrieNode(), completionLimit, alphabet, new WordCounter(),
+                false, false);
+    }
+
+    /**
+     * Constructor used to initialise a new trie object over an existing
+     *  word table, such as the word counter of a dictionary, so words
+     *  already in the table are not stored again. Words are added by
+     *  id, or by a string already in the table, and the table must not
+     *  change while the trie is in use. Adding a word the table lacks
+     *  first copies the table, so the table itself is only read.
+     * @param completionLimit Integer number of completions to store at
+     *  every node, or 0 to store none.
+     * @param alphabet Alphabet object used to normalise words.
+     * @param words WordCounter table holding the words to add.
+     */
+    public AutoCompletionTrie(int completionLimit, Alphabet alphabet,
+            WordCounter words) {
+        this(new TrieNode(), completionLimit, alphabet, words, true,
+                false);
     }
 
     /**
      * Constructor used to initialise a new sub trie object rooted on
-     *  passed in node.
+     *  passed in node. The sub trie shares its nodes with the trie the
+     *  node belongs to and does not modify them. Only package classes
+     *  root sub tries, since words are spelled out from the nodes and
+     *  none can be added.
      * @param node TrieNode object to create sub trie with.
      */
-    public AutoCompletionTrie(TrieNode node) {
+    AutoCompletionTrie(TrieNode node) {
+        this(node, 0, Alphabet.ANY, null, true, true);
+    }
+
+    /**
+     * Constructor used to initialise a new trie object rooted on passed
+     *  in node, which is a new root or the node of a sub trie sharing the
+     *  settings of its trie.
+     * @param node TrieNode object to root trie on.
+     * @param completionLimit Integer number of completions stored at
+     *  every node.
+     * @param alphabet Alphabet object used to normalise words.
+     * @param words WordCounter table holding the words of every leaf,
+     *  or null to spell words out from the nodes.
+     * @param sharedWords Boolean true if the table is copied before new
+     *  words are interned, false if it belongs to this trie.
+     * @param subTrie Boolean true if node belongs to another trie, so no
+     *  words can be added through this one.
+     */
+    private AutoCompletionTrie(TrieNode node, int completionLimit,
+            Alphabet alphabet, WordCounter words, boolean sharedWords,
+            boolean subTrie) {
         // Initialise root on passed in node
         this.root = node;
-        node.clear();
+        this.completionLimit = completionLimit;
+        this.alphabet = alphabet;
+        this.words = words;
+        this.sharedWords = sharedWords;
+        this.subTrie = subTrie;
+    }
+
+    /**
+     * Accessor method used to get and return the alphabet used to
+     *  normalise words.
+     * @return Alphabet object of this trie.
+     */
+    @Override
+    public Alphabet getAlphabet() {
+        return this.alphabet;
+    }
+
+    /**
+     * Accessor method used to get and return the version of this trie,
+     *  the number of times words were added to it.
+     * @return Long version of this trie.
+     */
+    @Override
+    public long getVersionNumber() {
+        return this.versionNumber;
+    }
+
+    /**
+     * Accessor method used to get and return the table holding the word
+     *  of every leaf of this trie by id.
+     * @return WordCounter table of words, or null if words are spelt out
+     *  from the nodes.
+     */
+    public WordCounter getWords() {
+        return this.words;
+    }
+
+    /**
+     * Method used to decode the whole word ending at a leaf node.
+     * @param leaf TrieNode leaf object of this trie.
+     * @return String containing word.
+     */
+    String getWord(TrieNode leaf) {
+        return this.words == null ? leaf.getWord()
+                : this.words.getWord(leaf.getWordId());
+    }
+
+    /**
+     * Accessor method used to get and return the root node of this trie.
+     * @return TrieNode root object.
+     */
+    TrieNode getRoot() {
+        return this.root;
+    }
+
+    /**
+     * Method to count the number of nodes in this trie, including the
+     *  root.
+     * @return Integer number of nodes.
+     */
+    public int getNodeCount() {
+        int count = 0;
+
+        // Initialise new stack and default on the root node
+        Stack<TrieNode> stack = new Stack();
+        stack.push(this.root);
+        while (!stack.isEmpty()) {
+            TrieNode node = stack.pop();
+            count++;
+
+            // Loop all non-null offsprings
+            for (TrieNode offspring : node.getOffsprings())
+                if (offspring != null)
+                    stack.push(offspring);
+        }
+
+        return count;
+    }
+
+    /**
+     * Method to estimate the number of heap bytes used by the nodes of
+     *  this trie, assuming a 64 bit JVM with compressed references.
+     *  Words shared with the dictionary are not counted.
+     * @return Long estimated number of bytes.
+     */
+    public long estimateMemoryUsage() {
+        long bytes = 0;
+
+        // Initialise new stack and default on the root node
+        Stack<TrieNode> stack = new Stack();
+        stack.push(this.root);
+        while (!stack.isEmpty()) {
+            TrieNode node = stack.pop();
+
+            // Node object, its offsprings array and completions array
+            bytes += TrieNode.NODE_BYTES;
+            bytes += node.estimateOffspringBytes();
+            if (node.getCompletions().length > 0)
+                bytes += align(16 + 4L * node.getCompletions().length);
+
+            // Loop all non-null offsprings
+            for (TrieNode offspring : node.getOffsprings())
+                if (offspring != null)
+                    stack.push(offspring);
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Method to round a number of bytes up to the 8 byte alignment of
+     *  heap objects.
+     * @param bytes Long number of bytes.
+     * @return Long aligned number of bytes.
+     */
+    static long align(long bytes) {
+        return (bytes + 7) & ~7L;
     }
 
     /**
@@ -44,37 +247,125 @@ public class AutoCompletionTrie {
      *  the key exists to set leaf node as.
      * @return Boolean true if key was successfully added or false
      *  otherwise, if the word already exists in trie.
+     * @throws UnsupportedOperationException If this is a sub trie.
      */
     public boolean add(String key, int frequency) {
         // Store result of contains
+        key = this.alphabet.normalize(key);
         if (contains(key))
             return false;
-            
+        checkNotSubTrie();
+
+        // Add words a shared table holds by id, copying the table the
+        // first time it lacks one so its owner never sees it change
+        if (this.sharedWords) {
+            int word = this.words.indexOf(key);
+            if (word >= 0)
+                return add(word, frequency);
+
+            WordCounter copy = new WordCounter(this.words.size() + 1);
+            copy.addAll(this.words);
+            this.words = copy;
+            this.sharedWords = false;
+        }
+        return add(this.words.intern(key), frequency);
+    }
+
+    /**
+     * Method used to refuse changes made through a sub trie, which
+     *  shares the nodes of the trie it was taken from.
+     * @throws UnsupportedOperationException If this is a sub trie.
+     */
+    private void checkNotSubTrie() {
+        if (this.subTrie)
+            throw new UnsupportedOperationException("Words cannot be "
+                    + "added through a sub trie");
+    }
+
+    /**
+     * Method to add a word already held in the word table of this trie,
+     *  without creating a string of it. The word must already be
+     *  normalised by the alphabet of this trie. Only reads the table, so
+     *  separate tries sharing a table may each be built on their own
+     *  thread, as ParallelTrieBuilder does. A single trie is not thread
+     *  safe and must only be changed by one thread at a time.
+     * @param word Integer id of word within the word table.
+     * @param frequency Integer frequency count of number of times
+     *  the word exists to set leaf node as.
+     * @return Boolean true if word was successfully added or false
+     *  otherwise, if the word already exists in trie.
+     * @throws UnsupportedOperationException If this is a sub trie.
+     */
+    public boolean add(int word, int frequency) {
+        checkNotSubTrie();
+
         // Get root trie node
         TrieNode node = this.root;
-        
-        // Loop all characters in key
-        for (char character : key.trim().toCharArray()) {
-            // Index position of character
-            int index = character - 'a';
+
+        // Loop all characters in word
+        int length = this.words.getLength(word);
+        for (int i = 0; i < length; i++) {
+            char character = this.words.charAt(word, i);
+            TrieNode offspring = node.getOffspring(character);
 
             // Add offspring if it doesnt already exist
-            if (node.getOffsprings()[index] == null)
-                node = node.addOffspring(index);
-            // Else, move current position to the characters index
+            if (offspring == null)
+                node = node.addOffspring(character);
+            // Else, move current position to the offspring
             else
-                node = node.getOffsprings()[index];
+                node = offspring;
         }
 
+        // Word already exists
+        if (node.getIsLeaf())
+            return false;
+
         // Set node to leaf as true and return
         node.isLeaf(true);
         // Set nodes frequency
         node.setFrequency(frequency);
-        
+        node.setWordId(word);
+
+        // Update totals and completions of leaf and all its ancestors
+        for (TrieNode leaf = node; node != null; node = node.getParent()) {
+            node.addTotal(frequency);
+            node.raiseMaxFrequency(frequency);
+            if (this.completionLimit > 0)
+                node.addCompletion(leaf, this.completionLimit,
+                        this.words);
+        }
+        this.versionNumber++;
+
         // If the key already exists return false
         return true;
     }
 
+    /**
+     * Method used to move the nodes of another trie under the root of
+     *  this trie, updating the root total and completions. Used to join
+     *  tries built separately over words with different first
+     *  characters.
+     * @param trie AutoCompletionTrie object to move nodes from, which
+     *  must share the word table of this trie, must not share a first
+     *  character with this trie and is left unusable.
+     */
+    void attach(AutoCompletionTrie trie) {
+        for (TrieNode offspring : trie.root.getOffsprings()) {
+            if (offspring == null)
+                continue;
+
+            // Move offspring and rank its completions against the root
+            this.root.attachOffspring(offspring);
+            this.root.addTotal(offspring.getTotal());
+            this.root.raiseMaxFrequency(offspring.getMaxFrequency());
+            if (this.completionLimit > 0)
+                for (TrieNode leaf : offspring.getCompletions())
+                    this.root.addCompletion(leaf, this.completionLimit,
+                            this.words);
+        }
+        this.versionNumber++;
+    }
+
     /**
      * Method to check if this trie contains a whole word.
      * @param key String containing word to check.
@@ -82,26 +373,13 @@ public class AutoCompletionTrie {
      *  whole word, false otherwise if whole word is not found, not
      *  just a prefix.
      */
+    @Override
     public boolean contains(String key) {
         // Temp object containing key search result
-        TrieNode node = this.root;
-
-        // Loop all characters in key
-        for (char character : key.trim().toCharArray()) {
-            // Index position of character
-            int index = character - 'a';
-
-            // Update position of temp trie node if the current
-            // character in key exists, or return null if not
-            if (node.getOffsprings()[index] != null)
-                node = node.getOffsprings()[index];
-            // Return false if key is not within trie
-            else
-                return false;
-        }
+        TrieNode node = getNode(this.root, key);
 
         // Return true if key is the leaf of a node else false
-        return node.getIsLeaf();
+        return node != null && node.getIsLeaf();
     }
 
     /**
@@ -110,19 +388,19 @@ public class AutoCompletionTrie {
      */
     public String outputBreadthFirstSearch() {
         // Initialise new queue and default on the root node
-        Queue queue = new LinkedList();
+        Queue<TrieNode> queue = new ArrayDeque<>();
         queue.add(this.root);
 
         // Initialise a new empty bfs string
-        String bfs = new String();
+        StringBuilder bfs = new StringBuilder();
 
         // Loop queue while not empty
         while (!queue.isEmpty()) {
             // Get queue head node
-            TrieNode node = (TrieNode)queue.poll();
+            TrieNode node = queue.poll();
             
-            // Concatenate node character to output string
-            bfs += node.getCharacter();
+            // Append node character to output string
+            bfs.append(node.getCharacter());
                     
             // Loop all non-null offsprings
             for (TrieNode offspring : node.getOffsprings())
@@ -131,7 +409,7 @@ public class AutoCompletionTrie {
                     queue.add(offspring);                    
         }
         
-        return bfs;
+        return bfs.toString();
     }
 
     /**
@@ -140,19 +418,19 @@ public class AutoCompletionTrie {
      */
     public String outputDepthFirstSearch() {
         // Initialise new stack and default on the root node
-        Stack<TrieNode> stack = new Stack();
+        Deque<TrieNode> stack = new ArrayDeque<>();
         stack.push(this.root);
 
         // Initialise a new empty dfs string
-        String dfs = new String();
+        StringBuilder dfs = new StringBuilder();
 
         // Loop stack until empty
         while(!stack.isEmpty()) {
             // Pop node at top of stack
             TrieNode node = stack.pop();
             
-            // Concatenate node character to output string
-            dfs += node.getCharacter();
+            // Append node character to output string
+            dfs.append(node.getCharacter());
             
             // Loop all non-null offsprings
             for (TrieNode offspring : node.getOffsprings())
@@ -161,85 +439,211 @@ public class AutoCompletionTrie {
                     stack.push(offspring);
         }
 
-        // Return reversed string using stringbuilder
-        return new StringBuilder(dfs).reverse().toString();
+        // Return reversed string
+        return dfs.reverse().toString();
     }
 
     /**
      * Method to get and return a new sub trie rooted at the passed in
-     *  prefix.
+     *  prefix. The sub trie shares its nodes with this trie and is only
+     *  read, words being added to this trie instead.
      * @param prefix String prefix to get new sub trie from.
      * @return Object of type Trie rooted at the passed in prefix, or
      *  null if the prefix is not present in this trie.
      */
     public AutoCompletionTrie getSubTrie(String prefix) {
         // Temp object containing prefix search result
-        TrieNode node = this.root;
+        TrieNode node = getNode(this.root, prefix);
 
-        // Loop all characters in prefix
-        for (char character : prefix.trim().toCharArray()) {
-            // Index position of character
-            int index = character - 'a';
+        // Return null if prefix is not within trie
+        if (node == null)
+            return null;
 
-            // Update position of temp trie node if the current
-            // character in prefix exists, or return null if not
-            if (node.getOffsprings()[index] != null)
-                node = node.getOffsprings()[index];
-            // Return null if key is not within trie
-            else
-                return null;
-        }
+        return new AutoCompletionTrie(node, this.completionLimit,
+                this.alphabet, this.words, true, true);
+    }
 
-        // Return true if key is the leaf of a node else false
-        return new AutoCompletionTrie(node);
+    /**
+     * Method to find a prefix within this trie without modifying it.
+     * @param prefix String prefix to find.
+     * @return TriePrefix object positioned at the passed in prefix.
+     */
+    public TriePrefix findPrefix(String prefix) {
+        return findPrefix(prefix, new TriePrefix());
     }
-    
+
+    /**
+     * Method to find a prefix within this trie without modifying it or
+     *  allocating, by repositioning an existing prefix object.
+     * @param prefix String prefix to find.
+     * @param view TriePrefix object to reposition.
+     * @return The passed in prefix object.
+     */
+    public TriePrefix findPrefix(String prefix, TriePrefix view) {
+        view.set(this, prefix, getNode(this.root, prefix));
+        return view;
+    }
+
+    /**
+     * Method to start completing a prefix typed one character at a time.
+     * @return CompletionSession object with nothing typed.
+     */
+    public CompletionSession startSession() {
+        return new CompletionSession(this);
+    }
+
     /**
      * Method to get and return all words stored in this trie data
-     *  structure using a depth first search.
+     *  structure using a depth first search. Words of a sub trie are
+     *  returned as the suffixes following its prefix.
      * @return List of type String containing all words in this trie.
      */
     public List getAllWords() {
-        // Initialise new stack and default on the root node
-        Stack<TrieNode> stack = new Stack();
-        stack.push(this.root);
-        
         // Initialise a new list used to store words
-        List words = new ArrayList();
-        // Initialise a new empty string used to store current word
-        String str = new String();
-        
-        // Loop stack until empty
-        while(!stack.isEmpty()) {
-            // Pop node at top of stack
-            TrieNode node = stack.pop();
-                        
-            // Loop all non-null offsprings
-            for (TrieNode offspring : node.getOffsprings())
-                if (offspring != null)
-                    // Push offspring to queue
-                    stack.push(offspring);
-            
-            // Concatenate character to word string
-            str += node.getCharacter();
+        final List words = new ArrayList();
 
-            // If node is a whole word add word string to output list
-            if (node.getIsLeaf())
-                words.add(str);
-            
-            // Iterate back through trie until parents match
-            while (!stack.isEmpty() 
-                    && node != stack.peek().getParent()) {
-                // Get current nodes parent
-                node = node.getParent();
-
-                // Trim last character from word string
-                str = str.substring(0, str.length() - 1);
+        // Copy each visited word, keeping the order words have always
+        // been returned in
+        walk(new WordVisitor() {
+            @Override
+            public boolean visit(char[] word, int length, int frequency) {
+                words.add(new String(word, 0, length));
+                return true;
             }
-        }
-        
+        }, true);
+
         return words;
     }
+
+    /**
+     * Method to visit every word in this trie in lexicographic order,
+     *  a word before the words it prefixes, passing each in a shared
+     *  buffer without creating strings. Words of a sub trie are visited
+     *  as the suffixes following its prefix.
+     * @param visitor WordVisitor object to pass each word to.
+     * @return Boolean true if every word was visited, false if the
+     *  visitor stopped early.
+     */
+    public boolean visitWords(WordVisitor visitor) {
+        return walk(visitor, false);
+    }
+
+    /**
+     * Method to visit every word in this trie from the most to the least
+     *  frequent, ties ordered as completions are ranked. Words are found
+     *  by the best first search completions use, so a sub trie is only
+     *  entered once its highest frequency is reached, and each word is
+     *  spelt into a shared buffer from its leaf. Words of a sub trie are
+     *  visited as the suffixes following its prefix.
+     * @param visitor WordVisitor object to pass each word to.
+     * @return Boolean true if every word was visited, false if the
+     *  visitor stopped early.
+     */
+    public boolean visitWordsByFrequency(WordVisitor visitor) {
+        BestFirstSearch search = new BestFirstSearch(16, this.words);
+        search.push(this.root, false);
+        char[] buffer = new char[16];
+        while (!search.isEmpty()) {
+            boolean word = search.isWord();
+            TrieNode next = search.pop();
+
+            // Expand sub trie into its own word and its offsprings, the
+            // root character being no part of any word
+            if (!word) {
+                if (next.getIsLeaf() && next != this.root)
+                    search.push(next, true);
+                for (TrieNode offspring : next.getOffsprings())
+                    if (offspring != null)
+                        search.push(offspring, false);
+                continue;
+            }
+
+            // Spell word backwards from its leaf up to the root
+            int length = 0;
+            for (TrieNode node = next; node != this.root;
+                    node = node.getParent())
+                length++;
+            if (length > buffer.length)
+                buffer = new char[Math.max(length, buffer.length * 2)];
+            int i = length;
+            for (TrieNode node = next; node != this.root;
+                    node = node.getParent())
+                buffer[--i] = node.getCharacter();
+
+            if (!visitor.visit(buffer, length, next.getFrequency()))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Method to walk every node below the root depth first, keeping the
+     *  word of the current node in a single buffer and passing it to a
+     *  visitor at each leaf. Each node is visited once, so the walk is
+     *  linear in the number of nodes.
+     * @param visitor WordVisitor object to pass each word to.
+     * @param descending Boolean true to visit greater characters first,
+     *  false to visit lesser characters first.
+     * @return Boolean true if every word was visited, false if the
+     *  visitor stopped early.
+     */
+    private boolean walk(WordVisitor visitor, boolean descending) {
+        // Stack of nodes to visit and the depth of each
+        TrieNode[] stack = new TrieNode[64];
+        int[] depths = new int[stack.length];
+        int size = 0;
+        char[] word = new char[16];
+
+        stack[size++] = this.root;
+        while (size > 0) {
+            TrieNode node = stack[--size];
+            int depth = depths[size];
+            stack[size] = null;
+
+            // Root character is not part of any word
+            if (node != this.root) {
+                if (depth > word.length)
+                    word = Arrays.copyOf(word, word.length * 2);
+                word[depth - 1] = node.getCharacter();
+
+                if (node.getIsLeaf() && !visitor.visit(word, depth,
+                        node.getFrequency()))
+                    return false;
+            }
+
+            // Grow stack to hold every offspring
+            TrieNode[] offsprings = node.getOffsprings();
+            if (size + offsprings.length > stack.length) {
+                int capacity = Math.max(stack.length * 2,
+                        size + offsprings.length);
+                stack = Arrays.copyOf(stack, capacity);
+                depths = Arrays.copyOf(depths, capacity);
+            }
+
+            // Push offsprings so the first to visit is on top
+            for (int i = 0; i < offsprings.length; i++) {
+                TrieNode offspring = offsprings[descending ? i
+                        : offsprings.length - 1 - i];
+                if (offspring != null) {
+                    stack[size] = offspring;
+                    depths[size++] = depth + 1;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Method to get and return a stream of the word nodes of this trie
+     *  in lexicographic order, each holding its whole word and frequency.
+     *  A parallel stream splits the trie into sub tries.
+     * @return Stream of type TrieNode containing leaf nodes.
+     */
+    public Stream<TrieNode> streamWords() {
+        return StreamSupport.stream(new WordSpliterator(this.root), false);
+    }
     
     /**
      * Method to get frequency count of passed in key.
@@ -247,25 +651,296 @@ public class AutoCompletionTrie {
      * @return Integer frequency count of number of times a word exists
      *  in trie. Or 0 if key was not found as a whole word.
      */
+    @Override
     public int getFrequency(String key) {
         // Temp object containing key search result
-        TrieNode node = this.root;
+        TrieNode node = getNode(this.root, key);
 
-        // Loop all characters in key
-        for (char character : key.trim().toCharArray()) {
-            // Index position of character
-            int index = character - 'a';
-
-            // Update position of temp trie node if the current
-            // character in key exists, or return null if not
-            if (node.getOffsprings()[index] != null)
-                node = node.getOffsprings()[index];
-            // Return 0 if key is not within trie
-            else
-                return 0;
+        // Returns frequency count of word or 0 if key is not a leaf
+        return node != null && node.getIsLeaf() ? node.getFrequency() : 0;
+    }
+
+    /**
+     * Method to get the highest ranked completions of a prefix, ranked
+     *  by frequency. The prefix itself is included if it is a word.
+     * @param prefix String containing prefix to complete.
+     * @param limit Integer maximum number of completions to return.
+     * @return CompletionResult object containing ranked completions.
+     */
+    public CompletionResult getCompletions(String prefix, int limit) {
+        return getCompletions(prefix, new CompletionResult(limit));
+    }
+
+    /**
+     * Method to get the highest ranked completions of a prefix into an
+     *  existing result object, replacing its contents.
+     * @param prefix String containing prefix to complete.
+     * @param result CompletionResult object to fill, holding at most its
+     *  limit of completions.
+     * @return The passed in result object.
+     */
+    @Override
+    public CompletionResult getCompletions(String prefix,
+            CompletionResult result) {
+        long time = Metrics.start(result);
+        TrieNode node = getNode(this.root, prefix);
+        time = Metrics.DESCENT.recordSince(time);
+        return getCompletions(node, prefix, result, time);
+    }
+
+    /**
+     * Method to get the highest ranked completions of the prefix ending
+     *  at a node into an existing result object, timed as a query whose
+     *  descent was shared or already done.
+     * @param node TrieNode object at end of prefix, or null if the prefix
+     *  is not within trie.
+     * @param prefix String containing prefix to complete.
+     * @param result CompletionResult object to fill.
+     * @return The passed in result object.
+     */
+    CompletionResult getCompletions(TrieNode node, String prefix,
+            CompletionResult result) {
+        return getCompletions(node, prefix, result, Metrics.start(result));
+    }
+
+    /**
+     * Method to get the highest ranked completions of the prefix ending
+     *  at a node into an existing result object, timing the stages left
+     *  of a query already started.
+     * @param node TrieNode object at end of prefix, or null if the prefix
+     *  is not within trie.
+     * @param prefix String containing prefix to complete.
+     * @param result CompletionResult object to fill.
+     * @param time Long System.nanoTime value the stage started at, or 0
+     *  if the query is not timed.
+     * @return The passed in result object.
+     */
+    private CompletionResult getCompletions(TrieNode node, String prefix,
+            CompletionResult result, long time) {
+        // Return empty result if prefix is not within trie
+        Metrics.countQuery(node != null);
+        if (node == null) {
+            result.reset(prefix, false, 0);
+            return result;
         }
 
-        // Returns frequency count of word or 0 if key is not a leaf
-        return node.getIsLeaf() ? node.getFrequency() : 0;
+        result.reset(prefix, node.getIsLeaf()
+                && node.getFrequency() > 0, node.getTotal());
+
+        // Use stored completions if they cover the requested limit
+        if (this.completionLimit >= result.getLimit()) {
+            for (TrieNode leaf : node.getCompletions())
+                if (!add(result, leaf))
+                    break;
+            Metrics.ENUMERATION.recordSince(time);
+            return result;
+        }
+
+        // Else, search sub trie best first, most frequent sub tries and
+        // words first, so ranking is done as words are found
+        BestFirstSearch search = new BestFirstSearch(result.getLimit(),
+                this.words);
+        search.push(node, false);
+        while (!search.isEmpty() && result.size() < result.getLimit()) {
+            boolean word = search.isWord();
+            TrieNode next = search.pop();
+            if (word) {
+                add(result, next);
+                continue;
+            }
+
+            // Expand sub trie into its own word and its offsprings
+            if (next.getIsLeaf())
+                search.push(next, true);
+            for (TrieNode offspring : next.getOffsprings())
+                if (offspring != null)
+                    search.push(offspring, false);
+        }
+        Metrics.RANKING.recordSince(time);
+        return result;
+    }
+
+    /**
+     * Method to add the word ending at a leaf to a result as its id,
+     *  decoded only when the result is read.
+     * @param result CompletionResult object to add to.
+     * @param leaf TrieNode leaf object of this trie.
+     * @return Boolean true if the word was added, false if the result
+     *  already holds its limit.
+     */
+    boolean add(CompletionResult result, TrieNode leaf) {
+        return this.words == null ? result.add(leaf.getWord(),
+                leaf.getFrequency()) : result.add(this.words,
+                leaf.getWordId(), leaf.getFrequency());
+    }
+
+    /**
+     * Class used to order the sub tries and words of a best first search
+     *  in a binary heap, keyed by the frequency of a word or the highest
+     *  frequency within a sub trie, ties going to the node a depth first
+     *  search visits first. A sub trie is only expanded once every
+     *  entry keyed higher has been taken, so sub tries whose words can
+     *  not rank within the limit are never searched.
+     */
+    private static class BestFirstSearch {
+        // Key, node and kind of every entry, highest ranked first
+        private int[] keys;
+        private TrieNode[] nodes;
+        private boolean[] words;
+        private int size = 0;
+        // Table holding the words of the searched trie
+        private final WordCounter table;
+
+        /**
+         * Constructor used to initialise a new empty search.
+         * @param limit Integer number of words to be ranked.
+         * @param table WordCounter table holding the words of the trie.
+         */
+        BestFirstSearch(int limit, WordCounter table) {
+            int capacity = Math.max(16, limit * 4);
+            this.keys = new int[capacity];
+            this.nodes = new TrieNode[capacity];
+            this.words = new boolean[capacity];
+            this.table = table;
+        }
+
+        /**
+         * Method used to check if no entries are left.
+         * @return Boolean true if the heap is empty.
+         */
+        boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        /**
+         * Method used to check if the highest ranked entry is a word.
+         * @return Boolean true if the next entry is a word, false if it
+         *  is a sub trie.
+         */
+        boolean isWord() {
+            return this.words[0];
+        }
+
+        /**
+         * Method used to add a word or sub trie, growing if needed.
+         * @param node TrieNode leaf or root of sub trie.
+         * @param word Boolean true to add the word ending at the node,
+         *  false to add its sub trie.
+         */
+        void push(TrieNode node, boolean word) {
+            if (this.size == this.keys.length) {
+                this.keys = Arrays.copyOf(this.keys, this.size * 2);
+                this.nodes = Arrays.copyOf(this.nodes, this.size * 2);
+                this.words = Arrays.copyOf(this.words, this.size * 2);
+            }
+
+            // Sift new entry up past lower ranked parents
+            int key = word ? node.getFrequency() : node.getMaxFrequency();
+            int i = this.size++;
+            while (i > 0 && before(key, node, (i - 1) >>> 1)) {
+                move((i - 1) >>> 1, i);
+                i = (i - 1) >>> 1;
+            }
+            set(i, key, node, word);
+        }
+
+        /**
+         * Method used to remove and return the highest ranked entry.
+         * @return TrieNode object of the entry.
+         */
+        TrieNode pop() {
+            TrieNode top = this.nodes[0];
+
+            // Sift last entry down from the top past higher ranked
+            // offsprings
+            this.size--;
+            int key = this.keys[this.size];
+            TrieNode node = this.nodes[this.size];
+            boolean word = this.words[this.size];
+            this.nodes[this.size] = null;
+            int i = 0;
+            while (2 * i + 1 < this.size) {
+                int child = 2 * i + 1;
+                if (child + 1 < this.size && before(this.keys[child + 1],
+                        this.nodes[child + 1], child))
+                    child++;
+                if (!before(this.keys[child], this.nodes[child], key,
+                        node))
+                    break;
+                move(child, i);
+                i = child;
+            }
+            if (this.size > 0)
+                set(i, key, node, word);
+            return top;
+        }
+
+        /**
+         * Method used to check if an entry ranks before a heap entry.
+         * @param key Integer key of entry.
+         * @param node TrieNode object of entry.
+         * @param index Integer position of heap entry.
+         * @return Boolean true if the entry ranks first.
+         */
+        private boolean before(int key, TrieNode node, int index) {
+            return before(key, node, this.keys[index], this.nodes[index]);
+        }
+
+        /**
+         * Method used to check if an entry ranks before another.
+         * @param key Integer key of entry.
+         * @param node TrieNode object of entry.
+         * @param otherKey Integer key of other entry.
+         * @param other TrieNode object of other entry.
+         * @return Boolean true if the entry ranks first.
+         */
+        private boolean before(int key, TrieNode node, int otherKey,
+                TrieNode other) {
+            if (key != otherKey)
+                return key > otherKey;
+            return node != other && node.precedes(other, this.table);
+        }
+
+        /**
+         * Method used to move an entry to another position.
+         * @param from Integer position of entry.
+         * @param to Integer position to move to.
+         */
+        private void move(int from, int to) {
+            set(to, this.keys[from], this.nodes[from], this.words[from]);
+        }
+
+        /**
+         * Method used to store an entry at a position.
+         * @param index Integer position.
+         * @param key Integer key of entry.
+         * @param node TrieNode object of entry.
+         * @param word Boolean true if entry is a word.
+         */
+        private void set(int index, int key, TrieNode node, boolean word) {
+            this.keys[index] = key;
+            this.nodes[index] = node;
+            this.words[index] = word;
+        }
+    }
+
+    /**
+     * Method to get and return the node at the end of a key, once the
+     *  key has been normalised by this tries alphabet. Keys that are
+     *  already normalised are not copied.
+     * @param node TrieNode object to start search from.
+     * @param key String containing key to find.
+     * @return TrieNode object at end of key, or null if the key is not
+     *  within trie.
+     */
+    TrieNode getNode(TrieNode node, String key) {
+        key = this.alphabet.normalize(key);
+
+        // Loop all characters in key
+        for (int i = 0; i < key.length() && node != null; i++)
+            // Move to offspring of character, or stop if missing
+            node = node.getOffspring(key.charAt(i));
+
+        return node;
     }
 }
\ No newline at end of file
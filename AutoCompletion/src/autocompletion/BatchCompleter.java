@@ -0,0 +1,139 @@
+package autocompletion;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class: BatchCompleter.java
+ * Description: Class used to complete a large batch of prefixes against
+ *  a trie at once. The batch is split into groups of neighbouring
+ *  prefixes completed in parallel on a fork join pool, and within a
+ *  group each prefix continues the descent shared with the previous
+ *  prefix rather than walking down from the root. Prefixes are not
+ *  sorted first, as gathering results back into batch order costs more
+ *  than the shared descent saves, so sorted batches and prefixes typed
+ *  one character at a time share the most work.
+ * Author: Paulo Jorge.
+ */
+public class BatchCompleter {
+    // Number of prefixes completed by a single task
+    private static final int GROUP_SIZE = 1 << 12;
+
+    // Trie prefixes are completed against
+    private final AutoCompletionTrie trie;
+    // Pool tasks are run on
+    private final ForkJoinPool pool;
+    // Maximum number of completions returned per prefix
+    private final int limit;
+
+    /**
+     * Constructor used to initialise a new batch completer.
+     * @param trie AutoCompletionTrie object to complete prefixes against.
+     * @param pool ForkJoinPool object to run tasks on.
+     * @param limit Integer maximum number of completions per prefix.
+     */
+    public BatchCompleter(AutoCompletionTrie trie, ForkJoinPool pool,
+            int limit) {
+        this.trie = trie;
+        this.pool = pool;
+        this.limit = limit;
+    }
+
+    /**
+     * Method used to get the highest ranked completions of every prefix
+     *  in a batch.
+     * @param prefixes List of type string containing prefixes.
+     * @return Array of type CompletionResult holding the completions of
+     *  each prefix, in the same order as the prefixes.
+     */
+    public CompletionResult[] complete(List<String> prefixes) {
+        CompletionResult[] results = new CompletionResult[prefixes.size()];
+        this.pool.invoke(new GroupTask(prefixes, results, 0,
+                results.length));
+        return results;
+    }
+
+    /**
+     * Task used to complete a range of prefixes, splitting the range in
+     *  half until it is a single group.
+     */
+    private class GroupTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<String> prefixes;
+        private final CompletionResult[] results;
+        private final int first;
+        private final int last;
+
+        /**
+         * Constructor used to initialise a new group task.
+         * @param prefixes List of type string containing prefixes.
+         * @param results Array of type CompletionResult to fill.
+         * @param first Integer position of first prefix to complete.
+         * @param last Integer position following last prefix to
+         *  complete.
+         */
+        GroupTask(List<String> prefixes, CompletionResult[] results,
+                int first, int last) {
+            this.prefixes = prefixes;
+            this.results = results;
+            this.first = first;
+            this.last = last;
+        }
+
+        /**
+         * Method used to complete the group, or split and complete
+         *  halves.
+         */
+        @Override
+        protected void compute() {
+            if (this.last - this.first > GROUP_SIZE) {
+                int middle = (this.first + this.last) >>> 1;
+                invokeAll(new GroupTask(this.prefixes, this.results,
+                        this.first, middle),
+                        new GroupTask(this.prefixes, this.results, middle,
+                        this.last));
+                return;
+            }
+
+            // Nodes along the current descent, indexed by depth, and the
+            // number of characters of the previous key they match
+            Alphabet alphabet = trie.getAlphabet();
+            TrieNode[] path = new TrieNode[16];
+            path[0] = trie.getRoot();
+            String previous = "";
+            int matched = 0;
+
+            for (int i = this.first; i < this.last; i++) {
+                String prefix = this.prefixes.get(i);
+                String key = alphabet.normalize(prefix);
+
+                // Keep the part of the descent shared with the previous
+                // key, then continue down from there
+                int common = 0;
+                int length = Math.min(matched, key.length());
+                while (common < length
+                        && key.charAt(common) == previous.charAt(common))
+                    common++;
+
+                if (key.length() >= path.length)
+                    path = Arrays.copyOf(path, key.length() * 2);
+                matched = common;
+                while (matched < key.length()) {
+                    TrieNode offspring = path[matched].getOffspring(
+                            key.charAt(matched));
+                    if (offspring == null)
+                        break;
+                    path[++matched] = offspring;
+                }
+                previous = key;
+
+                TrieNode node = matched == key.length() ? path[matched]
+                        : null;
+                this.results[i] = trie.getCompletions(node, prefix,
+                        new CompletionResult(limit));
+            }
+        }
+    }
+}
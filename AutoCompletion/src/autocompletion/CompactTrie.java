@@ -0,0 +1,860 @@
+package autocompletion;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.util.Arrays;
+
+/**
+ * Class: CompactTrie.java
+ * Description: Immutable trie stored in a few flat primitive arrays
+ *  rather than node objects. Nodes are numbered in depth first order
+ *  with offsprings stored from last to first character, so every sub
+ *  trie is a contiguous range of node numbers and ranking ties resolve
+ *  the same way as in AutoCompletionTrie. The highest frequency within
+ *  every sub trie is stored so completions are found by a best first
+ *  search that never enters a sub trie whose words cannot rank, and
+ *  frequencies are summed in node order so the total of any sub trie is
+ *  the difference of two sums. The arrays can be saved as a
+ *  versioned snapshot file and later memory mapped, answering queries
+ *  straight from the mapped file, or held in direct memory. Either way
+ *  they lie outside the heap, so the garbage collector never scans the
+ *  trie.
+ * Author: Paulo Jorge.
+ */
+public class CompactTrie implements CompletionTrie, WordTable {
+    // Snapshot file identifier and format version
+    private static final int MAGIC = 0x53544341;
+    private static final int VERSION = 3;
+    // Snapshot header size in bytes, not counting the alphabet
+    private static final int HEADER_BYTES = 16;
+    // Bytes of a snapshot encoded before they are written to its file
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    // Sub trie nodes per requested completion below which scanning the
+    // whole sub trie is faster than searching it best first
+    private static final int SCAN_NODES_PER_COMPLETION = 64;
+
+    // Character of each node, the root stores no character
+    private final CharBuffer characters;
+    // Node number following the last node of each nodes sub trie, which
+    // is also the node number of its next sibling
+    private final IntBuffer ends;
+    // Frequency count of each node, 0 if node is not a leaf
+    private final IntBuffer frequencies;
+    // Bit set of nodes that end a whole word
+    private final LongBuffer leaves;
+    // Highest frequency count within each nodes sub trie
+    private final IntBuffer maxima;
+    // Sum of the frequency counts of the nodes before each node number,
+    // with one more sum for every node
+    private final LongBuffer sums;
+    // Alphabet used to normalise words looked up
+    private final Alphabet alphabet;
+
+    /**
+     * Constructor used to initialise a new compact trie containing the
+     *  same words and frequencies as a pointer trie.
+     * @param trie AutoCompletionTrie object to copy.
+     */
+    public CompactTrie(AutoCompletionTrie trie) {
+        this(trie, false);
+    }
+
+    /**
+     * Constructor used to initialise a new compact trie containing the
+     *  same words and frequencies as a pointer trie, held on the heap or
+     *  in direct memory.
+     * @param trie AutoCompletionTrie object to copy.
+     * @param direct Boolean true to allocate arrays in direct memory.
+     */
+    private CompactTrie(AutoCompletionTrie trie, boolean direct) {
+        int size = trie.getNodeCount();
+        int words = (size + 63) >>> 6;
+        if (direct) {
+            this.characters = allocateDirect(2 * size).asCharBuffer();
+            this.ends = allocateDirect(4 * size).asIntBuffer();
+            this.frequencies = allocateDirect(4 * size).asIntBuffer();
+            this.leaves = allocateDirect(8 * words).asLongBuffer();
+            this.maxima = allocateDirect(4 * size).asIntBuffer();
+            this.sums = allocateDirect(8 * (size + 1)).asLongBuffer();
+        } else {
+            this.characters = CharBuffer.allocate(size);
+            this.ends = IntBuffer.allocate(size);
+            this.frequencies = IntBuffer.allocate(size);
+            this.leaves = LongBuffer.allocate(words);
+            this.maxima = IntBuffer.allocate(size);
+            this.sums = LongBuffer.allocate(size + 1);
+        }
+        this.alphabet = trie.getAlphabet();
+
+        copy(trie.getRoot(), 0);
+        summarise();
+    }
+
+    /**
+     * Method used to copy a pointer trie into a compact trie held in
+     *  direct memory outside the heap, so once the pointer trie is
+     *  released the heap holds none of the trie. Direct memory is freed
+     *  once the compact trie is collected, and counts towards the
+     *  -XX:MaxDirectMemorySize limit, which defaults to the largest heap
+     *  size.
+     * @param trie AutoCompletionTrie object to copy.
+     * @return CompactTrie object held in direct memory.
+     */
+    public static CompactTrie allocateDirect(AutoCompletionTrie trie) {
+        return new CompactTrie(trie, true);
+    }
+
+    /**
+     * Method used to allocate a zeroed direct buffer in native byte
+     *  order.
+     * @param bytes Integer number of bytes.
+     * @return ByteBuffer allocated outside the heap.
+     */
+    private static ByteBuffer allocateDirect(int bytes) {
+        return ByteBuffer.allocateDirect(bytes)
+                .order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Method used to check if the arrays of this trie lie outside the
+     *  heap, in direct memory or a mapped file.
+     * @return Boolean true if no array is held on the heap.
+     */
+    public boolean isDirect() {
+        return this.characters.isDirect();
+    }
+
+    /**
+     * Constructor used to initialise a compact trie over the arrays of a
+     *  snapshot held in a byte buffer.
+     * @param buffer ByteBuffer containing snapshot.
+     * @param alphabet Alphabet object the snapshot is expected to have
+     *  been built with, or null to accept any.
+     * @throws IOException If the buffer does not hold a whole snapshot of
+     *  the current version, its sub trie ranges do not nest, or it was
+     *  built with another alphabet.
+     */
+    private CompactTrie(ByteBuffer buffer, Alphabet alphabet)
+            throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a trie snapshot");
+        int version = buffer.getInt(4);
+        if (version != VERSION)
+            throw new IOException("Unsupported trie snapshot version "
+                    + version);
+
+        // Check counts against the buffer before trusting them
+        int size = buffer.getInt(8);
+        int words = buffer.getInt(12);
+        if (size < 1 || words != (size + 63) >>> 6)
+            throw new IOException("Corrupt trie snapshot header");
+        Alphabet saved = readAlphabet(buffer);
+        if (alphabet != null && !alphabet.equals(saved))
+            throw new IOException(
+                    "Trie snapshot was built with another alphabet");
+        this.alphabet = saved;
+        int position = HEADER_BYTES + getAlphabetSize(saved);
+        long required = position + AutoCompletionTrie.align(2L * size)
+                + 8L * size + AutoCompletionTrie.align(4L * size)
+                + 8L * words + 8L * (size + 1);
+        if (required > buffer.capacity())
+            throw new IOException("Truncated trie snapshot");
+
+        // Create views over each array following the header
+        this.characters = slice(buffer, position, 2 * size)
+                .asCharBuffer();
+        position += align(2 * size);
+        this.ends = slice(buffer, position, 4 * size).asIntBuffer();
+        position += 4 * size;
+        this.frequencies = slice(buffer, position, 4 * size)
+                .asIntBuffer();
+        position += 4 * size;
+        this.maxima = slice(buffer, position, 4 * size).asIntBuffer();
+        position += align(4 * size);
+        this.leaves = slice(buffer, position, 8 * words).asLongBuffer();
+        position += 8 * words;
+        this.sums = slice(buffer, position, 8 * (size + 1))
+                .asLongBuffer();
+        checkEnds();
+    }
+
+    /**
+     * Method used to check the sub trie ranges read from a snapshot
+     *  nest within each other, so walking them can neither leave the
+     *  arrays nor loop forever.
+     * @throws IOException If a range does not start after its node, or
+     *  ends past the range of its parent or the arrays.
+     */
+    private void checkEnds() throws IOException {
+        int size = getNodeCount();
+        // Ends of the ranges enclosing the current node, innermost last
+        int[] enclosing = new int[16];
+        int depth = 0;
+        for (int i = 0; i < size; i++) {
+            while (depth > 0 && enclosing[depth - 1] <= i)
+                depth--;
+            int end = this.ends.get(i);
+            int limit = depth > 0 ? enclosing[depth - 1] : size;
+            if (end <= i || end > limit || (i == 0 && end != size))
+                throw new IOException("Corrupt trie snapshot ranges");
+            if (depth == enclosing.length)
+                enclosing = Arrays.copyOf(enclosing, 2 * depth);
+            enclosing[depth++] = end;
+        }
+    }
+
+    /**
+     * Method used to open a snapshot file by memory mapping it, so
+     *  queries read the file directly and processes opening the same
+     *  file share its pages. The sub trie ranges are read once to check
+     *  they nest. Words are looked up normalised by the alphabet saved in
+     *  the snapshot.
+     * @param file String location of snapshot file.
+     * @return CompactTrie object backed by the mapped file.
+     * @throws IOException If the file cannot be mapped or is not a
+     *  whole and valid snapshot of the current version.
+     */
+    public static CompactTrie open(String file) throws IOException {
+        return open(file, null);
+    }
+
+    /**
+     * Method used to open a snapshot file by memory mapping it, checking
+     *  it was built with an alphabet.
+     * @param file String location of snapshot file.
+     * @param alphabet Alphabet object the snapshot is expected to have
+     *  been built with, or null to accept any.
+     * @return CompactTrie object backed by the mapped file.
+     * @throws IOException If the file cannot be mapped, is not a whole
+     *  and valid snapshot of the current version, or was built with
+     *  another alphabet.
+     */
+    public static CompactTrie open(String file, Alphabet alphabet)
+            throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r");
+                FileChannel channel = input.getChannel()) {
+            // Mapping stays valid after the channel is closed
+            return new CompactTrie(channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size()),
+                    alphabet);
+        }
+    }
+
+    /**
+     * Method used to save this trie as a snapshot file that can later be
+     *  opened without rebuilding the trie. The snapshot is written to a
+     *  temporary file beside it, forced to disk, then moved over any
+     *  existing snapshot in one step, so processes that mapped the old
+     *  snapshot keep reading it whole and a failed save leaves it as it
+     *  was. The arrays are written through a small buffer rather than
+     *  copied whole onto the heap first.
+     * @param file String location of snapshot file.
+     * @throws IOException If the file cannot be written, or the snapshot
+     *  would be too large to map when opened.
+     */
+    public void save(String file) throws IOException {
+        if (getSnapshotSize() > Integer.MAX_VALUE)
+            throw new IOException("Trie too large to snapshot");
+
+        // Temporary file is created with the default permissions so other
+        // processes can open the snapshot it becomes
+        Path target = Paths.get(file).toAbsolutePath();
+        Path temporary = target.resolveSibling(target.getFileName() + "."
+                + Long.toHexString(System.nanoTime()) + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary,
+                    StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                writeSnapshot(channel);
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Method used to get the number of bytes needed to hold a snapshot
+     *  of this trie.
+     * @return Long snapshot size in bytes.
+     */
+    long getSnapshotSize() {
+        long size = getNodeCount();
+        return HEADER_BYTES + getAlphabetSize(this.alphabet)
+                + AutoCompletionTrie.align(2 * size) + 8 * size
+                + AutoCompletionTrie.align(4 * size)
+                + 8L * this.leaves.capacity() + 8 * (size + 1);
+    }
+
+    /**
+     * Method used to get the number of bytes an alphabet takes in a
+     *  snapshot: flags, normal form and length of punctuation, then the
+     *  punctuation characters, padded so arrays following it stay
+     *  aligned.
+     * @param alphabet Alphabet object to save.
+     * @return Integer aligned number of bytes.
+     */
+    private static int getAlphabetSize(Alphabet alphabet) {
+        String punctuation = alphabet.getPunctuation();
+        return align(12 + (punctuation == null ? 0
+                : 2 * punctuation.length()));
+    }
+
+    /**
+     * Method used to write an alphabet into a snapshot, padded so arrays
+     *  following it stay aligned.
+     * @param channel WritableByteChannel the snapshot is written to.
+     * @param buffer ByteBuffer holding the header.
+     * @param alphabet Alphabet object to save.
+     * @throws IOException If the channel cannot be written.
+     */
+    private static void writeAlphabet(WritableByteChannel channel,
+            ByteBuffer buffer, Alphabet alphabet) throws IOException {
+        Normalizer.Form form = alphabet.getForm();
+        String punctuation = alphabet.getPunctuation();
+        reserve(channel, buffer, 12);
+        buffer.putInt(alphabet.isLowerCase() ? 1 : 0);
+        buffer.putInt(form == null ? -1 : form.ordinal());
+        buffer.putInt(punctuation == null ? -1 : punctuation.length());
+        int length = punctuation == null ? 0 : punctuation.length();
+        for (int i = 0; i < length; i++)
+            reserve(channel, buffer, 2).putChar(punctuation.charAt(i));
+        pad(channel, buffer, getAlphabetSize(alphabet) - 12 - 2 * length);
+    }
+
+    /**
+     * Method used to read the alphabet saved in a snapshot buffer,
+     *  reusing the shared alphabets when equal to one of them.
+     * @param buffer ByteBuffer containing snapshot.
+     * @return Alphabet object saved in snapshot.
+     * @throws IOException If the saved alphabet is not valid or does not
+     *  fit within the buffer.
+     */
+    private static Alphabet readAlphabet(ByteBuffer buffer)
+            throws IOException {
+        Normalizer.Form[] forms = Normalizer.Form.values();
+        if (buffer.capacity() < HEADER_BYTES + 12)
+            throw new IOException("Truncated trie snapshot");
+        int flags = buffer.getInt(HEADER_BYTES);
+        int form = buffer.getInt(HEADER_BYTES + 4);
+        int length = buffer.getInt(HEADER_BYTES + 8);
+        if (flags < 0 || flags > 1 || form < -1 || form >= forms.length
+                || length < -1)
+            throw new IOException("Corrupt trie snapshot alphabet");
+        if (HEADER_BYTES + 12 + 2L * Math.max(length, 0)
+                > buffer.capacity())
+            throw new IOException("Truncated trie snapshot");
+
+        String punctuation = null;
+        if (length >= 0) {
+            char[] characters = new char[length];
+            for (int i = 0; i < length; i++)
+                characters[i] = buffer.getChar(HEADER_BYTES + 12 + 2 * i);
+            punctuation = new String(characters);
+        }
+        Alphabet alphabet = new Alphabet(flags == 1,
+                form < 0 ? null : forms[form], punctuation);
+        for (Alphabet shared : new Alphabet[] {Alphabet.ANY,
+                Alphabet.LOWER_CASE, Alphabet.WORDS})
+            if (shared.equals(alphabet))
+                return shared;
+        return alphabet;
+    }
+
+    /**
+     * Method used to write a snapshot of this trie to a channel, encoding
+     *  it through one reused buffer.
+     * @param channel WritableByteChannel to write the snapshot to.
+     * @throws IOException If the channel cannot be written.
+     */
+    void writeSnapshot(WritableByteChannel channel) throws IOException {
+        int size = getNodeCount();
+        int words = this.leaves.capacity();
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        // Write header followed by each array, padded to stay aligned
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(words);
+        writeAlphabet(channel, buffer, this.alphabet);
+        for (int i = 0; i < size; i++)
+            reserve(channel, buffer, 2).putChar(this.characters.get(i));
+        pad(channel, buffer, align(2 * size) - 2 * size);
+        for (int i = 0; i < size; i++)
+            reserve(channel, buffer, 4).putInt(this.ends.get(i));
+        for (int i = 0; i < size; i++)
+            reserve(channel, buffer, 4).putInt(this.frequencies.get(i));
+        for (int i = 0; i < size; i++)
+            reserve(channel, buffer, 4).putInt(this.maxima.get(i));
+        pad(channel, buffer, (int)(AutoCompletionTrie.align(4L * size)
+                - 4L * size));
+        for (int i = 0; i < words; i++)
+            reserve(channel, buffer, 8).putLong(this.leaves.get(i));
+        for (int i = 0; i <= size; i++)
+            reserve(channel, buffer, 8).putLong(this.sums.get(i));
+        drain(channel, buffer);
+    }
+
+    /**
+     * Method used to make room in a write buffer, writing the bytes it
+     *  holds to a channel once fewer than needed remain.
+     * @param channel WritableByteChannel to write to.
+     * @param buffer ByteBuffer being filled.
+     * @param bytes Integer number of bytes about to be put.
+     * @return ByteBuffer with at least the bytes remaining.
+     * @throws IOException If the channel cannot be written.
+     */
+    private static ByteBuffer reserve(WritableByteChannel channel,
+            ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes)
+            drain(channel, buffer);
+        return buffer;
+    }
+
+    /**
+     * Method used to put zero bytes into a write buffer.
+     * @param channel WritableByteChannel to write to.
+     * @param buffer ByteBuffer being filled.
+     * @param bytes Integer number of zero bytes to put.
+     * @throws IOException If the channel cannot be written.
+     */
+    private static void pad(WritableByteChannel channel, ByteBuffer buffer,
+            int bytes) throws IOException {
+        for (int i = 0; i < bytes; i++)
+            reserve(channel, buffer, 1).put((byte)0);
+    }
+
+    /**
+     * Method used to write every byte a write buffer holds to a channel
+     *  and empty the buffer.
+     * @param channel WritableByteChannel to write to.
+     * @param buffer ByteBuffer being filled.
+     * @throws IOException If the channel cannot be written.
+     */
+    private static void drain(WritableByteChannel channel,
+            ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Method used to get a little endian view of part of a buffer.
+     * @param buffer ByteBuffer to view.
+     * @param position Integer start position of view.
+     * @param length Integer number of bytes in view.
+     * @return ByteBuffer view.
+     */
+    private static ByteBuffer slice(ByteBuffer buffer, int position,
+            int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.limit(position + length);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Method used to round a number of bytes up to a multiple of 8, so
+     *  arrays following it in a snapshot stay aligned.
+     * @param bytes Integer number of bytes.
+     * @return Integer aligned number of bytes.
+     */
+    private static int align(int bytes) {
+        return (bytes + 7) & ~7;
+    }
+
+    /**
+     * Method used to copy a pointer trie node and its sub trie into the
+     *  arrays, starting at the passed in node number.
+     * @param node TrieNode object to copy.
+     * @param position Integer node number to store node at.
+     * @return Integer node number following the copied sub trie.
+     */
+    private int copy(TrieNode node, int position) {
+        this.characters.put(position, node.getCharacter());
+        if (node.getIsLeaf()) {
+            this.frequencies.put(position, node.getFrequency());
+            this.leaves.put(position >>> 6, this.leaves.get(position >>> 6)
+                    | 1L << position);
+        }
+
+        // Copy offsprings from last to first after this node
+        int next = position + 1;
+        TrieNode[] offsprings = node.getOffsprings();
+        for (int i = offsprings.length - 1; i >= 0; i--)
+            if (offsprings[i] != null)
+                next = copy(offsprings[i], next);
+
+        this.ends.put(position, next);
+        return next;
+    }
+
+    /**
+     * Method used to fill the sub trie maxima and the frequency sums
+     *  from the frequencies and sub trie ranges.
+     */
+    private void summarise() {
+        int size = getNodeCount();
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            this.sums.put(i, sum);
+            sum += this.frequencies.get(i);
+        }
+        this.sums.put(size, sum);
+
+        // Offsprings follow their parent, so walk backwards to find each
+        // maximum after those of its offsprings
+        for (int i = size - 1; i >= 0; i--) {
+            int max = this.frequencies.get(i);
+            int end = this.ends.get(i);
+            for (int offspring = i + 1; offspring < end;
+                    offspring = this.ends.get(offspring))
+                max = Math.max(max, this.maxima.get(offspring));
+            this.maxima.put(i, max);
+        }
+    }
+
+    /**
+     * Accessor method used to get and return the number of nodes in this
+     *  trie, including the root.
+     * @return Integer number of nodes.
+     */
+    public int getNodeCount() {
+        return this.characters.capacity();
+    }
+
+    /**
+     * Method used to get the number of bytes used by the arrays of this
+     *  trie, whether held on the heap or in a mapped file.
+     * @return Long number of bytes.
+     */
+    public long estimateMemoryUsage() {
+        long size = getNodeCount();
+        return AutoCompletionTrie.align(16 + 2 * size)
+                + AutoCompletionTrie.align(16 + 4 * size)
+                + AutoCompletionTrie.align(16 + 4 * size)
+                + AutoCompletionTrie.align(16 + 4 * size)
+                + AutoCompletionTrie.align(16 + 8L * this.leaves.capacity())
+                + AutoCompletionTrie.align(16 + 8 * (size + 1));
+    }
+
+    /**
+     * Accessor method used to get and return the alphabet used to
+     *  normalise words.
+     * @return Alphabet object of this trie.
+     */
+    @Override
+    public Alphabet getAlphabet() {
+        return this.alphabet;
+    }
+
+    /**
+     * Accessor method used to get and return the version of this trie,
+     *  which is always 0 as it cannot change once built.
+     * @return Long version of this trie.
+     */
+    @Override
+    public long getVersionNumber() {
+        return 0;
+    }
+
+    /**
+     * Method to check if this trie contains a whole word.
+     * @param key String containing word to check.
+     * @return Boolean true if the key is found as a whole word, false
+     *  otherwise.
+     */
+    @Override
+    public boolean contains(String key) {
+        int node = getNode(key);
+        return node >= 0 && isLeaf(node);
+    }
+
+    /**
+     * Method to get frequency count of passed in key.
+     * @param key String containing word to check.
+     * @return Integer frequency count of the word, or 0 if key was not
+     *  found as a whole word.
+     */
+    @Override
+    public int getFrequency(String key) {
+        int node = getNode(key);
+        return node >= 0 ? this.frequencies.get(node) : 0;
+    }
+
+    /**
+     * Method to get the highest ranked completions of a prefix into an
+     *  existing result object, replacing its contents.
+     * @param prefix String containing prefix to complete.
+     * @param result CompletionResult object to fill.
+     * @return The passed in result object.
+     */
+    @Override
+    public CompletionResult getCompletions(String prefix,
+            CompletionResult result) {
+        long time = Metrics.start(result);
+        int node = getNode(prefix);
+        time = Metrics.DESCENT.recordSince(time);
+        Metrics.countQuery(node >= 0);
+
+        // Return empty result if prefix is not within trie
+        if (node < 0) {
+            result.reset(prefix, false, 0);
+            return result;
+        }
+
+        // Sub trie is a contiguous range, so its total is the difference
+        // of the sums either side of it
+        result.reset(prefix, isLeaf(node)
+                && this.frequencies.get(node) > 0,
+                this.sums.get(this.ends.get(node)) - this.sums.get(node));
+
+        // Scan small sub tries whole, search larger ones best first so
+        // ranking cost follows the limit rather than the sub trie size
+        if (this.ends.get(node) - node <= (long)result.getLimit()
+                * SCAN_NODES_PER_COMPLETION)
+            scan(node, result);
+        else
+            search(node, result);
+        Metrics.ENUMERATION.recordSince(time);
+        return result;
+    }
+
+    /**
+     * Method to add the highest ranked words of a small sub trie to a
+     *  result by scanning every node of its range, earlier nodes winning
+     *  ties.
+     * @param node Integer node number of sub trie root.
+     * @param result CompletionResult object to add to.
+     */
+    private void scan(int node, CompletionResult result) {
+        int end = this.ends.get(node);
+        int[] ranked = new int[Math.min(result.getLimit(), end - node)];
+        int count = 0;
+        for (int i = node; i < end; i++) {
+            // Skip nodes that are not words or rank below a full list
+            if (!isLeaf(i))
+                continue;
+            int frequency = this.frequencies.get(i);
+            if (count == ranked.length && (count == 0
+                    || frequency <= this.frequencies.get(ranked[count - 1])))
+                continue;
+
+            // Insert into ranked nodes, dropping the lowest if full
+            int position = count < ranked.length ? count++ : count - 1;
+            while (position > 0 && frequency
+                    > this.frequencies.get(ranked[position - 1])) {
+                ranked[position] = ranked[position - 1];
+                position--;
+            }
+            ranked[position] = i;
+        }
+
+        for (int i = 0; i < count; i++)
+            result.add(this, ranked[i], this.frequencies.get(ranked[i]));
+    }
+
+    /**
+     * Method to add the highest ranked words of a sub trie to a result by
+     *  taking words and sub tries best first from a heap, keyed by their
+     *  frequency or highest frequency. A sub trie is only entered once
+     *  every entry keyed higher has been taken, so sub tries whose words
+     *  cannot rank within the limit are never searched.
+     * @param node Integer node number of sub trie root.
+     * @param result CompletionResult object to add to.
+     */
+    private void search(int node, CompletionResult result) {
+        long[] heap = new long[Math.max(16, result.getLimit() * 4)];
+        heap[0] = entry(this.maxima.get(node), node, false);
+        int size = 1;
+        while (size > 0 && result.size() < result.getLimit()) {
+            long top = heap[0];
+            heap[0] = heap[--size];
+            siftDown(heap, size);
+            int next = nodeOf(top);
+
+            if (isWordEntry(top)) {
+                result.add(this, next, this.frequencies.get(next));
+                continue;
+            }
+
+            // Expand sub trie into its own word and its offsprings
+            if (isLeaf(next))
+                heap = push(heap, size++, entry(this.frequencies.get(next),
+                        next, true));
+            int end = this.ends.get(next);
+            for (int offspring = next + 1; offspring < end;
+                    offspring = this.ends.get(offspring))
+                heap = push(heap, size++, entry(this.maxima.get(offspring),
+                        offspring, false));
+        }
+    }
+
+    /**
+     * Method used to encode a best first search entry as a long, so that
+     *  entries with higher keys are greater, then those of earlier nodes.
+     * @param key Integer frequency of a word, or highest frequency within
+     *  a sub trie.
+     * @param node Integer node number.
+     * @param word Boolean true for the word ending at the node, false
+     *  for its sub trie.
+     * @return Long encoded entry.
+     */
+    private static long entry(int key, int node, boolean word) {
+        return (long)key << 32 | (long)(Integer.MAX_VALUE - node) << 1
+                | (word ? 1 : 0);
+    }
+
+    /**
+     * Method used to get the node number of an encoded entry.
+     * @param entry Long encoded entry.
+     * @return Integer node number.
+     */
+    private static int nodeOf(long entry) {
+        return Integer.MAX_VALUE - (int)((entry & 0xFFFFFFFFL) >>> 1);
+    }
+
+    /**
+     * Method used to check if an encoded entry is a word.
+     * @param entry Long encoded entry.
+     * @return Boolean true for a word, false for a sub trie.
+     */
+    private static boolean isWordEntry(long entry) {
+        return (entry & 1) != 0;
+    }
+
+    /**
+     * Method used to add an entry to the end of a binary max heap and
+     *  sift it up, growing the heap if it is full.
+     * @param heap Array of type long holding heap entries.
+     * @param size Integer number of entries before adding.
+     * @param entry Long encoded entry to add.
+     * @return Array of type long holding heap, which may be new.
+     */
+    private static long[] push(long[] heap, int size, long entry) {
+        if (size == heap.length)
+            heap = Arrays.copyOf(heap, size * 2);
+
+        int i = size;
+        while (i > 0 && heap[(i - 1) >>> 1] < entry) {
+            heap[i] = heap[(i - 1) >>> 1];
+            i = (i - 1) >>> 1;
+        }
+        heap[i] = entry;
+        return heap;
+    }
+
+    /**
+     * Method used to sift the top entry of a binary max heap down.
+     * @param heap Array of type long holding heap entries.
+     * @param size Integer number of entries.
+     */
+    private static void siftDown(long[] heap, int size) {
+        if (size == 0)
+            return;
+
+        long entry = heap[0];
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] > heap[child])
+                child++;
+            if (heap[child] <= entry)
+                break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = entry;
+    }
+
+    /**
+     * Method to rebuild the whole word ending at a node. Completions are
+     *  held as node numbers and only rebuilt when read.
+     * @param node Integer node number.
+     * @return String containing word.
+     */
+    @Override
+    public String getWord(int node) {
+        StringBuilder word = new StringBuilder();
+        appendWord(node, word);
+        return word.toString();
+    }
+
+    /**
+     * Method to append the whole word ending at a node to a builder by
+     *  descending from the root through the sub trie ranges that contain
+     *  it.
+     * @param node Integer node number.
+     * @param builder StringBuilder object to append to.
+     */
+    @Override
+    public void appendWord(int node, StringBuilder builder) {
+        int position = 0;
+        while (position != node) {
+            // Skip offsprings whose sub trie ends before the node
+            position++;
+            while (this.ends.get(position) <= node)
+                position = this.ends.get(position);
+            builder.append(this.characters.get(position));
+        }
+    }
+
+    /**
+     * Method to check if a node ends a whole word.
+     * @param node Integer node number.
+     * @return Boolean true if node is a leaf, false otherwise.
+     */
+    private boolean isLeaf(int node) {
+        return (this.leaves.get(node >>> 6) & (1L << node)) != 0;
+    }
+
+    /**
+     * Method to get the node number at the end of a key, once the key
+     *  has been normalised by this tries alphabet.
+     * @param key String containing key to find.
+     * @return Integer node number, or -1 if key is not within trie.
+     */
+    private int getNode(String key) {
+        key = this.alphabet.normalize(key);
+
+        int node = 0;
+        for (int i = 0; i < key.length() && node >= 0; i++)
+            node = getOffspring(node, key.charAt(i));
+        return node;
+    }
+
+    /**
+     * Method to find the offspring of a node holding a character.
+     * @param node Integer node number.
+     * @param character Character of offspring to find.
+     * @return Integer offspring node number, or -1 if missing.
+     */
+    private int getOffspring(int node, char character) {
+        // Offsprings are ordered from last to first character, so stop
+        // once a smaller character is reached
+        int end = this.ends.get(node);
+        for (int i = node + 1; i < end; i = this.ends.get(i)) {
+            char offspring = this.characters.get(i);
+            if (offspring == character)
+                return i;
+            if (offspring < character)
+                return -1;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,335 @@
+package autocompletion;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class: CompletionCache.java
+ * Description: Bounded cache of formatted completion results keyed by
+ *  normalised prefix. Entries are kept in least recently used order,
+ *  and once the cache is full a new prefix is only admitted in place of
+ *  the least recently used one if it has been asked for more often,
+ *  judged by a small frequency sketch (the TinyLFU policy). This keeps
+ *  the few prefixes that make up most traffic cached even when many
+ *  rare prefixes pass through. Every entry belongs to a trie version:
+ *  the whole cache is dropped once a newer version is seen, and
+ *  requests made against an older version neither hit nor roll the
+ *  cache back, so versions only move forward. A cache must only be
+ *  used with a single trie.
+ * Author: Paulo Jorge.
+ */
+public class CompletionCache {
+    // Maximum number of cached prefixes
+    private final int capacity;
+    // Cached entries in least to most recently used order
+    private final LinkedHashMap<String, Entry> entries;
+    // Estimated number of recent requests of each prefix
+    private final FrequencySketch sketch;
+    // Newest trie version seen, which all cached entries belong to
+    private long version = 0;
+    // Counters exposed for monitoring
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long rejections = 0;
+    private long invalidations = 0;
+
+    /**
+     * Constructor used to initialise a new empty cache.
+     * @param capacity Integer maximum number of cached prefixes.
+     */
+    public CompletionCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f,
+                true);
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    /**
+     * Method used to get the cached entry of a normalised prefix,
+     *  counting the request towards its admission.
+     * @param key String containing normalised prefix.
+     * @param version Long version of the trie being queried.
+     * @return Entry object cached, or null if the prefix is not cached.
+     */
+    public synchronized Entry get(String key, long version) {
+        boolean current = advance(version);
+        this.sketch.increment(key);
+
+        // Entries of a newer version do not answer older requests
+        Entry entry = current ? this.entries.get(key) : null;
+        if (entry != null)
+            this.hits++;
+        else
+            this.misses++;
+        return entry;
+    }
+
+    /**
+     * Method used to cache the entry of a normalised prefix, if it is
+     *  requested at least as often as the entry it would evict. Entries
+     *  found in an older version than the newest seen are dropped.
+     * @param key String containing normalised prefix.
+     * @param version Long version of the trie read before the entry was
+     *  found.
+     * @param entry Entry object to cache.
+     * @return Boolean true if the entry was cached, false otherwise.
+     */
+    public synchronized boolean put(String key, long version,
+            Entry entry) {
+        if (!advance(version) || this.capacity == 0)
+            return false;
+
+        // Evict least recently used entry unless it is more popular
+        if (this.entries.size() >= this.capacity
+                && !this.entries.containsKey(key)) {
+            Iterator<String> eldest = this.entries.keySet().iterator();
+            String victim = eldest.next();
+            if (this.sketch.frequency(key)
+                    <= this.sketch.frequency(victim)) {
+                this.rejections++;
+                return false;
+            }
+            eldest.remove();
+            this.evictions++;
+        }
+
+        this.entries.put(key, entry);
+        return true;
+    }
+
+    /**
+     * Method used to move the cache on to a newer trie version, dropping
+     *  every entry of the older version. An older version leaves the
+     *  cache unchanged.
+     * @param version Long version of the trie being queried.
+     * @return Boolean true if cached entries belong to the version, false
+     *  if they belong to a newer version.
+     */
+    private boolean advance(long version) {
+        if (version < this.version)
+            return false;
+        if (version == this.version)
+            return true;
+
+        this.version = version;
+        if (!this.entries.isEmpty()) {
+            this.entries.clear();
+            this.invalidations++;
+        }
+        return true;
+    }
+
+    /**
+     * Accessor method used to get and return the number of prefixes
+     *  cached.
+     * @return Integer number of entries.
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Accessor method used to get and return the number of requests
+     *  answered from the cache.
+     * @return Long number of hits.
+     */
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * Accessor method used to get and return the number of requests not
+     *  answered from the cache.
+     * @return Long number of misses.
+     */
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Accessor method used to get and return the number of entries
+     *  evicted to admit another.
+     * @return Long number of evictions.
+     */
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+
+    /**
+     * Accessor method used to get and return the number of entries not
+     *  admitted as they were less popular than the entry they would
+     *  evict.
+     * @return Long number of rejections.
+     */
+    public synchronized long getRejections() {
+        return this.rejections;
+    }
+
+    /**
+     * Accessor method used to get and return the number of times the
+     *  cache was dropped after a newer trie version was seen.
+     * @return Long number of invalidations.
+     */
+    public synchronized long getInvalidations() {
+        return this.invalidations;
+    }
+
+    /**
+     * Method used to get the fraction of requests answered from the
+     *  cache.
+     * @return Double hit rate between 0 and 1.
+     */
+    public synchronized double getHitRate() {
+        long requests = this.hits + this.misses;
+        return requests == 0 ? 0 : (double)this.hits / requests;
+    }
+
+    /**
+     * Method to return the counters of this cache in a formatted string.
+     * @return Formatted string of counters.
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder string = new StringBuilder();
+        string.append("size=").append(this.entries.size());
+        string.append(",hits=").append(this.hits);
+        string.append(",misses=").append(this.misses);
+        string.append(",evictions=").append(this.evictions);
+        string.append(",rejections=").append(this.rejections);
+        string.append(",invalidations=").append(this.invalidations);
+        return string.toString();
+    }
+
+    /**
+     * Class used to define the cached result of a prefix, holding the
+     *  formatted completions without the prefix itself so the entry can
+     *  be shared by every spelling normalised to the same prefix.
+     */
+    public static class Entry {
+        // Flag used to represent if the prefix is a whole word
+        private final boolean isWord;
+        // Formatted completions and probabilities
+        private final String matches;
+
+        /**
+         * Constructor used to initialise a new entry.
+         * @param isWord Boolean true if the prefix is a whole word.
+         * @param matches String containing formatted completions.
+         */
+        public Entry(boolean isWord, String matches) {
+            this.isWord = isWord;
+            this.matches = matches;
+        }
+
+        /**
+         * Accessor method used to get and return if the prefix is a
+         *  whole word.
+         * @return Boolean true if prefix is a word, false otherwise.
+         */
+        public boolean isWord() {
+            return this.isWord;
+        }
+
+        /**
+         * Accessor method used to get and return the formatted
+         *  completions.
+         * @return String containing formatted completions.
+         */
+        public String getMatches() {
+            return this.matches;
+        }
+    }
+
+    /**
+     * Class used to estimate how often keys were recently requested with
+     *  a count min sketch of 4 bit counters. Every counter is halved
+     *  once enough requests have been counted, so popularity ages out.
+     */
+    private static class FrequencySketch {
+        // Largest value of a 4 bit counter
+        private static final int MAX_COUNT = 15;
+        // Seeds of the hash used for each row
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B,
+                0xC2B2AE35, 0x27D4EB2F};
+
+        // Counters of every row, 8 counters packed into each integer
+        private final int[][] rows;
+        // Mask of counter index within a row
+        private final int mask;
+        // Number of requests counted since counters were last halved,
+        // and the number that triggers halving
+        private int requests = 0;
+        private final int sampleSize;
+
+        /**
+         * Constructor used to initialise a new sketch sized for a cache.
+         * @param capacity Integer maximum number of cached keys.
+         */
+        FrequencySketch(int capacity) {
+            // Use a power of two counters per row, at least 8 per key
+            int counters = Integer.highestOneBit(Math.max(64,
+                    capacity * 8 - 1)) << 1;
+            this.rows = new int[SEEDS.length][counters / 8];
+            this.mask = counters - 1;
+            this.sampleSize = Math.max(640, capacity * 10);
+        }
+
+        /**
+         * Method used to count a request of a key.
+         * @param key String containing key requested.
+         */
+        void increment(String key) {
+            int hash = key.hashCode();
+            for (int row = 0; row < this.rows.length; row++) {
+                int index = index(hash, row);
+                int shift = (index & 7) * 4;
+                int word = this.rows[row][index >>> 3];
+                if (((word >>> shift) & MAX_COUNT) < MAX_COUNT)
+                    this.rows[row][index >>> 3] = word + (1 << shift);
+            }
+
+            if (++this.requests == this.sampleSize)
+                age();
+        }
+
+        /**
+         * Method used to estimate the recent requests of a key, as the
+         *  smallest of its counters.
+         * @param key String containing key.
+         * @return Integer estimated number of requests.
+         */
+        int frequency(String key) {
+            int hash = key.hashCode();
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < this.rows.length; row++) {
+                int index = index(hash, row);
+                frequency = Math.min(frequency, (this.rows[row][index
+                        >>> 3] >>> ((index & 7) * 4)) & MAX_COUNT);
+            }
+            return frequency;
+        }
+
+        /**
+         * Method used to halve every counter.
+         */
+        private void age() {
+            for (int[] row : this.rows)
+                for (int i = 0; i < row.length; i++)
+                    row[i] = (row[i] >>> 1) & 0x77777777;
+            this.requests /= 2;
+        }
+
+        /**
+         * Method used to find the counter of a hash within a row.
+         * @param hash Integer hash code of key.
+         * @param row Integer row number.
+         * @return Integer counter index.
+         */
+        private int index(int hash, int row) {
+            int mixed = (hash + SEEDS[row]) * SEEDS[row];
+            return (mixed ^ (mixed >>> 16)) & this.mask;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package autocompletion;
+
+import java.util.Arrays;
+
+/**
+ * Class: CompletionResult.java
+ * Description: Class used to hold the ranked completions of a prefix
+ *  alongside the total frequency count used to calculate the
+ *  probability of each completion. A result can be reused between
+ *  queries to avoid allocating a new one each time. Completions may be
+ *  added as the ids of words within a word table, which are only decoded
+ *  to strings when read.
+ * Author: Paulo Jorge.
+ */
+public class CompletionResult {
+    // Prefix the completions were found for
+    private String prefix;
+    // Flag used to represent if the prefix is a whole word itself
+    private boolean isWord = false;
+    // Sum of frequency counts of all words starting with the prefix
+    private long total = 0;
+    // Maximum number of completions to hold
+    private final int limit;
+    // Number of completions currently held
+    private int size = 0;
+    // Completed words and their frequency counts, ordered by rank
+    private String[] words;
+    private int[] frequencies;
+    // Id of each completed word within the table, or -1 if added as a
+    // string, and the table ids were added from
+    private int[] ids;
+    private WordTable table;
+    // Flag used to represent if metrics time the query filling this result
+    private boolean timed = false;
+
+    /**
+     * Constructor method used to initialise a new empty completion
+     *  result.
+     * @param limit Integer maximum number of completions to hold.
+     */
+    public CompletionResult(int limit) {
+        this.limit = limit;
+        this.words = new String[Math.min(limit, 16)];
+        this.frequencies = new int[this.words.length];
+        this.ids = new int[this.words.length];
+    }
+
+    /**
+     * Accessor method used to get and return the prefix of this result.
+     * @return String containing prefix.
+     */
+    public String getPrefix() {
+        return this.prefix;
+    }
+
+    /**
+     * Accessor method used to get and return if the prefix is a whole
+     *  word.
+     * @return Boolean true if prefix is a word, false otherwise.
+     */
+    public boolean isWord() {
+        return this.isWord;
+    }
+
+    /**
+     * Accessor method used to get and return the sum of frequency counts
+     *  of all words starting with the prefix.
+     * @return Long total frequency count.
+     */
+    public long getTotal() {
+        return this.total;
+    }
+
+    /**
+     * Accessor method used to get and return the maximum number of
+     *  completions this result can hold.
+     * @return Integer completion limit.
+     */
+    public int getLimit() {
+        return this.limit;
+    }
+
+    /**
+     * Accessor method used to get and return the number of completions
+     *  held.
+     * @return Integer number of completions.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Accessor method used to get and return a completed word, decoding
+     *  it from the word table if it was added as an id.
+     * @param index Integer rank of completion.
+     * @return String containing completed word.
+     */
+    public String getWord(int index) {
+        if (this.words[index] == null)
+            this.words[index] = this.table.getWord(this.ids[index]);
+        return this.words[index];
+    }
+
+    /**
+     * Accessor method used to get and return the id of a completed word
+     *  within the word table.
+     * @param index Integer rank of completion.
+     * @return Integer id of word, or -1 if it was added as a string.
+     */
+    public int getWordId(int index) {
+        return this.ids[index];
+    }
+
+    /**
+     * Accessor method used to get and return the table completed words
+     *  were added from as ids.
+     * @return WordTable object of words, or null if none were.
+     */
+    public WordTable getWordTable() {
+        return this.table;
+    }
+
+    /**
+     * Accessor method used to get and return the frequency count of a
+     *  completed word.
+     * @param index Integer rank of completion.
+     * @return Integer frequency count of completed word.
+     */
+    public int getFrequency(int index) {
+        return this.frequencies[index];
+    }
+
+    /**
+     * Method used to calculate the probability of a completed word by
+     *  dividing its frequency by the total frequency of the prefix.
+     * @param index Integer rank of completion.
+     * @return Float value of probability.
+     */
+    public float getProbability(int index) {
+        return (float)this.frequencies[index] / this.total;
+    }
+
+    /**
+     * Accessor method used to get whether metrics time the query filling
+     *  this result.
+     * @return Boolean true if the query is timed.
+     */
+    boolean isTimed() {
+        return this.timed;
+    }
+
+    /**
+     * Mutator method used to set whether metrics time the query filling
+     *  this result, drawn once as the query starts.
+     * @param timed Boolean true if the query is timed.
+     */
+    void setTimed(boolean timed) {
+        this.timed = timed;
+    }
+
+    /**
+     * Method used to clear this result ready to hold the completions of
+     *  a new prefix.
+     * @param prefix String containing prefix.
+     * @param isWord Boolean true if prefix is a whole word.
+     * @param total Long total frequency count of prefix.
+     */
+    public void reset(String prefix, boolean isWord, long total) {
+        this.prefix = prefix;
+        this.isWord = isWord;
+        this.total = total;
+        this.size = 0;
+    }
+
+    /**
+     * Method used to add the next highest ranked completion.
+     * @param word String containing completed word.
+     * @param frequency Integer frequency count of completed word.
+     * @return Boolean true if completion was added, false if the result
+     *  already holds its limit.
+     */
+    public boolean add(String word, int frequency) {
+        if (!reserve())
+            return false;
+
+        this.words[this.size] = word;
+        this.ids[this.size] = -1;
+        this.frequencies[this.size++] = frequency;
+        return true;
+    }
+
+    /**
+     * Method used to add the next highest ranked completion as the id of
+     *  a word within a word table, without decoding it.
+     * @param table WordTable object holding word.
+     * @param word Integer id of completed word.
+     * @param frequency Integer frequency count of completed word.
+     * @return Boolean true if completion was added, false if the result
+     *  already holds its limit.
+     */
+    public boolean add(WordTable table, int word, int frequency) {
+        if (!reserve())
+            return false;
+
+        this.table = table;
+        this.words[this.size] = null;
+        this.ids[this.size] = word;
+        this.frequencies[this.size++] = frequency;
+        return true;
+    }
+
+    /**
+     * Method used to make room for another completion, growing storage
+     *  if needed.
+     * @return Boolean true if there is room, false if the result already
+     *  holds its limit.
+     */
+    private boolean reserve() {
+        if (this.size == this.limit)
+            return false;
+
+        if (this.size == this.words.length) {
+            int capacity = Math.min(this.limit, this.size * 2);
+            this.words = Arrays.copyOf(this.words, capacity);
+            this.frequencies = Arrays.copyOf(this.frequencies, capacity);
+            this.ids = Arrays.copyOf(this.ids, capacity);
+        }
+        return true;
+    }
+}
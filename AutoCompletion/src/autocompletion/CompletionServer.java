@@ -0,0 +1,417 @@
+package autocompletion;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class: CompletionServer.java
+ * Description: Server used to answer prefix completion requests over
+ *  TCP from a trie loaded once. Each request is a UTF-8 line holding a
+ *  prefix, and each response is a line in the format of
+ *  lotrMatches.csv. A client may send many requests without waiting,
+ *  and every request already received is answered before more are
+ *  read, in the order they were sent, with the responses written
+ *  together. A single thread serves every connection through a
+ *  selector, so the trie needs no locking and no thread is held by an
+ *  idle connection.
+ * Author: Paulo Jorge.
+ */
+public class CompletionServer implements Closeable {
+    // Default port the server listens on
+    public static final int DEFAULT_PORT = 7070;
+    // Number of completions in each response, as AutoCompletion returns
+    public static final int DEFAULT_LIMIT = 5;
+    // Longest request line, in bytes, before a connection is closed
+    private static final int MAX_LINE_BYTES = 8192;
+    // Bytes of unsent responses above which a connection is not read
+    // until its client catches up
+    private static final int MAX_PENDING_BYTES = 1 << 20;
+    // Bytes of responses encoded before they are sent
+    private static final int WRITE_BUFFER_SIZE = 1 << 13;
+
+    // Trie requests are completed with
+    private final CompletionTrie trie;
+    // Result reused by every request
+    private final CompletionResult result;
+    // Channel accepting connections, and selector serving them all
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    // Sockets of open connections, closed with the server
+    private final Set<SocketChannel> sockets
+            = ConcurrentHashMap.newKeySet();
+    // Number of connections accepted and requests answered
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * Constructor used to initialise a new server listening on a port
+     *  of the loopback address.
+     * @param trie CompletionTrie object to complete requests with.
+     * @param limit Integer number of completions in each response.
+     * @param port Integer port to listen on, or 0 for any free port.
+     * @throws IOException If the port cannot be listened on.
+     */
+    public CompletionServer(CompletionTrie trie, int limit, int port)
+            throws IOException {
+        this(trie, limit, new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Constructor used to initialise a new server listening on an
+     *  address.
+     * @param trie CompletionTrie object to complete requests with.
+     * @param limit Integer number of completions in each response.
+     * @param address InetSocketAddress to listen on.
+     * @throws IOException If the address cannot be listened on.
+     */
+    public CompletionServer(CompletionTrie trie, int limit,
+            InetSocketAddress address) throws IOException {
+        this.trie = trie;
+        this.result = new CompletionResult(limit);
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        try {
+            this.server.bind(address);
+            this.server.configureBlocking(false);
+            this.server.register(this.selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException exception) {
+            close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Accessor method used to get and return the port the server
+     *  listens on.
+     * @return Integer port number.
+     */
+    public int getPort() {
+        return this.server.socket().getLocalPort();
+    }
+
+    /**
+     * Accessor method used to get and return the number of connections
+     *  accepted.
+     * @return Long number of connections.
+     */
+    public long getConnections() {
+        return this.connections.get();
+    }
+
+    /**
+     * Accessor method used to get and return the number of requests
+     *  answered.
+     * @return Long number of requests.
+     */
+    public long getRequests() {
+        return this.requests.get();
+    }
+
+    /**
+     * Method used to serve connections on a new background thread until
+     *  the server is closed.
+     * @return Thread serving connections.
+     */
+    public Thread start() {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                serve();
+            }
+        }, "completion-server");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Method used to serve connections on the calling thread until the
+     *  server is closed. A connection that fails is closed without
+     *  affecting any other.
+     */
+    public void serve() {
+        try {
+            while (this.selector.isOpen()) {
+                this.selector.select();
+                for (SelectionKey key : this.selector.selectedKeys()) {
+                    if (!key.isValid())
+                        continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+
+                    Connection connection = (Connection)key.attachment();
+                    try {
+                        connection.ready(key);
+                    } catch (IOException exception) {
+                        connection.close();
+                    } catch (CancelledKeyException exception) {
+                        // Socket was closed by close while being served
+                        connection.close();
+                    }
+                }
+                this.selector.selectedKeys().clear();
+            }
+        } catch (ClosedSelectorException exception) {
+            // Server was closed while selecting
+        } catch (IOException exception) {
+            // Accepting fails once the server is closed
+            if (this.selector.isOpen())
+                throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Method used to accept a waiting connection, if any.
+     * @throws IOException If the server cannot accept connections.
+     */
+    private void accept() throws IOException {
+        SocketChannel socket = this.server.accept();
+        if (socket == null)
+            return;
+
+        this.sockets.add(socket);
+        Connection connection = new Connection(socket);
+        try {
+            socket.configureBlocking(false);
+            socket.socket().setTcpNoDelay(true);
+            socket.register(this.selector, SelectionKey.OP_READ,
+                    connection);
+            this.connections.incrementAndGet();
+        } catch (IOException exception) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Method used to stop serving and close every connection.
+     * @throws IOException If the server cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.server.close();
+            for (SocketChannel socket : this.sockets)
+                socket.close();
+            this.sockets.clear();
+        } finally {
+            this.selector.close();
+        }
+    }
+
+    /**
+     * Class used to hold the state of a single connection: the bytes of
+     *  requests not yet answered and of responses not yet sent. Responses
+     *  are encoded by a result writer writing to the connection, which
+     *  sends as much as the socket takes and keeps the rest.
+     */
+    private class Connection implements WritableByteChannel {
+        private final SocketChannel socket;
+        // Bytes received that do not yet end a request line
+        private final ByteBuffer input = ByteBuffer.allocate(
+                MAX_LINE_BYTES);
+        // Bytes of responses the socket has not yet taken
+        private ByteBuffer pending = ByteBuffer.allocate(0);
+        // Writer encoding responses to this connection
+        private final ResultWriter writer = new ResultWriter(this,
+                WRITE_BUFFER_SIZE);
+        // If the client has finished sending requests
+        private boolean ended = false;
+
+        /**
+         * Constructor used to initialise a new connection.
+         * @param socket SocketChannel of connection.
+         */
+        Connection(SocketChannel socket) {
+            this.socket = socket;
+        }
+
+        /**
+         * Method used to read and answer requests, or send pending
+         *  responses, once the socket is ready for either.
+         * @param key SelectionKey of connection.
+         * @throws IOException If the connection fails.
+         */
+        void ready(SelectionKey key) throws IOException {
+            if (key.isReadable())
+                read();
+            if (key.isWritable())
+                send();
+
+            // Close once every response to a finished client is sent
+            if (this.ended && this.pending.position() == 0) {
+                close();
+                return;
+            }
+
+            // Wait to send pending responses, and stop reading requests
+            // while too many responses are unsent
+            int interest = 0;
+            if (!this.ended && this.pending.position() < MAX_PENDING_BYTES)
+                interest |= SelectionKey.OP_READ;
+            if (this.pending.position() > 0)
+                interest |= SelectionKey.OP_WRITE;
+            key.interestOps(interest);
+        }
+
+        /**
+         * Method used to read from the socket and answer every whole
+         *  request line received.
+         * @throws IOException If the connection fails or a request line
+         *  is too long.
+         */
+        private void read() throws IOException {
+            if (this.socket.read(this.input) < 0)
+                this.ended = true;
+
+            // Answer every line, ignoring a carriage return before its
+            // line feed
+            byte[] bytes = this.input.array();
+            int start = 0;
+            for (int i = 0; i < this.input.position(); i++) {
+                if (bytes[i] != '\n')
+                    continue;
+                int end = i > start && bytes[i - 1] == '\r' ? i - 1 : i;
+                answer(new String(bytes, start, end - start,
+                        StandardCharsets.UTF_8));
+                start = i + 1;
+            }
+
+            // A finished client need not end its last request line
+            if (this.ended && start < this.input.position()) {
+                answer(new String(bytes, start, this.input.position()
+                        - start, StandardCharsets.UTF_8));
+                start = this.input.position();
+            }
+
+            // Keep the start of the next line
+            this.input.flip();
+            this.input.position(start);
+            this.input.compact();
+            if (!this.input.hasRemaining())
+                throw new IOException("Request line too long");
+
+            this.writer.flush();
+        }
+
+        /**
+         * Method used to complete a prefix and encode the response.
+         * @param prefix String containing prefix to complete.
+         * @throws IOException If the response cannot be encoded.
+         */
+        private void answer(String prefix) throws IOException {
+            this.writer.write(CompletionServer.this.trie.getCompletions(
+                    prefix, CompletionServer.this.result));
+            CompletionServer.this.requests.incrementAndGet();
+        }
+
+        /**
+         * Method used to send as many pending bytes as the socket takes.
+         * @throws IOException If the connection fails.
+         */
+        private void send() throws IOException {
+            this.pending.flip();
+            this.socket.write(this.pending);
+            this.pending.compact();
+        }
+
+        /**
+         * Method used by the result writer to send encoded responses,
+         *  keeping any bytes the socket does not take.
+         * @param source ByteBuffer of encoded responses.
+         * @return Integer number of bytes taken, always all of them.
+         * @throws IOException If the connection fails.
+         */
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            int bytes = source.remaining();
+
+            // Send straight away unless earlier responses are waiting
+            if (this.pending.position() == 0)
+                this.socket.write(source);
+
+            if (source.hasRemaining()) {
+                if (this.pending.remaining() < source.remaining()) {
+                    ByteBuffer grown = ByteBuffer.allocate(Math.max(
+                            this.pending.capacity() * 2,
+                            this.pending.position() + source.remaining()));
+                    this.pending.flip();
+                    grown.put(this.pending);
+                    this.pending = grown;
+                }
+                this.pending.put(source);
+            }
+            return bytes;
+        }
+
+        /**
+         * Method used to check if the connection is open.
+         * @return Boolean true if the socket is open.
+         */
+        @Override
+        public boolean isOpen() {
+            return this.socket.isOpen();
+        }
+
+        /**
+         * Method used to close the connection, which also cancels its
+         *  selection key.
+         * @throws IOException If the socket cannot be closed.
+         */
+        @Override
+        public void close() throws IOException {
+            CompletionServer.this.sockets.remove(this.socket);
+            this.socket.close();
+        }
+    }
+
+    /**
+     * Method used to serve the trie of lotr.csv until the process is
+     *  stopped.
+     * @param args Optional port to listen on, else the default port.
+     * @throws IOException If the trie cannot be opened or the port
+     *  cannot be listened on.
+     */
+    public static void main(String[] args) throws IOException {
+        run(args, System.out);
+    }
+
+    /**
+     * Method used to serve the trie of lotr.csv until the process is
+     *  stopped, printing the port listened on to a stream once the
+     *  server is listening.
+     * @param args Optional port to listen on, else the default port.
+     * @param out PrintStream to print the port to.
+     * @throws IOException If the trie cannot be opened or the port
+     *  cannot be listened on.
+     */
+    public static void run(String[] args, PrintStream out)
+            throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0])
+                : DEFAULT_PORT;
+        CompletionTrie trie = AutoCompletion.openTrie("lotr.csv",
+                "lotr.trie");
+        try (CompletionServer server = new CompletionServer(trie,
+                DEFAULT_LIMIT, port)) {
+            out.println("Listening on port " + server.getPort());
+            server.serve();
+        }
+    }
+}
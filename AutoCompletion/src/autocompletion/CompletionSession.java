@@ -0,0 +1,205 @@
+package autocompletion;
+
+import java.util.Arrays;
+
+/**
+ * Class: CompletionSession.java
+ * Description: Class used to complete a prefix as it is typed one
+ *  character at a time. The session keeps the trie node reached after
+ *  every typed character, so typing a character moves one node down
+ *  and deleting one moves back up without searching from the root.
+ *  The typed prefix is trimmed and each typed character converted by the
+ *  tries alphabet, as Alphabet.normalize does: control characters and
+ *  spaces only move down the trie once a character follows them, and
+ *  never before the first character kept. Characters outside the
+ *  alphabet are skipped, and characters are not composed with the
+ *  characters before them.
+ * Author: Paulo Jorge.
+ */
+public class CompletionSession {
+    // Trie being completed against
+    private final AutoCompletionTrie trie;
+    // Characters typed so far, as typed
+    private final StringBuilder typed = new StringBuilder();
+    // Node reached after each number of typed characters, or null once
+    // the typed prefix has left the trie
+    private TrieNode[] nodes = new TrieNode[16];
+    // Typed prefix, or null until it is next needed
+    private String prefix = "";
+
+    /**
+     * Constructor used to initialise a new session with nothing typed.
+     * @param trie AutoCompletionTrie object to complete against.
+     */
+    public CompletionSession(AutoCompletionTrie trie) {
+        this.trie = trie;
+        this.nodes[0] = trie.getRoot();
+    }
+
+    /**
+     * Method used to add a typed character to the end of the prefix.
+     * @param character Character typed.
+     */
+    public void type(char character) {
+        int length = this.typed.length();
+        if (length + 1 == this.nodes.length)
+            this.nodes = Arrays.copyOf(this.nodes, this.nodes.length * 2);
+
+        // Trimmed characters stay where they are until another follows
+        TrieNode node = this.nodes[length];
+        if (!isTrimmed(character)) {
+            // Move down through trimmed characters now followed
+            node = descendSpaces(length);
+            if (Character.isLowSurrogate(character) && length > 0
+                    && Character.isHighSurrogate(this.typed.charAt(
+                    length - 1)))
+                // Pair completes a code point, moving on from the node
+                // before its high surrogate
+                node = descend(this.nodes[length - 1],
+                        Character.toCodePoint(this.typed.charAt(
+                        length - 1), character));
+            else if (!Character.isHighSurrogate(character))
+                node = descend(node, character);
+        }
+
+        this.typed.append(character);
+        this.nodes[length + 1] = node;
+        this.prefix = null;
+    }
+
+    /**
+     * Method used to add a typed character to the end of the prefix and
+     *  get the highest ranked completions of the new prefix.
+     * @param character Character typed.
+     * @param result CompletionResult object to fill.
+     * @return The passed in result object.
+     */
+    public CompletionResult type(char character, CompletionResult result) {
+        type(character);
+        return getCompletions(result);
+    }
+
+    /**
+     * Method used to remove the last typed character from the prefix.
+     * @return Boolean true if a character was removed, false if nothing
+     *  is typed.
+     */
+    public boolean backspace() {
+        int length = this.typed.length();
+        if (length == 0)
+            return false;
+
+        this.typed.setLength(length - 1);
+        this.nodes[length] = null;
+        this.prefix = null;
+        return true;
+    }
+
+    /**
+     * Method used to remove the last typed character from the prefix and
+     *  get the highest ranked completions of the new prefix.
+     * @param result CompletionResult object to fill.
+     * @return The passed in result object.
+     */
+    public CompletionResult backspace(CompletionResult result) {
+        backspace();
+        return getCompletions(result);
+    }
+
+    /**
+     * Method used to remove every typed character.
+     */
+    public void clear() {
+        Arrays.fill(this.nodes, 1, this.typed.length() + 1, null);
+        this.typed.setLength(0);
+        this.prefix = "";
+    }
+
+    /**
+     * Method used to check if a character is trimmed from the ends of a
+     *  prefix, as String.trim does.
+     * @param character Character to check.
+     * @return Boolean true if character is a control character or space.
+     */
+    private static boolean isTrimmed(char character) {
+        return character <= ' ';
+    }
+
+    /**
+     * Method used to move down through the trimmed characters typed
+     *  since the last other character, once another character follows
+     *  them. Trimmed characters typed before any other are skipped.
+     * @param length Integer number of characters typed.
+     * @return TrieNode object reached, or null if the trie has no such
+     *  offspring.
+     */
+    private TrieNode descendSpaces(int length) {
+        int start = length;
+        while (start > 0 && isTrimmed(this.typed.charAt(start - 1)))
+            start--;
+        if (start == 0 || start == length)
+            return this.nodes[length];
+
+        TrieNode node = this.nodes[start];
+        for (int i = start; i < length; i++)
+            node = descend(node, this.typed.charAt(i));
+        return node;
+    }
+
+    /**
+     * Method used to move from a node to the offspring holding a typed
+     *  code point, once converted by the tries alphabet.
+     * @param node TrieNode object to move from, or null.
+     * @param codePoint Integer code point typed.
+     * @return TrieNode object reached, the passed in node if the code
+     *  point is skipped, or null if the trie has no such offspring.
+     */
+    private TrieNode descend(TrieNode node, int codePoint) {
+        if (node == null)
+            return node;
+
+        codePoint = this.trie.getAlphabet().convert(codePoint);
+        if (codePoint < 0)
+            return node;
+
+        if (Character.isBmpCodePoint(codePoint))
+            return node.getOffspring((char)codePoint);
+
+        node = node.getOffspring(Character.highSurrogate(codePoint));
+        return node != null ? node.getOffspring(
+                Character.lowSurrogate(codePoint)) : null;
+    }
+
+    /**
+     * Accessor method used to get and return the characters typed.
+     * @return String containing typed prefix.
+     */
+    public String getPrefix() {
+        if (this.prefix == null)
+            this.prefix = this.typed.toString();
+        return this.prefix;
+    }
+
+    /**
+     * Method used to check if the typed prefix is present within the
+     *  trie.
+     * @return Boolean true if at least one word starts with the prefix,
+     *  false otherwise.
+     */
+    public boolean exists() {
+        return this.nodes[this.typed.length()] != null;
+    }
+
+    /**
+     * Method used to get the highest ranked completions of the typed
+     *  prefix into an existing result object. Tries storing at least the
+     *  result limit of completions at every node answer without
+     *  searching, others search the sub trie of the prefix.
+     * @param result CompletionResult object to fill.
+     * @return The passed in result object.
+     */
+    public CompletionResult getCompletions(CompletionResult result) {
+        return this.trie.getCompletions(this.nodes[this.typed.length()],
+                getPrefix(), result);
+    }
+}
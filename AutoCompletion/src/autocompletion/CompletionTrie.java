@@ -0,0 +1,55 @@
+package autocompletion;
+
+/**
+ * Class: CompletionTrie.java
+ * Description: Interface implemented by every trie that can look up
+ *  words and complete prefixes, so that queries can be answered by any
+ *  of the trie representations.
+ * Author: Paulo Jorge.
+ */
+public interface CompletionTrie {
+    /**
+     * Method to check if this trie contains a whole word.
+     * @param key String containing word to check.
+     * @return Boolean true if the key is found as a whole word, false
+     *  otherwise.
+     */
+    boolean contains(String key);
+
+    /**
+     * Method to get frequency count of passed in key.
+     * @param key String containing word to check.
+     * @return Integer frequency count of the word, or 0 if key was not
+     *  found as a whole word.
+     */
+    int getFrequency(String key);
+
+    /**
+     * Method to get the highest ranked completions of a prefix into an
+     *  existing result object, replacing its contents. Completions are
+     *  ranked by frequency and include the prefix if it is a word.
+     * @param prefix String containing prefix to complete.
+     * @param result CompletionResult object to fill, holding at most its
+     *  limit of completions.
+     * @return The passed in result object.
+     */
+    CompletionResult getCompletions(String prefix,
+            CompletionResult result);
+
+    /**
+     * Accessor method used to get and return the alphabet used to
+     *  normalise words and prefixes before they are looked up.
+     * @return Alphabet object of this trie.
+     */
+    Alphabet getAlphabet();
+
+    /**
+     * Accessor method used to get and return the version of this trie,
+     *  which moves forward every time the trie changes and never moves
+     *  back, so results found at one version can be dropped once a
+     *  greater version is seen. Tries that cannot change always return
+     *  0.
+     * @return Long version of this trie.
+     */
+    long getVersionNumber();
+}
@@ -0,0 +1,469 @@
+package autocompletion;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class: ConcurrentTrie.java
+ * Description: Trie that can be read and updated by many threads at
+ *  once, so frequencies can be counted from live traffic while
+ *  completions are served. Readers never block: offsprings are
+ *  published with a compare and set and frequencies are updated
+ *  atomically, so contains and getFrequency see every update that
+ *  completed before they were called. Sub trie totals are updated just
+ *  after the frequency they include, so a completion racing an update
+ *  may briefly see a total that does not include it yet. The version
+ *  only moves on once every total of an update is in place. Every node
+ *  also keeps the highest frequency within its sub trie, so completions
+ *  are found by a best first search that skips sub tries whose words
+ *  cannot rank.
+ * Author: Paulo Jorge.
+ */
+public class ConcurrentTrie implements CompletionTrie {
+    // Trie root node object
+    private final ConcurrentTrieNode root = new ConcurrentTrieNode(
+            Character.MIN_VALUE);
+    // Alphabet used to normalise words added and looked up
+    private final Alphabet alphabet;
+    // Number of completed updates
+    private final AtomicLong versionNumber = new AtomicLong();
+
+    /**
+     * Default constructor used to initialise a new concurrent trie that
+     *  stores words as they are given.
+     */
+    public ConcurrentTrie() {
+        this(Alphabet.ANY);
+    }
+
+    /**
+     * Constructor used to initialise a new concurrent trie that
+     *  normalises words with an alphabet before adding or looking them
+     *  up.
+     * @param alphabet Alphabet object used to normalise words.
+     */
+    public ConcurrentTrie(Alphabet alphabet) {
+        this.alphabet = alphabet;
+    }
+
+    /**
+     * Method to add a word to this trie with a frequency count, if it is
+     *  not already a word.
+     * @param key String containing word to add.
+     * @param frequency Integer frequency count of word, greater than 0.
+     * @return Boolean true if the word was added, false if it already
+     *  exists.
+     * @throws IllegalArgumentException If the frequency is not greater
+     *  than 0, since a node of frequency 0 is not a word.
+     */
+    public boolean add(String key, int frequency) {
+        checkPositive(frequency);
+        key = this.alphabet.normalize(key);
+        ConcurrentTrieNode[] path = descend(key);
+        if (!path[key.length()].setFrequencyIfAbsent(frequency))
+            return false;
+
+        for (ConcurrentTrieNode node : path) {
+            node.addTotal(frequency);
+            node.raiseMaxFrequency(frequency);
+        }
+        this.versionNumber.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Method to increase the frequency count of a word, adding it if it
+     *  is not already a word.
+     * @param key String containing word to count.
+     * @param count Integer amount to increase the count by, greater than
+     *  0.
+     * @return Integer frequency count of word after counting.
+     * @throws IllegalArgumentException If the count is not greater than
+     *  0.
+     */
+    public int increment(String key, int count) {
+        checkPositive(count);
+        key = this.alphabet.normalize(key);
+        ConcurrentTrieNode[] path = descend(key);
+        int frequency = path[key.length()].addFrequency(count);
+
+        for (ConcurrentTrieNode node : path) {
+            node.addTotal(count);
+            node.raiseMaxFrequency(frequency);
+        }
+        this.versionNumber.incrementAndGet();
+        return frequency;
+    }
+
+    /**
+     * Method used to refuse a count that would not make a word, before
+     *  any node is added for it.
+     * @param count Integer frequency count or amount to check.
+     * @throws IllegalArgumentException If the count is not greater than
+     *  0.
+     */
+    private static void checkPositive(int count) {
+        if (count < 1)
+            throw new IllegalArgumentException("Count " + count
+                    + " is not greater than 0");
+    }
+
+    /**
+     * Method to find the nodes along a normalised key, adding any that
+     *  are missing.
+     * @param key String containing normalised key.
+     * @return Array of type ConcurrentTrieNode holding the root followed
+     *  by the node of each key character.
+     */
+    private ConcurrentTrieNode[] descend(String key) {
+        ConcurrentTrieNode[] path = new ConcurrentTrieNode[key.length()
+                + 1];
+        path[0] = this.root;
+        for (int i = 0; i < key.length(); i++)
+            path[i + 1] = path[i].addOffspring(key.charAt(i));
+        return path;
+    }
+
+    /**
+     * Accessor method used to get and return the alphabet used to
+     *  normalise words.
+     * @return Alphabet object of this trie.
+     */
+    @Override
+    public Alphabet getAlphabet() {
+        return this.alphabet;
+    }
+
+    /**
+     * Accessor method used to get and return the version of this trie,
+     *  the number of adds and increments completed. An update racing the
+     *  call may already be visible, but every update completed before
+     *  the call is.
+     * @return Long version of this trie.
+     */
+    @Override
+    public long getVersionNumber() {
+        return this.versionNumber.get();
+    }
+
+    /**
+     * Method to check if this trie contains a whole word.
+     * @param key String containing word to check.
+     * @return Boolean true if the word is found, false otherwise.
+     */
+    @Override
+    public boolean contains(String key) {
+        return getFrequency(key) > 0;
+    }
+
+    /**
+     * Method to get frequency count of passed in key.
+     * @param key String containing word to check.
+     * @return Integer frequency count of word, or 0 if key was not found
+     *  as a whole word.
+     */
+    @Override
+    public int getFrequency(String key) {
+        ConcurrentTrieNode node = getNode(key);
+        return node != null ? node.getFrequency() : 0;
+    }
+
+    /**
+     * Method to get the highest ranked completions of a prefix into an
+     *  existing result object, ranked by frequency with ties broken the
+     *  way AutoCompletionTrie breaks them.
+     * @param prefix String containing prefix to complete.
+     * @param result CompletionResult object to fill.
+     * @return The passed in result object.
+     */
+    @Override
+    public CompletionResult getCompletions(String prefix,
+            CompletionResult result) {
+        String key = this.alphabet.normalize(prefix);
+        ConcurrentTrieNode node = getNode(key);
+        if (node == null) {
+            result.reset(prefix, false, 0);
+            return result;
+        }
+
+        // Search sub trie best first, most frequent sub tries and words
+        // first, until enough words are ranked
+        Ranking ranking = new Ranking(result.getLimit());
+        BestFirstSearch search = new BestFirstSearch(result.getLimit());
+        search.push(node, key, node.getMaxFrequency(), false);
+        while (!search.isEmpty() && !ranking.isFull()) {
+            boolean word = search.isWord();
+            String path = search.getPath();
+            int frequency = search.getKey();
+            ConcurrentTrieNode next = search.pop();
+            if (word) {
+                ranking.add(path, frequency);
+                continue;
+            }
+
+            // Expand sub trie into its own word and its offsprings,
+            // skipping nodes added before any of their words
+            frequency = next.getFrequency();
+            if (frequency > 0)
+                search.push(next, path, frequency, true);
+            for (ConcurrentTrieNode offspring : next.getOffsprings()) {
+                int max = offspring.getMaxFrequency();
+                if (max > 0)
+                    search.push(offspring, path + offspring.getCharacter(),
+                            max, false);
+            }
+        }
+
+        result.reset(prefix, node.getFrequency() > 0, node.getTotal());
+        for (int i = 0; i < ranking.size; i++)
+            result.add(ranking.words[i], ranking.frequencies[i]);
+        return result;
+    }
+
+    /**
+     * Method to get and return the node at the end of a key.
+     * @param key String containing key to find.
+     * @return ConcurrentTrieNode object at end of key, or null if the
+     *  key is not within trie.
+     */
+    private ConcurrentTrieNode getNode(String key) {
+        key = this.alphabet.normalize(key);
+        ConcurrentTrieNode node = this.root;
+        for (int i = 0; node != null && i < key.length(); i++)
+            node = node.getOffspring(key.charAt(i));
+        return node;
+    }
+
+    /**
+     * Class used to keep the highest ranked words found by a search,
+     *  earlier words winning ties. A frequency may be raised while it is
+     *  searched, so words found slightly out of order are still ranked.
+     */
+    private static class Ranking {
+        private final String[] words;
+        private final int[] frequencies;
+        private int size = 0;
+
+        /**
+         * Constructor used to initialise a new empty ranking.
+         * @param limit Integer maximum number of words to keep.
+         */
+        Ranking(int limit) {
+            this.words = new String[limit];
+            this.frequencies = new int[limit];
+        }
+
+        /**
+         * Method used to check if the ranking holds its limit of words.
+         * @return Boolean true if no more words can be ranked.
+         */
+        boolean isFull() {
+            return this.size == this.words.length;
+        }
+
+        /**
+         * Method used to rank a word, dropping the lowest if full.
+         * @param word String containing word.
+         * @param frequency Integer frequency count of word.
+         */
+        void add(String word, int frequency) {
+            int limit = this.words.length;
+            if (this.size == limit && (limit == 0
+                    || frequency <= this.frequencies[limit - 1]))
+                return;
+
+            int position = this.size < limit ? this.size++ : limit - 1;
+            while (position > 0 && frequency
+                    > this.frequencies[position - 1]) {
+                this.words[position] = this.words[position - 1];
+                this.frequencies[position] = this.frequencies[position - 1];
+                position--;
+            }
+            this.words[position] = word;
+            this.frequencies[position] = frequency;
+        }
+    }
+
+    /**
+     * Class used to order the sub tries and words of a best first search
+     *  in a binary heap, keyed by the frequency of a word or the highest
+     *  frequency within a sub trie, ties going to the node a depth first
+     *  search visits first: a word before the words it prefixes, and
+     *  greater characters first. A sub trie is only expanded once every
+     *  entry keyed higher has been taken.
+     */
+    private static class BestFirstSearch {
+        // Key, node, word and kind of every entry, highest ranked first
+        private int[] keys;
+        private ConcurrentTrieNode[] nodes;
+        private String[] paths;
+        private boolean[] words;
+        private int size = 0;
+
+        /**
+         * Constructor used to initialise a new empty search.
+         * @param limit Integer number of words to be ranked.
+         */
+        BestFirstSearch(int limit) {
+            int capacity = Math.max(16, limit * 4);
+            this.keys = new int[capacity];
+            this.nodes = new ConcurrentTrieNode[capacity];
+            this.paths = new String[capacity];
+            this.words = new boolean[capacity];
+        }
+
+        /**
+         * Method used to check if no entries are left.
+         * @return Boolean true if the heap is empty.
+         */
+        boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        /**
+         * Method used to check if the highest ranked entry is a word.
+         * @return Boolean true if the next entry is a word, false if it
+         *  is a sub trie.
+         */
+        boolean isWord() {
+            return this.words[0];
+        }
+
+        /**
+         * Method used to get the word of the highest ranked entry.
+         * @return String containing word ending at the entry's node.
+         */
+        String getPath() {
+            return this.paths[0];
+        }
+
+        /**
+         * Method used to get the key of the highest ranked entry.
+         * @return Integer frequency of the word, or highest frequency
+         *  within the sub trie.
+         */
+        int getKey() {
+            return this.keys[0];
+        }
+
+        /**
+         * Method used to add a word or sub trie, growing if needed.
+         * @param node ConcurrentTrieNode word or root of sub trie.
+         * @param path String containing word ending at node.
+         * @param key Integer frequency of the word, or highest frequency
+         *  within the sub trie.
+         * @param word Boolean true to add the word ending at the node,
+         *  false to add its sub trie.
+         */
+        void push(ConcurrentTrieNode node, String path, int key,
+                boolean word) {
+            if (this.size == this.keys.length) {
+                this.keys = Arrays.copyOf(this.keys, this.size * 2);
+                this.nodes = Arrays.copyOf(this.nodes, this.size * 2);
+                this.paths = Arrays.copyOf(this.paths, this.size * 2);
+                this.words = Arrays.copyOf(this.words, this.size * 2);
+            }
+
+            // Sift new entry up past lower ranked parents
+            int i = this.size++;
+            while (i > 0 && before(key, path, (i - 1) >>> 1)) {
+                move((i - 1) >>> 1, i);
+                i = (i - 1) >>> 1;
+            }
+            set(i, key, node, path, word);
+        }
+
+        /**
+         * Method used to remove and return the highest ranked entry.
+         * @return ConcurrentTrieNode object of the entry.
+         */
+        ConcurrentTrieNode pop() {
+            ConcurrentTrieNode top = this.nodes[0];
+
+            // Sift last entry down from the top past higher ranked
+            // offsprings
+            this.size--;
+            int key = this.keys[this.size];
+            ConcurrentTrieNode node = this.nodes[this.size];
+            String path = this.paths[this.size];
+            boolean word = this.words[this.size];
+            this.nodes[this.size] = null;
+            this.paths[this.size] = null;
+            int i = 0;
+            while (2 * i + 1 < this.size) {
+                int child = 2 * i + 1;
+                if (child + 1 < this.size && before(this.keys[child + 1],
+                        this.paths[child + 1], child))
+                    child++;
+                if (!before(this.keys[child], this.paths[child], key,
+                        path))
+                    break;
+                move(child, i);
+                i = child;
+            }
+            if (this.size > 0)
+                set(i, key, node, path, word);
+            return top;
+        }
+
+        /**
+         * Method used to check if an entry ranks before a heap entry.
+         * @param key Integer key of entry.
+         * @param path String containing word of entry.
+         * @param index Integer position of heap entry.
+         * @return Boolean true if the entry ranks first.
+         */
+        private boolean before(int key, String path, int index) {
+            return before(key, path, this.keys[index], this.paths[index]);
+        }
+
+        /**
+         * Method used to check if an entry ranks before another. A word
+         *  and the sub trie of the same node never meet, as the word is
+         *  only pushed once its sub trie is taken.
+         * @param key Integer key of entry.
+         * @param path String containing word of entry.
+         * @param otherKey Integer key of other entry.
+         * @param other String containing word of other entry.
+         * @return Boolean true if the entry ranks first.
+         */
+        private boolean before(int key, String path, int otherKey,
+                String other) {
+            if (key != otherKey)
+                return key > otherKey;
+
+            // Greater character first, else the shorter word first
+            int length = Math.min(path.length(), other.length());
+            for (int i = 0; i < length; i++)
+                if (path.charAt(i) != other.charAt(i))
+                    return path.charAt(i) > other.charAt(i);
+            return path.length() < other.length();
+        }
+
+        /**
+         * Method used to move an entry to another position.
+         * @param from Integer position of entry.
+         * @param to Integer position to move to.
+         */
+        private void move(int from, int to) {
+            set(to, this.keys[from], this.nodes[from], this.paths[from],
+                    this.words[from]);
+        }
+
+        /**
+         * Method used to store an entry at a position.
+         * @param index Integer position.
+         * @param key Integer key of entry.
+         * @param node ConcurrentTrieNode object of entry.
+         * @param path String containing word of entry.
+         * @param word Boolean true if entry is a word.
+         */
+        private void set(int index, int key, ConcurrentTrieNode node,
+                String path, boolean word) {
+            this.keys[index] = key;
+            this.nodes[index] = node;
+            this.paths[index] = path;
+            this.words[index] = word;
+        }
+    }
+}
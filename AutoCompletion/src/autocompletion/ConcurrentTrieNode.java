@@ -0,0 +1,209 @@
+package autocompletion;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Class: ConcurrentTrieNode.java
+ * Description: Trie node class used by the concurrent trie. Offsprings
+ *  are held in a sorted array that is never modified once published;
+ *  adding an offspring copies the array and swaps it in with a compare
+ *  and set, so readers never lock or see a partly built array.
+ *  Frequency counts, sub trie totals and the highest frequency within
+ *  each sub trie are updated atomically.
+ * Author: Paulo Jorge.
+ */
+public class ConcurrentTrieNode {
+    private static final ConcurrentTrieNode[] NO_OFFSPRINGS
+            = new ConcurrentTrieNode[0];
+    private static final AtomicReferenceFieldUpdater<ConcurrentTrieNode,
+            ConcurrentTrieNode[]> OFFSPRINGS = AtomicReferenceFieldUpdater
+            .newUpdater(ConcurrentTrieNode.class,
+                    ConcurrentTrieNode[].class, "offsprings");
+    private static final AtomicIntegerFieldUpdater<ConcurrentTrieNode>
+            FREQUENCY = AtomicIntegerFieldUpdater.newUpdater(
+                    ConcurrentTrieNode.class, "frequency");
+    private static final AtomicLongFieldUpdater<ConcurrentTrieNode>
+            TOTAL = AtomicLongFieldUpdater.newUpdater(
+                    ConcurrentTrieNode.class, "total");
+    private static final AtomicIntegerFieldUpdater<ConcurrentTrieNode>
+            MAX_FREQUENCY = AtomicIntegerFieldUpdater.newUpdater(
+                    ConcurrentTrieNode.class, "maxFrequency");
+
+    // Character stored in node
+    private final char character;
+    // Offspring nodes in ascending character order, replaced as a whole
+    private volatile ConcurrentTrieNode[] offsprings = NO_OFFSPRINGS;
+    // Frequency count of the word ending at this node, 0 if not a word
+    private volatile int frequency = 0;
+    // Sum of frequency counts of all words within this nodes sub trie
+    private volatile long total = 0;
+    // Highest frequency count of any word within this nodes sub trie
+    private volatile int maxFrequency = 0;
+
+    /**
+     * Constructor method used to initialise a new trie node.
+     * @param character Character stored in node.
+     */
+    public ConcurrentTrieNode(char character) {
+        this.character = character;
+    }
+
+    /**
+     * Accessor method used to get and return this nodes character.
+     * @return Char of this trie node.
+     */
+    public char getCharacter() {
+        return this.character;
+    }
+
+    /**
+     * Accessor method used to get and return this nodes offsprings.
+     * @return Array of type ConcurrentTrieNode in ascending character
+     *  order, which must not be modified.
+     */
+    public ConcurrentTrieNode[] getOffsprings() {
+        return this.offsprings;
+    }
+
+    /**
+     * Accessor method used to get and return the offspring holding a
+     *  character.
+     * @param character Character of offspring to get.
+     * @return ConcurrentTrieNode offspring object, or null if there is
+     *  none.
+     */
+    public ConcurrentTrieNode getOffspring(char character) {
+        ConcurrentTrieNode[] offsprings = this.offsprings;
+        int index = indexOf(offsprings, character);
+        return index >= 0 ? offsprings[index] : null;
+    }
+
+    /**
+     * Method used to get the offspring holding a character, adding it if
+     *  there is none. When several threads add the same character at
+     *  once, all of them get the single offspring that was published.
+     * @param character Character of offspring to get or add.
+     * @return ConcurrentTrieNode offspring object.
+     */
+    public ConcurrentTrieNode addOffspring(char character) {
+        ConcurrentTrieNode offspring = null;
+        while (true) {
+            ConcurrentTrieNode[] offsprings = this.offsprings;
+            int index = indexOf(offsprings, character);
+            if (index >= 0)
+                return offsprings[index];
+
+            // Copy offsprings with new node inserted in order
+            if (offspring == null)
+                offspring = new ConcurrentTrieNode(character);
+            index = -index - 1;
+            ConcurrentTrieNode[] copy
+                    = new ConcurrentTrieNode[offsprings.length + 1];
+            System.arraycopy(offsprings, 0, copy, 0, index);
+            System.arraycopy(offsprings, index, copy, index + 1,
+                    offsprings.length - index);
+            copy[index] = offspring;
+
+            // Publish copy unless another thread changed offsprings
+            // first, in which case search again
+            if (OFFSPRINGS.compareAndSet(this, offsprings, copy))
+                return offspring;
+        }
+    }
+
+    /**
+     * Method used to binary search offsprings for a character.
+     * @param offsprings Array of type ConcurrentTrieNode to search.
+     * @param character Character to find.
+     * @return Integer position of offspring, or (-(insertion point) - 1)
+     *  if the character is missing.
+     */
+    private static int indexOf(ConcurrentTrieNode[] offsprings,
+            char character) {
+        int low = 0;
+        int high = offsprings.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char key = offsprings[middle].character;
+            if (key < character)
+                low = middle + 1;
+            else if (key > character)
+                high = middle - 1;
+            else
+                return middle;
+        }
+        return -low - 1;
+    }
+
+    /**
+     * Accessor method used to get and return this nodes frequency.
+     * @return Integer frequency count, or 0 if node is not a word.
+     */
+    public int getFrequency() {
+        return this.frequency;
+    }
+
+    /**
+     * Accessor method used to get and return the sum of the frequency
+     *  counts of all words within this nodes sub trie.
+     * @return Long total frequency count.
+     */
+    public long getTotal() {
+        return this.total;
+    }
+
+    /**
+     * Accessor method used to get and return the highest frequency count
+     *  of any word within this nodes sub trie.
+     * @return Integer highest frequency count, or 0 if there is no word.
+     */
+    public int getMaxFrequency() {
+        return this.maxFrequency;
+    }
+
+    /**
+     * Mutator method used to atomically add to this nodes frequency.
+     * @param count Integer amount to add.
+     * @return Integer frequency count after adding.
+     */
+    public int addFrequency(int count) {
+        return FREQUENCY.addAndGet(this, count);
+    }
+
+    /**
+     * Mutator method used to atomically set this nodes frequency if it
+     *  is not already a word.
+     * @param frequency Integer frequency count to set.
+     * @return Boolean true if the frequency was set, false otherwise.
+     */
+    public boolean setFrequencyIfAbsent(int frequency) {
+        return FREQUENCY.compareAndSet(this, 0, frequency);
+    }
+
+    /**
+     * Mutator method used to atomically add to the total frequency count
+     *  of this nodes sub trie.
+     * @param frequency Long frequency count to add.
+     */
+    public void addTotal(long frequency) {
+        TOTAL.addAndGet(this, frequency);
+    }
+
+    /**
+     * Mutator method used to atomically raise the highest frequency count
+     *  of this nodes sub trie. Frequency counts only grow, so the highest
+     *  count is never lowered by a racing update.
+     * @param frequency Integer frequency count of a word within sub trie.
+     */
+    public void raiseMaxFrequency(int frequency) {
+        while (true) {
+            // Retry if another update changed it first
+            int max = this.maxFrequency;
+            if (max >= frequency
+                    || MAX_FREQUENCY.compareAndSet(this, max, frequency))
+                return;
+        }
+    }
+}
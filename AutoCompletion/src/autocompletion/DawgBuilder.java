@@ -0,0 +1,338 @@
+package autocompletion;
+
+import java.util.Arrays;
+
+/**
+ * Class: DawgBuilder.java
+ * Description: Class used to build a minimal DawgTrie from words added in
+ *  sorted order, such as a dictionary once sorted by saveToFile, in a
+ *  single incremental pass. Only the states of the last word added are
+ *  held as they are built. Once the next word leaves a state it can no
+ *  longer change, so it is frozen: replaced by an equal state already
+ *  frozen, found by hashing its transitions in a register, or else added
+ *  to the flat arrays of the automaton. Equal endings therefore share
+ *  states as soon as they are complete, and the automaton is minimal
+ *  without ever holding the whole trie.
+ * Author: Paulo Jorge.
+ */
+public class DawgBuilder {
+    // Default number of register slots, must be a power of two
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    // Alphabet used to normalise words added
+    private final Alphabet alphabet;
+    // Character and target state of each transition of frozen states
+    private char[] labels = new char[DEFAULT_CAPACITY];
+    private int[] targets = new int[DEFAULT_CAPACITY];
+    private int transitionCount = 0;
+    // First transition, number of words below, and hash of each frozen
+    // state, with one more start marking the end of the last state
+    private int[] starts = new int[DEFAULT_CAPACITY / 2 + 1];
+    private int[] counts = new int[DEFAULT_CAPACITY / 2];
+    private int[] hashes = new int[DEFAULT_CAPACITY / 2];
+    private long[] finals = new long[DEFAULT_CAPACITY / 128];
+    private int stateCount = 0;
+    // Register slots containing frozen state + 1, or 0 if the slot is
+    // empty
+    private int[] slots = new int[DEFAULT_CAPACITY];
+    // States of the last word added, indexed by depth
+    private PendingState[] path = {new PendingState()};
+    // Last word added, and frequency of every word in the order added
+    private String previous = null;
+    private int[] frequencies = new int[DEFAULT_CAPACITY];
+    private int wordCount = 0;
+
+    /**
+     * Constructor used to initialise a new builder.
+     * @param alphabet Alphabet object used to normalise words.
+     */
+    public DawgBuilder(Alphabet alphabet) {
+        this.alphabet = alphabet;
+    }
+
+    /**
+     * Method to add the next word, which must follow every word already
+     *  added in sorted order once normalised.
+     * @param key String containing word to add.
+     * @param frequency Integer frequency count of word.
+     * @return Boolean true if word was added, false if it is the word
+     *  last added.
+     * @throws IllegalArgumentException If the word sorts before the word
+     *  last added.
+     */
+    public boolean add(String key, int frequency) {
+        key = this.alphabet.normalize(key);
+        if (this.previous != null) {
+            int order = key.compareTo(this.previous);
+            if (order == 0)
+                return false;
+            if (order < 0)
+                throw new IllegalArgumentException("Word " + key
+                        + " added after " + this.previous);
+        }
+
+        // Freeze states of the previous word below the shared prefix
+        int shared = 0;
+        int length = this.previous == null ? 0 : this.previous.length();
+        while (shared < length && shared < key.length()
+                && key.charAt(shared) == this.previous.charAt(shared))
+            shared++;
+        freeze(shared);
+
+        // Add states for the rest of the word
+        if (key.length() >= this.path.length) {
+            int old = this.path.length;
+            this.path = Arrays.copyOf(this.path, Math.max(old * 2,
+                    key.length() + 1));
+            for (int i = old; i < this.path.length; i++)
+                this.path[i] = new PendingState();
+        }
+        for (int i = shared; i < key.length(); i++) {
+            this.path[i].add(key.charAt(i));
+            this.path[i + 1].clear();
+        }
+        this.path[key.length()].isFinal = true;
+
+        if (this.wordCount == this.frequencies.length)
+            this.frequencies = Arrays.copyOf(this.frequencies,
+                    this.wordCount * 2);
+        this.frequencies[this.wordCount++] = frequency;
+        this.previous = key;
+        return true;
+    }
+
+    /**
+     * Method to freeze every state of the last word added, and build an
+     *  automaton of every word added. The builder must not be used
+     *  afterwards.
+     * @return DawgTrie object containing every word added.
+     */
+    public DawgTrie build() {
+        freeze(0);
+        int root = register(this.path[0]);
+
+        // Words were added in ascending order, but are ranked with larger
+        // characters first, so move each frequency to its rank
+        int[] ranked = new int[this.wordCount];
+        rank(root, 0, 0, ranked);
+
+        return new DawgTrie(Arrays.copyOf(this.labels, this.transitionCount),
+                Arrays.copyOf(this.targets, this.transitionCount),
+                Arrays.copyOf(this.starts, this.stateCount + 1),
+                Arrays.copyOf(this.counts, this.stateCount),
+                Arrays.copyOf(this.finals, (this.stateCount + 63) >>> 6),
+                root, ranked, this.alphabet);
+    }
+
+    /**
+     * Method used to freeze the states of the last word added deeper than
+     *  a depth, from the deepest up, pointing the last transition of each
+     *  state's parent at its frozen state.
+     * @param depth Integer depth of the deepest state kept pending.
+     */
+    private void freeze(int depth) {
+        int length = this.previous == null ? 0 : this.previous.length();
+        for (int i = length; i > depth; i--)
+            this.path[i - 1].setLastTarget(register(this.path[i]));
+    }
+
+    /**
+     * Method used to find a frozen state equal to a pending state, adding
+     *  the pending state as a new frozen state if there is none.
+     * @param state PendingState object to freeze.
+     * @return Integer frozen state.
+     */
+    private int register(PendingState state) {
+        int hash = state.hash();
+        int mask = this.slots.length - 1;
+        int slot = hash & mask;
+
+        // Probe until an empty slot or an equal state is found
+        int id;
+        while ((id = this.slots[slot] - 1) >= 0) {
+            if (this.hashes[id] == hash && equal(id, state))
+                return id;
+            slot = (slot + 1) & mask;
+        }
+
+        id = add(state, hash);
+        this.slots[slot] = id + 1;
+
+        // Grow register once it becomes half full
+        if (this.stateCount * 2 == this.slots.length)
+            grow();
+        return id;
+    }
+
+    /**
+     * Method used to check if a frozen state equals a pending state.
+     * @param id Integer frozen state.
+     * @param state PendingState object to compare against.
+     * @return Boolean true if both end a word or neither does, and both
+     *  have the same transitions, false otherwise.
+     */
+    private boolean equal(int id, PendingState state) {
+        int start = this.starts[id];
+        if (isFinal(id) != state.isFinal
+                || this.starts[id + 1] - start != state.size)
+            return false;
+
+        // Frozen transitions are stored from last to first character
+        for (int i = 0; i < state.size; i++)
+            if (this.labels[start + i] != state.labels[state.size - 1 - i]
+                    || this.targets[start + i]
+                    != state.targets[state.size - 1 - i])
+                return false;
+        return true;
+    }
+
+    /**
+     * Method used to add a pending state as a new frozen state, with its
+     *  transitions from last to first character.
+     * @param state PendingState object to add.
+     * @param hash Integer hash of state.
+     * @return Integer new frozen state.
+     */
+    private int add(PendingState state, int hash) {
+        if (this.transitionCount + state.size > this.labels.length) {
+            int capacity = Math.max(this.labels.length * 2,
+                    this.transitionCount + state.size);
+            this.labels = Arrays.copyOf(this.labels, capacity);
+            this.targets = Arrays.copyOf(this.targets, capacity);
+        }
+        if (this.stateCount == this.counts.length) {
+            int capacity = this.stateCount * 2;
+            this.starts = Arrays.copyOf(this.starts, capacity + 1);
+            this.counts = Arrays.copyOf(this.counts, capacity);
+            this.hashes = Arrays.copyOf(this.hashes, capacity);
+            this.finals = Arrays.copyOf(this.finals, capacity >>> 6);
+        }
+
+        int id = this.stateCount++;
+        int count = state.isFinal ? 1 : 0;
+        for (int i = state.size - 1; i >= 0; i--) {
+            this.labels[this.transitionCount] = state.labels[i];
+            this.targets[this.transitionCount++] = state.targets[i];
+            count += this.counts[state.targets[i]];
+        }
+        this.starts[id + 1] = this.transitionCount;
+        this.counts[id] = count;
+        this.hashes[id] = hash;
+        if (state.isFinal)
+            this.finals[id >>> 6] |= 1L << id;
+        return id;
+    }
+
+    /**
+     * Method used to double the number of register slots and rehash all
+     *  frozen states.
+     */
+    private void grow() {
+        int capacity = this.slots.length * 2;
+        int mask = capacity - 1;
+        int[] slots = new int[capacity];
+
+        // Reinsert every frozen state into the larger register
+        for (int id = 0; id < this.stateCount; id++) {
+            int slot = this.hashes[id] & mask;
+            while (slots[slot] != 0)
+                slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+
+        this.slots = slots;
+    }
+
+    /**
+     * Method to check if a frozen state ends a whole word.
+     * @param id Integer frozen state.
+     * @return Boolean true if state is final, false otherwise.
+     */
+    private boolean isFinal(int id) {
+        return (this.finals[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Method used to move the frequencies of every word below a state from
+     *  the order they were added, smaller characters first, to their
+     *  rank, larger characters first. Both orders put a state's own word
+     *  before the words below it, so each word is found by counting the
+     *  words either side of the transitions on its path.
+     * @param state Integer frozen state.
+     * @param rank Integer rank of the first word below state.
+     * @param added Integer position added of the first word below state.
+     * @param ranked Integer array of frequencies by rank to fill.
+     */
+    private void rank(int state, int rank, int added, int[] ranked) {
+        if (isFinal(state))
+            ranked[rank++] = this.frequencies[added++];
+
+        // Words below later transitions come earlier in the added order
+        int below = this.counts[state] - (isFinal(state) ? 1 : 0);
+        for (int i = this.starts[state]; i < this.starts[state + 1]; i++) {
+            int target = this.targets[i];
+            below -= this.counts[target];
+            rank(target, rank, added + below, ranked);
+            rank += this.counts[target];
+        }
+    }
+
+    /**
+     * Class used to hold a state of the last word added until it is
+     *  frozen, with its transitions in the order added, smallest character
+     *  first. Its last transition leads to the next pending state and has
+     *  no target until that state is frozen.
+     */
+    private static class PendingState {
+        // Character and target state of each transition
+        private char[] labels = new char[4];
+        private int[] targets = new int[4];
+        // Number of transitions
+        private int size = 0;
+        // Whether state ends a whole word
+        private boolean isFinal = false;
+
+        /**
+         * Method used to add a transition with no target yet.
+         * @param label Character of transition.
+         */
+        void add(char label) {
+            if (this.size == this.labels.length) {
+                this.labels = Arrays.copyOf(this.labels, this.size * 2);
+                this.targets = Arrays.copyOf(this.targets, this.size * 2);
+            }
+            this.labels[this.size] = label;
+            this.targets[this.size++] = -1;
+        }
+
+        /**
+         * Method used to set the target of the last transition.
+         * @param target Integer frozen state.
+         */
+        void setLastTarget(int target) {
+            this.targets[this.size - 1] = target;
+        }
+
+        /**
+         * Method used to clear all transitions, so the state can be
+         *  reused by a later word.
+         */
+        void clear() {
+            this.size = 0;
+            this.isFinal = false;
+        }
+
+        /**
+         * Method used to hash whether state ends a word and every
+         *  transition.
+         * @return Integer hash code.
+         */
+        int hash() {
+            long hash = this.isFinal ? 1 : 0;
+            for (int i = 0; i < this.size; i++)
+                hash = NGramCounter.mix(hash * 31 + NGramCounter.key(
+                        this.labels[i], this.targets[i]));
+            return NGramCounter.mix(hash);
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package autocompletion;
+
+/**
+ * Class: DawgTrie.java
+ * Description: Immutable minimal acyclic automaton of a set of words,
+ *  built by DawgBuilder, in which every group of words ending the same
+ *  way shares a single chain of states rather than repeating it below
+ *  each prefix as a trie does. States and transitions are stored in flat
+ *  arrays, with transitions from last to first character, and each state
+ *  stores the number of words below it, so every word has a rank and the
+ *  words of any prefix are a contiguous range of ranks. Frequencies are
+ *  held by rank, as shared states cannot hold them, with a range maximum
+ *  tree over them so completions are found best first by splitting the
+ *  range of a prefix around its highest frequency. Ranks follow the same
+ *  order CompactTrie numbers nodes in, so ties resolve the same way.
+ * Author: Paulo Jorge.
+ */
+public class DawgTrie implements CompletionTrie, WordTable {
+    // Character and target state of each transition
+    private final char[] labels;
+    private final int[] targets;
+    // First transition of each state, with one more entry marking the
+    // end of the last state
+    private final int[] starts;
+    // Number of words below each state, including its own
+    private final int[] counts;
+    // Bit set of states that end a whole word
+    private final long[] finals;
+    // State every word starts from
+    private final int root;
+    // Frequency count of each word, indexed by rank
+    private final int[] frequencies;
+    // Sum of the frequency counts of the words before each rank, with one
+    // more sum for every word
+    private final long[] sums;
+    // Range maximum tree holding the highest ranked word of each range,
+    // leaves are indexed by rank plus the number of words
+    private final int[] best;
+    // Alphabet used to normalise words looked up
+    private final Alphabet alphabet;
+
+    /**
+     * Constructor used to initialise a new automaton from the arrays
+     *  built by DawgBuilder.
+     * @param labels Character array of transition characters.
+     * @param targets Integer array of transition target states.
+     * @param starts Integer array of first transition of each state.
+     * @param counts Integer array of number of words below each state.
+     * @param finals Long array bit set of final states.
+     * @param root Integer state every word starts from.
+     * @param frequencies Integer array of frequency of each word rank.
+     * @param alphabet Alphabet object words were normalised with.
+     */
+    DawgTrie(char[] labels, int[] targets, int[] starts, int[] counts,
+            long[] finals, int root, int[] frequencies, Alphabet alphabet) {
+        this.labels = labels;
+        this.targets = targets;
+        this.starts = starts;
+        this.counts = counts;
+        this.finals = finals;
+        this.root = root;
+        this.frequencies = frequencies;
+        this.alphabet = alphabet;
+
+        int size = frequencies.length;
+        this.sums = new long[size + 1];
+        for (int rank = 0; rank < size; rank++)
+            this.sums[rank + 1] = this.sums[rank] + frequencies[rank];
+
+        // Fill leaves with their own rank, then each parent with the best
+        // of its two children
+        this.best = new int[2 * size];
+        for (int rank = 0; rank < size; rank++)
+            this.best[size + rank] = rank;
+        for (int i = size - 1; i > 0; i--)
+            this.best[i] = better(this.best[2 * i], this.best[2 * i + 1]);
+    }
+
+    /**
+     * Accessor method used to get and return the number of states.
+     * @return Integer number of states.
+     */
+    public int getStateCount() {
+        return this.counts.length;
+    }
+
+    /**
+     * Accessor method used to get and return the number of transitions.
+     * @return Integer number of transitions.
+     */
+    public int getTransitionCount() {
+        return this.labels.length;
+    }
+
+    /**
+     * Accessor method used to get and return the number of words.
+     * @return Integer number of words.
+     */
+    public int getWordCount() {
+        return this.frequencies.length;
+    }
+
+    /**
+     * Method used to get the number of bytes used by the arrays of this
+     *  automaton.
+     * @return Long number of bytes.
+     */
+    public long estimateMemoryUsage() {
+        long transitions = getTransitionCount();
+        long states = getStateCount();
+        long words = getWordCount();
+        return AutoCompletionTrie.align(16 + 2 * transitions)
+                + AutoCompletionTrie.align(16 + 4 * transitions)
+                + AutoCompletionTrie.align(16 + 4 * (states + 1))
+                + AutoCompletionTrie.align(16 + 4 * states)
+                + AutoCompletionTrie.align(16 + 8L * this.finals.length)
+                + AutoCompletionTrie.align(16 + 4 * words)
+                + AutoCompletionTrie.align(16 + 8 * (words + 1))
+                + AutoCompletionTrie.align(16 + 8 * words);
+    }
+
+    /**
+     * Accessor method used to get and return the alphabet used to
+     *  normalise words.
+     * @return Alphabet object of this automaton.
+     */
+    @Override
+    public Alphabet getAlphabet() {
+        return this.alphabet;
+    }
+
+    /**
+     * Accessor method used to get and return the version of this automaton,
+     *  which is always 0 as it cannot change once built.
+     * @return Long version of this automaton.
+     */
+    @Override
+    public long getVersionNumber() {
+        return 0;
+    }
+
+    /**
+     * Method to check if this automaton contains a whole word.
+     * @param key String containing word to check.
+     * @return Boolean true if the key is found as a whole word, false
+     *  otherwise.
+     */
+    @Override
+    public boolean contains(String key) {
+        long found = find(key);
+        return found >= 0 && isFinal(stateOf(found));
+    }
+
+    /**
+     * Method to get frequency count of passed in key.
+     * @param key String containing word to check.
+     * @return Integer frequency count of the word, or 0 if key was not
+     *  found as a whole word.
+     */
+    @Override
+    public int getFrequency(String key) {
+        long found = find(key);
+        return found >= 0 && isFinal(stateOf(found))
+                ? this.frequencies[rankOf(found)] : 0;
+    }
+
+    /**
+     * Method to get the highest ranked completions of a prefix into an
+     *  existing result object, replacing its contents.
+     * @param prefix String containing prefix to complete.
+     * @param result CompletionResult object to fill.
+     * @return The passed in result object.
+     */
+    @Override
+    public CompletionResult getCompletions(String prefix,
+            CompletionResult result) {
+        long time = Metrics.start(result);
+        long found = find(prefix);
+        time = Metrics.DESCENT.recordSince(time);
+        Metrics.countQuery(found >= 0);
+
+        // Return empty result if prefix is not within automaton
+        if (found < 0) {
+            result.reset(prefix, false, 0);
+            return result;
+        }
+
+        // Words of the prefix are a contiguous range of ranks, starting
+        // with the prefix itself if it is a word
+        int state = stateOf(found);
+        int from = rankOf(found);
+        int to = from + this.counts[state];
+        result.reset(prefix, isFinal(state) && this.frequencies[from] > 0,
+                this.sums[to] - this.sums[from]);
+        search(from, to, result);
+        Metrics.ENUMERATION.recordSince(time);
+        return result;
+    }
+
+    /**
+     * Method to add the highest ranked words of a range of ranks to a
+     *  result by taking ranges best first from a heap, keyed by their
+     *  highest ranked word. Taking a range adds that word and splits the
+     *  range either side of it, so only ranges that can still hold a
+     *  ranking word are ever searched.
+     * @param from Integer first rank of range.
+     * @param to Integer rank following last rank of range.
+     * @param result CompletionResult object to add to.
+     */
+    private void search(int from, int to, CompletionResult result) {
+        // Every range taken adds at most two more, so no more than this
+        // many ranges are held before the limit is reached
+        int ranges = 2 * Math.min(result.getLimit(), to - from) + 1;
+        int[] lows = new int[ranges];
+        int[] highs = new int[ranges];
+        int[] tops = new int[ranges];
+        int[] heap = new int[ranges];
+        int count = 0;
+        int size = 0;
+
+        if (from < to) {
+            lows[count] = from;
+            highs[count] = to;
+            tops[count] = getBest(from, to);
+            push(heap, size++, count++, tops);
+        }
+
+        while (size > 0 && result.size() < result.getLimit()) {
+            int range = heap[0];
+            heap[0] = heap[--size];
+            siftDown(heap, size, tops);
+
+            int rank = tops[range];
+            result.add(this, rank, this.frequencies[rank]);
+
+            // Split range either side of the word just added
+            if (lows[range] < rank) {
+                lows[count] = lows[range];
+                highs[count] = rank;
+                tops[count] = getBest(lows[range], rank);
+                push(heap, size++, count++, tops);
+            }
+            if (rank + 1 < highs[range]) {
+                lows[count] = rank + 1;
+                highs[count] = highs[range];
+                tops[count] = getBest(rank + 1, highs[range]);
+                push(heap, size++, count++, tops);
+            }
+        }
+    }
+
+    /**
+     * Method used to find the highest ranked word of a range of ranks.
+     * @param from Integer first rank of range.
+     * @param to Integer rank following last rank of range.
+     * @return Integer rank of highest ranked word, or -1 if the range is
+     *  empty.
+     */
+    private int getBest(int from, int to) {
+        int top = -1;
+        int size = this.frequencies.length;
+        for (int l = from + size, r = to + size; l < r; l >>>= 1, r >>>= 1) {
+            if ((l & 1) != 0)
+                top = better(top, this.best[l++]);
+            if ((r & 1) != 0)
+                top = better(top, this.best[--r]);
+        }
+        return top;
+    }
+
+    /**
+     * Method used to pick the higher ranked of two words, the one with the
+     *  higher frequency or else the lower rank.
+     * @param a Integer rank of word, or -1 for none.
+     * @param b Integer rank of word.
+     * @return Integer rank of higher ranked word.
+     */
+    private int better(int a, int b) {
+        if (a < 0)
+            return b;
+        return outranks(a, b) ? a : b;
+    }
+
+    /**
+     * Method used to check if a word ranks before another.
+     * @param a Integer rank of word.
+     * @param b Integer rank of word to compare against.
+     * @return Boolean true if a ranks before b, false otherwise.
+     */
+    private boolean outranks(int a, int b) {
+        return this.frequencies[a] > this.frequencies[b]
+                || this.frequencies[a] == this.frequencies[b] && a < b;
+    }
+
+    /**
+     * Method used to add a range to the end of a binary heap of ranges,
+     *  ordered by their highest ranked word, and sift it up.
+     * @param heap Integer array of ranges.
+     * @param size Integer number of ranges before adding.
+     * @param range Integer range to add.
+     * @param tops Integer array of highest ranked word of each range.
+     */
+    private void push(int[] heap, int size, int range, int[] tops) {
+        int i = size;
+        while (i > 0 && outranks(tops[range], tops[heap[(i - 1) >>> 1]])) {
+            heap[i] = heap[(i - 1) >>> 1];
+            i = (i - 1) >>> 1;
+        }
+        heap[i] = range;
+    }
+
+    /**
+     * Method used to sift the top range of a binary heap of ranges down.
+     * @param heap Integer array of ranges.
+     * @param size Integer number of ranges.
+     * @param tops Integer array of highest ranked word of each range.
+     */
+    private void siftDown(int[] heap, int size, int[] tops) {
+        if (size == 0)
+            return;
+
+        int range = heap[0];
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size
+                    && outranks(tops[heap[child + 1]], tops[heap[child]]))
+                child++;
+            if (!outranks(tops[heap[child]], tops[range]))
+                break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = range;
+    }
+
+    /**
+     * Method to rebuild the word of a rank.
+     * @param rank Integer rank of word.
+     * @return String containing word.
+     */
+    @Override
+    public String getWord(int rank) {
+        StringBuilder word = new StringBuilder();
+        appendWord(rank, word);
+        return word.toString();
+    }
+
+    /**
+     * Method to append the word of a rank to a builder by following, from
+     *  the root, the transition whose range of ranks contains it.
+     * @param rank Integer rank of word.
+     * @param builder StringBuilder object to append to.
+     */
+    @Override
+    public void appendWord(int rank, StringBuilder builder) {
+        int state = this.root;
+        while (true) {
+            // A final state's own word comes before every word below it
+            if (isFinal(state)) {
+                if (rank == 0)
+                    return;
+                rank--;
+            }
+
+            for (int i = this.starts[state]; ; i++) {
+                int target = this.targets[i];
+                if (rank < this.counts[target]) {
+                    builder.append(this.labels[i]);
+                    state = target;
+                    break;
+                }
+                rank -= this.counts[target];
+            }
+        }
+    }
+
+    /**
+     * Method to check if a state ends a whole word.
+     * @param state Integer state.
+     * @return Boolean true if state is final, false otherwise.
+     */
+    private boolean isFinal(int state) {
+        return (this.finals[state >>> 6] & (1L << state)) != 0;
+    }
+
+    /**
+     * Method to find the state at the end of a key, once the key has been
+     *  normalised by this automatons alphabet, and the rank of the first
+     *  word below it, counting the words passed on the way.
+     * @param key String containing key to find.
+     * @return Long state and rank packed by found, or -1 if key is not
+     *  within automaton.
+     */
+    private long find(String key) {
+        key = this.alphabet.normalize(key);
+
+        int state = this.root;
+        int rank = 0;
+        for (int i = 0; i < key.length(); i++) {
+            if (isFinal(state))
+                rank++;
+
+            // Transitions are ordered from last to first character, so
+            // stop once a smaller character is reached
+            char character = key.charAt(i);
+            int next = -1;
+            for (int t = this.starts[state]; t < this.starts[state + 1];
+                    t++) {
+                if (this.labels[t] == character) {
+                    next = this.targets[t];
+                    break;
+                }
+                if (this.labels[t] < character)
+                    return -1;
+                rank += this.counts[this.targets[t]];
+            }
+            if (next < 0)
+                return -1;
+            state = next;
+        }
+        return (long)state << 32 | rank;
+    }
+
+    /**
+     * Method used to get the state of a found key.
+     * @param found Long state and rank packed by find.
+     * @return Integer state.
+     */
+    private static int stateOf(long found) {
+        return (int)(found >>> 32);
+    }
+
+    /**
+     * Method used to get the rank of the first word below a found key.
+     * @param found Long state and rank packed by find.
+     * @return Integer rank.
+     */
+    private static int rankOf(long found) {
+        return (int)found;
+    }
+}
@@ -0,0 +1,310 @@
+package autocompletion;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class: FuzzyCompleter.java
+ * Description: Class used to complete prefixes that may contain typing
+ *  mistakes. The trie is searched depth first while keeping the edit
+ *  distance between the prefix and the path of every node, counting an
+ *  insertion, deletion, substitution or swap of two neighbouring
+ *  characters as one edit, and a sub trie is left as soon as no
+ *  extension of its path can come within the allowed distance. Words
+ *  are ranked by fewest edits, then by frequency. Short prefixes match
+ *  most of the trie within a few edits, so at most one edit is allowed
+ *  per three characters typed, and every search stops once it has run
+ *  for its time budget, returning the best completions found so far.
+ * Author: Paulo Jorge.
+ */
+public class FuzzyCompleter {
+    // Number of characters typed for each edit allowed
+    private static final int CHARACTERS_PER_EDIT = 3;
+    // Number of nodes visited between checks of the time budget
+    private static final int CLOCK_INTERVAL = 256;
+
+    // Trie being completed against
+    private final AutoCompletionTrie trie;
+    // Most edits allowed between a prefix and a completion
+    private final int maxDistance;
+    // Nanoseconds a single search may run for
+    private final long budget;
+    // Number of searches stopped by the time budget
+    private final AtomicLong truncations = new AtomicLong();
+
+    /**
+     * Constructor used to initialise a new fuzzy completer.
+     * @param trie AutoCompletionTrie object to complete against, which
+     *  should store completions at every node as only those are ranked.
+     * @param maxDistance Integer most edits allowed.
+     * @param budget Long nanoseconds a single search may run for.
+     */
+    public FuzzyCompleter(AutoCompletionTrie trie, int maxDistance,
+            long budget) {
+        this.trie = trie;
+        this.maxDistance = maxDistance;
+        this.budget = budget;
+    }
+
+    /**
+     * Method used to get the most edits allowed for a prefix length.
+     * @param length Integer number of characters in prefix.
+     * @return Integer most edits allowed.
+     */
+    public int getDistance(int length) {
+        return Math.min(this.maxDistance, length / CHARACTERS_PER_EDIT);
+    }
+
+    /**
+     * Accessor method used to get and return the number of searches
+     *  stopped by the time budget.
+     * @return Long number of truncated searches.
+     */
+    public long getTruncations() {
+        return this.truncations.get();
+    }
+
+    /**
+     * Method used to get the highest ranked completions of words within
+     *  the allowed edits of a prefix into an existing result object.
+     *  The total of the result is the sum of the frequencies of the
+     *  completions, as words near the prefix share no single sub trie.
+     * @param prefix String containing prefix to complete.
+     * @param result CompletionResult object to fill, holding at most the
+     *  completion limit of the trie.
+     * @return The passed in result object.
+     */
+    public CompletionResult getCompletions(String prefix,
+            CompletionResult result) {
+        String key = this.trie.getAlphabet().normalize(prefix);
+        Search search = new Search(key, getDistance(key.length()),
+                result.getLimit());
+        search.run(this.trie.getRoot());
+        if (search.stopped)
+            this.truncations.incrementAndGet();
+
+        // Probabilities are relative to the completions returned
+        long total = 0;
+        for (int i = 0; i < search.size; i++)
+            total += search.leaves[i].getFrequency();
+
+        result.reset(prefix, this.trie.contains(key), total);
+        for (int i = 0; i < search.size; i++)
+            this.trie.add(result, search.leaves[i]);
+        return result;
+    }
+
+    /**
+     * Class used to hold the state of a single search: a row of edit
+     *  distances for every node along the current path, and the highest
+     *  ranked word nodes found so far.
+     */
+    private class Search {
+        // Normalised prefix searched for
+        private final String key;
+        // Most edits allowed, and edits allowed by the current pass
+        private final int allowed;
+        private int distance;
+        // Edit distances between every prefix of key and the path to
+        // each depth, and the character of the node at each depth
+        private final int[][] rows;
+        private final char[] path;
+        // Ranked word nodes and the edits needed to reach them
+        private final TrieNode[] leaves;
+        private final int[] costs;
+        private int size = 0;
+        // Time the search started, nodes visited and if it was stopped
+        private long start;
+        private int visited = 0;
+        private boolean stopped = false;
+
+        /**
+         * Constructor used to initialise a new search.
+         * @param key String containing normalised prefix.
+         * @param distance Integer most edits allowed.
+         * @param limit Integer maximum number of completions to keep.
+         */
+        Search(String key, int distance, int limit) {
+            this.key = key;
+            this.allowed = distance;
+            // Paths longer than the key by more than the allowed edits
+            // can never come within them
+            this.rows = new int[key.length() + distance + 1]
+                    [key.length() + 1];
+            this.path = new char[key.length() + distance + 1];
+            this.leaves = new TrieNode[limit];
+            this.costs = new int[limit];
+
+            // Root row is the cost of deleting every key character
+            for (int j = 0; j <= key.length(); j++)
+                this.rows[0][j] = j;
+        }
+
+        /**
+         * Method used to search the whole trie, allowing one more edit
+         *  on each pass. Words needing more edits rank after every word
+         *  found so far, so once enough words are found no further pass
+         *  is needed, and the far larger searches allowing more edits
+         *  are only made for prefixes with few close completions.
+         * @param root TrieNode root object of trie.
+         */
+        void run(TrieNode root) {
+            this.start = System.nanoTime();
+            for (this.distance = 0; this.distance <= this.allowed
+                    && this.size < this.leaves.length && !this.stopped;
+                    this.distance++) {
+                // Rank every word if the key is short enough to delete
+                if (this.key.length() <= this.distance)
+                    for (TrieNode leaf : root.getCompletions())
+                        if (!add(leaf, this.key.length()))
+                            break;
+                visit(root, 0);
+            }
+        }
+
+        /**
+         * Method used to search the offsprings of a node, visiting the
+         *  offspring matching the next key character first so that a
+         *  stopped search still holds the closest completions.
+         * @param node TrieNode object whose offsprings to search.
+         * @param depth Integer depth of node.
+         */
+        private void visit(TrieNode node, int depth) {
+            if (depth + 1 == this.rows.length)
+                return;
+
+            TrieNode next = depth < this.key.length()
+                    ? node.getOffspring(this.key.charAt(depth)) : null;
+            if (next != null)
+                visitOffspring(next, depth);
+
+            for (TrieNode offspring : node.getOffsprings())
+                if (offspring != null && offspring != next
+                        && !this.stopped)
+                    visitOffspring(offspring, depth);
+        }
+
+        /**
+         * Method used to compute the edit distances of an offspring, rank
+         *  its completions if the whole key is within the allowed edits,
+         *  and search below it if any extension could still be.
+         * @param offspring TrieNode object to visit.
+         * @param depth Integer depth of its parent.
+         */
+        private void visitOffspring(TrieNode offspring, int depth) {
+            // Check the time budget every so often
+            if (++this.visited % CLOCK_INTERVAL == 0
+                    && System.nanoTime() - this.start > budget) {
+                this.stopped = true;
+                return;
+            }
+
+            char character = offspring.getCharacter();
+            int[] previous = this.rows[depth];
+            int[] row = this.rows[depth + 1];
+            this.path[depth + 1] = character;
+            row[0] = depth + 1;
+            int min = row[0];
+            for (int j = 1; j < row.length; j++) {
+                char expected = this.key.charAt(j - 1);
+                row[j] = Math.min(Math.min(previous[j], row[j - 1]) + 1,
+                        previous[j - 1] + (character == expected ? 0 : 1));
+
+                // Two neighbouring characters typed the wrong way round
+                if (depth > 0 && j > 1
+                        && character == this.key.charAt(j - 2)
+                        && this.path[depth] == expected)
+                    row[j] = Math.min(row[j], this.rows[depth - 1][j - 2]
+                            + 1);
+                min = Math.min(min, row[j]);
+            }
+
+            int cost = row[row.length - 1];
+            if (cost <= this.distance)
+                for (TrieNode leaf : offspring.getCompletions())
+                    if (!add(leaf, cost))
+                        break;
+
+            if (min <= this.distance && mayImprove(offspring, min))
+                visit(offspring, depth + 1);
+        }
+
+        /**
+         * Method used to check if the sub trie of a node could hold a
+         *  word ranking before the lowest kept node, given that every
+         *  word within it needs at least a number of edits and is no more
+         *  frequent than its highest ranked completion.
+         * @param node TrieNode root of sub trie.
+         * @param cost Integer fewest edits needed within sub trie.
+         * @return Boolean true if the sub trie must be searched, false
+         *  otherwise.
+         */
+        private boolean mayImprove(TrieNode node, int cost) {
+            int last = this.leaves.length - 1;
+            if (this.size <= last)
+                return true;
+            if (cost != this.costs[last])
+                return cost < this.costs[last];
+
+            TrieNode[] completions = node.getCompletions();
+            return completions.length == 0 || completions[0].getFrequency()
+                    >= this.leaves[last].getFrequency();
+        }
+
+        /**
+         * Method used to rank a word node reached with a number of edits,
+         *  keeping the fewest edits found for a node already ranked.
+         * @param leaf TrieNode word object to rank.
+         * @param cost Integer edits needed to reach it.
+         * @return Boolean false if the node ranks below every kept node,
+         *  so lower ranked nodes need not be tried, true otherwise.
+         */
+        private boolean add(TrieNode leaf, int cost) {
+            // Keep only the cheapest way to reach a node
+            int position = 0;
+            while (position < this.size && this.leaves[position] != leaf)
+                position++;
+            if (position < this.size) {
+                if (cost >= this.costs[position])
+                    return true;
+                this.size--;
+                System.arraycopy(this.leaves, position + 1, this.leaves,
+                        position, this.size - position);
+                System.arraycopy(this.costs, position + 1, this.costs,
+                        position, this.size - position);
+            }
+
+            // Find position of node within ranked nodes
+            position = this.size;
+            while (position > 0 && ranksBefore(leaf, cost, position - 1))
+                position--;
+            if (position >= this.leaves.length)
+                return false;
+
+            // Shift lower ranked nodes down, dropping the last if full
+            if (this.size < this.leaves.length)
+                this.size++;
+            System.arraycopy(this.leaves, position, this.leaves,
+                    position + 1, this.size - position - 1);
+            System.arraycopy(this.costs, position, this.costs,
+                    position + 1, this.size - position - 1);
+            this.leaves[position] = leaf;
+            this.costs[position] = cost;
+            return true;
+        }
+
+        /**
+         * Method used to check if a word node ranks before a kept node,
+         *  by fewer edits and then the way TrieNode.ranksBefore ranks.
+         * @param leaf TrieNode word object to compare.
+         * @param cost Integer edits needed to reach it.
+         * @param index Integer rank of kept node to compare against.
+         * @return Boolean true if the node ranks first, false otherwise.
+         */
+        private boolean ranksBefore(TrieNode leaf, int cost, int index) {
+            if (cost != this.costs[index])
+                return cost < this.costs[index];
+            return leaf.ranksBefore(this.leaves[index],
+                    FuzzyCompleter.this.trie.getWords());
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package autocompletion;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Class: LatencyHistogram.java
+ * Description: Histogram of nanosecond durations in the style of an HDR
+ *  histogram. Every power of two range of durations is split into the
+ *  same number of equal buckets, so any recorded duration is counted
+ *  within about three percent of its value, from a nanosecond to
+ *  centuries, in a fixed number of buckets. Durations may be recorded
+ *  by many threads at once without locking.
+ * Author: Paulo Jorge.
+ */
+public class LatencyHistogram {
+    // Number of bits of a duration kept exactly, giving the number of
+    // buckets every power of two range is split into
+    private static final int PRECISION_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << PRECISION_BITS;
+    // Number of buckets needed for every positive long duration
+    private static final int BUCKETS = (64 - PRECISION_BITS) * SUB_BUCKETS;
+
+    // Name of recorded stage
+    private final String name;
+    // Number of durations counted within each bucket
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    // Number, sum and largest of recorded durations
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Constructor used to initialise a new empty histogram.
+     * @param name String name of recorded stage.
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Accessor method used to get and return the name of the recorded
+     *  stage.
+     * @return String name of histogram.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Method used to record a duration.
+     * @param nanos Long number of nanoseconds, counted as 0 if negative.
+     */
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        this.counts.incrementAndGet(indexOf(nanos));
+        this.count.incrementAndGet();
+        this.total.addAndGet(nanos);
+
+        // Raise largest duration unless another thread raised it higher
+        long largest = this.max.get();
+        while (nanos > largest && !this.max.compareAndSet(largest, nanos))
+            largest = this.max.get();
+    }
+
+    /**
+     * Method used to record the duration since a start time, so the
+     *  stages of a query can be timed one after another.
+     * @param start Long System.nanoTime value the stage started at, or 0
+     *  if the stage is not being timed.
+     * @return Long System.nanoTime value the next stage starts at, or 0
+     *  if the stage was not timed.
+     */
+    public long recordSince(long start) {
+        if (start == 0)
+            return 0;
+
+        long now = System.nanoTime();
+        record(now - start);
+        return now;
+    }
+
+    /**
+     * Method used to get the bucket counting a duration.
+     * @param nanos Long positive number of nanoseconds.
+     * @return Integer position of bucket.
+     */
+    private static int indexOf(long nanos) {
+        if (nanos < SUB_BUCKETS)
+            return (int)nanos;
+
+        // Keep the highest bits of longer durations
+        int shift = 63 - Long.numberOfLeadingZeros(nanos) - PRECISION_BITS;
+        return (shift + 1) * SUB_BUCKETS
+                + (int)(nanos >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Method used to get the largest duration counted by a bucket.
+     * @param index Integer position of bucket.
+     * @return Long number of nanoseconds.
+     */
+    private static long highestOf(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+
+        int shift = index / SUB_BUCKETS - 1;
+        long first = (long)(index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return first + (1L << shift) - 1;
+    }
+
+    /**
+     * Accessor method used to get and return the number of recorded
+     *  durations.
+     * @return Long number of durations.
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * Accessor method used to get and return the sum of recorded
+     *  durations.
+     * @return Long number of nanoseconds.
+     */
+    public long getTotal() {
+        return this.total.get();
+    }
+
+    /**
+     * Accessor method used to get and return the largest recorded
+     *  duration.
+     * @return Long number of nanoseconds, or 0 if none were recorded.
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Method used to get the mean of recorded durations.
+     * @return Double number of nanoseconds, or 0 if none were recorded.
+     */
+    public double getMean() {
+        long recorded = getCount();
+        return recorded == 0 ? 0 : (double)getTotal() / recorded;
+    }
+
+    /**
+     * Method used to get the duration that a percentage of recorded
+     *  durations are no longer than.
+     * @param percentile Double percentage between 0 and 100.
+     * @return Long number of nanoseconds, or 0 if none were recorded.
+     */
+    public long getPercentile(double percentile) {
+        long recorded = getCount();
+        if (recorded == 0)
+            return 0;
+
+        // Find bucket holding the duration of that rank
+        long rank = Math.max(1, (long)Math.ceil(percentile / 100
+                * recorded));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts.get(i);
+            if (seen >= rank)
+                return Math.min(highestOf(i), getMax());
+        }
+
+        return getMax();
+    }
+
+    /**
+     * Method used to clear every recorded duration.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            this.counts.set(i, 0);
+        this.count.set(0);
+        this.total.set(0);
+        this.max.set(0);
+    }
+
+    /**
+     * Method used to return the count, mean, common percentiles and
+     *  largest of recorded durations in a formatted string.
+     * @return Formatted string of histogram, durations in nanoseconds.
+     */
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder();
+        str.append(getName()).append(" count=").append(getCount());
+        str.append(" mean=").append(Math.round(getMean()));
+        str.append(" p50=").append(getPercentile(50));
+        str.append(" p90=").append(getPercentile(90));
+        str.append(" p99=").append(getPercentile(99));
+        str.append(" p99.9=").append(getPercentile(99.9));
+        str.append(" max=").append(getMax());
+        return str.toString();
+    }
+
+    /**
+     * Method used to return the same figures as toString as a JSON
+     *  object.
+     * @return String containing JSON object, durations in nanoseconds.
+     */
+    public String toJson() {
+        StringBuilder str = new StringBuilder();
+        str.append("{\"count\":").append(getCount());
+        str.append(",\"mean\":").append(Math.round(getMean()));
+        str.append(",\"p50\":").append(getPercentile(50));
+        str.append(",\"p90\":").append(getPercentile(90));
+        str.append(",\"p99\":").append(getPercentile(99));
+        str.append(",\"p999\":").append(getPercentile(99.9));
+        str.append(",\"max\":").append(getMax()).append('}');
+        return str.toString();
+    }
+}
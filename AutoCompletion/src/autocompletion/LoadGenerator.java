@@ -0,0 +1,219 @@
+package autocompletion;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Class: LoadGenerator.java
+ * Description: Tool used to measure the latency and throughput of a
+ *  completion server. Each connection is driven by its own thread,
+ *  which sends a batch of requests without waiting, then reads every
+ *  response before sending the next batch. The latency of a request is
+ *  the time from sending its batch to receiving its response, so deeper
+ *  batches trade latency for throughput.
+ * Author: Paulo Jorge.
+ */
+public class LoadGenerator {
+    // Bytes read from a connection at a time
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    // Address of server to load
+    private final InetSocketAddress address;
+    // Request lines sent in turn, encoded once
+    private final byte[][] requests;
+    // Number of connections, and requests sent per batch on each
+    private final int connections;
+    private final int depth;
+    // Latency of every request, and length of last run
+    private final LatencyHistogram latencies
+            = new LatencyHistogram("latency");
+    private long elapsed = 0;
+    private long completed = 0;
+
+    /**
+     * Constructor used to initialise a new load generator.
+     * @param address InetSocketAddress of server.
+     * @param prefixes Array of type string containing prefixes to
+     *  request in turn.
+     * @param connections Integer number of connections.
+     * @param depth Integer number of requests sent per batch.
+     */
+    public LoadGenerator(InetSocketAddress address, String[] prefixes,
+            int connections, int depth) {
+        this.address = address;
+        this.connections = connections;
+        this.depth = depth;
+        this.requests = new byte[prefixes.length][];
+        for (int i = 0; i < prefixes.length; i++)
+            this.requests[i] = (prefixes[i] + "\n").getBytes(
+                    StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Method used to send a number of requests on every connection at
+     *  once, replacing the latencies of any previous run.
+     * @param count Integer number of requests per connection, rounded up
+     *  to whole batches.
+     * @throws IOException If any connection fails.
+     */
+    public void run(final int count) throws IOException {
+        this.latencies.reset();
+        final AtomicReference<IOException> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[this.connections];
+        for (int i = 0; i < threads.length; i++) {
+            final int offset = i * this.requests.length / threads.length;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        drive(offset, count);
+                    } catch (IOException exception) {
+                        failure.compareAndSet(null, exception);
+                    }
+                }
+            }, "load-generator-" + i);
+        }
+
+        long start = System.nanoTime();
+        for (Thread thread : threads)
+            thread.start();
+        try {
+            for (Thread thread : threads)
+                thread.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException(exception);
+        }
+        this.elapsed = System.nanoTime() - start;
+        this.completed = this.latencies.getCount();
+
+        if (failure.get() != null)
+            throw failure.get();
+    }
+
+    /**
+     * Method used to send batches of requests on a new connection until
+     *  a number of requests have been answered.
+     * @param offset Integer position of first request to send.
+     * @param count Integer number of requests to send.
+     * @throws IOException If the connection fails.
+     */
+    private void drive(int offset, int count) throws IOException {
+        ByteBuffer output = ByteBuffer.allocate(1024);
+        ByteBuffer input = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        int next = offset;
+
+        try (SocketChannel socket = SocketChannel.open(this.address)) {
+            socket.socket().setTcpNoDelay(true);
+            for (int sent = 0; sent < count; sent += this.depth) {
+                // Encode a whole batch, growing buffer if needed
+                output.clear();
+                for (int i = 0; i < this.depth; i++) {
+                    byte[] request = this.requests[next];
+                    next = (next + 1) % this.requests.length;
+                    if (output.remaining() < request.length) {
+                        ByteBuffer grown = ByteBuffer.allocate(Math.max(
+                                output.capacity() * 2,
+                                output.position() + request.length));
+                        output.flip();
+                        output = grown.put(output);
+                    }
+                    output.put(request);
+                }
+
+                long start = System.nanoTime();
+                output.flip();
+                while (output.hasRemaining())
+                    socket.write(output);
+
+                // Read until every response of the batch has arrived
+                int answered = 0;
+                while (answered < this.depth) {
+                    if (socket.read(input) < 0)
+                        throw new IOException("Server closed connection");
+                    long now = System.nanoTime();
+                    for (int i = 0; i < input.position(); i++)
+                        if (input.get(i) == '\n') {
+                            this.latencies.record(now - start);
+                            answered++;
+                        }
+                    input.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Accessor method used to get and return the latency of every
+     *  request of the last run.
+     * @return LatencyHistogram object of request latencies.
+     */
+    public LatencyHistogram getLatencies() {
+        return this.latencies;
+    }
+
+    /**
+     * Method used to get the number of requests answered per second
+     *  during the last run.
+     * @return Double requests per second, or 0 before any run.
+     */
+    public double getThroughput() {
+        return this.elapsed == 0 ? 0 : this.completed / (this.elapsed
+                / 1e9);
+    }
+
+    /**
+     * Method used to load a completion server with the queries of
+     *  lotrQueries.csv and print the throughput and latencies.
+     * @param args Optional port, connections, batch depth and requests
+     *  per connection.
+     * @throws IOException If the queries cannot be read or a connection
+     *  fails.
+     */
+    public static void main(String[] args) throws IOException {
+        run(args, System.out);
+    }
+
+    /**
+     * Method used to load a completion server with the queries of
+     *  lotrQueries.csv and print the throughput and latencies to a
+     *  stream as a header line and a line of comma separated values.
+     * @param args Optional port, connections, batch depth and requests
+     *  per connection.
+     * @param out PrintStream to print results to.
+     * @throws IOException If the queries cannot be read or a connection
+     *  fails.
+     */
+    public static void run(String[] args, PrintStream out)
+            throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0])
+                : CompletionServer.DEFAULT_PORT;
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int count = args.length > 3 ? Integer.parseInt(args[3]) : 100000;
+
+        ArrayList<String> queries = MakeDictionary.readWordsFromCSV(
+                "lotrQueries.csv");
+        LoadGenerator generator = new LoadGenerator(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), port),
+                queries.toArray(new String[0]), connections, depth);
+        generator.run(count);
+
+        LatencyHistogram latencies = generator.getLatencies();
+        out.println("connections,depth,requests,requests/s,"
+                + "p50 us,p99 us,max us");
+        out.println(connections + "," + depth + ","
+                + latencies.getCount() + ","
+                + Math.round(generator.getThroughput()) + ","
+                + latencies.getPercentile(50) / 1000 + ","
+                + latencies.getPercentile(99) / 1000 + ","
+                + latencies.getMax() / 1000);
+    }
+}
@@ -14,18 +14,23 @@ import java.util.Scanner;
  * Class: MakeDictionary.java
  * Description: Class used to define a dictionary finder algorithm used 
  *  to read from file, create a dictionary of unique words and 
- *  then save to file.
+ *  then save to file. Words are held by dense integer id in the single
+ *  character arena of a word counter, and dictionary word objects are
+ *  only created when the list of them is asked for.
  * Author: Paulo Jorge.
  */
 public class MakeDictionary {
- private final ArrayList<DictionaryWord> dictionary;
+    // Unique words and their frequency counts, by id
+    private WordCounter words;
+    // Dictionary word of every unique word, created when first asked for
+    private ArrayList<DictionaryWord> dictionary;
     
     /**
      * Constructor method used to initialise a new dictionary 
      *  finder object.
      */
     public MakeDictionary() {
-        this.dictionary = new ArrayList();
+        this.words = new WordCounter();
     } 
     
     /**
@@ -68,49 +73,82 @@ public class MakeDictionary {
      
     /**
      * Method used to take a list of words, and return a dictionary
-     *  array containing all unique words, and an array of the 
-     *  associated frequency count of each word.
-     * @param words Array list of type string containing words to 
+     *  array containing all unique words, and an array of the
+     *  associated frequency count of each word. Words are counted in a
+     *  single pass using a hash table and are kept in the order they
+     *  were first seen.
+     * @param words Array list of type string containing words to
      *  add to form a new dictionary with.
      */
     public void formDictionary (
-            ArrayList<String> words) {    
-        // Clear previous dictionary
-        this.dictionary.clear();
-        
-        // Loop all words in list
-        for (int i = 0; i < words.size(); i++) {
-            // Get current word
-            String c = words.get(i);
-            
-            boolean exists = false;
-            int x = 0;
-            // Loop until word has been found or iterator has reached 
-            // the end of the dictionary
-            while (!exists && x < this.dictionary.size()) {
-                if (this.dictionary.get(x).getWord().equals(c))
-                    exists = true;
-                // If word is not found increment next position
-                else
-                    x++;
-            }
-            
-            // Increment word count of word if it is not unique
-            if (exists)
-                this.dictionary.get(x).incrementFrequency();
-            // Else add it to dictionary
-            else
-                this.dictionary.add(new DictionaryWord(c));
-        }
+            ArrayList<String> words) {
+        // Count every word in list
+        WordCounter counter = new WordCounter();
+        for (String word : words)
+            counter.increment(word);
+
+        formDictionary(counter);
+    }
+
+    /**
+     * Method used to form a dictionary by streaming the words of a
+     *  comma separated text document, counting each word as it is read
+     *  rather than reading every word into a list first.
+     * @param file String location of file to read from.
+     * @throws IOException If the file cannot be read.
+     */
+    public void formDictionaryFromFile(String file) throws IOException {
+        WordCounter counter = new WordCounter();
+        new WordReader().read(file, counter);
+        formDictionary(counter);
+    }
+
+    /**
+     * Method used to form a dictionary from the words already counted
+     *  by a word counter. The counter is kept rather than copied, so
+     *  must not be changed afterwards.
+     * @param counter WordCounter containing counted words.
+     */
+    public void formDictionary(WordCounter counter) {
+        // Replace previous dictionary
+        this.words = counter;
+        this.dictionary = null;
+    }
+
+    /**
+     * Accessor method used to get and return the number of unique words
+     *  in the current formed dictionary.
+     * @return Integer number of unique words.
+     */
+    public int size() {
+        return this.words.size();
+    }
+
+    /**
+     * Accessor method used to get and return the word counter holding
+     *  every unique word of the current formed dictionary by id, in the
+     *  order each was first seen. Tries built over it can share it as
+     *  their word table.
+     * @return WordCounter object of unique words.
+     */
+    public WordCounter getWords() {
+        return this.words;
     }
     
     /**
      * Accessor method used to get and return the current formed 
-     *  dictionary.
+     *  dictionary, creating a dictionary word for every unique word in
+     *  the order it was first seen the first time it is called.
      * @return Array list of type DictionaryWord containing all words
      *  currently formed.
      */
     public ArrayList<DictionaryWord> getDictionary() {
+        if (this.dictionary == null) {
+            this.dictionary = new ArrayList(this.words.size());
+            for (int id = 0; id < this.words.size(); id++)
+                this.dictionary.add(new DictionaryWord(
+                        this.words.getWord(id), this.words.getCount(id)));
+        }
         return this.dictionary;
     }
     
@@ -122,7 +160,7 @@ public class MakeDictionary {
      */
     public void saveToFile(String file) throws IOException {
         // Sort words alphabetically
-        Collections.sort(this.dictionary);
+        Collections.sort(getDictionary());
         
         // Write to file
         saveCollectionToFile(this.dictionary, file);
@@ -142,6 +180,17 @@ public class MakeDictionary {
             this.word = word;
         }
 
+        /**
+         * Constructor method used to create a new dictionary word
+         *  object with an existing frequency count.
+         * @param word String containing word.
+         * @param frequency Integer frequency count of word.
+         */
+        public DictionaryWord(String word, int frequency) {
+            this.word = word;
+            this.frequency = frequency;
+        }
+
         /**
          * Method used to get and return this word.
          * @return String containing word.
@@ -0,0 +1,177 @@
+package autocompletion;
+
+import java.io.PrintStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class: Metrics.java
+ * Description: Counters and latency histograms of the phases of building
+ *  a trie and the stages of completing a query, turned on by setting the
+ *  autocompletion.metrics system property to true. The switch is read
+ *  once into a constant, so while metrics are off the compiler removes
+ *  every check and timing and they cost nothing. Reading the clock costs
+ *  about as much as a short query, so while on each query is drawn once
+ *  as it starts, at random per thread so threads share no counter, and
+ *  on average one in autocompletion.metrics.sample queries is timed,
+ *  rounded down to a power of two and 64 by default. The draw is held by
+ *  the result of the query, so every stage of a drawn query is timed and
+ *  no stage of any other.
+ * Author: Paulo Jorge.
+ */
+public class Metrics {
+    // Whether metrics are recorded, fixed when this class is loaded
+    public static final boolean ENABLED
+            = Boolean.getBoolean("autocompletion.metrics");
+    // One less than the number of queries per timed query, a power of two
+    private static final int SAMPLE_MASK = Integer.highestOneBit(Math.max(1,
+            Integer.getInteger("autocompletion.metrics.sample", 64))) - 1;
+
+    // Build phases: filling a buffer from a file, splitting a buffer into
+    // words and counting them, and inserting every counted word
+    public static final LatencyHistogram READ = new LatencyHistogram("read");
+    public static final LatencyHistogram COUNT
+            = new LatencyHistogram("count");
+    public static final LatencyHistogram INSERT
+            = new LatencyHistogram("insert");
+    // Query stages: finding the node ending a prefix, walking the words
+    // below it, ordering them when they are not stored ranked, and
+    // formatting the result
+    public static final LatencyHistogram DESCENT
+            = new LatencyHistogram("descent");
+    public static final LatencyHistogram ENUMERATION
+            = new LatencyHistogram("enumeration");
+    public static final LatencyHistogram RANKING
+            = new LatencyHistogram("ranking");
+    public static final LatencyHistogram FORMATTING
+            = new LatencyHistogram("formatting");
+    private static final LatencyHistogram[] HISTOGRAMS = {READ, COUNT,
+            INSERT, DESCENT, ENUMERATION, RANKING, FORMATTING};
+
+    // Number of queries completed, and those whose prefix was not found
+    public static final LongAdder QUERIES = new LongAdder();
+    public static final LongAdder MISSES = new LongAdder();
+
+    /**
+     * Method used to draw whether a query is timed as it starts, marking
+     *  its result, and start timing its first stage if so. The value
+     *  returned is passed to LatencyHistogram.recordSince at the end of
+     *  each stage, and the value that returns on to the next stage.
+     * @param result CompletionResult object the query fills.
+     * @return Long System.nanoTime value, or 0 if the query is not timed.
+     */
+    public static long start(CompletionResult result) {
+        if (!ENABLED)
+            return 0;
+        result.setTimed((ThreadLocalRandom.current().nextInt()
+                & SAMPLE_MASK) == 0);
+        return result.isTimed() ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Method used to start timing a later stage of a query, such as
+     *  formatting its result, if metrics are on and the query was drawn
+     *  to be timed when it started.
+     * @param result CompletionResult object filled by the query.
+     * @return Long System.nanoTime value, or 0 if the query is not timed.
+     */
+    public static long resume(CompletionResult result) {
+        return ENABLED && result.isTimed() ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Method used to start timing a build phase if metrics are on. Build
+     *  phases are long and few, so every one is timed.
+     * @return Long System.nanoTime value, or 0 if metrics are off.
+     */
+    public static long startPhase() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Method used to count a completed query if metrics are on.
+     * @param found Boolean true if the prefix was found within the trie.
+     */
+    public static void countQuery(boolean found) {
+        if (!ENABLED)
+            return;
+        QUERIES.increment();
+        if (!found)
+            MISSES.increment();
+    }
+
+    /**
+     * Method used to clear every counter and histogram.
+     */
+    public static void reset() {
+        QUERIES.reset();
+        MISSES.reset();
+        for (LatencyHistogram histogram : HISTOGRAMS)
+            histogram.reset();
+    }
+
+    /**
+     * Method used to return every counter and histogram as lines of
+     *  text, durations in nanoseconds.
+     * @return Formatted string of metrics.
+     */
+    public static String toText() {
+        StringBuilder str = new StringBuilder();
+        str.append("queries=").append(QUERIES.sum());
+        str.append(" misses=").append(MISSES.sum());
+        str.append(" sample=").append(SAMPLE_MASK + 1);
+        for (LatencyHistogram histogram : HISTOGRAMS)
+            str.append(System.lineSeparator()).append(histogram);
+        return str.toString();
+    }
+
+    /**
+     * Method used to return every counter and histogram as a single
+     *  line JSON object, durations in nanoseconds.
+     * @return String containing JSON object.
+     */
+    public static String toJson() {
+        StringBuilder str = new StringBuilder();
+        str.append("{\"queries\":").append(QUERIES.sum());
+        str.append(",\"misses\":").append(MISSES.sum());
+        str.append(",\"sample\":").append(SAMPLE_MASK + 1);
+        for (LatencyHistogram histogram : HISTOGRAMS)
+            str.append(",\"").append(histogram.getName()).append("\":")
+                    .append(histogram.toJson());
+        return str.append('}').toString();
+    }
+
+    /**
+     * Method used to print every counter and histogram on a background
+     *  thread at a fixed period until the returned executor is shut
+     *  down. The thread does not keep the program running.
+     * @param out PrintStream to print to.
+     * @param period Long milliseconds between prints.
+     * @param json Boolean true to print JSON, false to print text.
+     * @return ScheduledExecutorService printing metrics.
+     */
+    public static ScheduledExecutorService startReporter(
+            final PrintStream out, long period, final boolean json) {
+        ScheduledExecutorService reporter = Executors
+                .newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "metrics-reporter");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        reporter.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                out.println(json ? toJson() : toText());
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        return reporter;
+    }
+}
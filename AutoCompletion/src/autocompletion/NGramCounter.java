@@ -0,0 +1,314 @@
+package autocompletion;
+
+import java.util.Arrays;
+
+/**
+ * Class: NGramCounter.java
+ * Description: Class used to count the bigrams and trigrams of a stream
+ *  of word ids as they are read, so phrases are counted in the same pass
+ *  as the words themselves. A bigram is keyed by its two word ids and is
+ *  given an id in the order it was first seen, and a trigram is keyed by
+ *  the id of its first two words and its last word, so every key fits a
+ *  single long and counting never allocates.
+ * Author: Paulo Jorge.
+ */
+public class NGramCounter {
+    // Counts of word pairs, and of bigram and word pairs
+    private final PairCounter bigrams = new PairCounter();
+    private final PairCounter trigrams = new PairCounter();
+    // Id of the last word added, and of the bigram it ended, or -1 at
+    // the start of a phrase
+    private int previous = -1;
+    private int previousBigram = -1;
+
+    /**
+     * Method used to count the n-grams ended by the next word of the
+     *  current phrase.
+     * @param word Integer id of word.
+     */
+    public void add(int word) {
+        int bigram = -1;
+        if (this.previous >= 0) {
+            bigram = this.bigrams.increment(key(this.previous, word));
+            if (this.previousBigram >= 0)
+                this.trigrams.increment(key(this.previousBigram, word));
+        }
+        this.previous = word;
+        this.previousBigram = bigram;
+    }
+
+    /**
+     * Method used to end the current phrase, so no n-gram spans it and
+     *  the next word added.
+     */
+    public void endPhrase() {
+        this.previous = -1;
+        this.previousBigram = -1;
+    }
+
+    /**
+     * Method used to clear all counted n-grams, keeping the allocated
+     *  storage for reuse.
+     */
+    public void clear() {
+        this.bigrams.clear();
+        this.trigrams.clear();
+        endPhrase();
+    }
+
+    /**
+     * Accessor method used to get and return the number of unique
+     *  bigrams counted.
+     * @return Integer number of bigrams.
+     */
+    public int getBigramCount() {
+        return this.bigrams.size;
+    }
+
+    /**
+     * Accessor method used to get and return the number of unique
+     *  trigrams counted.
+     * @return Integer number of trigrams.
+     */
+    public int getTrigramCount() {
+        return this.trigrams.size;
+    }
+
+    /**
+     * Method used to build a compact next word index of every n-gram
+     *  counted.
+     * @param words WordCounter object whose ids the n-grams were counted
+     *  with, used to look up and return words.
+     * @param alphabet Alphabet object words were normalised with.
+     * @return NGramModel object of counted n-grams.
+     */
+    public NGramModel toModel(WordCounter words, Alphabet alphabet) {
+        // First words of every bigram, and first bigrams of every trigram
+        int[] bigramFirst = new int[this.bigrams.size];
+        int[] bigramLast = new int[this.bigrams.size];
+        for (int id = 0; id < this.bigrams.size; id++) {
+            bigramFirst[id] = first(this.bigrams.keys[id]);
+            bigramLast[id] = last(this.bigrams.keys[id]);
+        }
+        int[] trigramFirst = new int[this.trigrams.size];
+        int[] trigramLast = new int[this.trigrams.size];
+        for (int id = 0; id < this.trigrams.size; id++) {
+            trigramFirst[id] = first(this.trigrams.keys[id]);
+            trigramLast[id] = last(this.trigrams.keys[id]);
+        }
+
+        // Group bigrams by first word and number them by position, then
+        // group trigrams by the position of their first bigram
+        int[] bigramOrder = rank(bigramFirst, this.bigrams.counts,
+                words.size());
+        int[] positions = new int[bigramOrder.length];
+        for (int i = 0; i < bigramOrder.length; i++)
+            positions[bigramOrder[i]] = i;
+        for (int id = 0; id < trigramFirst.length; id++)
+            trigramFirst[id] = positions[trigramFirst[id]];
+        int[] trigramOrder = rank(trigramFirst, this.trigrams.counts,
+                bigramOrder.length);
+
+        return new NGramModel(words, alphabet,
+                starts(bigramFirst, words.size()),
+                gather(bigramLast, bigramOrder),
+                gather(this.bigrams.counts, bigramOrder),
+                starts(trigramFirst, bigramOrder.length),
+                gather(trigramLast, trigramOrder),
+                gather(this.trigrams.counts, trigramOrder));
+    }
+
+    /**
+     * Method used to order the ids of n-grams by their context, then by
+     *  descending count, then by id so ties keep the order first seen.
+     * @param contexts Integer array of the context of each n-gram.
+     * @param counts Integer array of the count of each n-gram.
+     * @param size Integer number of contexts.
+     * @return Integer array of n-gram ids in order.
+     */
+    private static int[] rank(int[] contexts, int[] counts, int size) {
+        // Group ids by context with a counting sort, which keeps them in
+        // ascending order, then sort each group by count
+        int[] starts = starts(contexts, size);
+        int[] next = Arrays.copyOf(starts, size);
+        int[] order = new int[contexts.length];
+        for (int id = 0; id < contexts.length; id++)
+            order[next[contexts[id]]++] = id;
+
+        for (int context = 0; context < size; context++)
+            sortByCount(order, starts[context], starts[context + 1],
+                    counts);
+        return order;
+    }
+
+    /**
+     * Method used to sort a range of n-gram ids already in ascending
+     *  order by descending count, keeping equal counts in order.
+     * @param order Integer array of n-gram ids.
+     * @param from Integer position of first id of range.
+     * @param to Integer position following last id of range.
+     * @param counts Integer array of the count of each n-gram.
+     */
+    private static void sortByCount(int[] order, int from, int to,
+            int[] counts) {
+        if (to - from < 2)
+            return;
+
+        // Pack count and id into a long so a primitive sort is stable
+        long[] keys = new long[to - from];
+        for (int i = from; i < to; i++)
+            keys[i - from] = (long)(Integer.MAX_VALUE - counts[order[i]])
+                    << 32 | order[i];
+        Arrays.sort(keys);
+        for (int i = from; i < to; i++)
+            order[i] = (int)keys[i - from];
+    }
+
+    /**
+     * Method used to find where the n-grams of each context start once
+     *  grouped by context.
+     * @param contexts Integer array of the context of each n-gram.
+     * @param size Integer number of contexts.
+     * @return Integer array of start positions, with one extra trailing
+     *  entry marking the end of the last context.
+     */
+    private static int[] starts(int[] contexts, int size) {
+        int[] starts = new int[size + 1];
+        for (int context : contexts)
+            starts[context + 1]++;
+        for (int i = 0; i < size; i++)
+            starts[i + 1] += starts[i];
+        return starts;
+    }
+
+    /**
+     * Method used to reorder the values of each n-gram.
+     * @param values Integer array of values indexed by n-gram id.
+     * @param order Integer array of n-gram ids in order.
+     * @return Integer array of values in order.
+     */
+    private static int[] gather(int[] values, int[] order) {
+        int[] gathered = new int[order.length];
+        for (int i = 0; i < order.length; i++)
+            gathered[i] = values[order[i]];
+        return gathered;
+    }
+
+    /**
+     * Method used to join the ids of a context and a following word.
+     * @param context Integer id of context.
+     * @param word Integer id of word.
+     * @return Long key of pair.
+     */
+    static long key(int context, int word) {
+        return (long)context << 32 | word;
+    }
+
+    /**
+     * Method used to get the context id of a pair key.
+     * @param key Long key of pair.
+     * @return Integer id of context.
+     */
+    private static int first(long key) {
+        return (int)(key >>> 32);
+    }
+
+    /**
+     * Method used to get the word id of a pair key.
+     * @param key Long key of pair.
+     * @return Integer id of word.
+     */
+    private static int last(long key) {
+        return (int)key;
+    }
+
+    /**
+     * Class used to count pairs of ids in an open addressing hash table,
+     *  as WordCounter counts words, giving each pair an id in the order
+     *  it was first seen.
+     */
+    private static class PairCounter {
+        // Default number of hash slots, must be a power of two
+        private static final int DEFAULT_CAPACITY = 1024;
+
+        // Hash slots containing pair id + 1, or 0 if the slot is empty
+        private int[] slots = new int[DEFAULT_CAPACITY];
+        // Key and count of each pair, indexed by pair id
+        private long[] keys = new long[DEFAULT_CAPACITY / 2];
+        private int[] counts = new int[DEFAULT_CAPACITY / 2];
+        // Number of unique pairs counted
+        private int size = 0;
+
+        /**
+         * Method used to increment the count of a pair by one, adding it
+         *  if it has not been seen before.
+         * @param key Long key of pair.
+         * @return Integer id of the counted pair.
+         */
+        int increment(long key) {
+            int mask = this.slots.length - 1;
+            int slot = mix(key) & mask;
+
+            // Probe until an empty slot or a matching pair is found
+            int id;
+            while ((id = this.slots[slot] - 1) >= 0) {
+                if (this.keys[id] == key) {
+                    this.counts[id]++;
+                    return id;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            id = this.size++;
+            this.slots[slot] = id + 1;
+            this.keys[id] = key;
+            this.counts[id] = 1;
+
+            // Grow table once it becomes half full
+            if (this.size == this.keys.length)
+                grow();
+            return id;
+        }
+
+        /**
+         * Method used to clear all counted pairs.
+         */
+        void clear() {
+            Arrays.fill(this.slots, 0);
+            this.size = 0;
+        }
+
+        /**
+         * Method used to double the number of hash slots and rehash all
+         *  pairs.
+         */
+        private void grow() {
+            int capacity = this.slots.length * 2;
+            int mask = capacity - 1;
+            int[] slots = new int[capacity];
+
+            // Reinsert every pair id into the larger table
+            for (int id = 0; id < this.size; id++) {
+                int slot = mix(this.keys[id]) & mask;
+                while (slots[slot] != 0)
+                    slot = (slot + 1) & mask;
+                slots[slot] = id + 1;
+            }
+
+            this.slots = slots;
+            this.keys = Arrays.copyOf(this.keys, capacity / 2);
+            this.counts = Arrays.copyOf(this.counts, capacity / 2);
+        }
+    }
+
+    /**
+     * Method used to spread the bits of a pair key so that the low bits
+     *  used to pick a slot depend on the whole key.
+     * @param key Long key of pair.
+     * @return Integer mixed hash code.
+     */
+    static int mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int)(key ^ (key >>> 32));
+    }
+}
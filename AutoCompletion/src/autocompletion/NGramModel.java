@@ -0,0 +1,234 @@
+package autocompletion;
+
+import java.io.IOException;
+
+/**
+ * Class: NGramModel.java
+ * Description: Compact index of the bigrams and trigrams of a corpus,
+ *  used to suggest the next word of a phrase. The words following each
+ *  word are held back to back in sorted arrays, ranked by count, with the
+ *  words following each bigram held the same way, so the best next words
+ *  are read in order without sorting. Words are held as the ids of the
+ *  word counter the corpus was counted with, which also holds every word
+ *  the trie was built from, so no word is stored twice.
+ * Author: Paulo Jorge.
+ */
+public class NGramModel {
+    // Words the n-grams were counted with, and their alphabet
+    private final WordCounter words;
+    private final Alphabet alphabet;
+    // Start of the bigrams of each first word, indexed by word id, and
+    // the last word and count of each bigram
+    private final int[] bigramStarts;
+    private final int[] bigramWords;
+    private final int[] bigramCounts;
+    // Start of the trigrams of each bigram, indexed by bigram position,
+    // and the last word and count of each trigram
+    private final int[] trigramStarts;
+    private final int[] trigramWords;
+    private final int[] trigramCounts;
+    // Hash slots containing bigram position + 1, or 0 if the slot is
+    // empty, used to find the trigrams following two words
+    private final int[] slots;
+
+    /**
+     * Constructor used to initialise a new model from n-grams already
+     *  grouped by context and ranked, as NGramCounter.toModel does.
+     * @param words WordCounter object holding every word.
+     * @param alphabet Alphabet object words were normalised with.
+     * @param bigramStarts Integer array of bigram starts by word id.
+     * @param bigramWords Integer array of last word of each bigram.
+     * @param bigramCounts Integer array of count of each bigram.
+     * @param trigramStarts Integer array of trigram starts by bigram.
+     * @param trigramWords Integer array of last word of each trigram.
+     * @param trigramCounts Integer array of count of each trigram.
+     */
+    NGramModel(WordCounter words, Alphabet alphabet, int[] bigramStarts,
+            int[] bigramWords, int[] bigramCounts, int[] trigramStarts,
+            int[] trigramWords, int[] trigramCounts) {
+        this.words = words;
+        this.alphabet = alphabet;
+        this.bigramStarts = bigramStarts;
+        this.bigramWords = bigramWords;
+        this.bigramCounts = bigramCounts;
+        this.trigramStarts = trigramStarts;
+        this.trigramWords = trigramWords;
+        this.trigramCounts = trigramCounts;
+
+        // Index every bigram position by its two words, with slots at
+        // most half full
+        this.slots = new int[Integer.highestOneBit(Math.max(
+                bigramWords.length, 1) * 2 - 1) << 1];
+        int mask = this.slots.length - 1;
+        for (int word = 0; word < bigramStarts.length - 1; word++)
+            for (int i = bigramStarts[word]; i < bigramStarts[word + 1];
+                    i++) {
+                int slot = NGramCounter.mix(NGramCounter.key(word,
+                        bigramWords[i])) & mask;
+                while (this.slots[slot] != 0)
+                    slot = (slot + 1) & mask;
+                this.slots[slot] = i + 1;
+            }
+    }
+
+    /**
+     * Method used to count the words of a file into a word counter and
+     *  the n-grams of each of its lines into a new model, in a single
+     *  pass. The same counter can then be used to form a dictionary or
+     *  build a trie.
+     * @param file String location of file to read from.
+     * @param words WordCounter object to count words with.
+     * @return NGramModel object of counted n-grams.
+     * @throws IOException If the file cannot be read.
+     */
+    public static NGramModel read(String file, WordCounter words)
+            throws IOException {
+        NGramCounter ngrams = new NGramCounter();
+        new WordReader(ngrams).read(file, words);
+        return ngrams.toModel(words, Alphabet.LOWER_CASE);
+    }
+
+    /**
+     * Accessor method used to get and return the number of unique
+     *  bigrams.
+     * @return Integer number of bigrams.
+     */
+    public int getBigramCount() {
+        return this.bigramWords.length;
+    }
+
+    /**
+     * Accessor method used to get and return the number of unique
+     *  trigrams.
+     * @return Integer number of trigrams.
+     */
+    public int getTrigramCount() {
+        return this.trigramWords.length;
+    }
+
+    /**
+     * Method used to get the highest ranked next words of a phrase into
+     *  an existing result object, replacing its contents. The last word
+     *  of the phrase, after its final comma or space, is the prefix of
+     *  the next word and may be empty. Next words follow the last two
+     *  whole words of the phrase, or only the last when no word starting
+     *  with the prefix follows both. The total of the result is the sum
+     *  of counts of every next word starting with the prefix.
+     * @param phrase String containing words typed so far.
+     * @param result CompletionResult object to fill, holding at most its
+     *  limit of next words.
+     * @return The passed in result object, empty if the phrase has no
+     *  whole word or no known word follows it.
+     */
+    public CompletionResult getNextWords(String phrase,
+            CompletionResult result) {
+        // Split prefix and up to two previous words from end of phrase
+        int end = phrase.length();
+        int start = previousSeparator(phrase, end) + 1;
+        String prefix = this.alphabet.normalize(phrase.substring(start,
+                end));
+        int last = -1;
+        int first = -1;
+        for (int found = 0; found < 2 && start > 0; ) {
+            end = start - 1;
+            start = previousSeparator(phrase, end) + 1;
+            if (start == end)
+                continue;
+
+            // Unknown words are -1, which nothing follows
+            int id = this.words.indexOf(this.alphabet.normalize(
+                    phrase.substring(start, end)));
+            if (found++ == 0)
+                last = id;
+            else
+                first = id;
+        }
+
+        result.reset(prefix, false, 0);
+        if (last < 0)
+            return result;
+
+        // Prefer words following both previous words, then the last
+        if (first >= 0) {
+            int bigram = indexOf(first, last);
+            if (bigram >= 0 && complete(this.trigramStarts[bigram],
+                    this.trigramStarts[bigram + 1], this.trigramWords,
+                    this.trigramCounts, prefix, result))
+                return result;
+        }
+        complete(this.bigramStarts[last], this.bigramStarts[last + 1],
+                this.bigramWords, this.bigramCounts, prefix, result);
+        return result;
+    }
+
+    /**
+     * Method used to fill a result with the next words of a context that
+     *  start with a prefix, if any do.
+     * @param from Integer position of first next word of context.
+     * @param to Integer position following last next word of context.
+     * @param next Integer array of next word ids, ranked by count.
+     * @param counts Integer array of next word counts.
+     * @param prefix String containing prefix of next word.
+     * @param result CompletionResult object to fill.
+     * @return Boolean true if any next word starts with the prefix.
+     */
+    private boolean complete(int from, int to, int[] next, int[] counts,
+            String prefix, CompletionResult result) {
+        // Sum counts of every match to find total, then add best matches
+        int word = this.words.indexOf(prefix);
+        long total = 0;
+        boolean isWord = false;
+        for (int i = from; i < to; i++)
+            if (this.words.startsWith(next[i], prefix)) {
+                total += counts[i];
+                isWord |= next[i] == word;
+            }
+        if (total == 0)
+            return false;
+
+        result.reset(prefix, isWord, total);
+        for (int i = from; i < to; i++)
+            if (this.words.startsWith(next[i], prefix)
+                    && !result.add(this.words, next[i], counts[i]))
+                break;
+        return true;
+    }
+
+    /**
+     * Method used to find the position of a bigram.
+     * @param first Integer id of first word.
+     * @param last Integer id of last word.
+     * @return Integer position of bigram, or -1 if it was not counted.
+     */
+    private int indexOf(int first, int last) {
+        int mask = this.slots.length - 1;
+        int slot = NGramCounter.mix(NGramCounter.key(first, last)) & mask;
+
+        // Probe until an empty slot or a matching bigram is found
+        int position;
+        while ((position = this.slots[slot] - 1) >= 0) {
+            if (this.bigramWords[position] == last
+                    && position >= this.bigramStarts[first]
+                    && position < this.bigramStarts[first + 1])
+                return position;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Method used to find the last comma or whitespace before a position
+     *  of a phrase.
+     * @param phrase String containing phrase.
+     * @param end Integer position to search before.
+     * @return Integer position of separator, or -1 if there is none.
+     */
+    private static int previousSeparator(String phrase, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            char character = phrase.charAt(i);
+            if (character == ',' || character <= ' ')
+                return i;
+        }
+        return -1;
+    }
+}
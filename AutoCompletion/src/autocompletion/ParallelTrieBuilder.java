@@ -0,0 +1,276 @@
+package autocompletion;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Class: ParallelTrieBuilder.java
+ * Description: Class used to form a dictionary and build an auto
+ *  completion trie from a words file using a fork join pool. The file
+ *  is split into byte ranges counted in parallel and merged, then words
+ *  are sharded by first character into sub tries built in parallel and
+ *  joined under a single root. The result matches building the trie
+ *  with MakeDictionary.formDictionaryFromFile on a single thread.
+ * Author: Paulo Jorge.
+ */
+public class ParallelTrieBuilder {
+    // Smallest byte range counted by a single task
+    private static final long MIN_RANGE_BYTES = 1 << 22;
+
+    // Pool tasks are run on
+    private final ForkJoinPool pool;
+    // Number of completions stored at every node of built tries
+    private final int completionLimit;
+    // Alphabet used to normalise words added to built tries
+    private final Alphabet alphabet;
+
+    /**
+     * Constructor used to initialise a new parallel trie builder.
+     * @param pool ForkJoinPool object to run tasks on.
+     * @param completionLimit Integer number of completions to store at
+     *  every node, or 0 to store none.
+     * @param alphabet Alphabet object used to normalise words added to
+     *  built tries.
+     */
+    public ParallelTrieBuilder(ForkJoinPool pool, int completionLimit,
+            Alphabet alphabet) {
+        this.pool = pool;
+        this.completionLimit = completionLimit;
+        this.alphabet = alphabet;
+    }
+
+    /**
+     * Method used to count the words of a file and build a trie from
+     *  them.
+     * @param file String location of file to read from.
+     * @return AutoCompletionTrie object containing every word.
+     * @throws IOException If the file cannot be read.
+     */
+    public AutoCompletionTrie buildTrie(String file) throws IOException {
+        return buildTrie(countWords(file));
+    }
+
+    /**
+     * Method used to count every word in a file by splitting it into
+     *  byte ranges counted in parallel, then merging the counts in file
+     *  order so word ids match counting the file on a single thread.
+     * @param file String location of file to read from.
+     * @return WordCounter object containing counted words.
+     * @throws IOException If the file cannot be read.
+     */
+    public WordCounter countWords(String file) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r");
+                FileChannel channel = input.getChannel()) {
+            // Split into a few ranges per thread to balance load
+            long size = channel.size();
+            long rangeBytes = Math.max(MIN_RANGE_BYTES,
+                    size / (this.pool.getParallelism() * 4L));
+            return this.pool.invoke(new CountTask(channel, 0, size,
+                    rangeBytes));
+        } catch (UncheckedIOException exception) {
+            throw exception.getCause();
+        }
+    }
+
+    /**
+     * Method used to build a trie from counted words, building a sub
+     *  trie for each first character in parallel. When normalising
+     *  leaves every word unchanged the trie shares the counter as its
+     *  word table, so the counter must not be changed afterwards.
+     * @param counter WordCounter object containing counted words.
+     * @return AutoCompletionTrie object containing every word.
+     */
+    public AutoCompletionTrie buildTrie(WordCounter counter) {
+        long time = Metrics.startPhase();
+
+        // Normalise words up front so they can be sharded by the first
+        // character they will be stored under
+        String[] words = new String[counter.size()];
+        int[] firsts = new int[Character.MAX_VALUE + 2];
+        boolean normalized = true;
+        for (int id = 0; id < words.length; id++) {
+            String word = counter.getWord(id);
+            words[id] = this.alphabet.normalize(word);
+            normalized &= words[id] == word;
+            if (!words[id].isEmpty())
+                firsts[words[id].charAt(0) + 1]++;
+        }
+
+        // Intern changed words into a new table before building, so
+        // shards only read the table they share
+        WordCounter table = counter;
+        int[] ids = new int[words.length];
+        for (int id = 0; id < ids.length; id++)
+            ids[id] = id;
+        if (!normalized) {
+            table = new WordCounter(words.length);
+            for (int id = 0; id < ids.length; id++)
+                ids[id] = table.intern(words[id]);
+        }
+
+        // Turn first character counts into shard start positions
+        int shardCount = 0;
+        for (int c = 1; c < firsts.length; c++) {
+            if (firsts[c] > 0)
+                shardCount++;
+            firsts[c] += firsts[c - 1];
+        }
+
+        // Order word ids by first character, keeping first seen order
+        // within each shard so duplicate words resolve the same way
+        int[] order = new int[firsts[firsts.length - 1]];
+        int[] starts = new int[shardCount + 1];
+        int[] next = firsts.clone();
+        for (int id = 0; id < words.length; id++)
+            if (!words[id].isEmpty())
+                order[next[words[id].charAt(0)]++] = id;
+        for (int c = 0, shard = 0; c < firsts.length - 1; c++)
+            if (firsts[c + 1] > firsts[c])
+                starts[++shard] = firsts[c + 1];
+
+        // Build every shard in parallel then join them in order
+        AutoCompletionTrie[] shards = new AutoCompletionTrie[shardCount];
+        if (shardCount > 0)
+            this.pool.invoke(new BuildTask(table, ids, counter, order,
+                    starts, shards, 0, shardCount));
+        AutoCompletionTrie trie = new AutoCompletionTrie(
+                this.completionLimit, this.alphabet, table);
+        for (AutoCompletionTrie shard : shards)
+            trie.attach(shard);
+
+        // Words normalised to nothing are stored at the root
+        for (int id = 0; id < words.length; id++)
+            if (words[id].isEmpty())
+                trie.add(ids[id], counter.getCount(id));
+
+        Metrics.INSERT.recordSince(time);
+        return trie;
+    }
+
+    /**
+     * Task used to count the words starting within a byte range of a
+     *  file, splitting the range in half until it is small enough.
+     */
+    private static class CountTask extends RecursiveTask<WordCounter> {
+        private static final long serialVersionUID = 1L;
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final long rangeBytes;
+
+        /**
+         * Constructor used to initialise a new count task.
+         * @param channel FileChannel to read from.
+         * @param start Long position of first byte of range.
+         * @param end Long position following last byte of range.
+         * @param rangeBytes Long largest range counted without
+         *  splitting.
+         */
+        CountTask(FileChannel channel, long start, long end,
+                long rangeBytes) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.rangeBytes = rangeBytes;
+        }
+
+        /**
+         * Method used to count the range, or split and merge halves.
+         * @return WordCounter object containing counted words.
+         */
+        @Override
+        protected WordCounter compute() {
+            if (this.end - this.start <= this.rangeBytes) {
+                WordCounter counter = new WordCounter();
+                try {
+                    new WordReader().read(this.channel, this.start,
+                            this.end, counter);
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+                return counter;
+            }
+
+            // Count second half in parallel, merging it after the first
+            long middle = (this.start + this.end) >>> 1;
+            CountTask second = new CountTask(this.channel, middle,
+                    this.end, this.rangeBytes);
+            second.fork();
+            WordCounter counter = new CountTask(this.channel, this.start,
+                    middle, this.rangeBytes).compute();
+            counter.addAll(second.join());
+            return counter;
+        }
+    }
+
+    /**
+     * Task used to build the sub tries of a range of shards, splitting
+     *  the range in half until a single shard remains.
+     */
+    private class BuildTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final WordCounter table;
+        private final int[] ids;
+        private final WordCounter counter;
+        private final int[] order;
+        private final int[] starts;
+        private final AutoCompletionTrie[] shards;
+        private final int first;
+        private final int last;
+
+        /**
+         * Constructor used to initialise a new build task.
+         * @param table WordCounter table holding normalised words.
+         * @param ids Integer array of the table id of each counted word.
+         * @param counter WordCounter object containing word counts.
+         * @param order Integer array of word ids ordered by shard.
+         * @param starts Integer array of shard start positions in order.
+         * @param shards Array of type AutoCompletionTrie to build into.
+         * @param first Integer first shard to build.
+         * @param last Integer shard following last shard to build.
+         */
+        BuildTask(WordCounter table, int[] ids, WordCounter counter,
+                int[] order, int[] starts, AutoCompletionTrie[] shards,
+                int first, int last) {
+            this.table = table;
+            this.ids = ids;
+            this.counter = counter;
+            this.order = order;
+            this.starts = starts;
+            this.shards = shards;
+            this.first = first;
+            this.last = last;
+        }
+
+        /**
+         * Method used to build the shard, or split and build halves.
+         */
+        @Override
+        protected void compute() {
+            if (this.last - this.first > 1) {
+                int middle = (this.first + this.last) >>> 1;
+                invokeAll(new BuildTask(this.table, this.ids,
+                        this.counter, this.order, this.starts, this.shards,
+                        this.first, middle),
+                        new BuildTask(this.table, this.ids, this.counter,
+                        this.order, this.starts, this.shards, middle,
+                        this.last));
+                return;
+            }
+
+            AutoCompletionTrie shard = new AutoCompletionTrie(
+                    completionLimit, alphabet, this.table);
+            for (int i = this.starts[this.first];
+                    i < this.starts[this.first + 1]; i++) {
+                int id = this.order[i];
+                shard.add(this.ids[id], this.counter.getCount(id));
+            }
+            this.shards[this.first] = shard;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package autocompletion;
+
+import java.util.Arrays;
+import java.util.Stack;
+
+/**
+ * Class: RadixTrie.java
+ * Description: Trie that compresses every chain of nodes with a single
+ *  offspring into one node reached by a multi character edge. Edge
+ *  labels are slices of one character arena, and splitting an edge only
+ *  divides its slice, so labels are never copied. Rare long words, which
+ *  take a node per character in AutoCompletionTrie, take a single node
+ *  here. Completions are ranked and stored at every node the same way.
+ * Author: Paulo Jorge.
+ */
+public class RadixTrie implements CompletionTrie {
+    // Trie root node object, reached by an empty label
+    private final RadixTrieNode root = new RadixTrieNode(0, 0);
+    // Number of highest ranked completions stored at every node
+    private final int completionLimit;
+    // Alphabet used to normalise words added and looked up
+    private final Alphabet alphabet;
+    // Characters of every edge label, and the number in use
+    private char[] arena = new char[1024];
+    private int arenaSize = 0;
+    // Number of nodes, including the root
+    private int nodeCount = 1;
+    // Number of words added
+    private long versionNumber = 0;
+
+    /**
+     * Constructor used to initialise a new radix trie.
+     * @param completionLimit Integer number of completions to store at
+     *  every node, which is the most a query can return.
+     * @param alphabet Alphabet object used to normalise words.
+     */
+    public RadixTrie(int completionLimit, Alphabet alphabet) {
+        this.completionLimit = completionLimit;
+        this.alphabet = alphabet;
+    }
+
+    /**
+     * Method to add a key to this trie.
+     * @param key String containing key to insert.
+     * @param frequency Integer frequency count of key.
+     * @return Boolean true if key was added, false if the word already
+     *  exists in trie.
+     */
+    public boolean add(String key, int frequency) {
+        key = this.alphabet.normalize(key);
+        if (contains(key))
+            return false;
+
+        // Nodes passed on the way to the word
+        RadixTrieNode[] path = new RadixTrieNode[8];
+        int depth = 0;
+        RadixTrieNode node = this.root;
+
+        for (int i = 0; i < key.length(); ) {
+            if (depth == path.length)
+                path = Arrays.copyOf(path, depth * 2);
+            path[depth++] = node;
+
+            RadixTrieNode offspring = node.getOffspring(key.charAt(i));
+
+            // Add rest of key as the label of a new offspring
+            if (offspring == null) {
+                offspring = new RadixTrieNode(append(key, i),
+                        key.length() - i);
+                node.addOffspring(offspring, key.charAt(i));
+                this.nodeCount++;
+                node = offspring;
+                break;
+            }
+
+            // Follow label while it matches the key
+            int matched = 1;
+            while (matched < offspring.getLength()
+                    && i + matched < key.length()
+                    && this.arena[offspring.getStart() + matched]
+                    == key.charAt(i + matched))
+                matched++;
+
+            // Split label where the key leaves or ends within it
+            if (matched < offspring.getLength()) {
+                offspring = node.splitOffspring(offspring, key.charAt(i),
+                        matched, this.arena[offspring.getStart() + matched]);
+                this.nodeCount++;
+            }
+
+            node = offspring;
+            i += matched;
+        }
+
+        node.setWord(key, frequency);
+
+        // Update totals and completions of word and all its ancestors
+        node.addTotal(frequency);
+        node.addCompletion(node, this.completionLimit);
+        for (int i = 0; i < depth; i++) {
+            path[i].addTotal(frequency);
+            path[i].addCompletion(node, this.completionLimit);
+        }
+        this.versionNumber++;
+
+        return true;
+    }
+
+    /**
+     * Method to append the characters of a key from a position to the
+     *  arena, growing it if needed.
+     * @param key String containing key.
+     * @param from Integer position of first character to append.
+     * @return Integer position of the first appended character within
+     *  the arena.
+     */
+    private int append(String key, int from) {
+        int length = key.length() - from;
+        if (this.arenaSize + length > this.arena.length)
+            this.arena = Arrays.copyOf(this.arena, Math.max(
+                    this.arena.length * 2, this.arenaSize + length));
+
+        int start = this.arenaSize;
+        key.getChars(from, key.length(), this.arena, start);
+        this.arenaSize += length;
+        return start;
+    }
+
+    /**
+     * Accessor method used to get and return the alphabet used to
+     *  normalise words.
+     * @return Alphabet object of this trie.
+     */
+    @Override
+    public Alphabet getAlphabet() {
+        return this.alphabet;
+    }
+
+    /**
+     * Accessor method used to get and return the version of this trie,
+     *  the number of times words were added to it.
+     * @return Long version of this trie.
+     */
+    @Override
+    public long getVersionNumber() {
+        return this.versionNumber;
+    }
+
+    /**
+     * Accessor method used to get and return the number of nodes in this
+     *  trie, including the root.
+     * @return Integer number of nodes.
+     */
+    public int getNodeCount() {
+        return this.nodeCount;
+    }
+
+    /**
+     * Method to estimate the number of heap bytes used by the nodes and
+     *  arena of this trie, assuming a 64 bit JVM with compressed
+     *  references. Words shared with the dictionary are not counted.
+     * @return Long estimated number of bytes.
+     */
+    public long estimateMemoryUsage() {
+        long bytes = AutoCompletionTrie.align(16 + 2L * this.arena.length);
+
+        // Initialise new stack and default on the root node
+        Stack<RadixTrieNode> stack = new Stack<>();
+        stack.push(this.root);
+        while (!stack.isEmpty()) {
+            RadixTrieNode node = stack.pop();
+            bytes += RadixTrieNode.NODE_BYTES + node.estimateArrayBytes();
+
+            for (RadixTrieNode offspring : node.getOffsprings())
+                stack.push(offspring);
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Method to check if this trie contains a whole word.
+     * @param key String containing word to check.
+     * @return Boolean true if the word is found, false otherwise.
+     */
+    @Override
+    public boolean contains(String key) {
+        return getFrequency(key) > 0;
+    }
+
+    /**
+     * Method to get frequency count of passed in key.
+     * @param key String containing word to check.
+     * @return Integer frequency count of word, or 0 if key was not found
+     *  as a whole word.
+     */
+    @Override
+    public int getFrequency(String key) {
+        key = this.alphabet.normalize(key);
+        RadixTrieNode node = getNode(key);
+
+        // Key must end exactly at a node to be a word
+        return node != null && node.getWord() != null
+                && node.getWord().length() == key.length()
+                ? node.getFrequency() : 0;
+    }
+
+    /**
+     * Method to get the highest ranked completions of a prefix into an
+     *  existing result object, replacing its contents.
+     * @param prefix String containing prefix to complete.
+     * @param result CompletionResult object to fill, holding at most the
+     *  completion limit of the trie.
+     * @return The passed in result object.
+     */
+    @Override
+    public CompletionResult getCompletions(String prefix,
+            CompletionResult result) {
+        long time = Metrics.start(result);
+        String key = this.alphabet.normalize(prefix);
+        RadixTrieNode node = getNode(key);
+        time = Metrics.DESCENT.recordSince(time);
+        Metrics.countQuery(node != null);
+        if (node == null) {
+            result.reset(prefix, false, 0);
+            return result;
+        }
+
+        // A prefix ending within a label is not a word
+        result.reset(prefix, node.getWord() != null
+                && node.getWord().length() == key.length(),
+                node.getTotal());
+        for (RadixTrieNode leaf : node.getCompletions())
+            if (!result.add(leaf.getWord(), leaf.getFrequency()))
+                break;
+        Metrics.ENUMERATION.recordSince(time);
+        return result;
+    }
+
+    /**
+     * Method to get and return the first node whose path starts with a
+     *  normalised key, which is the node ending the key or the node
+     *  whose label the key ends within.
+     * @param key String containing normalised key.
+     * @return RadixTrieNode object, or null if no word starts with key.
+     */
+    private RadixTrieNode getNode(String key) {
+        RadixTrieNode node = this.root;
+        for (int i = 0; i < key.length(); ) {
+            node = node.getOffspring(key.charAt(i));
+            if (node == null)
+                return null;
+
+            // Every label character still in the key must match
+            int start = node.getStart();
+            int end = Math.min(node.getLength(), key.length() - i);
+            for (int j = 1; j < end; j++)
+                if (this.arena[start + j] != key.charAt(i + j))
+                    return null;
+            i += node.getLength();
+        }
+
+        return node;
+    }
+}
@@ -0,0 +1,273 @@
+package autocompletion;
+
+import java.util.Arrays;
+
+/**
+ * Class: RadixTrieNode.java
+ * Description: Trie node class used by the radix trie. Each node is
+ *  reached by an edge labelled with one or more characters, held as a
+ *  slice of a character arena shared by the whole trie, so a chain of
+ *  nodes with a single offspring is stored as a single node.
+ * Author: Paulo Jorge.
+ */
+public class RadixTrieNode {
+    // Estimated heap size of a node object, excluding its arrays
+    static final int NODE_BYTES = 48;
+    // Number of offsprings above which they are binary searched
+    private static final int SCAN_THRESHOLD = 8;
+    private static final RadixTrieNode[] NO_NODES = new RadixTrieNode[0];
+    private static final char[] NO_KEYS = new char[0];
+
+    // Position and number of characters of edge label within arena
+    private int start;
+    private int length;
+    // Offspring nodes ordered by the first character of their label,
+    // and the first character of each label
+    private RadixTrieNode[] offsprings = NO_NODES;
+    private char[] keys = NO_KEYS;
+    // Frequency count of the word ending at this node, 0 if not a word
+    private int frequency = 0;
+    // Whole word ending at this node, or null if node is not a word
+    private String word;
+    // Sum of frequency counts of all words within this nodes sub trie
+    private long total = 0;
+    // Highest ranked word nodes within this nodes sub trie
+    private RadixTrieNode[] completions = NO_NODES;
+
+    /**
+     * Constructor method used to initialise a new node reached by an
+     *  edge label.
+     * @param start Integer position of label within arena.
+     * @param length Integer number of characters in label.
+     */
+    public RadixTrieNode(int start, int length) {
+        this.start = start;
+        this.length = length;
+    }
+
+    /**
+     * Accessor method used to get and return the position of this nodes
+     *  edge label within the arena.
+     * @return Integer position of first label character.
+     */
+    public int getStart() {
+        return this.start;
+    }
+
+    /**
+     * Accessor method used to get and return the number of characters in
+     *  this nodes edge label.
+     * @return Integer label length.
+     */
+    public int getLength() {
+        return this.length;
+    }
+
+    /**
+     * Accessor method used to get and return this nodes offsprings.
+     * @return Array of type RadixTrieNode ordered by first label
+     *  character.
+     */
+    public RadixTrieNode[] getOffsprings() {
+        return this.offsprings;
+    }
+
+    /**
+     * Accessor method used to get and return the offspring whose label
+     *  starts with a character.
+     * @param character Character label starts with.
+     * @return RadixTrieNode offspring object, or null if there is none.
+     */
+    public RadixTrieNode getOffspring(char character) {
+        int index = indexOf(character);
+        return index >= 0 ? this.offsprings[index] : null;
+    }
+
+    /**
+     * Method used to find the position of the offspring whose label
+     *  starts with a character.
+     * @param character Character to find.
+     * @return Integer position within offsprings, or (-(insertion point)
+     *  - 1) if there is no such offspring.
+     */
+    private int indexOf(char character) {
+        // Scanning a few keys is faster than a binary search
+        if (this.keys.length <= SCAN_THRESHOLD) {
+            for (int i = 0; i < this.keys.length; i++)
+                if (this.keys[i] >= character)
+                    return this.keys[i] == character ? i : -i - 1;
+            return -this.keys.length - 1;
+        }
+
+        return Arrays.binarySearch(this.keys, character);
+    }
+
+    /**
+     * Accessor method used to get and return this nodes frequency.
+     * @return Integer frequency count, or 0 if node is not a word.
+     */
+    public int getFrequency() {
+        return this.frequency;
+    }
+
+    /**
+     * Accessor method used to get and return the whole word ending at
+     *  this node.
+     * @return String containing word, or null if node is not a word.
+     */
+    public String getWord() {
+        return this.word;
+    }
+
+    /**
+     * Accessor method used to get and return the sum of the frequency
+     *  counts of all words within this nodes sub trie.
+     * @return Long total frequency count.
+     */
+    public long getTotal() {
+        return this.total;
+    }
+
+    /**
+     * Accessor method used to get and return the highest ranked word
+     *  nodes within this nodes sub trie.
+     * @return Array of type RadixTrieNode ordered by rank.
+     */
+    public RadixTrieNode[] getCompletions() {
+        return this.completions;
+    }
+
+    /**
+     * Method used to estimate the number of heap bytes used by this
+     *  nodes arrays, which are shared while empty.
+     * @return Long estimated number of bytes.
+     */
+    long estimateArrayBytes() {
+        long bytes = 0;
+        if (this.offsprings.length > 0)
+            bytes += AutoCompletionTrie.align(16
+                    + 4L * this.offsprings.length)
+                    + AutoCompletionTrie.align(16 + 2L * this.keys.length);
+        if (this.completions.length > 0)
+            bytes += AutoCompletionTrie.align(16
+                    + 4L * this.completions.length);
+        return bytes;
+    }
+
+    /**
+     * Mutator method used to add an offspring, whose label must not
+     *  start with the same character as another offspring.
+     * @param offspring RadixTrieNode object to add.
+     * @param character Character its label starts with.
+     */
+    public void addOffspring(RadixTrieNode offspring, char character) {
+        int index = -indexOf(character) - 1;
+        int length = this.keys.length;
+        char[] keys = new char[length + 1];
+        RadixTrieNode[] offsprings = new RadixTrieNode[length + 1];
+        System.arraycopy(this.keys, 0, keys, 0, index);
+        System.arraycopy(this.offsprings, 0, offsprings, 0, index);
+        System.arraycopy(this.keys, index, keys, index + 1,
+                length - index);
+        System.arraycopy(this.offsprings, index, offsprings, index + 1,
+                length - index);
+        keys[index] = character;
+        offsprings[index] = offspring;
+        this.keys = keys;
+        this.offsprings = offsprings;
+    }
+
+    /**
+     * Mutator method used to split the edge label of an offspring,
+     *  inserting a new node after the first characters of the label.
+     *  The new node takes over the total and completions of the
+     *  offspring, whose sub trie it now holds.
+     * @param offspring RadixTrieNode offspring object to split.
+     * @param character Character the offspring label starts with.
+     * @param length Integer number of label characters kept by the new
+     *  node, between 1 and the label length exclusive.
+     * @param next Character following those kept, which starts the rest
+     *  of the offspring label.
+     * @return RadixTrieNode new node now reached in place of offspring.
+     */
+    public RadixTrieNode splitOffspring(RadixTrieNode offspring,
+            char character, int length, char next) {
+        RadixTrieNode middle = new RadixTrieNode(offspring.start, length);
+        middle.offsprings = new RadixTrieNode[] {offspring};
+        middle.keys = new char[] {next};
+        middle.total = offspring.total;
+        middle.completions = offspring.completions.clone();
+        this.offsprings[indexOf(character)] = middle;
+
+        // Offspring keeps the rest of its label
+        offspring.start += length;
+        offspring.length -= length;
+        return middle;
+    }
+
+    /**
+     * Mutator method used to make this node the end of a word.
+     * @param word String containing whole word ending at this node.
+     * @param frequency Integer frequency count of word.
+     */
+    public void setWord(String word, int frequency) {
+        this.word = word;
+        this.frequency = frequency;
+    }
+
+    /**
+     * Mutator method used to add to the total frequency count of this
+     *  nodes sub trie.
+     * @param frequency Long frequency count to add.
+     */
+    public void addTotal(long frequency) {
+        this.total += frequency;
+    }
+
+    /**
+     * Mutator method used to rank a word node against this nodes
+     *  completions, keeping at most the passed in number of the highest
+     *  ranked.
+     * @param leaf RadixTrieNode word node to rank.
+     * @param limit Integer maximum number of completions to keep.
+     */
+    public void addCompletion(RadixTrieNode leaf, int limit) {
+        // Find position of leaf within ranked completions
+        int position = this.completions.length;
+        while (position > 0 && leaf.ranksBefore(
+                this.completions[position - 1]))
+            position--;
+        if (position >= limit)
+            return;
+
+        // Shift lower ranked completions down, growing until full
+        RadixTrieNode[] completions = this.completions;
+        if (completions.length < limit)
+            completions = Arrays.copyOf(completions,
+                    completions.length + 1);
+        System.arraycopy(this.completions, position, completions,
+                position + 1, completions.length - position - 1);
+        completions[position] = leaf;
+        this.completions = completions;
+    }
+
+    /**
+     * Method used to check if this word node ranks before another, in
+     *  the same order as TrieNode.ranksBefore.
+     * @param node RadixTrieNode word node to compare against.
+     * @return Boolean true if this node ranks first, false otherwise.
+     */
+    private boolean ranksBefore(RadixTrieNode node) {
+        if (this.frequency != node.frequency)
+            return this.frequency > node.frequency;
+
+        // Find first character where both words differ
+        int length = Math.min(this.word.length(), node.word.length());
+        for (int i = 0; i < length; i++)
+            if (this.word.charAt(i) != node.word.charAt(i))
+                return this.word.charAt(i) > node.word.charAt(i);
+
+        // Shorter word is a prefix of the other so ranks first
+        return this.word.length() < node.word.length();
+    }
+}
@@ -0,0 +1,190 @@
+package autocompletion;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class: ResultWriter.java
+ * Description: Class used to write query results to a channel in the
+ *  format of lotrMatches.csv, encoding each completion and probability
+ *  straight into a reused buffer so no strings are created per query.
+ *  Text is written as UTF-8 and probabilities are formatted exactly as
+ *  Float.toString formats them.
+ * Author: Paulo Jorge.
+ */
+public class ResultWriter implements Closeable {
+    // Default number of bytes buffered before writing to the channel
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    // Most bytes a single character is encoded to
+    private static final int MAX_CHAR_BYTES = 4;
+
+    // Channel results are written to
+    private final WritableByteChannel channel;
+    // Buffer results are encoded into
+    private final ByteBuffer buffer;
+    // Reused builders words held as ids and probabilities are decoded
+    // and formatted into
+    private final StringBuilder word = new StringBuilder(16);
+    private final StringBuilder number = new StringBuilder(16);
+    // Line separator written after each result, as println writes
+    private final String lineSeparator = System.lineSeparator();
+
+    /**
+     * Constructor used to initialise a new writer to a file, replacing
+     *  any existing contents.
+     * @param file String location of file to write to.
+     * @throws IOException If the file cannot be opened.
+     */
+    public ResultWriter(String file) throws IOException {
+        this(FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor used to initialise a new writer to a channel.
+     * @param channel WritableByteChannel to write to, closed when this
+     *  writer is closed.
+     * @param bufferSize Integer number of bytes to buffer.
+     */
+    public ResultWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize,
+                MAX_CHAR_BYTES));
+    }
+
+    /**
+     * Method used to write the completions of a query as a line holding
+     *  the prefix, if it is not a word itself, followed by each
+     *  completion and its probability.
+     * @param result CompletionResult object to write.
+     * @throws IOException If the channel cannot be written.
+     */
+    public void write(CompletionResult result) throws IOException {
+        long time = Metrics.resume(result);
+
+        // If prefix is not a word write it first
+        if (!result.isWord()) {
+            append(result.getPrefix());
+            append(',');
+        }
+
+        for (int i = 0; i < result.size(); i++) {
+            // Encode words held as ids straight from their table
+            int id = result.getWordId(i);
+            if (id >= 0) {
+                this.word.setLength(0);
+                result.getWordTable().appendWord(id, this.word);
+                append(this.word);
+            } else {
+                append(result.getWord(i));
+            }
+            append(',');
+
+            // Format probability without creating a string
+            this.number.setLength(0);
+            this.number.append(result.getProbability(i));
+            append(this.number);
+            append(',');
+        }
+
+        append(this.lineSeparator);
+        Metrics.FORMATTING.recordSince(time);
+    }
+
+    /**
+     * Method used to write a line of text.
+     * @param line CharSequence containing line, without a separator.
+     * @throws IOException If the channel cannot be written.
+     */
+    public void writeLine(CharSequence line) throws IOException {
+        append(line);
+        append(this.lineSeparator);
+    }
+
+    /**
+     * Method used to encode every character of text into the buffer.
+     * @param text CharSequence containing text to encode.
+     * @throws IOException If the channel cannot be written.
+     */
+    private void append(CharSequence text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char character = text.charAt(i);
+
+            // Surrogate pairs encode a single code point
+            if (Character.isHighSurrogate(character)
+                    && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                append(Character.toCodePoint(character,
+                        text.charAt(++i)));
+                continue;
+            }
+
+            // Unpaired surrogates are replaced, as String.getBytes does
+            append(Character.isSurrogate(character) ? '?' : character);
+        }
+    }
+
+    /**
+     * Method used to encode a code point into the buffer as UTF-8.
+     * @param codePoint Integer code point to encode.
+     * @throws IOException If the channel cannot be written.
+     */
+    private void append(int codePoint) throws IOException {
+        if (this.buffer.remaining() < MAX_CHAR_BYTES)
+            drain();
+
+        if (codePoint < 0x80) {
+            this.buffer.put((byte)codePoint);
+        } else if (codePoint < 0x800) {
+            this.buffer.put((byte)(0xC0 | codePoint >> 6));
+            this.buffer.put((byte)(0x80 | codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            this.buffer.put((byte)(0xE0 | codePoint >> 12));
+            this.buffer.put((byte)(0x80 | codePoint >> 6 & 0x3F));
+            this.buffer.put((byte)(0x80 | codePoint & 0x3F));
+        } else {
+            this.buffer.put((byte)(0xF0 | codePoint >> 18));
+            this.buffer.put((byte)(0x80 | codePoint >> 12 & 0x3F));
+            this.buffer.put((byte)(0x80 | codePoint >> 6 & 0x3F));
+            this.buffer.put((byte)(0x80 | codePoint & 0x3F));
+        }
+    }
+
+    /**
+     * Method used to write every buffered byte to the channel.
+     * @throws IOException If the channel cannot be written.
+     */
+    private void drain() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining())
+            this.channel.write(this.buffer);
+        this.buffer.clear();
+    }
+
+    /**
+     * Method used to write every buffered byte to the channel.
+     * @throws IOException If the channel cannot be written.
+     */
+    public void flush() throws IOException {
+        drain();
+    }
+
+    /**
+     * Method used to flush buffered bytes and close the channel.
+     * @throws IOException If the channel cannot be written or closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            this.channel.close();
+        }
+    }
+}
@@ -1,30 +1,58 @@
 package autocompletion;
 
+import java.util.Arrays;
+
 /**
  * Class: TrieNode.java
  * Description: Trie node class used to create a individual trie 
- *  node object.
+ *  node object. Offsprings of any character are stored in small sorted
+ *  arrays, and nodes with many offsprings over a narrow range of
+ *  characters switch to a dense array indexed by character. A leaf holds
+ *  the id of its word within the word table of its trie rather than the
+ *  word itself.
  * Author: Paulo Jorge.
  */
 public class TrieNode {
+    // Estimated heap size of a node object, excluding its arrays
+    static final int NODE_BYTES = 56;
+    // Number of sparse offsprings above which a node tries to become
+    // dense, and the widest range of characters a dense node may cover
+    private static final int DENSE_THRESHOLD = 8;
+    private static final int MAX_DENSE_RANGE = 128;
+    private static final TrieNode[] NO_OFFSPRINGS = new TrieNode[0];
+    private static final char[] NO_KEYS = new char[0];
+    private static final TrieNode[] NO_COMPLETIONS = new TrieNode[0];
+
     // Character stored in node
     private char character;
     // Parent node
     private TrieNode parent;    
-    // List of offspring nodes
-    private final TrieNode[] offsprings;
-    private final int MAX_OFFSPRINGS = 26;
+    // List of offspring nodes ordered by character, which are either
+    // sparse and match keys, or dense and indexed from the base character
+    private TrieNode[] offsprings = NO_OFFSPRINGS;
+    // Sorted characters of sparse offsprings, or null if dense
+    private char[] keys = NO_KEYS;
+    // Character of the first dense offspring slot
+    private char base;
     // Flag used to represent if node is at the end of the word
     private boolean isLeaf = false;
     // Frequency count of this word within trie
     private int frequency = 0;
+    // Id of the whole word ending at this node within the word table of
+    // its trie, or -1 if node is not a leaf
+    private int word = -1;
+    // Sum of frequency counts of all words within this nodes sub trie
+    private long total = 0;
+    // Highest frequency count of any word within this nodes sub trie
+    private int maxFrequency = 0;
+    // Highest ranked leaf nodes within this nodes sub trie
+    private TrieNode[] completions = NO_COMPLETIONS;
 
     /**
      * Default constructor method used to initialise a new empty trie 
      *  node object.
      */
     public TrieNode() { 
-        this.offsprings = new TrieNode[MAX_OFFSPRINGS];
     }
     
     /**
@@ -34,7 +62,6 @@ public class TrieNode {
      * @param parent TrieNode parent object for this node.
      */
     public TrieNode(char character, TrieNode parent) {
-        this.offsprings = new TrieNode[MAX_OFFSPRINGS];
         this.character = character;
         this.parent = parent;
     }
@@ -49,11 +76,64 @@ public class TrieNode {
     
     /**
      * Accessor method used to get and return this nodes offsprings.
-     * @return Array of type TrieNode containing all offspring objects.
+     * @return Array of type TrieNode containing all offspring objects
+     *  ordered by character, which may contain null entries.
      */
     public TrieNode[] getOffsprings() {
         return this.offsprings;
     }
+
+    /**
+     * Accessor method used to get and return the offspring holding a
+     *  character.
+     * @param character Character of offspring to get.
+     * @return TrieNode offspring object, or null if there is none.
+     */
+    public TrieNode getOffspring(char character) {
+        // Dense offsprings are indexed by character
+        if (this.keys == null) {
+            int index = character - this.base;
+            return index >= 0 && index < this.offsprings.length
+                    ? this.offsprings[index] : null;
+        }
+
+        int index = indexOf(character);
+        return index >= 0 ? this.offsprings[index] : null;
+    }
+
+    /**
+     * Method used to find the position of a sparse offspring character.
+     * @param character Character to find.
+     * @return Integer position within keys, or (-(insertion point) - 1)
+     *  if the character is missing.
+     */
+    private int indexOf(char character) {
+        // Scanning a few keys is faster than a binary search
+        if (this.keys.length <= DENSE_THRESHOLD) {
+            for (int i = 0; i < this.keys.length; i++)
+                if (this.keys[i] >= character)
+                    return this.keys[i] == character ? i : -i - 1;
+            return -this.keys.length - 1;
+        }
+
+        return Arrays.binarySearch(this.keys, character);
+    }
+
+    /**
+     * Method used to estimate the number of heap bytes used by this
+     *  nodes offspring arrays, which are shared while empty.
+     * @return Long estimated number of bytes.
+     */
+    long estimateOffspringBytes() {
+        if (this.offsprings.length == 0)
+            return 0;
+
+        long bytes = AutoCompletionTrie.align(16
+                + 4L * this.offsprings.length);
+        if (this.keys != null)
+            bytes += AutoCompletionTrie.align(16 + 2L * this.keys.length);
+        return bytes;
+    }
     
     /**
      * Accessor method to get and return the leaf state of this node.
@@ -79,18 +159,233 @@ public class TrieNode {
     public int getFrequency() {
         return this.frequency;
     }
+
+    /**
+     * Accessor method used to get and return the id of the whole word
+     *  ending at this node within the word table of its trie.
+     * @return Integer id of word, or -1 if node is not a leaf.
+     */
+    public int getWordId() {
+        return this.word;
+    }
+
+    /**
+     * Method used to spell out the whole word ending at this node from
+     *  the characters of its ancestors. Tries decode words from their
+     *  word table instead, which is faster.
+     * @return String containing word, or null if node is not a leaf.
+     */
+    public String getWord() {
+        if (this.word < 0)
+            return null;
+
+        char[] word = new char[getDepth()];
+        TrieNode node = this;
+        for (int i = word.length - 1; i >= 0; i--, node = node.parent)
+            word[i] = node.character;
+        return new String(word);
+    }
+
+    /**
+     * Accessor method used to get and return the sum of the frequency
+     *  counts of all words within this nodes sub trie, including the
+     *  word ending at this node.
+     * @return Long total frequency count.
+     */
+    public long getTotal() {
+        return this.total;
+    }
+
+    /**
+     * Accessor method used to get and return the highest frequency count
+     *  of any word within this nodes sub trie, including the word ending
+     *  at this node.
+     * @return Integer highest frequency count, or 0 if there are no
+     *  words.
+     */
+    public int getMaxFrequency() {
+        return this.maxFrequency;
+    }
+
+    /**
+     * Accessor method used to get and return the highest ranked leaf
+     *  nodes within this nodes sub trie, ordered by rank.
+     * @return Array of type TrieNode containing ranked leaf nodes.
+     */
+    public TrieNode[] getCompletions() {
+        return this.completions;
+    }
+
+    /**
+     * Method used to check if this leaf node ranks before another leaf
+     *  node. Higher frequencies rank first, ties are ordered the way a
+     *  depth first search visits them: a word before the words it
+     *  prefixes, otherwise the word with the greater character first.
+     * @param node TrieNode leaf object to compare against.
+     * @param words WordCounter table holding the words of both leaves, or
+     *  null to compare their paths.
+     * @return Boolean true if this node ranks first, false otherwise.
+     */
+    public boolean ranksBefore(TrieNode node, WordCounter words) {
+        if (this.frequency != node.frequency)
+            return this.frequency > node.frequency;
+        return precedes(node, words);
+    }
+
+    /**
+     * Method used to check if this node comes before another node of
+     *  the same trie in the order a depth first search visits them, the
+     *  order ranksBefore breaks ties in: a node before the nodes below
+     *  it, otherwise the node below the greater character first.
+     * @param node TrieNode object to compare against.
+     * @param words WordCounter table holding the words of both nodes, or
+     *  null to compare their paths.
+     * @return Boolean true if this node comes first, false otherwise.
+     */
+    public boolean precedes(TrieNode node, WordCounter words) {
+        // Words spell out their path, so compare them without climbing,
+        // the shorter word prefixing the other coming first
+        if (words != null && this.word >= 0 && node.word >= 0) {
+            int i = words.mismatch(this.word, node.word);
+            if (i < words.getLength(this.word)
+                    && i < words.getLength(node.word))
+                return words.charAt(this.word, i)
+                        > words.charAt(node.word, i);
+            return words.getLength(this.word)
+                    < words.getLength(node.word);
+        }
+
+        int depth = getDepth();
+        int other = node.getDepth();
+
+        // Climb to the same depth, an ancestor comes first
+        TrieNode a = this;
+        TrieNode b = node;
+        for (int i = depth; i > other; i--)
+            a = a.parent;
+        for (int i = other; i > depth; i--)
+            b = b.parent;
+        if (a == b)
+            return depth < other;
+
+        // Climb to the offsprings of the closest common ancestor
+        while (a.parent != b.parent) {
+            a = a.parent;
+            b = b.parent;
+        }
+        return a.character > b.character;
+    }
+
+    /**
+     * Method used to get the number of ancestors of this node.
+     * @return Integer depth, 0 for a root.
+     */
+    private int getDepth() {
+        int depth = 0;
+        for (TrieNode node = this.parent; node != null; node = node.parent)
+            depth++;
+        return depth;
+    }
     
     /**
      * Mutator method used to add a new offspring character to this 
      *  trie node.
-     * @param index Integer index position of offspring to add.
+     * @param character Character of offspring to add, which must not
+     *  already be an offspring.
      * @return New offspring object of type TrieNode added to this 
      *  trie node.
      */
-    public TrieNode addOffspring(int index) {
-        this.offsprings[index] = new TrieNode((char)(index + 'a'), 
-                this);
-        return this.offsprings[index];
+    public TrieNode addOffspring(char character) {
+        return attachOffspring(new TrieNode(character, this));
+    }
+
+    /**
+     * Mutator method used to move an existing node, along with its sub
+     *  trie, to become an offspring of this trie node.
+     * @param offspring TrieNode object to add, whose character must not
+     *  already be an offspring.
+     * @return The passed in offspring object.
+     */
+    public TrieNode attachOffspring(TrieNode offspring) {
+        char character = offspring.character;
+        offspring.parent = this;
+
+        // Dense offsprings grow their range, or become sparse if the
+        // range would be too wide
+        if (this.keys == null) {
+            int first = Math.min(this.base, character);
+            int last = Math.max(this.base + this.offsprings.length - 1,
+                    character);
+            if (last - first < MAX_DENSE_RANGE) {
+                setDense(first, last);
+                this.offsprings[character - this.base] = offspring;
+                return offspring;
+            }
+            setSparse();
+        }
+
+        // Insert into sorted sparse offsprings
+        int index = -indexOf(character) - 1;
+        int length = this.keys.length;
+        char[] keys = new char[length + 1];
+        TrieNode[] offsprings = new TrieNode[length + 1];
+        System.arraycopy(this.keys, 0, keys, 0, index);
+        System.arraycopy(this.offsprings, 0, offsprings, 0, index);
+        System.arraycopy(this.keys, index, keys, index + 1,
+                length - index);
+        System.arraycopy(this.offsprings, index, offsprings, index + 1,
+                length - index);
+        keys[index] = character;
+        offsprings[index] = offspring;
+        this.keys = keys;
+        this.offsprings = offsprings;
+
+        // Switch to dense offsprings once there are many over a narrow
+        // range of characters
+        if (keys.length > DENSE_THRESHOLD
+                && keys[length] - keys[0] < MAX_DENSE_RANGE)
+            setDense(keys[0], keys[length]);
+
+        return offspring;
+    }
+
+    /**
+     * Method used to store offsprings densely over a range of characters.
+     * @param first Integer first character of range.
+     * @param last Integer last character of range.
+     */
+    private void setDense(int first, int last) {
+        TrieNode[] offsprings = new TrieNode[last - first + 1];
+        for (TrieNode offspring : this.offsprings)
+            if (offspring != null)
+                offsprings[offspring.character - first] = offspring;
+
+        this.offsprings = offsprings;
+        this.keys = null;
+        this.base = (char)first;
+    }
+
+    /**
+     * Method used to store dense offsprings in sorted sparse arrays.
+     */
+    private void setSparse() {
+        int count = 0;
+        for (TrieNode offspring : this.offsprings)
+            if (offspring != null)
+                count++;
+
+        // Copy non-null offsprings keeping their order
+        char[] keys = new char[count];
+        TrieNode[] offsprings = new TrieNode[count];
+        count = 0;
+        for (TrieNode offspring : this.offsprings)
+            if (offspring != null) {
+                keys[count] = offspring.character;
+                offsprings[count++] = offspring;
+            }
+
+        this.keys = keys;
+        this.offsprings = offsprings;
     }
     
     /**
@@ -108,14 +403,64 @@ public class TrieNode {
      */
     public void setFrequency(int frequency) {
         this.frequency = frequency;
-    }    
+    }
+
+    /**
+     * Mutator method used to set the id of the whole word ending at this
+     *  node within the word table of its trie.
+     * @param word Integer id of word.
+     */
+    public void setWordId(int word) {
+        this.word = word;
+    }
+
+    /**
+     * Mutator method used to add to the total frequency count of this
+     *  nodes sub trie.
+     * @param frequency Long frequency count to add.
+     */
+    public void addTotal(long frequency) {
+        this.total += frequency;
+    }
+
     /**
-     * Method used to clear the contents of this node, excluding
-     *  its offsprings.
+     * Mutator method used to raise the highest frequency count of this
+     *  nodes sub trie.
+     * @param frequency Integer frequency count of a word added within
+     *  sub trie.
      */
-    public void clear() {
-        this.character = Character.UNASSIGNED;
-        this.parent = null;
-        this.isLeaf = false;
+    public void raiseMaxFrequency(int frequency) {
+        this.maxFrequency = Math.max(this.maxFrequency, frequency);
+    }
+
+    /**
+     * Mutator method used to rank a leaf node against this nodes
+     *  completions, keeping at most the passed in number of the highest
+     *  ranked leaf nodes.
+     * @param leaf TrieNode leaf object to rank.
+     * @param limit Integer maximum number of completions to keep.
+     * @param words WordCounter table holding the words of every leaf.
+     */
+    public void addCompletion(TrieNode leaf, int limit,
+            WordCounter words) {
+        // Find position of leaf within ranked completions
+        int position = this.completions.length;
+        while (position > 0 && leaf.ranksBefore(
+                this.completions[position - 1], words))
+            position--;
+
+        // Ignore leaf if it ranks below all kept completions
+        if (position >= limit)
+            return;
+
+        // Shift lower ranked completions down, growing until full
+        TrieNode[] completions = this.completions;
+        if (completions.length < limit)
+            completions = Arrays.copyOf(completions,
+                    completions.length + 1);
+        System.arraycopy(this.completions, position, completions,
+                position + 1, completions.length - position - 1);
+        completions[position] = leaf;
+        this.completions = completions;
     }
 }
\ No newline at end of file
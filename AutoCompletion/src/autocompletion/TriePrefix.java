@@ -0,0 +1,136 @@
+package autocompletion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+
+/**
+ * Class: TriePrefix.java
+ * Description: Read only view of a prefix within a trie, used to look
+ *  up words and completions starting with the prefix without modifying
+ *  the trie. A view can be repositioned to a new prefix so that
+ *  repeated queries do not allocate.
+ * Author: Paulo Jorge.
+ */
+public class TriePrefix {
+    // Trie the prefix was found in
+    private AutoCompletionTrie trie;
+    // Prefix this view is positioned at
+    private String prefix;
+    // Node at the end of the prefix, or null if prefix is not in trie
+    private TrieNode node;
+
+    /**
+     * Method used to position this view at a prefix.
+     * @param trie AutoCompletionTrie object the prefix was found in.
+     * @param prefix String containing prefix.
+     * @param node TrieNode object at end of prefix, or null.
+     */
+    void set(AutoCompletionTrie trie, String prefix, TrieNode node) {
+        this.trie = trie;
+        this.prefix = prefix;
+        this.node = node;
+    }
+
+    /**
+     * Accessor method used to get and return the prefix of this view.
+     * @return String containing prefix.
+     */
+    public String getPrefix() {
+        return this.prefix;
+    }
+
+    /**
+     * Method used to check if the prefix is present within the trie.
+     * @return Boolean true if at least one word starts with the prefix,
+     *  false otherwise.
+     */
+    public boolean exists() {
+        return this.node != null;
+    }
+
+    /**
+     * Method used to check if the prefix is a whole word.
+     * @return Boolean true if prefix is a word, false otherwise.
+     */
+    public boolean isWord() {
+        return this.node != null && this.node.getIsLeaf()
+                && this.node.getFrequency() > 0;
+    }
+
+    /**
+     * Method used to get the frequency count of the prefix as a word.
+     * @return Integer frequency count of prefix, or 0 if the prefix is
+     *  not a whole word.
+     */
+    public int getFrequency() {
+        return isWord() ? this.node.getFrequency() : 0;
+    }
+
+    /**
+     * Method used to get the frequency count of the word formed by the
+     *  prefix followed by a suffix.
+     * @param suffix String containing suffix to follow prefix.
+     * @return Integer frequency count of word, or 0 if the word is not
+     *  within trie.
+     */
+    public int getFrequency(String suffix) {
+        if (this.node == null)
+            return 0;
+
+        // Search from end of prefix rather than root
+        TrieNode word = this.trie.getNode(this.node, suffix);
+        return word != null && word.getIsLeaf() ? word.getFrequency() : 0;
+    }
+
+    /**
+     * Method used to get the sum of the frequency counts of all words
+     *  starting with the prefix.
+     * @return Long total frequency count, or 0 if prefix is not in trie.
+     */
+    public long getTotal() {
+        return this.node != null ? this.node.getTotal() : 0;
+    }
+
+    /**
+     * Method used to get the highest ranked completions of the prefix
+     *  into an existing result object.
+     * @param result CompletionResult object to fill.
+     * @return The passed in result object.
+     */
+    public CompletionResult getCompletions(CompletionResult result) {
+        return this.trie.getCompletions(this.node, this.prefix, result);
+    }
+
+    /**
+     * Method used to get and return all words starting with the prefix,
+     *  including the prefix itself if it is a word, in depth first
+     *  order.
+     * @return List of type String containing all words.
+     */
+    public List<String> getAllWords() {
+        List<String> words = new ArrayList<>();
+        if (this.node == null)
+            return words;
+
+        // Initialise new stack and default on the prefix node
+        Stack<TrieNode> stack = new Stack<>();
+        stack.push(this.node);
+
+        // Loop stack until empty
+        while (!stack.isEmpty()) {
+            TrieNode node = stack.pop();
+
+            // Leaf nodes hold their whole word
+            if (node.getIsLeaf())
+                words.add(this.trie.getWord(node));
+
+            // Loop all non-null offsprings
+            for (TrieNode offspring : node.getOffsprings())
+                if (offspring != null)
+                    stack.push(offspring);
+        }
+
+        return words;
+    }
+}
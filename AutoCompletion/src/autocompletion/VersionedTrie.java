@@ -0,0 +1,274 @@
+package autocompletion;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Class: VersionedTrie.java
+ * Description: Trie whose contents are a series of immutable versions.
+ *  An update copies only the nodes along the words it changes, sharing
+ *  every other sub trie with the previous version, and publishes the
+ *  new version with a single atomic swap. Queries are never blocked or
+ *  slowed by an update, and a query that holds a version keeps seeing
+ *  it unchanged; old versions are reclaimed by the garbage collector
+ *  once no query holds them.
+ * Author: Paulo Jorge.
+ */
+public class VersionedTrie implements CompletionTrie {
+    // Most recently published version
+    private final AtomicReference<Version> current;
+    // Number of completions stored at every node
+    private final int completionLimit;
+    // Alphabet used to normalise words added and looked up
+    private final Alphabet alphabet;
+    // Lock held by the single update allowed to run at a time
+    private final Object updateLock = new Object();
+
+    /**
+     * Constructor used to initialise a new versioned trie with an empty
+     *  first version.
+     * @param completionLimit Integer number of completions stored at
+     *  every node, which is the most a query can return.
+     * @param alphabet Alphabet object used to normalise words.
+     */
+    public VersionedTrie(int completionLimit, Alphabet alphabet) {
+        this.completionLimit = completionLimit;
+        this.alphabet = alphabet;
+
+        // Seal an empty root as version 0
+        Object edit = new Object();
+        VersionedTrieNode root = new VersionedTrieNode(
+                Character.MIN_VALUE, edit);
+        root.seal(edit, completionLimit);
+        this.current = new AtomicReference<>(new Version(root, 0));
+    }
+
+    /**
+     * Accessor method used to get and return the current version. Callers
+     *  making several queries that must agree should query one version.
+     * @return Version object most recently published.
+     */
+    public Version getVersion() {
+        return this.current.get();
+    }
+
+    /**
+     * Accessor method used to get and return the number of the current
+     *  version.
+     * @return Long number of updates published.
+     */
+    @Override
+    public long getVersionNumber() {
+        return this.current.get().number;
+    }
+
+    /**
+     * Method used to add counted words to the frequency counts of the
+     *  current version, publishing the result as a new version. Only one
+     *  update runs at a time, queries are not blocked.
+     * @param counter WordCounter object containing counts to add.
+     * @return Version object published.
+     */
+    public Version update(WordCounter counter) {
+        synchronized (this.updateLock) {
+            Version previous = this.current.get();
+
+            // Copy the path to every counted word, adding missing nodes
+            Object edit = new Object();
+            VersionedTrieNode root = previous.root.editable(edit);
+            for (int id = 0; id < counter.size(); id++) {
+                String key = this.alphabet.normalize(counter.getWord(id));
+                VersionedTrieNode node = root;
+                for (int i = 0; i < key.length(); i++)
+                    node = node.editableOffspring(key.charAt(i), edit);
+                node.addFrequency(key, counter.getCount(id));
+            }
+
+            // Recompute copied nodes and publish them
+            root.seal(edit, this.completionLimit);
+            Version version = new Version(root, previous.number + 1);
+            this.current.set(version);
+            return version;
+        }
+    }
+
+    /**
+     * Method used to count the words of a file on an executor and add
+     *  them to the current version, for example to absorb a new days
+     *  corpus while queries continue against the current version.
+     * @param file String location of file to read from.
+     * @param executor Executor object to count and update on.
+     * @return CompletableFuture completed with the published version, or
+     *  with an UncheckedIOException if the file cannot be read.
+     */
+    public CompletableFuture<Version> updateAsync(final String file,
+            Executor executor) {
+        return CompletableFuture.supplyAsync(new Supplier<Version>() {
+            @Override
+            public Version get() {
+                WordCounter counter = new WordCounter();
+                try {
+                    new WordReader().read(file, counter);
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+                return update(counter);
+            }
+        }, executor);
+    }
+
+    /**
+     * Accessor method used to get and return the alphabet used to
+     *  normalise words.
+     * @return Alphabet object of this trie.
+     */
+    @Override
+    public Alphabet getAlphabet() {
+        return this.alphabet;
+    }
+
+    /**
+     * Method to check if the current version contains a whole word.
+     * @param key String containing word to check.
+     * @return Boolean true if the word is found, false otherwise.
+     */
+    @Override
+    public boolean contains(String key) {
+        return getVersion().contains(key);
+    }
+
+    /**
+     * Method to get frequency count of a word in the current version.
+     * @param key String containing word to check.
+     * @return Integer frequency count of word, or 0 if not found.
+     */
+    @Override
+    public int getFrequency(String key) {
+        return getVersion().getFrequency(key);
+    }
+
+    /**
+     * Method to get the highest ranked completions of a prefix in the
+     *  current version.
+     * @param prefix String containing prefix to complete.
+     * @param result CompletionResult object to fill.
+     * @return The passed in result object.
+     */
+    @Override
+    public CompletionResult getCompletions(String prefix,
+            CompletionResult result) {
+        return getVersion().getCompletions(prefix, result);
+    }
+
+    /**
+     * Class used to define a single immutable version of the trie.
+     */
+    public class Version implements CompletionTrie {
+        // Root node of version
+        private final VersionedTrieNode root;
+        // Number of updates published before this version
+        private final long number;
+
+        /**
+         * Constructor used to initialise a new version.
+         * @param root VersionedTrieNode sealed root object.
+         * @param number Long version number.
+         */
+        Version(VersionedTrieNode root, long number) {
+            this.root = root;
+            this.number = number;
+        }
+
+        /**
+         * Accessor method used to get and return the version number.
+         * @return Long number of updates published before this version.
+         */
+        public long getNumber() {
+            return this.number;
+        }
+
+        /**
+         * Accessor method used to get and return the version number, which
+         *  never changes as a version is immutable.
+         * @return Long number of updates published before this version.
+         */
+        @Override
+        public long getVersionNumber() {
+            return this.number;
+        }
+
+        /**
+         * Accessor method used to get and return the alphabet used to
+         *  normalise words.
+         * @return Alphabet object of this trie.
+         */
+        @Override
+        public Alphabet getAlphabet() {
+            return alphabet;
+        }
+
+        /**
+         * Method to check if this version contains a whole word.
+         * @param key String containing word to check.
+         * @return Boolean true if the word is found, false otherwise.
+         */
+        @Override
+        public boolean contains(String key) {
+            return getFrequency(key) > 0;
+        }
+
+        /**
+         * Method to get frequency count of a word in this version.
+         * @param key String containing word to check.
+         * @return Integer frequency count of word, or 0 if not found.
+         */
+        @Override
+        public int getFrequency(String key) {
+            VersionedTrieNode node = getNode(key);
+            return node != null ? node.getFrequency() : 0;
+        }
+
+        /**
+         * Method to get the highest ranked completions of a prefix in
+         *  this version, holding at most the completion limit of the
+         *  trie.
+         * @param prefix String containing prefix to complete.
+         * @param result CompletionResult object to fill.
+         * @return The passed in result object.
+         */
+        @Override
+        public CompletionResult getCompletions(String prefix,
+                CompletionResult result) {
+            VersionedTrieNode node = getNode(prefix);
+            if (node == null) {
+                result.reset(prefix, false, 0);
+                return result;
+            }
+
+            result.reset(prefix, node.getFrequency() > 0,
+                    node.getTotal());
+            for (VersionedTrieNode leaf : node.getCompletions())
+                if (!result.add(leaf.getWord(), leaf.getFrequency()))
+                    break;
+            return result;
+        }
+
+        /**
+         * Method to get and return the node at the end of a key.
+         * @param key String containing key to find.
+         * @return VersionedTrieNode object at end of key, or null if the
+         *  key is not within this version.
+         */
+        private VersionedTrieNode getNode(String key) {
+            key = alphabet.normalize(key);
+            VersionedTrieNode node = this.root;
+            for (int i = 0; node != null && i < key.length(); i++)
+                node = node.getOffspring(key.charAt(i));
+            return node;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package autocompletion;
+
+import java.util.Arrays;
+
+/**
+ * Class: VersionedTrieNode.java
+ * Description: Trie node class used by the versioned trie. A node is
+ *  only modified while it is owned by the update building a new
+ *  version; once the version is published its nodes never change, so
+ *  later versions share every sub trie an update did not touch. Nodes
+ *  have no parent, as a shared node may belong to many versions.
+ * Author: Paulo Jorge.
+ */
+public class VersionedTrieNode {
+    private static final VersionedTrieNode[] NO_OFFSPRINGS
+            = new VersionedTrieNode[0];
+    private static final char[] NO_KEYS = new char[0];
+
+    // Character stored in node
+    private final char character;
+    // Sorted offspring characters and their offspring nodes
+    private char[] keys = NO_KEYS;
+    private VersionedTrieNode[] offsprings = NO_OFFSPRINGS;
+    // Frequency count of the word ending at this node, 0 if not a word
+    private int frequency = 0;
+    // Whole word ending at this node, or null if node is not a word
+    private String word;
+    // Sum of frequency counts of all words within this nodes sub trie
+    private long total = 0;
+    // Highest ranked word nodes within this nodes sub trie
+    private VersionedTrieNode[] completions = NO_OFFSPRINGS;
+    // Update currently allowed to modify this node, or null once sealed
+    private Object edit;
+
+    /**
+     * Constructor method used to initialise a new node owned by an
+     *  update.
+     * @param character Character stored in node.
+     * @param edit Object identifying the update owning the node.
+     */
+    public VersionedTrieNode(char character, Object edit) {
+        this.character = character;
+        this.edit = edit;
+    }
+
+    /**
+     * Accessor method used to get and return the offspring holding a
+     *  character.
+     * @param character Character of offspring to get.
+     * @return VersionedTrieNode offspring object, or null if there is
+     *  none.
+     */
+    public VersionedTrieNode getOffspring(char character) {
+        int index = Arrays.binarySearch(this.keys, character);
+        return index >= 0 ? this.offsprings[index] : null;
+    }
+
+    /**
+     * Accessor method used to get and return this nodes offsprings.
+     * @return Array of type VersionedTrieNode in ascending character
+     *  order, which must not be modified.
+     */
+    public VersionedTrieNode[] getOffsprings() {
+        return this.offsprings;
+    }
+
+    /**
+     * Accessor method used to get and return this nodes frequency.
+     * @return Integer frequency count, or 0 if node is not a word.
+     */
+    public int getFrequency() {
+        return this.frequency;
+    }
+
+    /**
+     * Accessor method used to get and return the whole word ending at
+     *  this node.
+     * @return String containing word, or null if node is not a word.
+     */
+    public String getWord() {
+        return this.word;
+    }
+
+    /**
+     * Accessor method used to get and return the sum of the frequency
+     *  counts of all words within this nodes sub trie.
+     * @return Long total frequency count.
+     */
+    public long getTotal() {
+        return this.total;
+    }
+
+    /**
+     * Accessor method used to get and return the highest ranked word
+     *  nodes within this nodes sub trie.
+     * @return Array of type VersionedTrieNode ordered by rank.
+     */
+    public VersionedTrieNode[] getCompletions() {
+        return this.completions;
+    }
+
+    /**
+     * Method used to get a copy of this node owned by an update, or this
+     *  node if the update already owns it.
+     * @param edit Object identifying the update.
+     * @return VersionedTrieNode object the update may modify.
+     */
+    public VersionedTrieNode editable(Object edit) {
+        if (this.edit == edit)
+            return this;
+
+        VersionedTrieNode copy = new VersionedTrieNode(this.character,
+                edit);
+        copy.keys = this.keys.clone();
+        copy.offsprings = this.offsprings.clone();
+        copy.frequency = this.frequency;
+        copy.word = this.word;
+        return copy;
+    }
+
+    /**
+     * Method used to get an offspring the update owning this node may
+     *  modify, copying it in place of the shared offspring or adding it
+     *  if it is missing.
+     * @param character Character of offspring to get.
+     * @param edit Object identifying the update, which must own this
+     *  node.
+     * @return VersionedTrieNode offspring object owned by the update.
+     */
+    public VersionedTrieNode editableOffspring(char character,
+            Object edit) {
+        int index = Arrays.binarySearch(this.keys, character);
+        if (index >= 0) {
+            VersionedTrieNode offspring = this.offsprings[index]
+                    .editable(edit);
+            this.offsprings[index] = offspring;
+            return offspring;
+        }
+
+        // Insert new offspring into sorted arrays
+        index = -index - 1;
+        int length = this.keys.length;
+        char[] keys = new char[length + 1];
+        VersionedTrieNode[] offsprings = new VersionedTrieNode[length + 1];
+        System.arraycopy(this.keys, 0, keys, 0, index);
+        System.arraycopy(this.offsprings, 0, offsprings, 0, index);
+        System.arraycopy(this.keys, index, keys, index + 1,
+                length - index);
+        System.arraycopy(this.offsprings, index, offsprings, index + 1,
+                length - index);
+        keys[index] = character;
+        offsprings[index] = new VersionedTrieNode(character, edit);
+        this.keys = keys;
+        this.offsprings = offsprings;
+        return offsprings[index];
+    }
+
+    /**
+     * Mutator method used to add to the frequency count of the word
+     *  ending at this node, which must be owned by an update.
+     * @param word String containing whole word ending at this node.
+     * @param count Integer amount to add.
+     */
+    public void addFrequency(String word, int count) {
+        this.word = word;
+        this.frequency += count;
+    }
+
+    /**
+     * Method used to recompute the totals and completions of every node
+     *  an update modified, from the bottom up, and release them from the
+     *  update so they can no longer change. Sub tries the update did not
+     *  touch keep their values and are not visited.
+     * @param edit Object identifying the update.
+     * @param limit Integer number of completions to store at every node.
+     */
+    public void seal(Object edit, int limit) {
+        if (this.edit != edit)
+            return;
+
+        this.total = this.frequency;
+        this.completions = NO_OFFSPRINGS;
+        if (this.frequency > 0)
+            addCompletion(this, limit);
+
+        for (VersionedTrieNode offspring : this.offsprings) {
+            offspring.seal(edit, limit);
+            this.total += offspring.total;
+            for (VersionedTrieNode leaf : offspring.completions)
+                if (!addCompletion(leaf, limit))
+                    break;
+        }
+
+        this.edit = null;
+    }
+
+    /**
+     * Method used to rank a word node against this nodes completions,
+     *  keeping at most the passed in number of the highest ranked.
+     * @param leaf VersionedTrieNode word node to rank.
+     * @param limit Integer maximum number of completions to keep.
+     * @return Boolean true if the node was kept, false otherwise.
+     */
+    private boolean addCompletion(VersionedTrieNode leaf, int limit) {
+        // Find position of leaf within ranked completions
+        int position = this.completions.length;
+        while (position > 0 && leaf.ranksBefore(
+                this.completions[position - 1]))
+            position--;
+        if (position >= limit)
+            return false;
+
+        // Shift lower ranked completions down, growing until full
+        VersionedTrieNode[] completions = this.completions;
+        if (completions.length < limit)
+            completions = Arrays.copyOf(completions,
+                    completions.length + 1);
+        System.arraycopy(this.completions, position, completions,
+                position + 1, completions.length - position - 1);
+        completions[position] = leaf;
+        this.completions = completions;
+        return true;
+    }
+
+    /**
+     * Method used to check if this word node ranks before another, in
+     *  the same order as TrieNode.ranksBefore.
+     * @param node VersionedTrieNode word node to compare against.
+     * @return Boolean true if this node ranks first, false otherwise.
+     */
+    private boolean ranksBefore(VersionedTrieNode node) {
+        if (this.frequency != node.frequency)
+            return this.frequency > node.frequency;
+
+        // Find first character where both words differ
+        int length = Math.min(this.word.length(), node.word.length());
+        for (int i = 0; i < length; i++)
+            if (this.word.charAt(i) != node.word.charAt(i))
+                return this.word.charAt(i) > node.word.charAt(i);
+
+        // Shorter word is a prefix of the other so ranks first
+        return this.word.length() < node.word.length();
+    }
+}
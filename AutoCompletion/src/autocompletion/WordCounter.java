@@ -0,0 +1,429 @@
+package autocompletion;
+
+import java.util.Arrays;
+
+/**
+ * Class: WordCounter.java
+ * Description: Open addressing hash table used to count the number of
+ *  times each unique word occurs. Words are stored back to back in a
+ *  single character array and are given an integer id in the order
+ *  they were first seen, so counting a word never allocates. The same
+ *  ids let a counter serve as the word table of a dictionary and the
+ *  tries built from it.
+ * Author: Paulo Jorge.
+ */
+public class WordCounter implements WordTable {
+    // Default number of hash slots, must be a power of two
+    private static final int DEFAULT_CAPACITY = 1024;
+    // Default number of characters reserved for words
+    private static final int DEFAULT_CHARACTERS = 8192;
+
+    // Hash slots containing word id + 1, or 0 if the slot is empty
+    private int[] slots;
+    // Hash code of each word, indexed by word id
+    private int[] hashes;
+    // Frequency count of each word, indexed by word id
+    private int[] counts;
+    // Start position of each word within characters, indexed by word
+    // id, with one extra trailing entry marking the end of the last word
+    private int[] offsets;
+    // All word characters stored back to back
+    private char[] characters;
+    // Number of unique words counted
+    private int size = 0;
+
+    /**
+     * Default constructor used to initialise a new empty word counter.
+     */
+    public WordCounter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor used to initialise a new empty word counter sized to
+     *  hold the passed in number of unique words before growing.
+     * @param expectedWords Integer number of unique words expected.
+     */
+    public WordCounter(int expectedWords) {
+        // Round slot count up to a power of two at least twice as large
+        // as the number of expected words to keep probe chains short
+        int words = Math.max(expectedWords, DEFAULT_CAPACITY / 2);
+        int capacity = Integer.highestOneBit(words * 2 - 1) << 1;
+
+        this.slots = new int[capacity];
+        this.hashes = new int[capacity / 2];
+        this.counts = new int[capacity / 2];
+        this.offsets = new int[capacity / 2 + 1];
+        this.characters = new char[DEFAULT_CHARACTERS];
+    }
+
+    /**
+     * Method used to increment the frequency count of a word by one,
+     *  adding it if it has not been seen before.
+     * @param word String containing word to count.
+     * @return Integer id of the counted word.
+     */
+    public int increment(String word) {
+        return increment(word, 1);
+    }
+
+    /**
+     * Method used to increase the frequency count of a word, adding it
+     *  if it has not been seen before.
+     * @param word String containing word to count.
+     * @param count Integer amount to increase the count by.
+     * @return Integer id of the counted word.
+     */
+    public int increment(String word, int count) {
+        // Hash is compatible with String.hashCode so use the cached value
+        int hash = word.hashCode();
+        int mask = this.slots.length - 1;
+        int slot = mix(hash) & mask;
+
+        // Probe until an empty slot or a matching word is found
+        int id;
+        while ((id = this.slots[slot] - 1) >= 0) {
+            if (this.hashes[id] == hash && equals(id, word)) {
+                this.counts[id] += count;
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // Copy word characters into arena and insert into found slot
+        int start = reserve(word.length());
+        word.getChars(0, word.length(), this.characters, start);
+        return insert(slot, hash, word.length(), count);
+    }
+
+    /**
+     * Method used to increment the frequency count of a word held in a
+     *  character array by one, adding it if it has not been seen before.
+     * @param chars Character array containing word.
+     * @param offset Integer position of first word character.
+     * @param length Integer number of characters in word.
+     * @return Integer id of the counted word.
+     */
+    public int increment(char[] chars, int offset, int length) {
+        return increment(chars, offset, length, 1);
+    }
+
+    /**
+     * Method used to increase the frequency count of a word held in a
+     *  character array, adding it if it has not been seen before.
+     * @param chars Character array containing word.
+     * @param offset Integer position of first word character.
+     * @param length Integer number of characters in word.
+     * @param count Integer amount to increase the count by.
+     * @return Integer id of the counted word.
+     */
+    public int increment(char[] chars, int offset, int length,
+            int count) {
+        int hash = hash(chars, offset, length);
+        int mask = this.slots.length - 1;
+        int slot = mix(hash) & mask;
+
+        // Probe until an empty slot or a matching word is found
+        int id;
+        while ((id = this.slots[slot] - 1) >= 0) {
+            if (this.hashes[id] == hash
+                    && equals(id, chars, offset, length)) {
+                this.counts[id] += count;
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // Copy word characters into arena and insert into found slot
+        int start = reserve(length);
+        System.arraycopy(chars, offset, this.characters, start, length);
+        return insert(slot, hash, length, count);
+    }
+
+    /**
+     * Method used to get and return the id of a word.
+     * @param word String containing word to find.
+     * @return Integer id of word, or -1 if the word has not been counted.
+     */
+    public int indexOf(String word) {
+        int hash = word.hashCode();
+        int mask = this.slots.length - 1;
+        int slot = mix(hash) & mask;
+
+        // Probe until an empty slot or a matching word is found
+        int id;
+        while ((id = this.slots[slot] - 1) >= 0) {
+            if (this.hashes[id] == hash && equals(id, word))
+                return id;
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Accessor method used to get and return the number of unique
+     *  words counted.
+     * @return Integer number of unique words.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Accessor method used to get and return the word with the passed
+     *  in id as a new string.
+     * @param id Integer id of word.
+     * @return String containing word.
+     */
+    @Override
+    public String getWord(int id) {
+        return new String(this.characters, this.offsets[id],
+                this.offsets[id + 1] - this.offsets[id]);
+    }
+
+    /**
+     * Method used to append the characters of the word with the passed
+     *  in id to a builder.
+     * @param id Integer id of word.
+     * @param builder StringBuilder object to append to.
+     */
+    @Override
+    public void appendWord(int id, StringBuilder builder) {
+        builder.append(this.characters, this.offsets[id],
+                this.offsets[id + 1] - this.offsets[id]);
+    }
+
+    /**
+     * Method used to get the id of a word, adding it with a count of 0
+     *  if it has not been seen before, so the counter can be used as a
+     *  table of unique words.
+     * @param word String containing word to find or add.
+     * @return Integer id of the word.
+     */
+    public int intern(String word) {
+        return increment(word, 0);
+    }
+
+    /**
+     * Accessor method used to get and return the number of characters
+     *  in the word with the passed in id.
+     * @param id Integer id of word.
+     * @return Integer length of word.
+     */
+    public int getLength(int id) {
+        return this.offsets[id + 1] - this.offsets[id];
+    }
+
+    /**
+     * Accessor method used to get and return a character of the word
+     *  with the passed in id, without creating a string of the word.
+     * @param id Integer id of word.
+     * @param index Integer position of character within word.
+     * @return Char at position of word.
+     */
+    public char charAt(int id, int index) {
+        return this.characters[this.offsets[id] + index];
+    }
+
+    /**
+     * Method used to find the first position at which two words differ.
+     * @param a Integer id of first word.
+     * @param b Integer id of second word.
+     * @return Integer position of first differing character, or the
+     *  length of the shorter word if it prefixes the other.
+     */
+    public int mismatch(int a, int b) {
+        int startA = this.offsets[a];
+        int startB = this.offsets[b];
+        int length = Math.min(this.offsets[a + 1] - startA,
+                this.offsets[b + 1] - startB);
+
+        for (int i = 0; i < length; i++)
+            if (this.characters[startA + i] != this.characters[startB + i])
+                return i;
+        return length;
+    }
+
+    /**
+     * Method used to check if the word with the passed in id starts with
+     *  a prefix, without creating a string of the word.
+     * @param id Integer id of word.
+     * @param prefix String containing prefix to check.
+     * @return Boolean true if the word starts with the prefix, false
+     *  otherwise.
+     */
+    public boolean startsWith(int id, String prefix) {
+        int start = this.offsets[id];
+        if (prefix.length() > this.offsets[id + 1] - start)
+            return false;
+
+        for (int i = 0; i < prefix.length(); i++)
+            if (this.characters[start + i] != prefix.charAt(i))
+                return false;
+        return true;
+    }
+
+    /**
+     * Accessor method used to get and return the frequency count of the
+     *  word with the passed in id.
+     * @param id Integer id of word.
+     * @return Integer frequency count of word.
+     */
+    public int getCount(int id) {
+        return this.counts[id];
+    }
+
+    /**
+     * Method used to add the counts of every word in another word
+     *  counter, so counts made over separate parts of a corpus can be
+     *  merged. New words are given ids in the order the other counter
+     *  first saw them.
+     * @param counter WordCounter object containing counts to add.
+     */
+    public void addAll(WordCounter counter) {
+        for (int id = 0; id < counter.size; id++) {
+            int offset = counter.offsets[id];
+            increment(counter.characters, offset,
+                    counter.offsets[id + 1] - offset, counter.counts[id]);
+        }
+    }
+
+    /**
+     * Method used to clear all counted words, keeping the allocated
+     *  storage for reuse.
+     */
+    public void clear() {
+        Arrays.fill(this.slots, 0);
+        this.size = 0;
+    }
+
+    /**
+     * Method used to store a new word whose characters have already been
+     *  copied to the end of the arena.
+     * @param slot Integer empty slot position to insert into.
+     * @param hash Integer hash code of word.
+     * @param length Integer number of characters in word.
+     * @param count Integer starting frequency count of word.
+     * @return Integer id of the new word.
+     */
+    private int insert(int slot, int hash, int length, int count) {
+        int id = this.size++;
+        this.slots[slot] = id + 1;
+        this.hashes[id] = hash;
+        this.counts[id] = count;
+        this.offsets[id + 1] = this.offsets[id] + length;
+
+        // Grow table once it becomes half full
+        if (this.size == this.hashes.length)
+            grow();
+
+        return id;
+    }
+
+    /**
+     * Method used to make sure the arena has room for another word.
+     * @param length Integer number of characters needed.
+     * @return Integer start position of the reserved space.
+     */
+    private int reserve(int length) {
+        int start = this.offsets[this.size];
+        if (start + length > this.characters.length) {
+            // Double arena size, or more if the word is very long
+            int capacity = Math.max(this.characters.length * 2,
+                    start + length);
+            this.characters = Arrays.copyOf(this.characters,
+                    capacity);
+        }
+        return start;
+    }
+
+    /**
+     * Method used to double the number of hash slots and rehash all
+     *  words using their cached hash codes.
+     */
+    private void grow() {
+        int capacity = this.slots.length * 2;
+        int mask = capacity - 1;
+        int[] slots = new int[capacity];
+
+        // Reinsert every word id into the larger table
+        for (int id = 0; id < this.size; id++) {
+            int slot = mix(this.hashes[id]) & mask;
+            while (slots[slot] != 0)
+                slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+
+        this.slots = slots;
+        this.hashes = Arrays.copyOf(this.hashes, capacity / 2);
+        this.counts = Arrays.copyOf(this.counts, capacity / 2);
+        this.offsets = Arrays.copyOf(this.offsets,
+                capacity / 2 + 1);
+    }
+
+    /**
+     * Method used to check if the stored word with the passed in id
+     *  equals a string.
+     * @param id Integer id of stored word.
+     * @param word String to compare against.
+     * @return Boolean true if both words are equal, false otherwise.
+     */
+    private boolean equals(int id, String word) {
+        int start = this.offsets[id];
+        int length = this.offsets[id + 1] - start;
+        if (length != word.length())
+            return false;
+
+        for (int i = 0; i < length; i++)
+            if (this.characters[start + i] != word.charAt(i))
+                return false;
+        return true;
+    }
+
+    /**
+     * Method used to check if the stored word with the passed in id
+     *  equals a range of a character array.
+     * @param id Integer id of stored word.
+     * @param chars Character array containing word to compare against.
+     * @param offset Integer position of first word character.
+     * @param length Integer number of characters in word.
+     * @return Boolean true if both words are equal, false otherwise.
+     */
+    private boolean equals(int id, char[] chars, int offset, int length) {
+        int start = this.offsets[id];
+        if (length != this.offsets[id + 1] - start)
+            return false;
+
+        for (int i = 0; i < length; i++)
+            if (this.characters[start + i] != chars[offset + i])
+                return false;
+        return true;
+    }
+
+    /**
+     * Method used to calculate the hash code of a range of a character
+     *  array, matching String.hashCode for the same characters.
+     * @param chars Character array containing word.
+     * @param offset Integer position of first word character.
+     * @param length Integer number of characters in word.
+     * @return Integer hash code.
+     */
+    private static int hash(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++)
+            hash = 31 * hash + chars[i];
+        return hash;
+    }
+
+    /**
+     * Method used to spread the bits of a hash code so that the low
+     *  bits used to pick a slot depend on the whole hash.
+     * @param hash Integer hash code to mix.
+     * @return Integer mixed hash code.
+     */
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
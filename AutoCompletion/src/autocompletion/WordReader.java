@@ -0,0 +1,351 @@
+package autocompletion;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Class: WordReader.java
+ * Description: Class used to read words from a UTF-8 comma, space or
+ *  line separated text channel in large buffers, normalising and
+ *  counting each word as it is read so the tokens of the text are never
+ *  held in memory. A reader may also count the n-grams of each line as
+ *  its words are counted.
+ * Author: Paulo Jorge.
+ */
+public class WordReader {
+    // Default number of bytes read from the channel at a time
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    // Number of bytes read past the end of a range to finish its last word
+    private static final int TAIL_SIZE = 256;
+
+    // Alphabet used to normalise each word
+    private final Alphabet alphabet;
+    // Counter of n-grams of words read, or null to count none
+    private final NGramCounter ngrams;
+    // Buffer bytes are read into
+    private final ByteBuffer buffer;
+    // Bytes and characters of the word currently being read
+    private byte[] bytes = new byte[64];
+    private char[] chars = new char[64];
+    // Number of bytes, words and nanoseconds spent reading so far
+    private long bytesRead = 0;
+    private long wordsRead = 0;
+    private long nanos = 0;
+
+    /**
+     * Default constructor used to initialise a new word reader that
+     *  converts words to lower case, as MakeDictionary.readWordsFromCSV
+     *  does.
+     */
+    public WordReader() {
+        this(Alphabet.LOWER_CASE, DEFAULT_BUFFER_SIZE, null);
+    }
+
+    /**
+     * Constructor used to initialise a new word reader that converts
+     *  words to lower case and counts the n-grams of every line read.
+     * @param ngrams NGramCounter object to count n-grams with, keyed by
+     *  the word ids of the word counter read into.
+     */
+    public WordReader(NGramCounter ngrams) {
+        this(Alphabet.LOWER_CASE, DEFAULT_BUFFER_SIZE, ngrams);
+    }
+
+    /**
+     * Constructor used to initialise a new word reader.
+     * @param alphabet Alphabet object used to normalise each word.
+     * @param bufferSize Integer number of bytes to read at a time.
+     */
+    public WordReader(Alphabet alphabet, int bufferSize) {
+        this(alphabet, bufferSize, null);
+    }
+
+    /**
+     * Constructor used to initialise a new word reader that may count
+     *  n-grams. N-grams are only counted by reading a whole channel,
+     *  since a range of a file does not know the words before it.
+     * @param alphabet Alphabet object used to normalise each word.
+     * @param bufferSize Integer number of bytes to read at a time.
+     * @param ngrams NGramCounter object to count n-grams with, or null to
+     *  count none.
+     */
+    public WordReader(Alphabet alphabet, int bufferSize,
+            NGramCounter ngrams) {
+        this.alphabet = alphabet;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.ngrams = ngrams;
+    }
+
+    /**
+     * Method used to read and count every word in a file.
+     * @param file String location of file to read from.
+     * @param counter WordCounter object to count words with.
+     * @throws IOException If the file cannot be read.
+     */
+    public void read(String file, WordCounter counter) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r");
+                FileChannel channel = input.getChannel()) {
+            read(channel, counter);
+        }
+    }
+
+    /**
+     * Method used to read and count every word in a channel until it
+     *  reaches its end. Words are separated by commas and whitespace,
+     *  and n-grams do not span a line feed.
+     * @param channel ReadableByteChannel to read from.
+     * @param counter WordCounter object to count words with.
+     * @throws IOException If the channel cannot be read.
+     */
+    public void read(ReadableByteChannel channel, WordCounter counter)
+            throws IOException {
+        long start = System.nanoTime();
+        byte[] data = this.buffer.array();
+        int length = 0;
+
+        // Read buffer fulls until end of channel
+        int read;
+        while ((read = fill(channel)) >= 0) {
+            long time = Metrics.startPhase();
+            this.bytesRead += read;
+            int end = this.buffer.position();
+            for (int i = 0; i < end; i++) {
+                byte b = data[i];
+
+                // Separator ends current word, and line feed ends phrase
+                if (isSeparator(b)) {
+                    if (length > 0)
+                        next(count(length, counter));
+                    length = 0;
+                    if (b == '\n' && this.ngrams != null)
+                        this.ngrams.endPhrase();
+                    continue;
+                }
+
+                // Else, add byte to current word, growing if needed
+                if (length == this.bytes.length)
+                    this.bytes = Arrays.copyOf(this.bytes, length * 2);
+                this.bytes[length++] = b;
+            }
+            Metrics.COUNT.recordSince(time);
+        }
+
+        // Count final word if channel does not end with a separator
+        if (length > 0)
+            next(count(length, counter));
+        if (this.ngrams != null)
+            this.ngrams.endPhrase();
+
+        this.nanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Method used to read and count the words of a file that start
+     *  within a range of bytes, so that a file split into adjacent ranges
+     *  counts every word exactly once. Reads stop a few bytes past the
+     *  end of the range, reading further only while the last word is
+     *  unfinished, and only bytes within the range count as read.
+     * @param channel FileChannel to read from.
+     * @param start Long position of first byte of range.
+     * @param end Long position following last byte of range.
+     * @param counter WordCounter object to count words with.
+     * @throws IOException If the channel cannot be read.
+     */
+    public void read(FileChannel channel, long start, long end,
+            WordCounter counter) throws IOException {
+        long begin = System.nanoTime();
+        byte[] data = this.buffer.array();
+        int length = 0;
+
+        // Words already started before the range belong to the previous
+        // range, so skip their remaining bytes
+        boolean skipping = start > 0 && !isSeparator(readByte(channel,
+                start - 1));
+
+        long position = start;
+        boolean ended = false;
+        int read;
+        while (!ended && (read = fill(channel, position,
+                Math.max(end - position, 0) + TAIL_SIZE)) >= 0) {
+            long time = Metrics.startPhase();
+            for (int i = 0; i < read; i++, position++) {
+                byte b = data[i];
+
+                // Separator ends current word, stop at first separator
+                // outside range
+                if (isSeparator(b)) {
+                    if (length > 0)
+                        count(length, counter);
+                    length = 0;
+                    skipping = false;
+                    if (position >= end) {
+                        ended = true;
+                        break;
+                    }
+                    continue;
+                }
+
+                // Skip rest of previous ranges word
+                if (skipping)
+                    continue;
+
+                // Stop before words starting outside range
+                if (length == 0 && position >= end) {
+                    ended = true;
+                    break;
+                }
+
+                // Else, add byte to current word, growing if needed
+                if (length == this.bytes.length)
+                    this.bytes = Arrays.copyOf(this.bytes, length * 2);
+                this.bytes[length++] = b;
+            }
+            Metrics.COUNT.recordSince(time);
+        }
+
+        // Count final word if file does not end with a separator
+        if (!ended && length > 0)
+            count(length, counter);
+
+        this.bytesRead += Math.min(position, end) - start;
+        this.nanos += System.nanoTime() - begin;
+    }
+
+    /**
+     * Method used to fill the emptied buffer from a channel.
+     * @param channel ReadableByteChannel to read from.
+     * @return Integer number of bytes read, or -1 at end of channel.
+     * @throws IOException If the channel cannot be read.
+     */
+    private int fill(ReadableByteChannel channel) throws IOException {
+        long time = Metrics.startPhase();
+        this.buffer.clear();
+        int read = channel.read(this.buffer);
+        Metrics.READ.recordSince(time);
+        return read;
+    }
+
+    /**
+     * Method used to fill the emptied buffer from a position of a file,
+     *  reading no more than a number of bytes.
+     * @param channel FileChannel to read from.
+     * @param position Long position of first byte to read.
+     * @param limit Long maximum number of bytes to read.
+     * @return Integer number of bytes read, or -1 at end of file.
+     * @throws IOException If the channel cannot be read.
+     */
+    private int fill(FileChannel channel, long position, long limit)
+            throws IOException {
+        long time = Metrics.startPhase();
+        this.buffer.clear();
+        if (limit < this.buffer.capacity())
+            this.buffer.limit((int)limit);
+        int read = channel.read(this.buffer, position);
+        Metrics.READ.recordSince(time);
+        return read;
+    }
+
+    /**
+     * Method used to read a single byte of a file.
+     * @param channel FileChannel to read from.
+     * @param position Long position of byte.
+     * @return Byte read.
+     * @throws IOException If the channel cannot be read.
+     */
+    private static byte readByte(FileChannel channel, long position)
+            throws IOException {
+        ByteBuffer single = ByteBuffer.allocate(1);
+        channel.read(single, position);
+        return single.get(0);
+    }
+
+    /**
+     * Method used to check if a byte separates words.
+     * @param b Byte to check.
+     * @return Boolean true if byte is a comma or whitespace.
+     */
+    private static boolean isSeparator(byte b) {
+        return b == ',' || (b >= 0 && b <= ' ');
+    }
+
+    /**
+     * Method used to pass the id of a word read to the n-gram counter,
+     *  if any. A dropped word ends the phrase, so no n-gram joins the
+     *  words either side of it as if they were adjacent.
+     * @param id Integer id of word, or -1 if the word was dropped.
+     */
+    private void next(int id) {
+        if (this.ngrams == null)
+            return;
+        if (id >= 0)
+            this.ngrams.add(id);
+        else
+            this.ngrams.endPhrase();
+    }
+
+    /**
+     * Method used to normalise and count the current word.
+     * @param length Integer number of bytes in word.
+     * @param counter WordCounter object to count word with.
+     * @return Integer id of counted word, or -1 if normalising left
+     *  nothing to count.
+     */
+    private int count(int length, WordCounter counter) {
+        if (length > this.chars.length)
+            this.chars = new char[this.bytes.length];
+
+        // Convert ASCII words in place without creating strings
+        boolean lowerCase = this.alphabet.isLowerCase();
+        for (int i = 0; i < length; i++) {
+            byte b = this.bytes[i];
+            char character = (char)b;
+            if (lowerCase && character >= 'A' && character <= 'Z')
+                character += 'a' - 'A';
+
+            // Decode and normalise words containing other characters
+            if (b < 0 || !this.alphabet.accepts(character)) {
+                String word = this.alphabet.normalize(new String(
+                        this.bytes, 0, length, StandardCharsets.UTF_8));
+                if (word.isEmpty())
+                    return -1;
+                this.wordsRead++;
+                return counter.increment(word);
+            }
+
+            this.chars[i] = character;
+        }
+
+        this.wordsRead++;
+        return counter.increment(this.chars, 0, length);
+    }
+
+    /**
+     * Accessor method used to get and return the number of bytes read.
+     * @return Long number of bytes.
+     */
+    public long getBytesRead() {
+        return this.bytesRead;
+    }
+
+    /**
+     * Accessor method used to get and return the number of words read.
+     * @return Long number of words.
+     */
+    public long getWordsRead() {
+        return this.wordsRead;
+    }
+
+    /**
+     * Method used to get the rate bytes have been read and counted.
+     * @return Double throughput in megabytes per second.
+     */
+    public double getThroughput() {
+        return this.nanos == 0 ? 0
+                : this.bytesRead / (this.nanos / 1e9) / (1 << 20);
+    }
+}
@@ -0,0 +1,129 @@
+package autocompletion;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Class: WordSpliterator.java
+ * Description: Class used to walk the word nodes below a trie node in
+ *  lexicographic order, a word before the words it prefixes, so that
+ *  the words of a trie can be streamed. Nodes waiting to be walked are
+ *  kept on a stack, and splitting hands the sub tries on top of the
+ *  stack, which come first, to a new spliterator so a parallel stream
+ *  walks separate sub tries on separate threads.
+ * Author: Paulo Jorge.
+ */
+public class WordSpliterator implements Spliterator<TrieNode> {
+    // Nodes whose sub tries are still to be walked, next on top
+    private TrieNode[] stack;
+    private int size = 0;
+    // Estimated number of words left, halved on every split
+    private long estimate;
+
+    /**
+     * Constructor used to initialise a new spliterator over every word
+     *  below a node, excluding the node itself.
+     * @param root TrieNode object whose sub trie to walk.
+     */
+    public WordSpliterator(TrieNode root) {
+        this.stack = new TrieNode[64];
+        this.estimate = Long.MAX_VALUE;
+        pushOffsprings(root);
+    }
+
+    /**
+     * Constructor used to initialise a new spliterator over sub tries
+     *  split from another.
+     * @param stack Array of type TrieNode holding sub tries, next on top.
+     * @param estimate Long estimated number of words.
+     */
+    private WordSpliterator(TrieNode[] stack, long estimate) {
+        this.stack = stack;
+        this.size = stack.length;
+        this.estimate = estimate;
+    }
+
+    /**
+     * Method used to push the offsprings of a node, so the lowest
+     *  character is on top.
+     * @param node TrieNode object whose offsprings to push.
+     */
+    private void pushOffsprings(TrieNode node) {
+        TrieNode[] offsprings = node.getOffsprings();
+        if (this.size + offsprings.length > this.stack.length)
+            this.stack = Arrays.copyOf(this.stack, Math.max(
+                    this.stack.length * 2, this.size + offsprings.length));
+
+        for (int i = offsprings.length - 1; i >= 0; i--)
+            if (offsprings[i] != null)
+                this.stack[this.size++] = offsprings[i];
+    }
+
+    /**
+     * Method used to pass the next word node to an action.
+     * @param action Consumer to pass the node to.
+     * @return Boolean true if a node was passed, false if none are left.
+     */
+    @Override
+    public boolean tryAdvance(Consumer<? super TrieNode> action) {
+        while (this.size > 0) {
+            TrieNode node = this.stack[--this.size];
+            this.stack[this.size] = null;
+            pushOffsprings(node);
+
+            if (node.getIsLeaf()) {
+                action.accept(node);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Method used to hand the first half of the sub tries left to a new
+     *  spliterator.
+     * @return WordSpliterator object walking the words before those left
+     *  to this one, or null if the words left cannot be split.
+     */
+    @Override
+    public Spliterator<TrieNode> trySplit() {
+        // Split a single sub trie into its offsprings, unless its root
+        // is a word that must come before them
+        if (this.size == 1 && !this.stack[0].getIsLeaf()) {
+            TrieNode node = this.stack[0];
+            this.stack[--this.size] = null;
+            pushOffsprings(node);
+        }
+
+        if (this.size < 2)
+            return null;
+
+        int half = this.size / 2;
+        TrieNode[] first = Arrays.copyOfRange(this.stack, half, this.size);
+        Arrays.fill(this.stack, half, this.size, null);
+        this.size = half;
+        this.estimate >>>= 1;
+        return new WordSpliterator(first, this.estimate);
+    }
+
+    /**
+     * Method used to estimate the number of words left.
+     * @return Long estimated number of words, or Long.MAX_VALUE if
+     *  unknown.
+     */
+    @Override
+    public long estimateSize() {
+        return this.estimate;
+    }
+
+    /**
+     * Method used to get the characteristics of the walked nodes.
+     * @return Integer characteristics, ordered, distinct and non null.
+     */
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | NONNULL;
+    }
+}
@@ -0,0 +1,25 @@
+package autocompletion;
+
+/**
+ * Class: WordTable.java
+ * Description: Interface implemented by anything holding words by
+ *  integer id, so results can hold word ids and decode them only when
+ *  they are read or written.
+ * Author: Paulo Jorge.
+ */
+public interface WordTable {
+    /**
+     * Method used to decode a word to a new string.
+     * @param id Integer id of word.
+     * @return String containing word.
+     */
+    String getWord(int id);
+
+    /**
+     * Method used to append the characters of a word to a builder,
+     *  without creating a string of the word.
+     * @param id Integer id of word.
+     * @param builder StringBuilder object to append to.
+     */
+    void appendWord(int id, StringBuilder builder);
+}
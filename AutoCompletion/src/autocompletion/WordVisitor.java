@@ -0,0 +1,21 @@
+package autocompletion;
+
+/**
+ * Class: WordVisitor.java
+ * Description: Interface implemented to receive the words of a trie one
+ *  at a time as it is walked. Each word is passed in a buffer shared by
+ *  every call, so visiting a trie creates no strings; a visitor that
+ *  keeps a word must copy it.
+ * Author: Paulo Jorge.
+ */
+public interface WordVisitor {
+    /**
+     * Method called with each word visited.
+     * @param word Character array holding the word, which is overwritten
+     *  once this method returns.
+     * @param length Integer number of characters in word.
+     * @param frequency Integer frequency count of word.
+     * @return Boolean true to continue visiting words, false to stop.
+     */
+    boolean visit(char[] word, int length, int frequency);
+}
@@ -0,0 +1,110 @@
+package autocompletion;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Class: AlphabetTest.java
+ * Description: Test class used to check words are normalised by each
+ *  alphabet, and that tries hold words of any characters as they hold
+ *  lower case ones.
+ * Author: Paulo Jorge.
+ */
+public class AlphabetTest {
+    // Characters words are drawn from, including characters far apart so
+    // nodes are both sparse and dense, and a supplementary character
+    private static final String CHARACTERS = "abcdefghijklmnopqrstuvwxyz"
+            + "AZ09'-\u00e9\u00fc\u00df\u00e7\u00f1\u65e5\u672c\u8a9e"
+            + "\u0100\u0200\u0400\u0500\u0600\u0700\u0800\u0900"
+            + "\ud835\udc9c";
+
+    /**
+     * Method used to check words are trimmed, composed, lower cased and
+     *  filtered by whole code points.
+     */
+    @Test
+    public void normalizesWords() {
+        String word = "word";
+        assertSame(word, Alphabet.ANY.normalize(word));
+        assertSame(word, Alphabet.WORDS.normalize(word));
+        assertEquals("Ab c", Alphabet.ANY.normalize("  Ab c\t"));
+
+        assertEquals("caf\u00e9", Alphabet.WORDS.normalize("Cafe\u0301"));
+        assertEquals("don't", Alphabet.WORDS.normalize(" DON'T! "));
+        assertEquals("x-ray", Alphabet.WORDS.normalize("X-ray,"));
+        assertEquals("\ud835\udc9c1", Alphabet.WORDS.normalize(
+                "\ud835\udc9c1"));
+        assertEquals("ab", Alphabet.WORDS.normalize("a\ud83d\ude00b"));
+    }
+
+    /**
+     * Method used to check a trie of words drawn from many characters
+     *  completes as sorting its words does, and so does its compact trie.
+     */
+    @Test
+    public void trieHoldsAnyCharacter() {
+        Random random = new Random(TestCorpus.SEED);
+        Map<String, Integer> counts = new LinkedHashMap();
+        List<String> prefixes = new ArrayList();
+        prefixes.add("");
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int length = 1 + random.nextInt(4); length > 0; length--)
+                word.append(CHARACTERS.charAt(random.nextInt(
+                        CHARACTERS.length())));
+            Integer count = counts.get(word.toString());
+            counts.put(word.toString(), (count == null ? 0 : count)
+                    + 1 + random.nextInt(5));
+            prefixes.add(word.substring(0, 1));
+            prefixes.add(word.substring(0, Math.min(2, word.length())));
+        }
+
+        AutoCompletionTrie trie = new AutoCompletionTrie(5, Alphabet.ANY);
+        for (Map.Entry<String, Integer> entry : counts.entrySet())
+            trie.add(entry.getKey(), entry.getValue());
+        CompactTrie compact = new CompactTrie(trie);
+
+        CompletionResult expected = new CompletionResult(5);
+        CompletionResult actual = new CompletionResult(5);
+        for (String prefix : prefixes) {
+            TrieNodeTest.rank(counts, prefix, expected);
+            TrieAssert.assertSameResults(prefix, expected,
+                    trie.getCompletions(prefix, actual));
+            TrieAssert.assertSameResults(prefix, expected,
+                    compact.getCompletions(prefix, actual));
+        }
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            assertEquals(entry.getKey(), (int)entry.getValue(),
+                    trie.getFrequency(entry.getKey()));
+            assertEquals(entry.getKey(), (int)entry.getValue(),
+                    compact.getFrequency(entry.getKey()));
+        }
+    }
+
+    /**
+     * Method used to check a trie normalises words as they are added and
+     *  looked up.
+     */
+    @Test
+    public void trieNormalizesWords() {
+        AutoCompletionTrie trie = new AutoCompletionTrie(5, Alphabet.WORDS);
+        assertTrue(trie.add("Hello", 3));
+        assertFalse(trie.add(" hello! ", 2));
+        assertTrue(trie.add("Cafe\u0301", 1));
+
+        assertEquals(3, trie.getFrequency("HELLO"));
+        assertTrue(trie.contains("caf\u00e9"));
+        CompletionResult result = trie.getCompletions("HE", 5);
+        assertEquals(1, result.size());
+        assertEquals("hello", result.getWord(0));
+    }
+}
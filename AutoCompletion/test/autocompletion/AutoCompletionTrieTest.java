@@ -0,0 +1,208 @@
+package autocompletion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Class: AutoCompletionTrieTest.java
+ * Description: Test class used to check tries built from a dictionary
+ *  complete as tries built word by word without changing the
+ *  dictionary, and that every way of enumerating the words of a trie
+ *  agrees.
+ * Author: Paulo Jorge.
+ */
+public class AutoCompletionTrieTest {
+    private MakeDictionary mD;
+    private AutoCompletionTrie trie;
+
+    /**
+     * Method used to build a trie from a dictionary of a small corpus.
+     */
+    @Before
+    public void setUp() {
+        this.mD = new MakeDictionary();
+        this.mD.formDictionary(new TestCorpus(2000).nextTokens(50000));
+        this.trie = AutoCompletion.buildTrie(this.mD);
+    }
+
+    /**
+     * Method used to check a trie sharing the dictionary's word table
+     *  completes as a trie interning every word into its own table.
+     */
+    @Test
+    public void sharedTableMatchesOwnTable() {
+        AutoCompletionTrie own = new AutoCompletionTrie(5);
+        for (MakeDictionary.DictionaryWord word : this.mD.getDictionary())
+            own.add(word.getWord(), word.getFrequency());
+
+        TrieAssert.assertParity(own, this.trie,
+                TestCorpus.generatePrefixes(2));
+    }
+
+    /**
+     * Method used to check a trie sharing the dictionary's word table
+     *  adds words the table lacks to a copy, leaving the dictionary
+     *  unchanged.
+     */
+    @Test
+    public void sharedTableIsCopiedOnAdd() {
+        WordCounter table = this.mD.getWords();
+        int size = table.size();
+        String word = table.getWord(0);
+        assertTrue(this.trie.add("#missing", 7));
+        assertFalse(this.trie.add("#missing", 1));
+        assertFalse(this.trie.add(word, 1));
+
+        assertSame(table, this.mD.getWords());
+        assertEquals(size, table.size());
+        assertEquals(-1, table.indexOf("#missing"));
+        assertEquals(7, this.trie.getFrequency("#missing"));
+        assertEquals("#missing", this.trie.getCompletions("#",
+                5).getWord(0));
+        assertEquals(word, this.trie.getWords().getWord(0));
+        TrieAssert.assertParity(AutoCompletion.buildTrie(this.mD),
+                this.trie, TestCorpus.generatePrefixes(2));
+    }
+
+    /**
+     * Method used to check dictionary words differing only in
+     *  surrounding whitespace are stored once, as their trimmed word.
+     */
+    @Test
+    public void untrimmedWordsAreStoredOnce() {
+        MakeDictionary dictionary = new MakeDictionary();
+        ArrayList<String> words = new ArrayList();
+        Collections.addAll(words, " ab", "ab", "ab", "cd ");
+        dictionary.formDictionary(words);
+        AutoCompletionTrie trie = AutoCompletion.buildTrie(dictionary);
+
+        List<String> stored = trie.getAllWords();
+        Collections.sort(stored);
+        assertEquals(Arrays.asList("ab", "cd"), stored);
+        assertEquals(1, trie.getFrequency("ab"));
+        assertEquals(1, trie.getFrequency(" cd"));
+        assertEquals(2, trie.getCompletions("", 5).getTotal());
+        assertEquals(3, dictionary.size());
+    }
+
+    /**
+     * Method used to check words cannot be added through a sub trie.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void subTrieIsOnlyRead() {
+        String word = this.mD.getWords().getWord(0);
+        this.trie.getSubTrie(word.substring(0, 1)).add("zz", 1);
+    }
+
+    /**
+     * Method used to check a prefix found within a trie is a word only
+     *  when its completions say so, even for a word counted zero times.
+     */
+    @Test
+    public void prefixIsWordAsCompletions() {
+        AutoCompletionTrie own = new AutoCompletionTrie(5);
+        own.add("hello", 0);
+        own.add("help", 3);
+        for (String prefix : new String[] {"hel", "hello", "help"})
+            assertEquals(prefix, own.getCompletions(prefix, 5).isWord(),
+                    own.findPrefix(prefix).isWord());
+        assertFalse(own.findPrefix("hello").isWord());
+        assertTrue(own.findPrefix("help").isWord());
+    }
+
+    /**
+     * Method used to check listing, visiting and streaming every word
+     *  return the same words in order.
+     */
+    @Test
+    public void enumerationsAgree() {
+        List<String> expected = new ArrayList(this.trie.getAllWords());
+        Collections.sort(expected);
+        assertEquals(this.mD.size(), expected.size());
+
+        final List<String> visited = new ArrayList();
+        this.trie.visitWords(new WordVisitor() {
+            @Override
+            public boolean visit(char[] word, int length, int frequency) {
+                visited.add(new String(word, 0, length));
+                return true;
+            }
+        });
+        assertEquals(expected, visited);
+
+        Function<TrieNode, String> word = new Function<TrieNode, String>() {
+            @Override
+            public String apply(TrieNode node) {
+                return AutoCompletionTrieTest.this.trie.getWord(node);
+            }
+        };
+        assertEquals(expected, this.trie.streamWords().parallel().map(word)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Method used to check words visited by frequency are ranked as the
+     *  completions of the empty prefix are.
+     */
+    @Test
+    public void visitByFrequencyMatchesCompletions() {
+        final CompletionResult top = this.trie.getCompletions("", 5);
+        final List<String> visited = new ArrayList();
+        this.trie.visitWordsByFrequency(new WordVisitor() {
+            @Override
+            public boolean visit(char[] word, int length, int frequency) {
+                visited.add(new String(word, 0, length));
+                return visited.size() < top.size();
+            }
+        });
+
+        assertTrue(top.size() > 0);
+        assertEquals(top.size(), visited.size());
+        for (int i = 0; i < top.size(); i++)
+            assertEquals(top.getWord(i), visited.get(i));
+    }
+
+    /**
+     * Method used to check every word is visited by frequency, with its
+     *  frequency, in the order completions of a sub trie are ranked.
+     */
+    @Test
+    public void visitByFrequencyRanksEveryWord() {
+        AutoCompletionTrie subTrie = this.trie.getSubTrie("t");
+        CompletionResult all = this.trie.getCompletions("t",
+                subTrie.getAllWords().size() + 1);
+        final List<String> visited = new ArrayList();
+        final List<Integer> frequencies = new ArrayList();
+        assertTrue(subTrie.visitWordsByFrequency(new WordVisitor() {
+            @Override
+            public boolean visit(char[] word, int length, int frequency) {
+                visited.add("t" + new String(word, 0, length));
+                frequencies.add(frequency);
+                return true;
+            }
+        }));
+
+        // Prefix itself is a completion but not a suffix of the sub trie
+        List<String> expected = new ArrayList();
+        List<Integer> expectedFrequencies = new ArrayList();
+        for (int i = 0; i < all.size(); i++)
+            if (!all.getWord(i).equals("t")) {
+                expected.add(all.getWord(i));
+                expectedFrequencies.add(all.getFrequency(i));
+            }
+        assertTrue(expected.size() > 1);
+        assertEquals(expected, visited);
+        assertEquals(expectedFrequencies, frequencies);
+    }
+}
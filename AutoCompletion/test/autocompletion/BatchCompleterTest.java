@@ -0,0 +1,36 @@
+package autocompletion;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Class: BatchCompleterTest.java
+ * Description: Test class used to check a batch completer answers every
+ *  prefix, in order, as completing them one after another does.
+ * Author: Paulo Jorge.
+ */
+public class BatchCompleterTest {
+    /**
+     * Method used to check a batch of repeated and shared prefixes.
+     */
+    @Test
+    public void matchesSingleCompletions() {
+        TestCorpus corpus = new TestCorpus(2000);
+        AutoCompletionTrie trie = AutoCompletion.buildTrie(
+                corpus.nextTokens(50000));
+        ArrayList<String> prefixes = corpus.nextPrefixes(20000, 4);
+
+        CompletionResult[] results = new BatchCompleter(trie,
+                ForkJoinPool.commonPool(), 5).complete(prefixes);
+        assertEquals(prefixes.size(), results.length);
+        for (int i = 0; i < results.length; i++) {
+            String prefix = prefixes.get(i);
+            assertEquals(prefix, results[i].getPrefix());
+            TrieAssert.assertSameResults(prefix,
+                    trie.getCompletions(prefix, 5), results[i]);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package autocompletion;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Class: CompactTrieTest.java
+ * Description: Test class used to check compact tries, on the heap, in
+ *  direct memory and mapped from a snapshot, complete as the tries they
+ *  were flattened from, and that damaged snapshots are refused.
+ * Author: Paulo Jorge.
+ */
+public class CompactTrieTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Method used to build a trie from a small corpus.
+     * @param completionLimit Integer number of completions to store at
+     *  every node, or 0 to store none.
+     * @return AutoCompletionTrie object containing every corpus word.
+     */
+    private static AutoCompletionTrie buildTrie(int completionLimit) {
+        AutoCompletionTrie trie = new AutoCompletionTrie(completionLimit);
+        WordCounter counter = new WordCounter();
+        for (String word : new TestCorpus(2000).nextTokens(50000))
+            counter.increment(word);
+        for (int id = 0; id < counter.size(); id++)
+            trie.add(counter.getWord(id), counter.getCount(id));
+        return trie;
+    }
+
+    /**
+     * Method used to check heap and direct compact tries.
+     */
+    @Test
+    public void matchesTrie() {
+        String[] prefixes = TestCorpus.generatePrefixes(2);
+        for (int limit = 0; limit <= 5; limit += 5) {
+            AutoCompletionTrie trie = buildTrie(limit);
+            TrieAssert.assertParity(trie, new CompactTrie(trie), prefixes);
+            TrieAssert.assertParity(trie, CompactTrie.allocateDirect(trie),
+                    prefixes);
+        }
+    }
+
+    /**
+     * Method used to check a saved snapshot maps back to the same trie.
+     * @throws IOException If the snapshot cannot be written or read.
+     */
+    @Test
+    public void snapshotMatchesTrie() throws IOException {
+        AutoCompletionTrie trie = buildTrie(5);
+        File file = new File(this.folder.getRoot(), "words.trie");
+        new CompactTrie(trie).save(file.getPath());
+
+        TrieAssert.assertParity(trie, CompactTrie.open(file.getPath()),
+                TestCorpus.generatePrefixes(2));
+    }
+
+    /**
+     * Method used to check a snapshot keeps the alphabet of its trie, and
+     *  refuses to open with another.
+     * @throws IOException If the snapshot cannot be written or read.
+     */
+    @Test
+    public void snapshotKeepsAlphabet() throws IOException {
+        AutoCompletionTrie trie = new AutoCompletionTrie(5, Alphabet.WORDS);
+        trie.add("Hello", 3);
+        trie.add("help", 2);
+        File file = new File(this.folder.getRoot(), "words.trie");
+        new CompactTrie(trie).save(file.getPath());
+
+        CompactTrie compact = CompactTrie.open(file.getPath());
+        assertSame(Alphabet.WORDS, compact.getAlphabet());
+        assertEquals(3, compact.getFrequency("HELLO!"));
+        try {
+            CompactTrie.open(file.getPath(), Alphabet.ANY);
+            fail("Opened with another alphabet");
+        } catch (IOException exception) {
+            // Expected
+        }
+    }
+
+    /**
+     * Method used to check saving over a mapped snapshot leaves the old
+     *  mapping readable and no temporary file behind.
+     * @throws IOException If the snapshot cannot be written or read.
+     */
+    @Test
+    public void saveReplacesSnapshot() throws IOException {
+        AutoCompletionTrie trie = new AutoCompletionTrie(5);
+        trie.add("hello", 3);
+        File file = new File(this.folder.getRoot(), "words.trie");
+        new CompactTrie(trie).save(file.getPath());
+        CompactTrie old = CompactTrie.open(file.getPath());
+
+        trie.add("helm", 9);
+        new CompactTrie(trie).save(file.getPath());
+        assertEquals(3, old.getFrequency("hello"));
+        assertEquals(0, old.getFrequency("helm"));
+        assertEquals(9, CompactTrie.open(file.getPath()).getFrequency(
+                "helm"));
+        assertArrayEquals(new String[] {"words.trie"},
+                this.folder.getRoot().list());
+    }
+
+    /**
+     * Method used to check truncated snapshots, snapshots of an older
+     *  version, and a snapshot whose header claims more nodes than it
+     *  holds, are refused.
+     * @throws IOException If the snapshot cannot be written or read.
+     */
+    @Test
+    public void damagedSnapshotIsRefused() throws IOException {
+        File file = new File(this.folder.getRoot(), "words.trie");
+        new CompactTrie(buildTrie(5)).save(file.getPath());
+        byte[] bytes = Files.readAllBytes(file.toPath());
+
+        File damaged = new File(this.folder.getRoot(), "damaged.trie");
+        for (int length : new int[] {0, 10, 20, 40, bytes.length - 1}) {
+            Files.write(damaged.toPath(), Arrays.copyOf(bytes, length));
+            assertRefused(damaged);
+        }
+
+        bytes[4] = 2;
+        Files.write(damaged.toPath(), bytes);
+        assertRefused(damaged);
+        bytes[4] = 3;
+
+        bytes[8] = (byte)0xff;
+        bytes[9] = (byte)0xff;
+        bytes[10] = (byte)0xff;
+        bytes[11] = (byte)0x7f;
+        Files.write(damaged.toPath(), bytes);
+        assertRefused(damaged);
+    }
+
+    /**
+     * Method used to check a snapshot whose sub trie ranges do not nest
+     *  is refused rather than walked out of bounds or forever.
+     * @throws IOException If the snapshot cannot be written or read.
+     */
+    @Test
+    public void corruptRangesAreRefused() throws IOException {
+        File file = new File(this.folder.getRoot(), "words.trie");
+        new CompactTrie(buildTrie(5)).save(file.getPath());
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        ByteBuffer buffer = ByteBuffer.wrap(bytes)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        // Find the ends array after the header, alphabet and characters
+        int size = buffer.getInt(8);
+        int punctuation = Math.max(buffer.getInt(24), 0);
+        int ends = 16 + ((12 + 2 * punctuation + 7) & ~7)
+                + ((2 * size + 7) & ~7);
+        assertEquals(size, buffer.getInt(ends));
+
+        File damaged = new File(this.folder.getRoot(), "damaged.trie");
+        int end = buffer.getInt(ends + 4);
+        for (int value : new int[] {1, 0, -1, size + 1}) {
+            buffer.putInt(ends + 4, value);
+            Files.write(damaged.toPath(), bytes);
+            assertRefused(damaged);
+        }
+
+        // Second offspring of the root ending at itself, then the last
+        // node of the first offspring ending past it
+        buffer.putInt(ends + 4, end);
+        int next = buffer.getInt(ends + 4 * end);
+        buffer.putInt(ends + 4 * end, end);
+        Files.write(damaged.toPath(), bytes);
+        assertRefused(damaged);
+        buffer.putInt(ends + 4 * end, next);
+        buffer.putInt(ends + 4 * (end - 1), end + 1);
+        Files.write(damaged.toPath(), bytes);
+        assertRefused(damaged);
+    }
+
+    /**
+     * Method used to assert a snapshot cannot be opened.
+     * @param file File object of snapshot.
+     */
+    private static void assertRefused(File file) {
+        try {
+            CompactTrie.open(file.getPath());
+            fail("Opened damaged snapshot of " + file.length() + " bytes");
+        } catch (IOException exception) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package autocompletion;
+
+import java.util.ArrayList;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Class: CompletionCacheTest.java
+ * Description: Test class used to check queries answered through a
+ *  completion cache match queries answered by the trie alone, even as
+ *  the trie changes.
+ * Author: Paulo Jorge.
+ */
+public class CompletionCacheTest {
+    /**
+     * Method used to check cached results with a cache small enough to
+     *  evict.
+     */
+    @Test
+    public void matchesUncached() {
+        TestCorpus corpus = new TestCorpus(2000);
+        AutoCompletionTrie trie = AutoCompletion.buildTrie(
+                corpus.nextTokens(50000));
+        ArrayList<String> prefixes = corpus.nextPrefixes(20000, 4);
+
+        CompletionCache cache = new CompletionCache(64);
+        assertEquals(AutoCompletion.wordAutoCompletion(trie, prefixes),
+                AutoCompletion.wordAutoCompletion(trie, prefixes, cache));
+        assertTrue(cache.getHits() > 0);
+        assertTrue(cache.getEvictions() > 0);
+    }
+
+    /**
+     * Method used to check results cached before words are added to a
+     *  trie are not returned afterwards.
+     */
+    @Test
+    public void addingWordsInvalidates() {
+        AutoCompletionTrie trie = new AutoCompletionTrie(5);
+        trie.add("hello", 1);
+        ArrayList<String> prefixes = new ArrayList();
+        prefixes.add("he");
+
+        CompletionCache cache = new CompletionCache(64);
+        AutoCompletion.wordAutoCompletion(trie, prefixes, cache);
+        trie.add("help", 2);
+        assertEquals(AutoCompletion.wordAutoCompletion(trie, prefixes),
+                AutoCompletion.wordAutoCompletion(trie, prefixes, cache));
+        assertEquals(1, cache.getInvalidations());
+    }
+
+    /**
+     * Method used to check an older version neither clears the cache nor
+     *  is cached, and is not answered from newer entries.
+     */
+    @Test
+    public void versionsOnlyMoveForward() {
+        CompletionCache cache = new CompletionCache(64);
+        CompletionCache.Entry entry = new CompletionCache.Entry(true, "");
+        assertTrue(cache.put("a", 2, entry));
+
+        assertNull(cache.get("a", 1));
+        assertFalse(cache.put("b", 1, entry));
+        assertSame(entry, cache.get("a", 2));
+        assertNull(cache.get("b", 2));
+        assertEquals(0, cache.getInvalidations());
+
+        assertNull(cache.get("a", 3));
+        assertEquals(1, cache.getInvalidations());
+        assertEquals(0, cache.size());
+    }
+}
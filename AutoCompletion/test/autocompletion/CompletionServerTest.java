@@ -0,0 +1,57 @@
+package autocompletion;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Class: CompletionServerTest.java
+ * Description: Test class used to check a completion server answers
+ *  pipelined requests as wordAutoCompletion does.
+ * Author: Paulo Jorge.
+ */
+public class CompletionServerTest {
+    /**
+     * Method used to pipeline every prefix on one connection and compare
+     *  each response line.
+     * @throws IOException If the server or the connection fails.
+     */
+    @Test(timeout = 60000)
+    public void matchesWordAutoCompletion() throws IOException {
+        TestCorpus corpus = new TestCorpus(2000);
+        CompactTrie trie = new CompactTrie(AutoCompletion.buildTrie(
+                corpus.nextTokens(50000)));
+        ArrayList<String> prefixes = corpus.nextPrefixes(10000, 3);
+        ArrayList<String> expected = AutoCompletion.wordAutoCompletion(
+                trie, prefixes);
+
+        try (CompletionServer server = new CompletionServer(trie,
+                CompletionServer.DEFAULT_LIMIT, 0)) {
+            server.start();
+            try (Socket socket = new Socket(InetAddress
+                    .getLoopbackAddress(), server.getPort())) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(
+                        socket.getOutputStream(), StandardCharsets.UTF_8));
+                for (String prefix : prefixes)
+                    writer.write(prefix + "\n");
+                writer.flush();
+
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(),
+                        StandardCharsets.UTF_8));
+                for (String line : expected)
+                    assertEquals(line, reader.readLine());
+            }
+        }
+    }
+}
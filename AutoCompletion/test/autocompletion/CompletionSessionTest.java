@@ -0,0 +1,84 @@
+package autocompletion;
+
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Class: CompletionSessionTest.java
+ * Description: Test class used to check a session typing and deleting
+ *  characters completes each prefix as completing it from the root does.
+ * Author: Paulo Jorge.
+ */
+public class CompletionSessionTest {
+    /**
+     * Method used to type random words in full then delete them.
+     */
+    @Test
+    public void matchesRootCompletions() {
+        AutoCompletionTrie trie = AutoCompletion.buildTrie(
+                new TestCorpus(2000).nextTokens(50000));
+        List<String> words = trie.getAllWords();
+
+        Random random = new Random(TestCorpus.SEED);
+        CompletionResult expected = new CompletionResult(5);
+        CompletionResult actual = new CompletionResult(5);
+        CompletionSession session = trie.startSession();
+        for (int i = 0; i < 1000; i++) {
+            String word = words.get(random.nextInt(words.size()));
+            for (int length = 1; length <= word.length(); length++) {
+                String prefix = word.substring(0, length);
+                session.type(word.charAt(length - 1), actual);
+                TrieAssert.assertSameResults(prefix,
+                        trie.getCompletions(prefix, expected), actual);
+            }
+            for (int length = word.length() - 1; length >= 0; length--) {
+                String prefix = word.substring(0, length);
+                session.backspace(actual);
+                TrieAssert.assertSameResults(prefix,
+                        trie.getCompletions(prefix, expected), actual);
+            }
+        }
+    }
+
+    /**
+     * Method used to type phrases padded and separated by whitespace,
+     *  which is trimmed from either end of a prefix but kept within it.
+     */
+    @Test
+    public void matchesRootCompletionsWithSpaces() {
+        TestCorpus corpus = new TestCorpus(200);
+        String[] padding = {" ", "  ", "\t", " \t ", "\n"};
+        for (Alphabet alphabet : new Alphabet[] {Alphabet.ANY,
+                Alphabet.LOWER_CASE, Alphabet.WORDS}) {
+            AutoCompletionTrie trie = new AutoCompletionTrie(0, alphabet);
+            for (String token : corpus.nextTokens(5000))
+                trie.add(token + " " + corpus.nextWord(), 1);
+
+            Random random = new Random(TestCorpus.SEED);
+            CompletionResult expected = new CompletionResult(5);
+            CompletionResult actual = new CompletionResult(5);
+            CompletionSession session = trie.startSession();
+            for (int i = 0; i < 200; i++) {
+                String phrase = padding[random.nextInt(padding.length)]
+                        + corpus.nextWord().toUpperCase()
+                        + padding[random.nextInt(padding.length)]
+                        + corpus.nextWord()
+                        + padding[random.nextInt(padding.length)];
+                for (int length = 1; length <= phrase.length(); length++) {
+                    String prefix = phrase.substring(0, length);
+                    session.type(phrase.charAt(length - 1), actual);
+                    TrieAssert.assertSameResults(prefix,
+                            trie.getCompletions(prefix, expected), actual);
+                }
+                for (int length = phrase.length() - 1; length >= 0;
+                        length--) {
+                    String prefix = phrase.substring(0, length);
+                    session.backspace(actual);
+                    TrieAssert.assertSameResults(prefix,
+                            trie.getCompletions(prefix, expected), actual);
+                }
+            }
+        }
+    }
+}
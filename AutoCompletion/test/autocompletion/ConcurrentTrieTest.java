@@ -0,0 +1,175 @@
+package autocompletion;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Class: ConcurrentTrieTest.java
+ * Description: Test class used to check a concurrent trie completes as
+ *  a pointer trie holding the same counts, and to stress it with
+ *  threads counting words while other threads read them.
+ * Author: Paulo Jorge.
+ */
+public class ConcurrentTrieTest {
+    // Number of writer and of reader threads
+    private static final int THREADS = 4;
+    // Number of increments per writer
+    private static final int OPERATIONS = 100000;
+
+    /**
+     * Method used to check counts that would not make a word are refused
+     *  without changing the trie.
+     */
+    @Test
+    public void nonPositiveCountsAreRefused() {
+        ConcurrentTrie trie = new ConcurrentTrie();
+        for (int count : new int[] {0, -1}) {
+            try {
+                trie.add("word", count);
+                fail("Added word with frequency " + count);
+            } catch (IllegalArgumentException exception) {
+                // Expected
+            }
+            try {
+                trie.increment("word", count);
+                fail("Counted word by " + count);
+            } catch (IllegalArgumentException exception) {
+                // Expected
+            }
+        }
+
+        assertFalse(trie.contains("word"));
+        assertEquals(0, trie.getCompletions("w",
+                new CompletionResult(5)).size());
+        assertEquals(0, trie.getCompletions("",
+                new CompletionResult(5)).getTotal());
+    }
+
+    /**
+     * Method used to check completions of a few limits against a pointer
+     *  trie searching its sub tries.
+     */
+    @Test
+    public void matchesTrie() {
+        ConcurrentTrie concurrent = new ConcurrentTrie();
+        WordCounter counter = new WordCounter();
+        for (String word : new TestCorpus(2000).nextTokens(50000)) {
+            concurrent.increment(word, 1);
+            counter.increment(word);
+        }
+        AutoCompletionTrie trie = new AutoCompletionTrie();
+        for (int id = 0; id < counter.size(); id++)
+            trie.add(counter.getWord(id), counter.getCount(id));
+
+        String[] prefixes = TestCorpus.generatePrefixes(2);
+        TrieAssert.assertParity(trie, concurrent, prefixes);
+        for (int limit = 0; limit <= 50; limit += 10)
+            for (String prefix : new String[] {"", "a", "zz"})
+                TrieAssert.assertSameResults(prefix,
+                        trie.getCompletions(prefix, limit),
+                        concurrent.getCompletions(prefix,
+                        new CompletionResult(limit)));
+    }
+
+    /**
+     * Method used to check every reader sees each frequency only grow, a
+     *  word with a frequency is always contained, and final counts match
+     *  the counts made.
+     * @throws InterruptedException If interrupted waiting for threads.
+     */
+    @Test(timeout = 60000)
+    public void countsAreNeverLost() throws InterruptedException {
+        final ConcurrentTrie trie = new ConcurrentTrie();
+        final String[] vocabulary = new TestCorpus(10000).getVocabulary();
+        final Map<String, Integer>[] counts = new Map[THREADS];
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final AtomicReference<String> failure = new AtomicReference();
+
+        // Writers count words drawn from their own corpus
+        Thread[] writers = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int index = t;
+            writers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    TestCorpus corpus = new TestCorpus(vocabulary.length);
+                    Random random = new Random(TestCorpus.SEED + index);
+                    Map<String, Integer> made = new HashMap();
+                    for (int i = 0; i < OPERATIONS; i++) {
+                        String word = random.nextInt(2) == 0
+                                ? corpus.nextWord() : vocabulary[
+                                random.nextInt(vocabulary.length)];
+                        trie.increment(word, 1);
+                        Integer count = made.get(word);
+                        made.put(word, count == null ? 1 : count + 1);
+                    }
+                    counts[index] = made;
+                }
+            });
+        }
+
+        // Readers check each word they read never goes backwards
+        Thread[] readers = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int index = t;
+            readers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Random random = new Random(-TestCorpus.SEED - index);
+                    int[] seen = new int[vocabulary.length];
+                    CompletionResult result = new CompletionResult(5);
+                    long count = 0;
+                    while (writing.get() && failure.get() == null) {
+                        int word = random.nextInt(vocabulary.length);
+                        int frequency = trie.getFrequency(
+                                vocabulary[word]);
+                        if (frequency < seen[word]
+                                || (frequency > 0 && !trie.contains(
+                                vocabulary[word])))
+                            failure.set(vocabulary[word] + " read "
+                                    + frequency + " after "
+                                    + seen[word]);
+                        seen[word] = frequency;
+                        if (count++ % 64 == 0)
+                            trie.getCompletions(vocabulary[word]
+                                    .substring(0, 1), result);
+                    }
+                }
+            });
+        }
+
+        for (int t = 0; t < THREADS; t++) {
+            readers[t].start();
+            writers[t].start();
+        }
+        for (Thread writer : writers)
+            writer.join();
+        writing.set(false);
+        for (Thread reader : readers)
+            reader.join();
+        assertNull(failure.get());
+
+        // Every count made must be in the trie once writers finish
+        Map<String, Integer> expected = new HashMap();
+        for (Map<String, Integer> made : counts)
+            for (Map.Entry<String, Integer> entry : made.entrySet()) {
+                Integer count = expected.get(entry.getKey());
+                expected.put(entry.getKey(), entry.getValue()
+                        + (count == null ? 0 : count));
+            }
+        for (Map.Entry<String, Integer> entry : expected.entrySet())
+            assertEquals(entry.getKey(), (int)entry.getValue(),
+                    trie.getFrequency(entry.getKey()));
+        assertEquals(THREADS * (long)OPERATIONS, trie.getCompletions("",
+                new CompletionResult(1)).getTotal());
+    }
+}
@@ -0,0 +1,60 @@
+package autocompletion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Class: DawgTrieTest.java
+ * Description: Test class used to check minimal automata complete and
+ *  count words as pointer tries holding the same dictionary.
+ * Author: Paulo Jorge.
+ */
+public class DawgTrieTest {
+    /**
+     * Method used to check every word, half of every word and short
+     *  prefixes.
+     */
+    @Test
+    public void matchesTrie() {
+        MakeDictionary mD = new MakeDictionary();
+        mD.formDictionary(new TestCorpus(5000).nextTokens(100000));
+        AutoCompletionTrie trie = AutoCompletion.buildTrie(mD);
+        DawgTrie dawg = AutoCompletion.buildDawg(mD);
+        assertEquals(mD.size(), dawg.getWordCount());
+
+        List<String> words = new ArrayList(trie.getAllWords());
+        List<String> prefixes = new ArrayList(words);
+        for (String word : words)
+            prefixes.add(word.substring(0, word.length() / 2));
+        prefixes.addAll(Arrays.asList(TestCorpus.generatePrefixes(2)));
+
+        TrieAssert.assertParity(trie, dawg,
+                prefixes.toArray(new String[0]));
+        for (String prefix : prefixes) {
+            assertEquals(prefix, trie.getFrequency(prefix),
+                    dawg.getFrequency(prefix));
+            assertEquals(prefix, trie.contains(prefix),
+                    dawg.contains(prefix));
+        }
+    }
+
+    /**
+     * Method used to check words added out of order are refused.
+     */
+    @Test
+    public void unsortedWordIsRefused() {
+        DawgBuilder builder = new DawgBuilder(Alphabet.ANY);
+        builder.add("b", 1);
+        try {
+            builder.add("a", 1);
+            fail("Added a word out of order");
+        } catch (IllegalArgumentException exception) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package autocompletion;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Class: FuzzyCompleterTest.java
+ * Description: Test class used to check typo tolerant completions match
+ *  every word ranked by the edits its closest prefix needs, then by
+ *  frequency.
+ * Author: Paulo Jorge.
+ */
+public class FuzzyCompleterTest {
+    // Most edits allowed by the completers tested
+    private static final int DISTANCE = 2;
+
+    /**
+     * Method used to check completions of prefixes with a random typo
+     *  against ranking every word.
+     */
+    @Test
+    public void matchesRankedWords() {
+        Map<String, Integer> counts = TrieNodeTest.countWords(2000, 50000);
+        AutoCompletionTrie trie = TrieNodeTest.buildTrie(counts, 5);
+        FuzzyCompleter fuzzy = new FuzzyCompleter(trie, DISTANCE,
+                Long.MAX_VALUE);
+        List<String> words = new ArrayList(counts.keySet());
+
+        Random random = new Random(TestCorpus.SEED);
+        CompletionResult expected = new CompletionResult(5);
+        CompletionResult actual = new CompletionResult(5);
+        for (int i = 0; i < 200; i++) {
+            String word = words.get(random.nextInt(words.size()));
+            String prefix = addTypo(word.substring(0, Math.min(
+                    word.length(), 1 + random.nextInt(8))), random);
+            TrieAssert.assertSameResults(prefix, rank(counts, prefix,
+                    fuzzy.getDistance(prefix.length()), expected),
+                    fuzzy.getCompletions(prefix, actual));
+        }
+        assertEquals(0, fuzzy.getTruncations());
+    }
+
+    /**
+     * Method used to check a search out of time is counted and still
+     *  returns the completions found so far.
+     */
+    @Test
+    public void searchesStopWithinBudget() {
+        AutoCompletionTrie trie = TrieNodeTest.buildTrie(
+                TrieNodeTest.countWords(2000, 50000), 5);
+        FuzzyCompleter fuzzy = new FuzzyCompleter(trie, DISTANCE, 0);
+        CompletionResult result = fuzzy.getCompletions("zzzzzzzz",
+                new CompletionResult(5));
+        assertEquals(1, fuzzy.getTruncations());
+        assertTrue(result.size() <= 5);
+    }
+
+    /**
+     * Method used to replace, insert, delete or swap a random character.
+     * @param prefix String containing prefix to change.
+     * @param random Random object used to place the typo.
+     * @return String containing prefix with a typo.
+     */
+    private static String addTypo(String prefix, Random random) {
+        StringBuilder typed = new StringBuilder(prefix);
+        int at = random.nextInt(prefix.length());
+        char character = (char)('a' + random.nextInt(26));
+        switch (random.nextInt(4)) {
+            case 0:
+                typed.setCharAt(at, character);
+                break;
+            case 1:
+                typed.insert(at, character);
+                break;
+            case 2:
+                if (prefix.length() > 1)
+                    typed.deleteCharAt(at);
+                break;
+            default:
+                if (at + 1 < prefix.length()) {
+                    typed.setCharAt(at, prefix.charAt(at + 1));
+                    typed.setCharAt(at + 1, prefix.charAt(at));
+                }
+        }
+        return typed.toString();
+    }
+
+    /**
+     * Method used to fill a result with the counted words whose closest
+     *  prefix is within a number of edits of a prefix, fewest edits
+     *  first and then ranked as TrieNodeTest.rank ranks.
+     * @param counts Map of words to counts.
+     * @param prefix String containing prefix.
+     * @param distance Integer most edits allowed.
+     * @param result CompletionResult object to fill.
+     * @return The passed in result object.
+     */
+    private static CompletionResult rank(Map<String, Integer> counts,
+            String prefix, int distance, CompletionResult result) {
+        List<Map<String, Integer>> byCost = new ArrayList();
+        for (int cost = 0; cost <= distance; cost++)
+            byCost.add(new LinkedHashMap<String, Integer>());
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            int cost = getCost(prefix, entry.getKey());
+            if (cost <= distance)
+                byCost.get(cost).put(entry.getKey(), entry.getValue());
+        }
+
+        // Rank each number of edits in turn until the result is full
+        List<String> words = new ArrayList();
+        List<Integer> frequencies = new ArrayList();
+        long total = 0;
+        CompletionResult ranked = new CompletionResult(result.getLimit());
+        for (Map<String, Integer> costing : byCost) {
+            TrieNodeTest.rank(costing, "", ranked);
+            for (int i = 0; i < ranked.size()
+                    && words.size() < result.getLimit(); i++) {
+                words.add(ranked.getWord(i));
+                frequencies.add(ranked.getFrequency(i));
+                total += ranked.getFrequency(i);
+            }
+        }
+
+        result.reset(prefix, counts.containsKey(prefix), total);
+        for (int i = 0; i < words.size(); i++)
+            result.add(words.get(i), frequencies.get(i));
+        return result;
+    }
+
+    /**
+     * Method used to get the fewest edits turning a prefix into any
+     *  prefix of a word, counting a swap of neighbouring characters as
+     *  one edit.
+     * @param prefix String containing prefix typed.
+     * @param word String containing word.
+     * @return Integer fewest edits needed.
+     */
+    private static int getCost(String prefix, String word) {
+        int[][] rows = new int[word.length() + 1][prefix.length() + 1];
+        for (int j = 0; j <= prefix.length(); j++)
+            rows[0][j] = j;
+        int cost = prefix.length();
+        for (int i = 1; i <= word.length(); i++) {
+            rows[i][0] = i;
+            for (int j = 1; j <= prefix.length(); j++) {
+                rows[i][j] = Math.min(Math.min(rows[i - 1][j],
+                        rows[i][j - 1]) + 1, rows[i - 1][j - 1]
+                        + (word.charAt(i - 1) == prefix.charAt(j - 1)
+                        ? 0 : 1));
+                if (i > 1 && j > 1
+                        && word.charAt(i - 1) == prefix.charAt(j - 2)
+                        && word.charAt(i - 2) == prefix.charAt(j - 1))
+                    rows[i][j] = Math.min(rows[i][j],
+                            rows[i - 2][j - 2] + 1);
+            }
+            cost = Math.min(cost, rows[i][prefix.length()]);
+        }
+        return cost;
+    }
+}
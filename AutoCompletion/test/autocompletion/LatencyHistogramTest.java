@@ -0,0 +1,87 @@
+package autocompletion;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Class: LatencyHistogramTest.java
+ * Description: Test class used to check a latency histogram reports
+ *  the durations recorded into it, percentiles within its precision.
+ * Author: Paulo Jorge.
+ */
+public class LatencyHistogramTest {
+    // Number of durations recorded by each check
+    private static final int DURATIONS = 100000;
+
+    /**
+     * Method used to check percentiles of durations spread from a
+     *  nanosecond to seconds against the sorted durations.
+     */
+    @Test
+    public void percentilesMatchSortedDurations() {
+        Random random = new Random(TestCorpus.SEED);
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        long[] durations = new long[DURATIONS];
+        long total = 0;
+        for (int i = 0; i < DURATIONS; i++) {
+            durations[i] = (long)Math.pow(2, random.nextDouble() * 32);
+            histogram.record(durations[i]);
+            total += durations[i];
+        }
+        Arrays.sort(durations);
+
+        assertEquals(DURATIONS, histogram.getCount());
+        assertEquals(total, histogram.getTotal());
+        assertEquals(durations[DURATIONS - 1], histogram.getMax());
+        assertEquals((double)total / DURATIONS, histogram.getMean(), 1e-6);
+        for (double percentile : new double[] {0, 1, 50, 90, 99, 99.9,
+                100}) {
+            long exact = durations[Math.max(1, (int)Math.ceil(percentile
+                    / 100 * DURATIONS)) - 1];
+            long reported = histogram.getPercentile(percentile);
+            assertTrue(percentile + ": " + reported + " < " + exact,
+                    reported >= exact);
+            assertTrue(percentile + ": " + reported + " > " + exact,
+                    reported <= exact + exact / 32);
+        }
+    }
+
+    /**
+     * Method used to check durations recorded by several threads at once
+     *  are all counted, and a reset clears them.
+     * @throws InterruptedException If interrupted waiting for threads.
+     */
+    @Test
+    public void concurrentRecordsAreCounted()
+            throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram("test");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final long duration = t + 1;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < DURATIONS; i++)
+                        histogram.record(duration);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(4L * DURATIONS, histogram.getCount());
+        assertEquals(10L * DURATIONS, histogram.getTotal());
+        assertEquals(4, histogram.getMax());
+        assertEquals(2, histogram.getPercentile(50));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(0, histogram.getMax());
+    }
+}
@@ -0,0 +1,162 @@
+package autocompletion;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Class: NGramModelTest.java
+ * Description: Test class used to check next words suggested from
+ *  n-grams counted while reading a corpus match next words counted from
+ *  its list of words.
+ * Author: Paulo Jorge.
+ */
+public class NGramModelTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Method used to check phrases of two corpus words and a prefix of
+     *  the third.
+     * @throws IOException If the corpus cannot be written or read.
+     */
+    @Test
+    public void matchesCountedNextWords() throws IOException {
+        File file = this.folder.newFile("corpus.csv");
+        new TestCorpus(1000).write(100000, file);
+        WordCounter counter = new WordCounter();
+        NGramCounter ngrams = new NGramCounter();
+        new WordReader(ngrams).read(file.getPath(), counter);
+        NGramModel model = ngrams.toModel(counter, Alphabet.LOWER_CASE);
+
+        // Count words following every word and pair of words of a line,
+        // each in the order first seen
+        ArrayList<String> words = MakeDictionary.readWordsFromCSV(
+                file.getPath());
+        Map<String, Map<String, Integer>> following = new HashMap();
+        for (int i = 0; i < words.size(); i++) {
+            int column = i % 16;
+            if (column < 15)
+                countNextWord(following, words.get(i), words.get(i + 1));
+            if (column < 14)
+                countNextWord(following, words.get(i) + " "
+                        + words.get(i + 1), words.get(i + 2));
+        }
+
+        Random random = new Random(TestCorpus.SEED);
+        CompletionResult expected = new CompletionResult(5);
+        CompletionResult actual = new CompletionResult(5);
+        for (int i = 0; i < 10000; i++) {
+            int position = random.nextInt(words.size() / 16) * 16
+                    + random.nextInt(14);
+            String first = words.get(position);
+            String second = words.get(position + 1);
+            String next = words.get(position + 2);
+            String prefix = next.substring(0, Math.min(random.nextInt(3),
+                    next.length()));
+
+            if (!fillNextWords(following.get(first + " " + second),
+                    prefix, expected))
+                fillNextWords(following.get(second), prefix, expected);
+            String phrase = first + " " + second + " " + prefix;
+            TrieAssert.assertSameResults(phrase, expected,
+                    model.getNextWords(phrase, actual));
+        }
+    }
+
+    /**
+     * Method used to check a word dropped by the alphabet ends its phrase
+     *  rather than joining the words either side of it.
+     * @throws IOException If the corpus cannot be written or read.
+     */
+    @Test
+    public void droppedWordEndsPhrase() throws IOException {
+        File file = this.folder.newFile("corpus.csv");
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("alpha beta !? gamma delta\n");
+        }
+        WordCounter counter = new WordCounter();
+        NGramCounter ngrams = new NGramCounter();
+        new WordReader(Alphabet.WORDS, 1 << 10, ngrams).read(
+                file.getPath(), counter);
+        NGramModel model = ngrams.toModel(counter, Alphabet.WORDS);
+
+        CompletionResult result = new CompletionResult(5);
+        assertEquals(1, model.getNextWords("alpha ", result).size());
+        assertEquals("beta", result.getWord(0));
+        assertEquals(0, model.getNextWords("beta ", result).size());
+        assertEquals(1, model.getNextWords("gamma ", result).size());
+        assertEquals("delta", result.getWord(0));
+    }
+
+    /**
+     * Method used to count a word following a context.
+     * @param following Map of contexts to maps of next words to counts.
+     * @param context String containing context.
+     * @param word String containing next word.
+     */
+    private static void countNextWord(
+            Map<String, Map<String, Integer>> following, String context,
+            String word) {
+        Map<String, Integer> next = following.get(context);
+        if (next == null) {
+            next = new LinkedHashMap();
+            following.put(context, next);
+        }
+        Integer count = next.get(word);
+        next.put(word, count == null ? 1 : count + 1);
+    }
+
+    /**
+     * Method used to fill a result with the counted next words starting
+     *  with a prefix, ranked by count then by the order first seen.
+     * @param next Map of next words to counts, or null if none.
+     * @param prefix String containing prefix of next word.
+     * @param result CompletionResult object to fill.
+     * @return Boolean true if any next word starts with the prefix.
+     */
+    private static boolean fillNextWords(Map<String, Integer> next,
+            String prefix, CompletionResult result) {
+        result.reset(prefix, false, 0);
+        if (next == null)
+            return false;
+
+        List<Map.Entry<String, Integer>> matches = new ArrayList();
+        long total = 0;
+        for (Map.Entry<String, Integer> entry : next.entrySet())
+            if (entry.getKey().startsWith(prefix)) {
+                matches.add(entry);
+                total += entry.getValue();
+            }
+        if (matches.isEmpty())
+            return false;
+
+        // Stable sort keeps equal counts in the order first seen
+        Collections.sort(matches,
+                new Comparator<Map.Entry<String, Integer>>() {
+            @Override
+            public int compare(Map.Entry<String, Integer> a,
+                    Map.Entry<String, Integer> b) {
+                return b.getValue() - a.getValue();
+            }
+        });
+        result.reset(prefix, next.containsKey(prefix), total);
+        for (Map.Entry<String, Integer> entry : matches)
+            if (!result.add(entry.getKey(), entry.getValue()))
+                break;
+        return true;
+    }
+}
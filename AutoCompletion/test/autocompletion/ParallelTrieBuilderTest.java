@@ -0,0 +1,83 @@
+package autocompletion;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Class: ParallelTrieBuilderTest.java
+ * Description: Test class used to check tries built in parallel complete
+ *  as tries built from a dictionary one word at a time.
+ * Author: Paulo Jorge.
+ */
+public class ParallelTrieBuilderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Method used to check parallel builds on a few pool sizes.
+     * @throws IOException If the corpus cannot be written or read.
+     */
+    @Test
+    public void matchesSequentialBuild() throws IOException {
+        File file = this.folder.newFile("corpus.csv");
+        new TestCorpus(5000).write(100000, file);
+
+        MakeDictionary mD = new MakeDictionary();
+        mD.formDictionaryFromFile(file.getPath());
+        AutoCompletionTrie expected = AutoCompletion.buildTrie(mD);
+
+        for (int threads = 1; threads <= 4; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                ParallelTrieBuilder builder = new ParallelTrieBuilder(pool,
+                        5, Alphabet.ANY);
+                WordCounter counter = builder.countWords(file.getPath());
+                assertEquals(mD.size(), counter.size());
+                TrieAssert.assertParity(expected,
+                        builder.buildTrie(counter),
+                        TestCorpus.generatePrefixes(2));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Method used to check a file read in adjacent ranges counts every
+     *  word once and every byte of the file once.
+     * @throws IOException If the corpus cannot be written or read.
+     */
+    @Test
+    public void rangesCountEveryWordOnce() throws IOException {
+        File file = this.folder.newFile("corpus.csv");
+        new TestCorpus(5000).write(20000, file);
+        WordCounter expected = new WordCounter();
+        new WordReader().read(file.getPath(), expected);
+
+        WordCounter counter = new WordCounter();
+        long bytesRead = 0;
+        try (RandomAccessFile input = new RandomAccessFile(file, "r");
+                FileChannel channel = input.getChannel()) {
+            for (long start = 0; start < channel.size(); start += 1000) {
+                WordReader reader = new WordReader(Alphabet.LOWER_CASE,
+                        4096);
+                reader.read(channel, start, Math.min(start + 1000,
+                        channel.size()), counter);
+                bytesRead += reader.getBytesRead();
+            }
+        }
+        assertEquals(file.length(), bytesRead);
+        assertEquals(expected.size(), counter.size());
+        for (int id = 0; id < expected.size(); id++)
+            assertEquals(expected.getCount(id), counter.getCount(
+                    counter.indexOf(expected.getWord(id))));
+    }
+}
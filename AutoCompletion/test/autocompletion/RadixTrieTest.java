@@ -0,0 +1,43 @@
+package autocompletion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Class: RadixTrieTest.java
+ * Description: Test class used to check radix tries complete and count
+ *  words as pointer tries holding the same dictionary.
+ * Author: Paulo Jorge.
+ */
+public class RadixTrieTest {
+    /**
+     * Method used to check every word, half of every word and short
+     *  prefixes.
+     */
+    @Test
+    public void matchesTrie() {
+        MakeDictionary mD = new MakeDictionary();
+        mD.formDictionary(new TestCorpus(5000).nextTokens(100000));
+        AutoCompletionTrie trie = AutoCompletion.buildTrie(mD);
+        RadixTrie radix = AutoCompletion.buildRadixTrie(mD);
+
+        List<String> words = new ArrayList(trie.getAllWords());
+        List<String> prefixes = new ArrayList(words);
+        for (String word : words)
+            prefixes.add(word.substring(0, word.length() / 2));
+        prefixes.addAll(Arrays.asList(TestCorpus.generatePrefixes(2)));
+
+        TrieAssert.assertParity(trie, radix,
+                prefixes.toArray(new String[0]));
+        for (String prefix : prefixes) {
+            assertEquals(prefix, trie.getFrequency(prefix),
+                    radix.getFrequency(prefix));
+            assertEquals(prefix, trie.contains(prefix),
+                    radix.contains(prefix));
+        }
+    }
+}
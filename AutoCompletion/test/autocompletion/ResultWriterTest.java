@@ -0,0 +1,48 @@
+package autocompletion;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Class: ResultWriterTest.java
+ * Description: Test class used to check results written straight to a
+ *  file match results formatted into strings and then saved.
+ * Author: Paulo Jorge.
+ */
+public class ResultWriterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Method used to check both ways of writing results give the same
+     *  file.
+     * @throws IOException If a results file cannot be written or read.
+     */
+    @Test
+    public void matchesFormattedStrings() throws IOException {
+        TestCorpus corpus = new TestCorpus(2000);
+        AutoCompletionTrie trie = AutoCompletion.buildTrie(
+                corpus.nextTokens(50000));
+        ArrayList<String> prefixes = corpus.nextPrefixes(20000, 3);
+        prefixes.add("");
+        prefixes.add("missing");
+
+        File strings = this.folder.newFile("strings.csv");
+        File direct = this.folder.newFile("direct.csv");
+        MakeDictionary.saveCollectionToFile(
+                AutoCompletion.wordAutoCompletion(trie, prefixes),
+                strings.getPath());
+        AutoCompletion.writeAutoCompletion(trie, prefixes,
+                direct.getPath());
+
+        assertArrayEquals(Files.readAllBytes(strings.toPath()),
+                Files.readAllBytes(direct.toPath()));
+    }
+}
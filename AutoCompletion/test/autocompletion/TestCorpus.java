@@ -0,0 +1,127 @@
+package autocompletion;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Class: TestCorpus.java
+ * Description: Class used to generate small synthetic corpora for the
+ *  unit tests. Words are drawn from a random lower case vocabulary with
+ *  a strong skew towards its first words, so a few words are frequent
+ *  and most are rare, as in natural text.
+ * Author: Paulo Jorge.
+ */
+class TestCorpus {
+    // Seed used for every corpus so failures are repeatable
+    static final long SEED = 42;
+
+    // Words that can be drawn, most frequent first
+    private final String[] vocabulary;
+    // Generator used to draw words
+    private final Random random;
+
+    /**
+     * Constructor used to initialise a new corpus.
+     * @param vocabularySize Integer number of words that can be drawn.
+     */
+    TestCorpus(int vocabularySize) {
+        this.random = new Random(SEED);
+        this.vocabulary = new String[vocabularySize];
+        char[] chars = new char[10];
+
+        // Generate words of 1 to 10 characters, repeats are harmless
+        for (int i = 0; i < vocabularySize; i++) {
+            int length = 1 + this.random.nextInt(10);
+            for (int c = 0; c < length; c++)
+                chars[c] = (char)('a' + this.random.nextInt(26));
+            this.vocabulary[i] = new String(chars, 0, length);
+        }
+    }
+
+    /**
+     * Accessor method used to get the words that can be drawn.
+     * @return Array of type string containing vocabulary.
+     */
+    String[] getVocabulary() {
+        return this.vocabulary;
+    }
+
+    /**
+     * Method used to draw the next word.
+     * @return String containing word drawn.
+     */
+    String nextWord() {
+        double draw = this.random.nextDouble();
+        return this.vocabulary[(int)(this.vocabulary.length
+                * draw * draw * draw)];
+    }
+
+    /**
+     * Method used to draw a list of words.
+     * @param tokens Integer number of words to draw.
+     * @return Array list of type string containing words drawn.
+     */
+    ArrayList<String> nextTokens(int tokens) {
+        ArrayList<String> words = new ArrayList(tokens);
+        for (int i = 0; i < tokens; i++)
+            words.add(nextWord());
+        return words;
+    }
+
+    /**
+     * Method used to draw a list of prefixes of words.
+     * @param count Integer number of prefixes to draw.
+     * @param length Integer maximum length of each prefix.
+     * @return Array list of type string containing prefixes drawn.
+     */
+    ArrayList<String> nextPrefixes(int count, int length) {
+        ArrayList<String> prefixes = new ArrayList(count);
+        for (int i = 0; i < count; i++) {
+            String word = nextWord();
+            prefixes.add(word.substring(0, Math.min(word.length(),
+                    1 + this.random.nextInt(length))));
+        }
+        return prefixes;
+    }
+
+    /**
+     * Method used to write drawn words to a file as lines of 16 comma
+     *  separated words.
+     * @param tokens Integer number of words to write.
+     * @param file File object to write to.
+     * @throws IOException If file cannot be written.
+     */
+    void write(int tokens, File file) throws IOException {
+        try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+            for (int i = 0; i < tokens; i++) {
+                writer.write(nextWord());
+                writer.write(i % 16 == 15 ? '\n' : ',');
+            }
+        }
+    }
+
+    /**
+     * Method used to generate every lower case prefix of a length.
+     * @param length Integer length of prefixes.
+     * @return Array of type string containing prefixes.
+     */
+    static String[] generatePrefixes(int length) {
+        int count = (int)Math.pow(26, length);
+        String[] prefixes = new String[count];
+        char[] chars = new char[length];
+
+        // Treat each prefix index as a base 26 number
+        for (int i = 0; i < count; i++) {
+            for (int c = 0, n = i; c < length; c++, n /= 26)
+                chars[length - c - 1] = (char)('a' + n % 26);
+            prefixes[i] = new String(chars);
+        }
+
+        return prefixes;
+    }
+}
@@ -0,0 +1,54 @@
+package autocompletion;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Class: TrieAssert.java
+ * Description: Class holding the assertions shared by the unit tests,
+ *  comparing the completions of two tries or two results.
+ * Author: Paulo Jorge.
+ */
+final class TrieAssert {
+    /**
+     * Constructor hidden as the class only holds static assertions.
+     */
+    private TrieAssert() {
+    }
+
+    /**
+     * Method used to assert two tries return the same completions.
+     * @param expected CompletionTrie object holding expected results.
+     * @param actual CompletionTrie object to check.
+     * @param prefixes Array of type string containing prefixes.
+     */
+    static void assertParity(CompletionTrie expected, CompletionTrie actual,
+            String[] prefixes) {
+        CompletionResult a = new CompletionResult(5);
+        CompletionResult b = new CompletionResult(5);
+
+        for (String prefix : prefixes)
+            assertSameResults(prefix, expected.getCompletions(prefix, a),
+                    actual.getCompletions(prefix, b));
+    }
+
+    /**
+     * Method used to assert two results hold the same completions.
+     * @param prefix String containing prefix reported on failure.
+     * @param expected CompletionResult object holding expected results.
+     * @param actual CompletionResult object to check.
+     */
+    static void assertSameResults(String prefix, CompletionResult expected,
+            CompletionResult actual) {
+        assertEquals("Size for " + prefix, expected.size(), actual.size());
+        assertEquals("Total for " + prefix, expected.getTotal(),
+                actual.getTotal());
+        assertEquals("Is word for " + prefix, expected.isWord(),
+                actual.isWord());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("Word for " + prefix, expected.getWord(i),
+                    actual.getWord(i));
+            assertEquals("Frequency for " + prefix,
+                    expected.getFrequency(i), actual.getFrequency(i));
+        }
+    }
+}
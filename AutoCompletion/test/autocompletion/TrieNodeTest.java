@@ -0,0 +1,157 @@
+package autocompletion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * Class: TrieNodeTest.java
+ * Description: Test class used to check the completions and totals held
+ *  at every trie node, and completions searched beyond them, match the
+ *  words below it ranked by a full sort.
+ * Author: Paulo Jorge.
+ */
+public class TrieNodeTest {
+    /**
+     * Method used to check stored completions of every limit.
+     */
+    @Test
+    public void storedCompletionsMatchSortedWords() {
+        Map<String, Integer> counts = countWords(2000, 50000);
+        AutoCompletionTrie trie = buildTrie(counts, 5);
+
+        for (String prefix : getPrefixes())
+            for (int limit = 1; limit <= 5; limit++)
+                TrieAssert.assertSameResults(prefix, rank(counts, prefix,
+                        new CompletionResult(limit)),
+                        trie.getCompletions(prefix, limit));
+    }
+
+    /**
+     * Method used to check a trie storing no completions searches its
+     *  sub tries for the same completions.
+     */
+    @Test
+    public void searchMatchesStoredCompletions() {
+        Map<String, Integer> counts = countWords(2000, 50000);
+        String[] prefixes = getPrefixes().toArray(new String[0]);
+        TrieAssert.assertParity(buildTrie(counts, 5),
+                buildTrie(counts, 0), prefixes);
+    }
+
+    /**
+     * Method used to check completions beyond those stored, searched
+     *  best first by pointer and compact tries, against a full sort.
+     */
+    @Test
+    public void searchBeyondStoredCompletions() {
+        Map<String, Integer> counts = countWords(2000, 50000);
+        AutoCompletionTrie trie = buildTrie(counts, 5);
+        CompactTrie compact = new CompactTrie(trie);
+
+        for (String prefix : getPrefixes())
+            for (int limit : new int[] {1, 20, 50}) {
+                CompletionResult expected = rank(counts, prefix,
+                        new CompletionResult(limit));
+                TrieAssert.assertSameResults(prefix, expected,
+                        trie.getCompletions(prefix,
+                        new CompletionResult(limit)));
+                TrieAssert.assertSameResults(prefix, expected,
+                        compact.getCompletions(prefix,
+                        new CompletionResult(limit)));
+            }
+    }
+
+    /**
+     * Method used to count the words of a corpus in the order first
+     *  seen.
+     * @param vocabularySize Integer number of words that can be drawn.
+     * @param tokens Integer number of words to draw.
+     * @return Map of words to counts.
+     */
+    static Map<String, Integer> countWords(int vocabularySize,
+            int tokens) {
+        Map<String, Integer> counts = new LinkedHashMap();
+        for (String word : new TestCorpus(vocabularySize).nextTokens(
+                tokens)) {
+            Integer count = counts.get(word);
+            counts.put(word, count == null ? 1 : count + 1);
+        }
+        return counts;
+    }
+
+    /**
+     * Method used to build a trie holding counted words.
+     * @param counts Map of words to counts.
+     * @param completionLimit Integer number of completions to store at
+     *  every node, or 0 to store none.
+     * @return AutoCompletionTrie object containing every word.
+     */
+    static AutoCompletionTrie buildTrie(Map<String, Integer> counts,
+            int completionLimit) {
+        AutoCompletionTrie trie = new AutoCompletionTrie(completionLimit);
+        for (Map.Entry<String, Integer> entry : counts.entrySet())
+            trie.add(entry.getKey(), entry.getValue());
+        return trie;
+    }
+
+    /**
+     * Method used to get the empty prefix and every prefix of up to two
+     *  characters.
+     * @return List of type string containing prefixes.
+     */
+    private static List<String> getPrefixes() {
+        List<String> prefixes = new ArrayList();
+        prefixes.add("");
+        Collections.addAll(prefixes, TestCorpus.generatePrefixes(1));
+        Collections.addAll(prefixes, TestCorpus.generatePrefixes(2));
+        return prefixes;
+    }
+
+    /**
+     * Method used to fill a result with the counted words starting with
+     *  a prefix, ranked by sorting them all: higher counts first, ties
+     *  ordered with a word before the words it prefixes, otherwise the
+     *  word with the greater character first.
+     * @param counts Map of words to counts.
+     * @param prefix String containing prefix.
+     * @param result CompletionResult object to fill.
+     * @return The passed in result object.
+     */
+    static CompletionResult rank(Map<String, Integer> counts,
+            String prefix, CompletionResult result) {
+        List<Map.Entry<String, Integer>> matches = new ArrayList();
+        long total = 0;
+        for (Map.Entry<String, Integer> entry : counts.entrySet())
+            if (entry.getKey().startsWith(prefix)) {
+                matches.add(entry);
+                total += entry.getValue();
+            }
+
+        Collections.sort(matches,
+                new Comparator<Map.Entry<String, Integer>>() {
+            @Override
+            public int compare(Map.Entry<String, Integer> a,
+                    Map.Entry<String, Integer> b) {
+                if (!a.getValue().equals(b.getValue()))
+                    return b.getValue() - a.getValue();
+                String x = a.getKey();
+                String y = b.getKey();
+                for (int i = 0; i < Math.min(x.length(), y.length()); i++)
+                    if (x.charAt(i) != y.charAt(i))
+                        return y.charAt(i) - x.charAt(i);
+                return x.length() - y.length();
+            }
+        });
+
+        result.reset(prefix, counts.containsKey(prefix), total);
+        for (Map.Entry<String, Integer> entry : matches)
+            if (!result.add(entry.getKey(), entry.getValue()))
+                break;
+        return result;
+    }
+}
@@ -0,0 +1,78 @@
+package autocompletion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Class: TriePrefixTest.java
+ * Description: Test class used to check prefixes found within a trie
+ *  answer as the trie does, and that finding prefixes and taking sub
+ *  tries leaves the trie unchanged.
+ * Author: Paulo Jorge.
+ */
+public class TriePrefixTest {
+    /**
+     * Method used to check every prefix of up to two characters, reusing
+     *  a single prefix object.
+     */
+    @Test
+    public void prefixMatchesTrie() {
+        Map<String, Integer> counts = TrieNodeTest.countWords(2000, 50000);
+        AutoCompletionTrie trie = TrieNodeTest.buildTrie(counts, 5);
+        String[] suffixes = TestCorpus.generatePrefixes(1);
+
+        TriePrefix view = trie.findPrefix("");
+        CompletionResult expected = new CompletionResult(5);
+        CompletionResult actual = new CompletionResult(5);
+        for (String prefix : TestCorpus.generatePrefixes(2)) {
+            assertEquals(view, trie.findPrefix(prefix, view));
+            trie.getCompletions(prefix, expected);
+            assertEquals(prefix, expected.getTotal() > 0, view.exists());
+            assertEquals(prefix, trie.contains(prefix), view.isWord());
+            assertEquals(prefix, trie.getFrequency(prefix),
+                    view.getFrequency());
+            assertEquals(prefix, expected.getTotal(), view.getTotal());
+            TrieAssert.assertSameResults(prefix, expected,
+                    view.getCompletions(actual));
+            for (String suffix : suffixes)
+                assertEquals(prefix + suffix, trie.getFrequency(prefix
+                        + suffix), view.getFrequency(suffix));
+
+            List<String> words = new ArrayList();
+            for (String word : counts.keySet())
+                if (word.startsWith(prefix))
+                    words.add(word);
+            List<String> found = view.getAllWords();
+            Collections.sort(words);
+            Collections.sort(found);
+            assertEquals(prefix, words, found);
+        }
+    }
+
+    /**
+     * Method used to check taking every sub trie twice leaves the trie
+     *  completing and listing its words as before.
+     */
+    @Test
+    public void subTriesLeaveTrieUnchanged() {
+        Map<String, Integer> counts = TrieNodeTest.countWords(2000, 50000);
+        AutoCompletionTrie trie = TrieNodeTest.buildTrie(counts, 5);
+        String[] prefixes = TestCorpus.generatePrefixes(2);
+        for (int i = 0; i < 2; i++)
+            for (String prefix : prefixes)
+                trie.getSubTrie(prefix);
+
+        TrieAssert.assertParity(TrieNodeTest.buildTrie(counts, 5), trie,
+                prefixes);
+        List<String> words = new ArrayList(counts.keySet());
+        List<String> found = new ArrayList(trie.getAllWords());
+        Collections.sort(words);
+        Collections.sort(found);
+        assertEquals(words, found);
+    }
+}
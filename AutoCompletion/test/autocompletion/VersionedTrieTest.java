@@ -0,0 +1,56 @@
+package autocompletion;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Class: VersionedTrieTest.java
+ * Description: Test class used to check a versioned trie updated with a
+ *  series of corpora completes as a trie built from all of them at once.
+ * Author: Paulo Jorge.
+ */
+public class VersionedTrieTest {
+    /**
+     * Method used to absorb a few daily corpora, keeping an earlier
+     *  version to check it is left unchanged.
+     */
+    @Test
+    public void updatesMatchSingleBuild() {
+        TestCorpus corpus = new TestCorpus(2000);
+        VersionedTrie trie = new VersionedTrie(5, Alphabet.ANY);
+        WordCounter all = new WordCounter();
+        AutoCompletionTrie first = null;
+        VersionedTrie.Version firstVersion = null;
+
+        for (int day = 0; day < 5; day++) {
+            WordCounter counter = new WordCounter();
+            for (String word : corpus.nextTokens(20000))
+                counter.increment(word);
+            all.addAll(counter);
+
+            VersionedTrie.Version version = trie.update(counter);
+            assertEquals(day + 1, version.getNumber());
+            if (day == 0) {
+                first = buildTrie(all);
+                firstVersion = version;
+            }
+        }
+
+        String[] prefixes = TestCorpus.generatePrefixes(2);
+        TrieAssert.assertParity(buildTrie(all), trie, prefixes);
+        TrieAssert.assertParity(first, firstVersion, prefixes);
+    }
+
+    /**
+     * Method used to build a trie holding every counted word.
+     * @param counter WordCounter object containing counts.
+     * @return AutoCompletionTrie object containing every word.
+     */
+    private static AutoCompletionTrie buildTrie(WordCounter counter) {
+        AutoCompletionTrie trie = new AutoCompletionTrie(5);
+        for (int id = 0; id < counter.size(); id++)
+            trie.add(counter.getWord(id), counter.getCount(id));
+        return trie;
+    }
+}
@@ -0,0 +1,101 @@
+package autocompletion;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Class: WordCounterTest.java
+ * Description: Test class used to check words counted by a word counter
+ *  match words counted by a map, in the order they were first seen, and
+ *  that dictionaries formed from them are unchanged.
+ * Author: Paulo Jorge.
+ */
+public class WordCounterTest {
+    /**
+     * Method used to check a counter growing well past its initial size
+     *  counts every word as a map does.
+     */
+    @Test
+    public void matchesMap() {
+        ArrayList<String> tokens = new TestCorpus(20000).nextTokens(100000);
+        Map<String, Integer> expected = countWords(tokens);
+        WordCounter counter = new WordCounter(1);
+        for (String token : tokens)
+            counter.increment(token);
+
+        assertEquals(expected.size(), counter.size());
+        int id = 0;
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getKey(), counter.getWord(id));
+            assertEquals((int)entry.getValue(), counter.getCount(id));
+            assertEquals(id, counter.indexOf(entry.getKey()));
+            id++;
+        }
+        assertEquals(-1, counter.indexOf("missing1"));
+    }
+
+    /**
+     * Method used to check words counted from character arrays share the
+     *  ids and counts of words counted as strings.
+     */
+    @Test
+    public void charactersMatchStrings() {
+        WordCounter counter = new WordCounter();
+        char[] chars = " hello world ".toCharArray();
+        int hello = counter.increment("hello");
+        assertEquals(hello, counter.increment(chars, 1, 5));
+        int world = counter.increment(chars, 7, 5, 3);
+        assertEquals(world, counter.increment("world", 2));
+
+        assertEquals(2, counter.size());
+        assertEquals(2, counter.getCount(hello));
+        assertEquals(5, counter.getCount(world));
+        assertEquals("world", counter.getWord(world));
+
+        counter.clear();
+        assertEquals(0, counter.size());
+        assertEquals(-1, counter.indexOf("hello"));
+        assertEquals(0, counter.increment("world"));
+    }
+
+    /**
+     * Method used to check a dictionary lists every word once, with its
+     *  count, in the order it was first seen.
+     */
+    @Test
+    public void dictionaryMatchesMap() {
+        ArrayList<String> tokens = new TestCorpus(2000).nextTokens(20000);
+        MakeDictionary mD = new MakeDictionary();
+        mD.formDictionary(tokens);
+
+        Map<String, Integer> expected = countWords(tokens);
+        ArrayList<MakeDictionary.DictionaryWord> dictionary
+                = mD.getDictionary();
+        assertEquals(expected.size(), dictionary.size());
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getKey(), dictionary.get(i).getWord());
+            assertEquals((int)entry.getValue(),
+                    dictionary.get(i).getFrequency());
+            i++;
+        }
+    }
+
+    /**
+     * Method used to count words with a map in the order first seen.
+     * @param tokens List of type string containing words to count.
+     * @return Map of words to counts.
+     */
+    private static Map<String, Integer> countWords(ArrayList<String> tokens) {
+        Map<String, Integer> counts = new LinkedHashMap();
+        for (String token : tokens) {
+            Integer count = counts.get(token);
+            counts.put(token, count == null ? 1 : count + 1);
+        }
+        return counts;
+    }
+}
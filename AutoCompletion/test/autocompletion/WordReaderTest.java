@@ -0,0 +1,85 @@
+package autocompletion;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Class: WordReaderTest.java
+ * Description: Test class used to check words streamed from a file are
+ *  counted as the words read into a list by readWordsFromCSV, whatever
+ *  the size of the buffer they are read through.
+ * Author: Paulo Jorge.
+ */
+public class WordReaderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Method used to check buffers smaller than a word and larger than
+     *  the file.
+     * @throws IOException If the corpus cannot be written or read.
+     */
+    @Test
+    public void matchesReadWordsFromCSV() throws IOException {
+        File file = this.folder.newFile("corpus.csv");
+        new TestCorpus(2000).write(20000, file);
+        try (FileWriter writer = new FileWriter(file, true)) {
+            writer.write("Hello, WORLD,,hello  world\n");
+        }
+
+        Map<String, Integer> expected = new LinkedHashMap();
+        long tokens = 0;
+        for (String word : MakeDictionary.readWordsFromCSV(file.getPath()))
+            if (!word.isEmpty()) {
+                Integer count = expected.get(word);
+                expected.put(word, count == null ? 1 : count + 1);
+                tokens++;
+            }
+
+        for (int bufferSize : new int[] {3, 7, 1 << 20}) {
+            WordCounter counter = new WordCounter();
+            WordReader reader = new WordReader(Alphabet.LOWER_CASE,
+                    bufferSize);
+            reader.read(file.getPath(), counter);
+            assertEquals(file.length(), reader.getBytesRead());
+            assertEquals(tokens, reader.getWordsRead());
+
+            assertEquals(expected.size(), counter.size());
+            int id = 0;
+            for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+                assertEquals(entry.getKey(), counter.getWord(id));
+                assertEquals((int)entry.getValue(), counter.getCount(id));
+                id++;
+            }
+        }
+    }
+
+    /**
+     * Method used to check words of other than ASCII characters are
+     *  decoded and normalised, even when split between buffers.
+     * @throws IOException If the file cannot be written or read.
+     */
+    @Test
+    public void decodesWords() throws IOException {
+        File file = this.folder.newFile("words.csv");
+        Files.write(file.toPath(), "\u00c9clair,\u00e9clair na\u00efve\n"
+                .getBytes(StandardCharsets.UTF_8));
+
+        WordCounter counter = new WordCounter();
+        new WordReader(Alphabet.LOWER_CASE, 4).read(file.getPath(),
+                counter);
+        assertEquals(2, counter.size());
+        assertEquals(2, counter.getCount(counter.indexOf("\u00e9clair")));
+        assertEquals(1, counter.getCount(counter.indexOf("na\u00efve")));
+    }
+}